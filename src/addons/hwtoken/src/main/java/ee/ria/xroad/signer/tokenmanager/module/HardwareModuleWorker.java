@@ -190,7 +190,8 @@ public class HardwareModuleWorker extends AbstractModuleWorker {
                         KeyAlgorithm.EC, module.getEcSignMechanismName()
                 ),
                 module.getPrivKeyAttributes(),
-                module.getPubKeyAttributes()
+                module.getPubKeyAttributes(),
+                module.getSignSessionPoolSize()
         );
     }
 
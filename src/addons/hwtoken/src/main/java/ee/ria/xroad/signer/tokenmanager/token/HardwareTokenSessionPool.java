@@ -0,0 +1,189 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.signer.tokenmanager.token;
+
+import iaik.pkcs.pkcs11.Session;
+import iaik.pkcs.pkcs11.Token;
+import iaik.pkcs.pkcs11.TokenException;
+import iaik.pkcs.pkcs11.wrapper.PKCS11Exception;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Set;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import static iaik.pkcs.pkcs11.Token.SessionType.SERIAL_SESSION;
+import static iaik.pkcs.pkcs11.wrapper.PKCS11Constants.CKR_DEVICE_ERROR;
+import static iaik.pkcs.pkcs11.wrapper.PKCS11Constants.CKR_DEVICE_REMOVED;
+import static iaik.pkcs.pkcs11.wrapper.PKCS11Constants.CKR_SESSION_CLOSED;
+import static iaik.pkcs.pkcs11.wrapper.PKCS11Constants.CKR_SESSION_HANDLE_INVALID;
+import static iaik.pkcs.pkcs11.wrapper.PKCS11Constants.CKR_TOKEN_NOT_PRESENT;
+
+/**
+ * Pool of read-only pkcs#11 sessions used for signing. Sessions are opened lazily up to the pool size and
+ * reused in most-recently-used order. A session that has been idle longer than the validation interval is
+ * checked with C_GetSessionInfo before it is handed out, and sessions whose last operation failed with a
+ * session level error are closed instead of being returned to the pool.
+ */
+@Slf4j
+class HardwareTokenSessionPool implements AutoCloseable {
+
+    private static final long VALIDATE_AFTER_IDLE_NANOS = TimeUnit.SECONDS.toNanos(30);
+
+    private static final Set<Long> SESSION_FAILURES = Set.of(CKR_SESSION_HANDLE_INVALID, CKR_SESSION_CLOSED,
+            CKR_DEVICE_ERROR, CKR_DEVICE_REMOVED, CKR_TOKEN_NOT_PRESENT);
+
+    private final Token token;
+
+    private final BlockingDeque<IdleSession> idle = new LinkedBlockingDeque<>();
+    // one permit per session that may be handed out; idle sessions do not hold a permit
+    private final Semaphore available;
+
+    private volatile boolean closed;
+
+    HardwareTokenSessionPool(Token token, int size) {
+        this.token = token;
+        this.available = new Semaphore(Math.max(1, size));
+    }
+
+    /**
+     * Takes a healthy session from the pool, opening a new one if the pool is not yet full and waiting for a
+     * session to be released otherwise.
+     * @return a session that must be handed back with {@link #release(Session)} or {@link #invalidate(Session)}
+     * @throws TokenException if a new session could not be opened
+     * @throws InterruptedException if interrupted while waiting for a session
+     */
+    Session borrow() throws TokenException, InterruptedException {
+        checkNotClosed();
+        available.acquire();
+
+        try {
+            checkNotClosed();
+
+            IdleSession candidate;
+            while ((candidate = idle.pollFirst()) != null) {
+                if (isHealthy(candidate)) {
+                    return candidate.session();
+                }
+
+                closeQuietly(candidate.session());
+            }
+
+            return token.openSession(SERIAL_SESSION, false, null, null);
+        } catch (TokenException | RuntimeException e) {
+            available.release();
+
+            throw e;
+        }
+    }
+
+    /**
+     * Returns a session to the pool.
+     * @param session the session
+     */
+    void release(Session session) {
+        if (closed) {
+            invalidate(session);
+        } else {
+            idle.offerFirst(new IdleSession(session, System.nanoTime()));
+            available.release();
+
+            if (closed) {
+                // the pool was closed while the session was being returned
+                closeIdle();
+            }
+        }
+    }
+
+    /**
+     * Closes a session that must not be reused and frees its place in the pool.
+     * @param session the session
+     */
+    void invalidate(Session session) {
+        closeQuietly(session);
+        available.release();
+    }
+
+    /**
+     * Closes the idle sessions. Borrowed sessions are closed when they are handed back, and threads waiting
+     * for a session fail once one is handed back.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        closeIdle();
+    }
+
+    /**
+     * @param e the exception thrown by a pkcs#11 call
+     * @return true if the exception means the session used for the call is no longer usable
+     */
+    static boolean isSessionFailure(Exception e) {
+        return e instanceof PKCS11Exception pkcs11Exception && SESSION_FAILURES.contains(pkcs11Exception.getErrorCode());
+    }
+
+    private void closeIdle() {
+        IdleSession idleSession;
+        while ((idleSession = idle.pollFirst()) != null) {
+            closeQuietly(idleSession.session());
+        }
+    }
+
+    private void checkNotClosed() {
+        if (closed) {
+            throw new IllegalStateException("Session pool is closed");
+        }
+    }
+
+    private static boolean isHealthy(IdleSession candidate) {
+        if (System.nanoTime() - candidate.releasedAt() < VALIDATE_AFTER_IDLE_NANOS) {
+            return true;
+        }
+
+        try {
+            candidate.session().getSessionInfo();
+
+            return true;
+        } catch (TokenException e) {
+            log.warn("Discarding unusable pkcs#11 session: {}", e.getMessage());
+
+            return false;
+        }
+    }
+
+    private static void closeQuietly(Session session) {
+        try {
+            session.closeSession();
+        } catch (Exception e) {
+            log.debug("Failed to close pkcs#11 session", e);
+        }
+    }
+
+    private record IdleSession(Session session, long releasedAt) {
+    }
+}
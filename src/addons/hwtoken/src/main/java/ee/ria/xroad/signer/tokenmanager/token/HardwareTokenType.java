@@ -69,6 +69,8 @@ public class HardwareTokenType implements TokenType {
 
     PubKeyAttributes pubKeyAttributes;
 
+    int signSessionPoolSize;
+
     @Override
     public String getId() {
         return EncoderUtils.encodeHex(SignerUtil.getFormattedTokenId(tokenIdFormat, moduleType, token).getBytes());
@@ -71,6 +71,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static ee.ria.xroad.common.ErrorCodes.X_INTERNAL_ERROR;
 import static ee.ria.xroad.common.ErrorCodes.X_KEY_NOT_FOUND;
@@ -102,6 +103,8 @@ import static ee.ria.xroad.signer.util.ExceptionHelper.loginFailed;
 import static ee.ria.xroad.signer.util.ExceptionHelper.logoutFailed;
 import static ee.ria.xroad.signer.util.SignerUtil.keyId;
 import static iaik.pkcs.pkcs11.Token.SessionType.SERIAL_SESSION;
+import static iaik.pkcs.pkcs11.wrapper.PKCS11Constants.CKR_KEY_HANDLE_INVALID;
+import static iaik.pkcs.pkcs11.wrapper.PKCS11Constants.CKR_OBJECT_HANDLE_INVALID;
 
 /**
  * Token worker for hardware tokens.
@@ -114,11 +117,14 @@ public class HardwareTokenWorker extends AbstractTokenWorker {
     // maps signature algorithm id and signing mechanism
     private final Map<SignAlgorithm, Mechanism> signMechanisms;
 
-    // maps key id (hex) to PrivateKey
-    private final Map<String, PrivateKey> privateKeys = new HashMap<>();
+    // maps key id (hex) to PrivateKey, the object handles are valid in every session of the token
+    private final Map<String, PrivateKey> privateKeys = new ConcurrentHashMap<>();
     private final Map<String, List<X509PublicKeyCertificate>> certs = new HashMap<>();
 
-    private Session activeSession;
+    private volatile Session activeSession;
+
+    // sessions used for signing, available while there is an active session
+    private volatile HardwareTokenSessionPool signSessionPool;
 
     /**
      * @param tokenInfo the token info
@@ -175,6 +181,9 @@ public class HardwareTokenWorker extends AbstractTokenWorker {
 
     @Override
     public void reload() {
+        // key object handles may change when the token is reloaded
+        privateKeys.clear();
+
         start();
     }
 
@@ -194,6 +203,12 @@ public class HardwareTokenWorker extends AbstractTokenWorker {
         updateTokenInfo();
     }
 
+    @Override
+    protected int getSignConcurrency() {
+        // per signing login state is shared by all sessions of the token
+        return tokenType.isPinVerificationPerSigning() ? 1 : getHardwareTokenType().getSignSessionPoolSize();
+    }
+
     // ----------------------- Message handlers -------------------------------
 
     @Override
@@ -353,23 +368,60 @@ public class HardwareTokenWorker extends AbstractTokenWorker {
         pinVerificationPerSigningLogin();
         assertKeyAvailable(keyId);
 
-        PrivateKey key = getPrivateKey(keyId);
-        if (key == null) {
-            throw CodedException.tr(X_KEY_NOT_FOUND, "key_not_found_on_token", "Key '%s' not found on token '%s'",
-                    keyId, tokenId);
+        try {
+            return signWithPooledSession(keyId, signatureAlgorithmId, data);
+        } finally {
+            pinVerificationPerSigningLogout();
         }
+    }
+
+    private byte[] signWithPooledSession(String keyId, SignAlgorithm signatureAlgorithmId, byte[] data) throws Exception {
+        HardwareTokenSessionPool pool = signSessionPool;
+
+        if (pool == null) {
+            throw new CodedException(X_INTERNAL_ERROR, "No active session on token %s", tokenId);
+        }
+
+        Session session = pool.borrow();
+        boolean reusable = true;
 
-        log.debug("Signing with key '{}' and signature algorithm '{}'", keyId, signatureAlgorithmId);
         try {
-            Mechanism signMechanism = verifyAndReturnSignMechanism(signatureAlgorithmId, KeyAlgorithm.valueOf(key.getKeyType().toString()));
+            PrivateKey key = getPrivateKey(session, keyId);
+            if (key == null) {
+                throw CodedException.tr(X_KEY_NOT_FOUND, "key_not_found_on_token", "Key '%s' not found on token '%s'",
+                        keyId, tokenId);
+            }
+
+            log.debug("Signing with key '{}' and signature algorithm '{}'", keyId, signatureAlgorithmId);
 
-            activeSession.signInit(signMechanism, key);
-            return activeSession.sign(data);
+            Mechanism signMechanism = verifyAndReturnSignMechanism(signatureAlgorithmId,
+                    KeyAlgorithm.valueOf(key.getKeyType().toString()));
+
+            session.signInit(signMechanism, key);
+            return session.sign(data);
+        } catch (PKCS11Exception e) {
+            if (HardwareTokenSessionPool.isSessionFailure(e)) {
+                reusable = false;
+            } else if (isKeyHandleFailure(e)) {
+                log.warn("Cached handle of key '{}' on token '{}' is no longer valid", keyId, getWorkerId());
+
+                privateKeys.remove(keyId);
+            }
+
+            throw e;
         } finally {
-            pinVerificationPerSigningLogout();
+            if (reusable) {
+                pool.release(session);
+            } else {
+                pool.invalidate(session);
+            }
         }
     }
 
+    private static boolean isKeyHandleFailure(PKCS11Exception e) {
+        return e.getErrorCode() == CKR_KEY_HANDLE_INVALID || e.getErrorCode() == CKR_OBJECT_HANDLE_INVALID;
+    }
+
     private Mechanism verifyAndReturnSignMechanism(SignAlgorithm signatureAlgorithmId, KeyAlgorithm algorithm) throws CodedException {
         Mechanism signMechanism = signMechanisms.get(signatureAlgorithmId);
 
@@ -459,11 +511,17 @@ public class HardwareTokenWorker extends AbstractTokenWorker {
     }
 
     private PrivateKey getPrivateKey(String keyId) throws Exception {
+        return getPrivateKey(activeSession, keyId);
+    }
+
+    private PrivateKey getPrivateKey(Session session, String keyId) throws Exception {
         PrivateKey privateKey = privateKeys.get(keyId);
         if (privateKey == null) {
             log.debug("Key {} not found in cache, trying to find it from hardware token", keyId);
-            privateKey = findPrivateKey(activeSession, keyId, tokenType.getPrivKeyAttributes().getAllowedMechanisms());
-            privateKeys.put(keyId, privateKey);
+            privateKey = findPrivateKey(session, keyId, tokenType.getPrivKeyAttributes().getAllowedMechanisms());
+            if (privateKey != null) {
+                privateKeys.put(keyId, privateKey);
+            }
         }
         return privateKey;
     }
@@ -629,6 +687,7 @@ public class HardwareTokenWorker extends AbstractTokenWorker {
 
         if (getToken() != null) {
             activeSession = getToken().openSession(SERIAL_SESSION, true, null, null);
+            signSessionPool = new HardwareTokenSessionPool(getToken(), getHardwareTokenType().getSignSessionPoolSize());
         }
     }
 
@@ -700,6 +759,11 @@ public class HardwareTokenWorker extends AbstractTokenWorker {
             try {
                 logout();
             } finally {
+                if (signSessionPool != null) {
+                    signSessionPool.close();
+                    signSessionPool = null;
+                }
+
                 activeSession.closeSession();
                 activeSession = null;
             }
@@ -707,7 +771,11 @@ public class HardwareTokenWorker extends AbstractTokenWorker {
     }
 
     private Token getToken() {
-        return ((HardwareTokenType) tokenType).getToken();
+        return getHardwareTokenType().getToken();
+    }
+
+    private HardwareTokenType getHardwareTokenType() {
+        return (HardwareTokenType) tokenType;
     }
 
     private void setTokenStatusFromErrorCode(long errorCode) throws Exception {
@@ -791,18 +859,9 @@ public class HardwareTokenWorker extends AbstractTokenWorker {
                 assertActiveSession();
                 pinVerificationPerSigningLogin();
                 byte[] dataToSign = out.toByteArray();
-                PrivateKey privateKey = getPrivateKey(keyId);
-                if (privateKey == null) {
-                    throw CodedException.tr(X_KEY_NOT_FOUND, "key_not_found_on_token", "Key '%s' not found on token '%s'",
-                            keyId, tokenId);
-                }
-                log.debug("Signing with key '{}' and signature algorithm '{}'", keyId, signatureAlgorithmId);
-                Mechanism signatureMechanism = verifyAndReturnSignMechanism(signatureAlgorithmId,
-                        KeyAlgorithm.valueOf(privateKey.getKeyType().toString()));
-                activeSession.signInit(signatureMechanism, privateKey);
                 byte[] digest = calculateDigest(signatureAlgorithmId.digest(), dataToSign);
                 byte[] dataDigestToSign = SignDataPreparer.of(signatureAlgorithmId).prepare(digest);
-                return activeSession.sign(dataDigestToSign);
+                return signWithPooledSession(keyId, signatureAlgorithmId, dataDigestToSign);
             } catch (Exception e) {
                 log.error(e.getMessage());
                 throw translateException(e);
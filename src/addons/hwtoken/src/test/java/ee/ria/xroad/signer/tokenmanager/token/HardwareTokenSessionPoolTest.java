@@ -0,0 +1,202 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.signer.tokenmanager.token;
+
+import iaik.pkcs.pkcs11.Session;
+import iaik.pkcs.pkcs11.Token;
+import iaik.pkcs.pkcs11.TokenException;
+import iaik.pkcs.pkcs11.wrapper.PKCS11Exception;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static iaik.pkcs.pkcs11.wrapper.PKCS11Constants.CKR_DEVICE_REMOVED;
+import static iaik.pkcs.pkcs11.wrapper.PKCS11Constants.CKR_KEY_HANDLE_INVALID;
+import static iaik.pkcs.pkcs11.wrapper.PKCS11Constants.CKR_SESSION_HANDLE_INVALID;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests {@link HardwareTokenSessionPool} against a mocked pkcs#11 token.
+ */
+public class HardwareTokenSessionPoolTest {
+    private static final long TIMEOUT_SECONDS = 5;
+    private static final long BLOCKED_MILLIS = 200;
+
+    private final Token token = mock(Token.class);
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * A released session is handed out again instead of opening a new one.
+     */
+    @Test
+    public void releasedSessionIsReused() throws Exception {
+        opensNewSessions();
+        HardwareTokenSessionPool pool = new HardwareTokenSessionPool(token, 2);
+
+        Session session = pool.borrow();
+        pool.release(session);
+
+        assertSame(session, pool.borrow());
+        verify(token, times(1)).openSession(anyBoolean(), anyBoolean(), any(), any());
+    }
+
+    /**
+     * Sessions are opened up to the pool size, after which borrowers wait until a session is released.
+     */
+    @Test
+    public void exhaustedPoolWaitsForRelease() throws Exception {
+        opensNewSessions();
+        HardwareTokenSessionPool pool = new HardwareTokenSessionPool(token, 2);
+
+        Session first = pool.borrow();
+        Session second = pool.borrow();
+        assertNotSame(first, second);
+
+        Future<Session> third = executor.submit(pool::borrow);
+        assertThrows(TimeoutException.class, () -> third.get(BLOCKED_MILLIS, TimeUnit.MILLISECONDS));
+
+        pool.release(second);
+
+        assertSame(second, third.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        verify(token, times(2)).openSession(anyBoolean(), anyBoolean(), any(), any());
+    }
+
+    /**
+     * An invalidated session is closed and its place is given to a waiting borrower, who gets a new session.
+     */
+    @Test
+    public void invalidatedSessionIsClosedAndReplaced() throws Exception {
+        opensNewSessions();
+        HardwareTokenSessionPool pool = new HardwareTokenSessionPool(token, 1);
+
+        Session failed = pool.borrow();
+        Future<Session> waiting = executor.submit(pool::borrow);
+        assertThrows(TimeoutException.class, () -> waiting.get(BLOCKED_MILLIS, TimeUnit.MILLISECONDS));
+
+        pool.invalidate(failed);
+
+        Session replacement = waiting.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        assertNotSame(failed, replacement);
+        verify(failed).closeSession();
+        verify(replacement, never()).closeSession();
+    }
+
+    /**
+     * A session that could not be opened does not take up a place in the pool.
+     */
+    @Test
+    public void failedOpenDoesNotTakePlace() throws Exception {
+        Session session = mock(Session.class);
+        when(token.openSession(anyBoolean(), anyBoolean(), any(), any()))
+                .thenThrow(new PKCS11Exception(CKR_DEVICE_REMOVED))
+                .thenReturn(session);
+        HardwareTokenSessionPool pool = new HardwareTokenSessionPool(token, 1);
+
+        assertThrows(PKCS11Exception.class, pool::borrow);
+        assertSame(session, pool.borrow());
+    }
+
+    /**
+     * Only session level pkcs#11 errors make a session unusable.
+     */
+    @Test
+    public void recognizesSessionFailures() {
+        assertTrue(HardwareTokenSessionPool.isSessionFailure(new PKCS11Exception(CKR_SESSION_HANDLE_INVALID)));
+        assertTrue(HardwareTokenSessionPool.isSessionFailure(new PKCS11Exception(CKR_DEVICE_REMOVED)));
+        assertFalse(HardwareTokenSessionPool.isSessionFailure(new PKCS11Exception(CKR_KEY_HANDLE_INVALID)));
+        assertFalse(HardwareTokenSessionPool.isSessionFailure(new TokenException("failed")));
+    }
+
+    /**
+     * Closing the pool closes idle sessions at once and borrowed sessions when they are handed back.
+     */
+    @Test
+    public void closeClosesSessions() throws Exception {
+        opensNewSessions();
+        HardwareTokenSessionPool pool = new HardwareTokenSessionPool(token, 2);
+
+        Session idle = pool.borrow();
+        Session borrowed = pool.borrow();
+        pool.release(idle);
+
+        pool.close();
+
+        verify(idle).closeSession();
+        verify(borrowed, never()).closeSession();
+
+        pool.release(borrowed);
+
+        verify(borrowed).closeSession();
+        assertThrows(IllegalStateException.class, pool::borrow);
+    }
+
+    /**
+     * A borrower waiting on a closed pool fails once a session is handed back.
+     */
+    @Test
+    public void closeFailsWaitingBorrower() throws Exception {
+        opensNewSessions();
+        HardwareTokenSessionPool pool = new HardwareTokenSessionPool(token, 1);
+
+        Session borrowed = pool.borrow();
+        Future<Session> waiting = executor.submit(pool::borrow);
+        assertThrows(TimeoutException.class, () -> waiting.get(BLOCKED_MILLIS, TimeUnit.MILLISECONDS));
+
+        pool.close();
+        pool.release(borrowed);
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> waiting.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertEquals(IllegalStateException.class, e.getCause().getClass());
+        verify(borrowed).closeSession();
+    }
+
+    private void opensNewSessions() throws TokenException {
+        when(token.openSession(anyBoolean(), anyBoolean(), any(), any())).thenAnswer(invocation -> mock(Session.class));
+    }
+}
@@ -30,7 +30,6 @@ import ee.ria.xroad.common.conf.globalconf.GlobalConfProvider;
 import ee.ria.xroad.common.messagelog.MessageLogProperties;
 import ee.ria.xroad.common.signature.TimestampVerifier;
 
-import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.bouncycastle.asn1.ASN1ObjectIdentifier;
@@ -39,9 +38,18 @@ import org.bouncycastle.tsp.TimeStampRequestGenerator;
 import org.bouncycastle.tsp.TimeStampResponse;
 import org.bouncycastle.tsp.TimeStampToken;
 
-import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.security.cert.X509Certificate;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static ee.ria.xroad.common.ErrorCodes.X_INTERNAL_ERROR;
 import static ee.ria.xroad.common.crypto.Digests.calculateDigest;
@@ -52,6 +60,8 @@ import static ee.ria.xroad.proxy.messagelog.TimestamperUtil.getTimestampResponse
 @Slf4j
 @RequiredArgsConstructor
 public abstract class AbstractTimestampRequest {
+    static final TspLatencyTracker TSP_LATENCIES = new TspLatencyTracker();
+
     protected final GlobalConfProvider globalConfProvider;
     protected final Long[] logRecords;
 
@@ -65,43 +75,122 @@ public abstract class AbstractTimestampRequest {
         return makeTsRequest(tsRequest, tspUrls);
     }
 
-    @Getter
-    public static class TsRequest {
-        private final InputStream inputStream;
-        private final String url;
-
-        TsRequest(final InputStream inputStream, final String url) {
-            this.inputStream = inputStream;
-            this.url = url;
-        }
-    }
-
     protected Timestamper.TimestampResult makeTsRequest(TimeStampRequest tsRequest,
                                                         List<String> tspUrls) throws Exception {
         log.debug("tspUrls: {}", tspUrls);
+
+        if (MessageLogProperties.isTimestamperHedgingEnabled() && tspUrls.size() > 1) {
+            return makeHedgedTsRequest(tsRequest, TSP_LATENCIES.order(tspUrls));
+        }
+
         for (String url : tspUrls) {
             try {
-                log.debug("Sending time-stamp request to {}", url);
+                return result(requestTimestamp(tsRequest, url), url);
+            } catch (Exception ex) {
+                log.error("Failed to get time stamp from " + url, ex);
+            }
+        }
 
-                TsRequest req = new TsRequest(TimestamperUtil.makeTsRequest(tsRequest, url), url);
+        // All the URLs failed. Throw exception.
+        throw new RuntimeException(
+                "Failed to get time stamp from any time-stamping providers");
+    }
 
-                TimeStampResponse tsResponse = getTimestampResponse(req.getInputStream());
-                log.info("tsresponse {}", tsResponse);
+    /**
+     * Sends the request to the preferred time-stamping service. If there is no response within the usual
+     * response time of that service (see {@link MessageLogProperties#getTimestamperHedgePercentile()}) or the
+     * request fails, the request is also sent to the next service. The first valid response is used and the
+     * other requests are cancelled.
+     */
+    private Timestamper.TimestampResult makeHedgedTsRequest(TimeStampRequest tsRequest,
+                                                            List<String> tspUrls) throws Exception {
+        log.debug("Sending hedged time-stamp request, preference order: {}", tspUrls);
 
-                verify(tsRequest, tsResponse);
+        final int percentile = MessageLogProperties.getTimestamperHedgePercentile();
+        final long defaultDelay = MessageLogProperties.getTimestamperHedgeDelay();
 
-                return result(tsResponse, url);
+        final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        try {
+            final CompletionService<TsResponse> responses = new ExecutorCompletionService<>(executor);
+            final Map<Future<TsResponse>, String> pending = new HashMap<>();
 
-            } catch (Exception ex) {
-                log.error("Failed to get time stamp from " + url, ex);
+            int next = 0;
+            String url = tspUrls.get(next++);
+            pending.put(submit(responses, tsRequest, url), url);
+
+            try {
+                while (!pending.isEmpty()) {
+                    Future<TsResponse> done;
+                    if (next < tspUrls.size()) {
+                        done = responses.poll(TSP_LATENCIES.getPercentile(url, percentile, defaultDelay),
+                                TimeUnit.MILLISECONDS);
+                        if (done == null) {
+                            url = tspUrls.get(next++);
+                            log.debug("No time-stamp response in time, sending hedged request to {}", url);
+                            pending.put(submit(responses, tsRequest, url), url);
+                            continue;
+                        }
+                    } else {
+                        done = responses.take();
+                    }
+
+                    final String doneUrl = pending.remove(done);
+                    try {
+                        return result(done.get().response(), doneUrl);
+                    } catch (Exception ex) {
+                        log.error("Failed to get time stamp from " + doneUrl,
+                                ex instanceof ExecutionException ? ex.getCause() : ex);
+
+                        if (next < tspUrls.size()) {
+                            url = tspUrls.get(next++);
+                            pending.put(submit(responses, tsRequest, url), url);
+                        }
+                    }
+                }
+            } finally {
+                pending.keySet().forEach(f -> f.cancel(true));
             }
+        } finally {
+            // do not wait for the cancelled requests
+            executor.shutdownNow();
         }
 
-        // All the URLs failed. Throw exception.
         throw new RuntimeException(
                 "Failed to get time stamp from any time-stamping providers");
     }
 
+    private Future<TsResponse> submit(CompletionService<TsResponse> responses, TimeStampRequest tsRequest,
+                                      String url) {
+        return responses.submit(() -> new TsResponse(requestTimestamp(tsRequest, url)));
+    }
+
+    private record TsResponse(TimeStampResponse response) {
+    }
+
+    /**
+     * Gets and verifies a time-stamp response from the given service and records the response time.
+     */
+    private TimeStampResponse requestTimestamp(TimeStampRequest tsRequest, String url) throws Exception {
+        log.debug("Sending time-stamp request to {}", url);
+
+        final long start = System.currentTimeMillis();
+        try {
+            TimeStampResponse tsResponse = getTimestampResponse(TimestamperUtil.makeTsRequest(tsRequest, url));
+            log.info("tsresponse {}", tsResponse);
+
+            verify(tsRequest, tsResponse);
+
+            TSP_LATENCIES.recordSuccess(url, System.currentTimeMillis() - start);
+            return tsResponse;
+        } catch (Exception ex) {
+            // a cancelled hedged request says nothing about the service, so it is not recorded
+            if (!(ex instanceof InterruptedIOException || Thread.currentThread().isInterrupted())) {
+                TSP_LATENCIES.recordFailure(url, MessageLogProperties.getTimestamperClientReadTimeout());
+            }
+            throw ex;
+        }
+    }
+
     private TimeStampRequest createTimestampRequest(byte[] data)
             throws Exception {
         TimeStampRequestGenerator reqgen = new TimeStampRequestGenerator();
@@ -51,6 +51,8 @@ import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.Date;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
@@ -84,6 +86,7 @@ public class LogManager extends AbstractLogManager {
 
     private final Timestamper timestamper;
     private final TimestamperJob timestamperJob;
+    private final MessageRecordWriter recordWriter;
 
     // package private for testing
     final TaskQueue taskQueue;
@@ -96,11 +99,16 @@ public class LogManager extends AbstractLogManager {
         this.timestamper = getTimestamperImpl();
         this.taskQueue = getTaskQueueImpl(timestamper);
         this.timestamperJob = createTimestamperJob(taskQueue);
+        this.recordWriter = new MessageRecordWriter(MessageLogProperties.getWriteQueueSize(),
+                MessageLogProperties.getWriteBatchSize(), MessageLogProperties.getWriteQueueTimeout(),
+                LogRecordManager::saveMessageRecords);
     }
 
     @Override
     public void destroy() {
         timestamperJob.shutdown();
+        recordWriter.stop();
+        taskQueue.stop();
         super.destroy();
     }
 
@@ -178,7 +186,9 @@ public class LogManager extends AbstractLogManager {
 
         switch (result) {
             case Timestamper.TimestampSucceeded tts:
-                return saveTimestampRecord(tts);
+                TimestampRecord timestampRecord = saveTimestampRecord(tts);
+                taskQueue.messageRecordsTimestamped(tts.getMessageRecords().length);
+                return timestampRecord;
             case Timestamper.TimestampFailed ttf:
                 Exception e = ttf.getCause();
                 log.error("Timestamping failed", e);
@@ -210,6 +220,10 @@ public class LogManager extends AbstractLogManager {
         } else if (manipulator.isBodyLogged(message)) {
             // log attachments for non-batch signatures
             if (MAX_LOGGABLE_BODY_SIZE > 0) {
+                if (!TRUNCATED_BODY_ALLOWED && message.getAttachments().stream()
+                        .anyMatch(attachment -> attachment.getSize() > MAX_LOGGABLE_BODY_SIZE)) {
+                    throw new CodedException(X_LOGGING_FAILED_X, "Message attachment size exceeds maximum loggable size");
+                }
                 messageRecord.setAttachmentStreams(message.getAttachments()
                         .stream().map(LogManager::boundedAttachmentStream).toList());
             }
@@ -224,9 +238,6 @@ public class LogManager extends AbstractLogManager {
         return new AttachmentStream() {
             @Override
             public InputStream getStream() {
-                if (attachment.getSize() > MAX_LOGGABLE_BODY_SIZE && !TRUNCATED_BODY_ALLOWED) {
-                    throw new CodedException(X_LOGGING_FAILED_X, "Message attachment size exceeds maximum loggable size");
-                }
                 final BoundedInputStream body = new BoundedInputStream(attachment.getStream(), MAX_LOGGABLE_BODY_SIZE);
                 body.setPropagateClose(false);
                 return body;
@@ -275,7 +286,22 @@ public class LogManager extends AbstractLogManager {
     }
 
     protected MessageRecord saveMessageRecord(MessageRecord messageRecord) throws Exception {
-        LogRecordManager.saveMessageRecord(messageRecord);
+        CompletableFuture<MessageRecord> saved = recordWriter.submit(messageRecord).thenApply(savedRecord -> {
+            taskQueue.messageRecordSaved(savedRecord);
+            return savedRecord;
+        });
+
+        // Attachment streams belong to the request being processed and can only be read before log() returns.
+        // Timestamping immediately needs the record to be in the database.
+        if (MessageLogProperties.isWriteAckAfterCommit() || shouldTimestampImmediately()
+                || !messageRecord.getAttachmentStreams().isEmpty()) {
+            try {
+                return saved.get();
+            } catch (ExecutionException e) {
+                throw e.getCause() instanceof Exception cause ? cause : e;
+            }
+        }
+
         return messageRecord;
     }
 
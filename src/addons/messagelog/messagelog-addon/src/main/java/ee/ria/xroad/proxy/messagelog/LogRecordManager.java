@@ -40,6 +40,8 @@ import jakarta.persistence.criteria.Predicate;
 import jakarta.persistence.criteria.Root;
 import lombok.extern.slf4j.Slf4j;
 import org.hibernate.Session;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
 import org.hibernate.query.MutationQuery;
 
 import java.sql.Connection;
@@ -122,26 +124,44 @@ public final class LogRecordManager {
      * @throws Exception if an error occurs while communicating with database.
      */
     static void saveMessageRecord(MessageRecord messageRecord) throws Exception {
+        saveMessageRecords(List.of(messageRecord));
+    }
+
+    /**
+     * Saves the message records to database in one transaction. The record ids are allocated
+     * from the log record sequence with a single query and the inserts are sent in JDBC batches.
+     * @param messageRecords the message records to be saved.
+     * @throws Exception if an error occurs while communicating with database.
+     */
+    static void saveMessageRecords(List<MessageRecord> messageRecords) throws Exception {
+        log.trace("saveMessageRecords({})", messageRecords.size());
 
         final MessageRecordEncryption encryption = MessageRecordEncryption.getInstance();
         final boolean encrypt = encryption.encryptionEnabled();
 
         doInTransaction(session -> {
-            //the blob must be created within hibernate session
-            messageRecord.setId(getNextRecordId(session));
+            session.setJdbcBatchSize(getConfiguredBatchSize(session));
 
-            if (encrypt) {
-                encryption.prepareEncryption(messageRecord);
-            }
+            final long[] ids = getNextRecordIds(session, messageRecords.size());
 
-            int attachmentNo = 0;
-            for (AttachmentStream attachmentStream : messageRecord.getAttachmentStreams()) {
-                attachmentNo++;
-                messageRecord.addAttachment(attachmentNo,   // attachment numbering starts from one as in asic container
-                        session.getLobHelper().createBlob(attachmentStream.getStream(), attachmentStream.getSize()));
-            }
+            for (int i = 0; i < messageRecords.size(); i++) {
+                final MessageRecord messageRecord = messageRecords.get(i);
+                //the blob must be created within hibernate session
+                messageRecord.setId(ids[i]);
+
+                if (encrypt) {
+                    encryption.prepareEncryption(messageRecord);
+                }
+
+                int attachmentNo = 0;
+                for (AttachmentStream attachmentStream : messageRecord.getAttachmentStreams()) {
+                    attachmentNo++;
+                    messageRecord.addAttachment(attachmentNo,   // attachment numbering starts from one as in asic container
+                            session.getLobHelper().createBlob(attachmentStream.getStream(), attachmentStream.getSize()));
+                }
 
-            save(session, messageRecord);
+                save(session, messageRecord);
+            }
             return null;
         });
     }
@@ -200,6 +220,37 @@ public final class LogRecordManager {
         return session.createNativeQuery("SELECT nextval('logrecord_sequence')", Long.class).getSingleResult();
     }
 
+    /**
+     * Allocates a block of log record ids. On PostgreSQL the whole block is fetched with one query,
+     * other databases (used in tests) fall back to one query per id.
+     * @param session the Hibernate session.
+     * @param count the number of ids to allocate.
+     * @return the allocated ids in ascending order.
+     */
+    static long[] getNextRecordIds(Session session, int count) {
+        if (count == 1 || !isPostgreSQL(session)) {
+            long[] ids = new long[count];
+            for (int i = 0; i < count; i++) {
+                ids[i] = getNextRecordId(session);
+            }
+            return ids;
+        }
+
+        return session.createNativeQuery(
+                        "SELECT nextval('logrecord_sequence') FROM generate_series(1, :count)", Long.class)
+                .setParameter("count", count)
+                .getResultList()
+                .stream()
+                .mapToLong(Long::longValue)
+                .sorted()
+                .toArray();
+    }
+
+    private static boolean isPostgreSQL(Session session) {
+        return session.getSessionFactory().unwrap(SessionFactoryImplementor.class)
+                .getJdbcServices().getDialect() instanceof PostgreSQLDialect;
+    }
+
     /**
      * Associates each log record with the time-stamp record.
      * @param session the Hibernate session.
@@ -0,0 +1,220 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.proxy.messagelog;
+
+import ee.ria.xroad.common.CodedException;
+import ee.ria.xroad.common.messagelog.MessageRecord;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static ee.ria.xroad.common.ErrorCodes.X_LOGGING_FAILED_X;
+
+/**
+ * Writes message records to the database on a dedicated thread.
+ * <p>
+ * Records are put into a bounded queue. The writer thread takes all the records that have
+ * accumulated while the previous transaction was running (up to the batch size) and saves them
+ * in a single transaction. When the queue is full, callers wait for free space for a limited
+ * time and fail after that, so that a slow database slows down message exchange instead of
+ * exhausting memory.
+ * <p>
+ * If saving a batch fails, its records are saved again one by one, so that only the records
+ * that cannot be saved fail.
+ */
+@Slf4j
+final class MessageRecordWriter {
+
+    private static final long POLL_INTERVAL_MS = 100;
+    private static final long STOP_TIMEOUT_MS = 30_000;
+
+    /**
+     * Saves a batch of message records in one transaction.
+     */
+    @FunctionalInterface
+    interface BatchSaver {
+        void save(List<MessageRecord> messageRecords) throws Exception;
+    }
+
+    private record PendingRecord(MessageRecord messageRecord, CompletableFuture<MessageRecord> saved) {
+    }
+
+    private final BlockingQueue<PendingRecord> queue;
+    private final int batchSize;
+    private final long queueTimeoutMs;
+    private final BatchSaver saver;
+    private final Thread writerThread;
+
+    private volatile boolean running = true;
+
+    MessageRecordWriter(int queueSize, int batchSize, long queueTimeoutMs, BatchSaver saver) {
+        if (queueSize < 1 || batchSize < 1) {
+            throw new IllegalArgumentException("Write queue size and batch size must be positive");
+        }
+
+        this.queue = new ArrayBlockingQueue<>(queueSize);
+        this.batchSize = batchSize;
+        this.queueTimeoutMs = queueTimeoutMs;
+        this.saver = saver;
+        this.writerThread = Thread.ofPlatform()
+                .name("messagelog-writer")
+                .daemon()
+                .start(this::run);
+    }
+
+    /**
+     * Queues the message record for writing.
+     * @param messageRecord the message record
+     * @return future that is completed when the record has been committed to the database
+     * @throws InterruptedException if interrupted while waiting for space in the queue
+     */
+    CompletableFuture<MessageRecord> submit(MessageRecord messageRecord) throws InterruptedException {
+        if (!running) {
+            throw new CodedException(X_LOGGING_FAILED_X, "Message log writer is stopped");
+        }
+
+        PendingRecord pending = new PendingRecord(messageRecord, new CompletableFuture<>());
+
+        if (!queue.offer(pending, queueTimeoutMs, TimeUnit.MILLISECONDS)) {
+            throw new CodedException(X_LOGGING_FAILED_X, "Message log write queue is full");
+        }
+
+        return pending.saved();
+    }
+
+    /**
+     * @return the number of message records waiting to be written
+     */
+    int getQueueSize() {
+        return queue.size();
+    }
+
+    /**
+     * Stops accepting new records, writes the queued records and stops the writer thread.
+     */
+    void stop() {
+        running = false;
+
+        try {
+            writerThread.join(STOP_TIMEOUT_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (writerThread.isAlive()) {
+            log.warn("Message log writer did not finish in {} ms", STOP_TIMEOUT_MS);
+            writerThread.interrupt();
+        }
+
+        failPending(new CodedException(X_LOGGING_FAILED_X, "Message log writer is stopped"));
+    }
+
+    private void run() {
+        List<PendingRecord> batch = new ArrayList<>(batchSize);
+
+        try {
+            while (running || !queue.isEmpty()) {
+                PendingRecord first = queue.poll(POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+
+                if (first != null) {
+                    batch.add(first);
+                    queue.drainTo(batch, batchSize - 1);
+
+                    write(batch);
+                    batch.clear();
+                }
+            }
+        } catch (InterruptedException e) {
+            log.warn("Message log writer interrupted, {} records not written", batch.size() + queue.size());
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void write(List<PendingRecord> batch) {
+        log.trace("write({})", batch.size());
+
+        List<PendingRecord> grouped = new ArrayList<>(batch.size());
+        for (PendingRecord pending : batch) {
+            if (pending.messageRecord().getAttachmentStreams().isEmpty()) {
+                grouped.add(pending);
+            } else {
+                // Attachment streams can be read only once, so a record with attachments is saved
+                // in its own transaction to keep its failure from affecting the other records.
+                write(pending);
+            }
+        }
+
+        if (grouped.size() == 1) {
+            write(grouped.getFirst());
+        } else if (!grouped.isEmpty()) {
+            writeGroup(grouped);
+        }
+    }
+
+    private void writeGroup(List<PendingRecord> group) {
+        List<MessageRecord> records = new ArrayList<>(group.size());
+        for (PendingRecord pending : group) {
+            records.add(pending.messageRecord());
+        }
+
+        try {
+            saver.save(records);
+        } catch (Exception e) {
+            log.warn("Saving {} message records in one transaction failed, saving them one by one", records.size(), e);
+
+            group.forEach(this::write);
+            return;
+        }
+
+        group.forEach(pending -> pending.saved().complete(pending.messageRecord()));
+    }
+
+    private void write(PendingRecord pending) {
+        try {
+            saver.save(List.of(pending.messageRecord()));
+        } catch (Exception e) {
+            log.error("Saving message record failed", e);
+
+            pending.saved().completeExceptionally(e);
+            return;
+        }
+
+        pending.saved().complete(pending.messageRecord());
+    }
+
+    private void failPending(Exception cause) {
+        PendingRecord pending;
+        while ((pending = queue.poll()) != null) {
+            pending.saved().completeExceptionally(cause);
+        }
+    }
+}
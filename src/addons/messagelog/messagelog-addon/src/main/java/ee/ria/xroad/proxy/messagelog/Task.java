@@ -32,5 +32,6 @@ class Task {
 
     private final Long messageRecordNo;
     private final String signatureHash;
+    private final Long time;
 
 }
@@ -26,33 +26,91 @@
 package ee.ria.xroad.proxy.messagelog;
 
 import ee.ria.xroad.common.messagelog.MessageLogProperties;
+import ee.ria.xroad.common.messagelog.MessageRecord;
 import ee.ria.xroad.proxy.messagelog.Timestamper.TimestampFailed;
 import ee.ria.xroad.proxy.messagelog.Timestamper.TimestampSucceeded;
 import ee.ria.xroad.proxy.messagelog.Timestamper.TimestampTask;
 
-import lombok.AccessLevel;
-import lombok.RequiredArgsConstructor;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.jmx.JmxReporter;
 import lombok.extern.slf4j.Slf4j;
 import org.hibernate.Session;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static ee.ria.xroad.proxy.messagelog.MessageLogDatabaseCtx.doInTransaction;
 
 /**
  * Handles the TaskQueues -- adds tasks to the queue and sends the active queue for time-stamping.
+ * <p>
+ * The queue keeps the lowest id that may still belong to a message record without a time-stamp, so that
+ * each round only reads the records from that id onwards instead of scanning the whole log record table.
+ * The id is advanced after each successful round and recovered from the database on startup and after
+ * a failed save.
  */
 @Slf4j
-@RequiredArgsConstructor(access = AccessLevel.PACKAGE)
 public class TaskQueue {
 
     static final double TIMESTAMPED_RECORDS_RATIO_THRESHOLD = 0.7;
     static final int TIMESTAMP_RECORDS_LIMIT_RETRY_MODE = 1;
 
+    static final String METRIC_QUEUE_DEPTH = "messagelog.timestamping.queueDepth";
+    static final String METRIC_LAG = "messagelog.timestamping.lag";
+
     private final Timestamper timestamper;
     private final LogManager logManager;
 
+    private final MetricRegistry metricRegistry = new MetricRegistry();
+    private final JmxReporter reporter = JmxReporter.forRegistry(metricRegistry).build();
+    // Estimated number of message records without a time-stamp
+    private final AtomicLong pendingRecords = new AtomicLong();
+    // Creation time of the oldest known message record without a time-stamp, 0 if none
+    private final AtomicLong oldestPendingTime = new AtomicLong();
+
+    // Lowest id that may belong to a message record without a time-stamp, null if it must be read from database
+    private volatile Long nextRecordId;
+
+    TaskQueue(Timestamper timestamper, LogManager logManager) {
+        this.timestamper = timestamper;
+        this.logManager = logManager;
+
+        metricRegistry.register(METRIC_QUEUE_DEPTH, (Gauge<Long>) () -> Math.max(0, pendingRecords.get()));
+        metricRegistry.register(METRIC_LAG, (Gauge<Long>) this::getLag);
+        reporter.start();
+    }
+
+    /**
+     * @return metrics of the time-stamping queue: the estimated number of message records waiting for
+     * a time-stamp and the age (milliseconds) of the oldest of them. The metrics are reported over JMX.
+     */
+    public MetricRegistry getMetricRegistry() {
+        return metricRegistry;
+    }
+
+    /**
+     * Stops reporting the metrics of the queue.
+     */
+    void stop() {
+        reporter.stop();
+    }
+
+    void messageRecordSaved(MessageRecord messageRecord) {
+        pendingRecords.incrementAndGet();
+        oldestPendingTime.compareAndSet(0, messageRecord.getTime());
+    }
+
+    void messageRecordsTimestamped(int count) {
+        pendingRecords.addAndGet(-count);
+    }
+
+    private long getLag() {
+        long oldest = oldestPendingTime.get();
+        return oldest == 0 ? 0 : Math.max(0, System.currentTimeMillis() - oldest);
+    }
+
     protected void handleTimestampSucceeded(TimestampSucceeded message) {
         log.trace("handleTimestampSucceeded");
 
@@ -65,9 +123,12 @@ public class TaskQueue {
 
         try {
             saveTimestampRecord(message);
+            onRecordsTimestamped(message.getMessageRecords());
         } catch (Exception e) {
             log.error("Failed to save time-stamp record to database", e);
 
+            // the state of the records is unknown, read it from database on the next round
+            nextRecordId = null;
             succeeded = false;
         } finally {
             if (succeeded) {
@@ -89,6 +150,19 @@ public class TaskQueue {
         LogManager.saveTimestampRecord(message);
     }
 
+    private void onRecordsTimestamped(Long[] messageRecords) {
+        // The records were the lowest ids without a time-stamp, so all records up to the last one
+        // have been time-stamped now.
+        long last = Arrays.stream(messageRecords).mapToLong(Long::longValue).max().orElse(-1);
+        Long current = nextRecordId;
+        if (current != null && last >= current) {
+            nextRecordId = last + 1;
+        }
+
+        messageRecordsTimestamped(messageRecords.length);
+        oldestPendingTime.set(0);
+    }
+
     private void indicateSuccess() {
         sendTimestampingStatusToLogManager(SetTimestampingStatusMessage.Status.SUCCESS);
     }
@@ -147,11 +221,13 @@ public class TaskQueue {
 
         if (timestampTasks.isEmpty()) {
             log.trace("Nothing to time-stamp, task queue is empty");
+            oldestPendingTime.set(0);
             indicateSuccess();
             return;
         }
 
         int timestampTasksSize = timestampTasks.size();
+        oldestPendingTime.set(timestampTasks.getFirst().getTime());
 
         log.info("Start time-stamping {} message records", timestampTasksSize);
 
@@ -182,9 +258,9 @@ public class TaskQueue {
         return new TimestampTask(messageRecords, signatureHashes);
     }
 
-    private static boolean isTaskQueueEmpty() {
+    private boolean isTaskQueueEmpty() {
         try {
-            return doInTransaction(TaskQueue::getTasksQueueSize) == 0L;
+            return doInTransaction(session -> getTimestampTasks(session, 1)).isEmpty();
         } catch (Exception e) {
             log.error("Could not read timestamp task queue status", e);
 
@@ -192,9 +268,35 @@ public class TaskQueue {
         }
     }
 
-    @SuppressWarnings("unchecked")
     private List<Task> getTimestampTasks(Session session, int timestampRecordsLimit) {
-        return session.createQuery(getTaskQueueQuery()).setMaxResults(timestampRecordsLimit).list();
+        Long from = nextRecordId;
+        if (from == null) {
+            from = recoverNextRecordId(session);
+        }
+
+        return session.createQuery(getTaskQueueFromQuery(), Task.class)
+                .setParameter("from", from)
+                .setMaxResults(timestampRecordsLimit)
+                .list();
+    }
+
+    private long recoverNextRecordId(Session session) {
+        Long first = session.createQuery(
+                "select min(m.id) from MessageRecord m where m.timestampRecord is null", Long.class).uniqueResult();
+
+        if (first == null) {
+            // Message records are committed in id order, so any record without a time-stamp that is
+            // committed later will have a greater id than the records in the database.
+            Long last = session.createQuery("select max(m.id) from MessageRecord m", Long.class).uniqueResult();
+            first = last == null ? 0L : last + 1;
+        }
+
+        pendingRecords.set(getTasksQueueSize(session));
+        nextRecordId = first;
+
+        log.debug("Time-stamping queue starts from message record {}, {} records waiting", first, pendingRecords.get());
+
+        return first;
     }
 
     private static Long getTasksQueueSize(Session session) {
@@ -202,10 +304,15 @@ public class TaskQueue {
     }
 
     static String getTaskQueueQuery() {
-        return "select new " + Task.class.getName() + "(m.id, m.signatureHash) "
+        return "select new " + Task.class.getName() + "(m.id, m.signatureHash, m.time) "
                 + "from MessageRecord m where m.timestampRecord is null order by m.id";
     }
 
+    private static String getTaskQueueFromQuery() {
+        return "select new " + Task.class.getName() + "(m.id, m.signatureHash, m.time) "
+                + "from MessageRecord m where m.id >= :from and m.timestampRecord is null order by m.id";
+    }
+
     private static String getTaskQueueSizeQuery() {
         return "select COUNT(*) from MessageRecord m where m.timestampRecord is null";
     }
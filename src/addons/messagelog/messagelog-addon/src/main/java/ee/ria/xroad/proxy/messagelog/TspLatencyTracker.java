@@ -0,0 +1,120 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.proxy.messagelog;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps track of time-stamping service response times. The services are preferred in the order of their
+ * exponentially weighted moving average latency, and the latency percentile of the preferred service
+ * decides how long to wait before a hedged request is sent to the next service.
+ */
+final class TspLatencyTracker {
+
+    private static final double EWMA_WEIGHT = 0.3;
+    private static final int SAMPLE_COUNT = 100;
+
+    private final Map<String, Stats> stats = new ConcurrentHashMap<>();
+
+    /**
+     * Records the response time of a successful request.
+     * @param url URL of the time-stamping service
+     * @param latencyMillis response time in milliseconds
+     */
+    void recordSuccess(String url, long latencyMillis) {
+        stats.computeIfAbsent(url, u -> new Stats()).add(latencyMillis);
+    }
+
+    /**
+     * Records a failed request. A failure counts as a response that took as long as the read timeout,
+     * so that a failing service drops behind the working ones.
+     * @param url URL of the time-stamping service
+     * @param penaltyMillis latency to record for the failure
+     */
+    void recordFailure(String url, long penaltyMillis) {
+        stats.computeIfAbsent(url, u -> new Stats()).add(penaltyMillis);
+    }
+
+    /**
+     * @param urls configured time-stamping service URLs
+     * @return the URLs ordered by average latency. Services without measurements come first, in the
+     * configured order, so that they get measured.
+     */
+    List<String> order(List<String> urls) {
+        return urls.stream()
+                .sorted(Comparator.comparingDouble(this::getAverage))
+                .toList();
+    }
+
+    /**
+     * @param url URL of the time-stamping service
+     * @param percentile latency percentile (1-100)
+     * @param defaultMillis value to return if there are no measurements
+     * @return the given latency percentile of the recent requests to the service
+     */
+    long getPercentile(String url, int percentile, long defaultMillis) {
+        Stats s = stats.get(url);
+        return s == null ? defaultMillis : s.percentile(percentile, defaultMillis);
+    }
+
+    double getAverage(String url) {
+        Stats s = stats.get(url);
+        return s == null ? 0 : s.average();
+    }
+
+    private static final class Stats {
+        private final long[] samples = new long[SAMPLE_COUNT];
+        private int count;
+        private int next;
+        private double average;
+
+        synchronized void add(long latencyMillis) {
+            average = count == 0 ? latencyMillis : EWMA_WEIGHT * latencyMillis + (1 - EWMA_WEIGHT) * average;
+            samples[next] = latencyMillis;
+            next = (next + 1) % samples.length;
+            count = Math.min(count + 1, samples.length);
+        }
+
+        synchronized double average() {
+            return average;
+        }
+
+        synchronized long percentile(int percentile, long defaultMillis) {
+            if (count == 0) {
+                return defaultMillis;
+            }
+
+            long[] sorted = Arrays.copyOf(samples, count);
+            Arrays.sort(sorted);
+            int index = (int) Math.ceil(percentile / 100.0 * count) - 1;
+            return sorted[Math.clamp(index, 0, count - 1)];
+        }
+    }
+}
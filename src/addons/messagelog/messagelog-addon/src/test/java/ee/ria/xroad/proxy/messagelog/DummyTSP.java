@@ -28,15 +28,17 @@ package ee.ria.xroad.proxy.messagelog;
 import org.bouncycastle.tsp.TimeStampRequest;
 
 import java.io.FileInputStream;
+import java.io.InputStream;
 
 final class DummyTSP {
 
     private DummyTSP() {
     }
 
-    static AbstractTimestampRequest.TsRequest makeRequest(TimeStampRequest req) throws Exception {
-        return new AbstractTimestampRequest.TsRequest(new FileInputStream("src/test/resources/tsp.response"),
-                "src/test/resources/tsp.response");
+    static final String URL = "src/test/resources/tsp.response";
+
+    static InputStream makeRequest(TimeStampRequest req) throws Exception {
+        return new FileInputStream(URL);
     }
 
 }
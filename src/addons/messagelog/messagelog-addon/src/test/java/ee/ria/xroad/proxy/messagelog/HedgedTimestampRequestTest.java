@@ -0,0 +1,162 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.proxy.messagelog;
+
+import ee.ria.xroad.common.messagelog.MessageLogProperties;
+
+import com.sun.net.httpserver.HttpServer;
+import org.bouncycastle.tsp.TimeStampRequest;
+import org.bouncycastle.tsp.TimeStampResponse;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests hedged time-stamping against local stub time-stamping services.
+ */
+public class HedgedTimestampRequestTest {
+
+    private final List<HttpServer> servers = new ArrayList<>();
+    private byte[] tspResponse;
+
+    @Before
+    public void setUp() throws IOException {
+        System.setProperty(MessageLogProperties.TIMESTAMPER_HEDGING, "true");
+        System.setProperty(MessageLogProperties.TIMESTAMPER_HEDGE_DELAY, "100");
+
+        tspResponse = Files.readAllBytes(Paths.get("src/test/resources/tsp.response"));
+    }
+
+    @After
+    public void tearDown() {
+        System.clearProperty(MessageLogProperties.TIMESTAMPER_HEDGING);
+        System.clearProperty(MessageLogProperties.TIMESTAMPER_HEDGE_DELAY);
+
+        servers.forEach(server -> server.stop(0));
+    }
+
+    @Test
+    public void slowServiceIsHedged() throws Exception {
+        String slow = startTsp(200, 5000);
+        String fast = startTsp(200, 0);
+
+        long start = System.currentTimeMillis();
+        Timestamper.TimestampSucceeded result = execute(List.of(slow, fast));
+
+        assertEquals(fast, result.getUrl());
+        assertTrue("Hedged request should not wait for the slow service",
+                System.currentTimeMillis() - start < 4000);
+
+        // give the cancelled request time to finish
+        Thread.sleep(500);
+        assertEquals("Cancelled request should not be recorded",
+                -1, AbstractTimestampRequest.TSP_LATENCIES.getPercentile(slow, 95, -1));
+    }
+
+    @Test
+    public void failingServiceIsSkippedAndMovedBack() throws Exception {
+        String failing = startTsp(500, 0);
+        String working = startTsp(200, 0);
+
+        Timestamper.TimestampSucceeded result = execute(List.of(failing, working));
+
+        assertEquals(working, result.getUrl());
+        assertEquals(List.of(working, failing), AbstractTimestampRequest.TSP_LATENCIES.order(List.of(failing, working)));
+    }
+
+    @Test
+    public void fasterServiceIsPreferred() {
+        TspLatencyTracker tracker = new TspLatencyTracker();
+        tracker.recordSuccess("http://slow", 800);
+        tracker.recordSuccess("http://fast", 50);
+
+        assertEquals(List.of("http://new", "http://fast", "http://slow"),
+                tracker.order(List.of("http://slow", "http://new", "http://fast")));
+
+        for (int i = 0; i < 10; i++) {
+            tracker.recordSuccess("http://fast", 2000);
+        }
+
+        assertEquals(List.of("http://slow", "http://fast"), tracker.order(List.of("http://fast", "http://slow")));
+        assertEquals(2000, tracker.getPercentile("http://fast", 95, 100));
+        assertEquals(100, tracker.getPercentile("http://unknown", 95, 100));
+    }
+
+    private Timestamper.TimestampSucceeded execute(List<String> urls) throws Exception {
+        AbstractTimestampRequest request = new AbstractTimestampRequest(null, new Long[] {1L}) {
+            @Override
+            byte[] getRequestData() {
+                return "data".getBytes(StandardCharsets.UTF_8);
+            }
+
+            @Override
+            Timestamper.TimestampResult result(TimeStampResponse tsResponse, String url) {
+                return new Timestamper.TimestampSucceeded(logRecords, new byte[0], null, null, url);
+            }
+
+            @Override
+            protected void verify(TimeStampRequest tsRequest, TimeStampResponse tsResponse) {
+                // the canned response does not match the request
+            }
+        };
+
+        return (Timestamper.TimestampSucceeded) request.execute(urls);
+    }
+
+    private String startTsp(int status, long delayMillis) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", exchange -> {
+            try {
+                Thread.sleep(delayMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.getRequestBody().readAllBytes();
+            exchange.sendResponseHeaders(status, tspResponse.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(tspResponse);
+            }
+        });
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.start();
+        servers.add(server);
+
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/";
+    }
+}
@@ -198,6 +198,38 @@ public class MessageLogTest extends AbstractMessageLogTest {
         assertTaskQueueSize(0);
     }
 
+    /**
+     * Logs 3 messages and time-stamps them. The time-stamping queue metrics must follow the queue.
+     *
+     * @throws Exception in case of any unexpected errors
+     */
+    @Test
+    public void timestampingQueueMetrics() throws Exception {
+        log.trace("timestampingQueueMetrics()");
+
+        log(createMessage(), createSignature());
+        log(createMessage(), createSignature());
+        log(createMessage(), createSignature());
+
+        assertEquals(3L, getTaskQueueMetric(TaskQueue.METRIC_QUEUE_DEPTH));
+
+        startTimestamping();
+        waitForTimestampSuccessful();
+        assertTrue(TestTaskQueue.waitForTimestampSaved());
+
+        assertEquals(0L, getTaskQueueMetric(TaskQueue.METRIC_QUEUE_DEPTH));
+        assertEquals(0L, getTaskQueueMetric(TaskQueue.METRIC_LAG));
+
+        // records logged after the round are counted again
+        log(createMessage(), createSignature());
+        assertTaskQueueSize(1);
+        assertEquals(1L, getTaskQueueMetric(TaskQueue.METRIC_QUEUE_DEPTH));
+    }
+
+    private Object getTaskQueueMetric(String name) {
+        return logManager.taskQueue.getMetricRegistry().getGauges().get(name).getValue();
+    }
+
     /**
      * Log message
      */
@@ -342,6 +374,18 @@ public class MessageLogTest extends AbstractMessageLogTest {
         assertArchiveHashChain();
     }
 
+    /**
+     * Same as {@link #logTimestampArchiveAndClean()}, but archives the record groups in parallel.
+     *
+     * @throws Exception in case of any unexpected errors
+     */
+    @Test
+    public void logTimestampArchiveAndCleanInParallel() throws Exception {
+        System.setProperty(MessageLogProperties.ARCHIVE_PARALLELISM, "2");
+
+        logTimestampArchiveAndClean();
+    }
+
     /**
      * Logs 3 messages, time-stamping fails. Task queue must have 3 tasks. Logs 1 more message, task queue must
      * have 4 tasks.
@@ -537,6 +581,7 @@ public class MessageLogTest extends AbstractMessageLogTest {
         System.clearProperty(MessageLogProperties.MESSAGELOG_KEYSTORE);
         System.clearProperty(MessageLogProperties.MESSAGELOG_KEY_ID);
         System.clearProperty(MessageLogProperties.ARCHIVE_ENCRYPTION_ENABLED);
+        System.clearProperty(MessageLogProperties.ARCHIVE_PARALLELISM);
 
         testTearDown();
         cleanUpDatabase();
@@ -0,0 +1,197 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.proxy.messagelog;
+
+import ee.ria.xroad.common.CodedException;
+import ee.ria.xroad.common.identifier.ClientId;
+import ee.ria.xroad.common.messagelog.MessageRecord;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for {@link MessageRecordWriter}.
+ */
+public class MessageRecordWriterTest {
+
+    private static final ClientId CLIENT = ClientId.Conf.create("EE", "BUSINESS", "consumer");
+
+    private MessageRecordWriter writer;
+
+    @After
+    public void tearDown() {
+        if (writer != null) {
+            writer.stop();
+        }
+    }
+
+    @Test
+    public void shouldWriteQueuedRecordsInBatches() throws Exception {
+        CountDownLatch firstBatchStarted = new CountDownLatch(1);
+        CountDownLatch releaseFirstBatch = new CountDownLatch(1);
+        List<Integer> batchSizes = new ArrayList<>();
+
+        writer = new MessageRecordWriter(100, 10, 1000, records -> {
+            synchronized (batchSizes) {
+                batchSizes.add(records.size());
+            }
+            firstBatchStarted.countDown();
+            releaseFirstBatch.await();
+        });
+
+        List<CompletableFuture<MessageRecord>> futures = new ArrayList<>();
+        futures.add(writer.submit(createRecord()));
+        assertTrue(firstBatchStarted.await(5, TimeUnit.SECONDS));
+
+        // These accumulate while the first transaction is running.
+        for (int i = 0; i < 25; i++) {
+            futures.add(writer.submit(createRecord()));
+        }
+        releaseFirstBatch.countDown();
+
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(5, TimeUnit.SECONDS);
+
+        synchronized (batchSizes) {
+            assertEquals(List.of(1, 10, 10, 5), batchSizes);
+        }
+    }
+
+    @Test
+    public void shouldPropagateWriteFailure() throws Exception {
+        Exception failure = new IllegalStateException("database is down");
+
+        writer = new MessageRecordWriter(10, 10, 1000, records -> {
+            throw failure;
+        });
+
+        try {
+            writer.submit(createRecord()).get(5, TimeUnit.SECONDS);
+            fail("Write failure must be propagated");
+        } catch (ExecutionException e) {
+            assertSame(failure, e.getCause());
+        }
+    }
+
+    @Test
+    public void shouldFailOnlyTheRecordThatCannotBeSaved() throws Exception {
+        CountDownLatch firstBatchStarted = new CountDownLatch(1);
+        CountDownLatch releaseFirstBatch = new CountDownLatch(1);
+        MessageRecord poison = createRecord();
+        Exception failure = new IllegalStateException("cannot save record");
+        List<Integer> batchSizes = new ArrayList<>();
+
+        writer = new MessageRecordWriter(100, 10, 1000, records -> {
+            synchronized (batchSizes) {
+                batchSizes.add(records.size());
+            }
+            firstBatchStarted.countDown();
+            releaseFirstBatch.await();
+            if (records.stream().anyMatch(messageRecord -> messageRecord == poison)) {
+                throw failure;
+            }
+        });
+
+        CompletableFuture<MessageRecord> first = writer.submit(createRecord());
+        assertTrue(firstBatchStarted.await(5, TimeUnit.SECONDS));
+
+        CompletableFuture<MessageRecord> before = writer.submit(createRecord());
+        CompletableFuture<MessageRecord> failed = writer.submit(poison);
+        CompletableFuture<MessageRecord> after = writer.submit(createRecord());
+        releaseFirstBatch.countDown();
+
+        first.get(5, TimeUnit.SECONDS);
+        before.get(5, TimeUnit.SECONDS);
+        after.get(5, TimeUnit.SECONDS);
+        try {
+            failed.get(5, TimeUnit.SECONDS);
+            fail("Write failure must be propagated");
+        } catch (ExecutionException e) {
+            assertSame(failure, e.getCause());
+        }
+
+        synchronized (batchSizes) {
+            assertEquals(List.of(1, 3, 1, 1, 1), batchSizes);
+        }
+    }
+
+    @Test
+    public void shouldRejectRecordWhenQueueStaysFull() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+
+        writer = new MessageRecordWriter(1, 1, 50, records -> release.await());
+
+        writer.submit(createRecord());
+        // wait for the writer to take the first record so that the queue has room for exactly one record
+        while (writer.getQueueSize() > 0) {
+            Thread.sleep(10);
+        }
+        writer.submit(createRecord());
+
+        try {
+            writer.submit(createRecord());
+            fail("Full queue must reject the record");
+        } catch (CodedException expected) {
+            // expected
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    public void shouldWriteQueuedRecordsOnStop() throws Exception {
+        List<MessageRecord> written = new ArrayList<>();
+
+        writer = new MessageRecordWriter(100, 100, 1000, records -> {
+            synchronized (written) {
+                written.addAll(records);
+            }
+        });
+
+        CompletableFuture<MessageRecord> saved = writer.submit(createRecord());
+        writer.stop();
+
+        assertTrue(saved.isDone());
+        synchronized (written) {
+            assertEquals(1, written.size());
+        }
+    }
+
+    private static MessageRecord createRecord() {
+        return new MessageRecord("qid", "message", "signature", false, CLIENT, "xRequestId");
+    }
+}
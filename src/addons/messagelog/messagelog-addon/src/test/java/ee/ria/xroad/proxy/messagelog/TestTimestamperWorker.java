@@ -68,12 +68,10 @@ class TestTimestamperWorker extends TimestamperWorker {
                         throw new RuntimeException("time-stamping failed");
                     }
                 }
-                TsRequest req = DummyTSP.makeRequest(tsRequest);
-
-                TimeStampResponse tsResponse = getTimestampResponse(req.getInputStream());
+                TimeStampResponse tsResponse = getTimestampResponse(DummyTSP.makeRequest(tsRequest));
                 verify(tsRequest, tsResponse);
 
-                return result(tsResponse, req.getUrl());
+                return result(tsResponse, DummyTSP.URL);
             }
 
             @Override
@@ -99,12 +97,10 @@ class TestTimestamperWorker extends TimestamperWorker {
                         throw new RuntimeException("time-stamping failed");
                     }
                 }
-                TsRequest req = DummyTSP.makeRequest(tsRequest);
-
-                TimeStampResponse tsResponse = getTimestampResponse(req.getInputStream());
+                TimeStampResponse tsResponse = getTimestampResponse(DummyTSP.makeRequest(tsRequest));
                 verify(tsRequest, tsResponse);
 
-                return result(tsResponse, req.getUrl());
+                return result(tsResponse, DummyTSP.URL);
             }
 
             @Override
@@ -28,18 +28,23 @@ package ee.ria.xroad.messagelog.archiver;
 import ee.ria.xroad.common.CodedException;
 import ee.ria.xroad.common.ErrorCodes;
 import ee.ria.xroad.common.conf.globalconf.GlobalConfProvider;
+import ee.ria.xroad.common.identifier.ClientId;
 import ee.ria.xroad.common.messagelog.LogRecord;
 import ee.ria.xroad.common.messagelog.MessageLogProperties;
 import ee.ria.xroad.common.messagelog.MessageRecord;
 import ee.ria.xroad.common.messagelog.archive.ArchiveDigest;
 import ee.ria.xroad.common.messagelog.archive.DigestEntry;
+import ee.ria.xroad.common.messagelog.archive.Grouping;
+import ee.ria.xroad.common.messagelog.archive.GroupingStrategy;
 import ee.ria.xroad.common.messagelog.archive.LogArchiveBase;
 import ee.ria.xroad.common.messagelog.archive.LogArchiveWriter;
 import ee.ria.xroad.messagelog.database.MessageRecordEncryption;
 
+import jakarta.persistence.Tuple;
 import jakarta.persistence.criteria.CriteriaBuilder;
 import jakarta.persistence.criteria.CriteriaQuery;
 import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Predicate;
 import jakarta.persistence.criteria.Root;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.io.IOUtils;
@@ -55,10 +60,18 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.stream.Stream;
 
+import static ee.ria.xroad.common.messagelog.MessageLogProperties.getArchiveGrouping;
+import static ee.ria.xroad.common.messagelog.MessageLogProperties.getArchiveParallelism;
 import static ee.ria.xroad.common.messagelog.MessageLogProperties.getArchiveTransactionBatchSize;
 import static ee.ria.xroad.common.messagelog.MessageLogProperties.getArchiveTransferCommand;
 import static ee.ria.xroad.messagelog.database.MessageLogDatabaseCtx.doInTransaction;
@@ -72,6 +85,9 @@ import static org.apache.commons.lang3.StringUtils.isBlank;
 public class LogArchiver implements Job {
 
     private static final String PROPERTY_NAME_ARCHIVED = "archived";
+    private static final String PROPERTY_NAME_MEMBER_CLASS = "memberClass";
+    private static final String PROPERTY_NAME_MEMBER_CODE = "memberCode";
+    private static final String PROPERTY_NAME_SUBSYSTEM_CODE = "subsystemCode";
 
     public static final int FETCH_SIZE = 10;
 
@@ -87,8 +103,13 @@ public class LogArchiver implements Job {
         try {
             Long maxRecordId = doInTransaction(this::getMaxRecordId);
             if (maxRecordId != null) {
-                while (handleArchive(maxRecordId)) {
-                    // body intentionally empty
+                int parallelism = getArchiveParallelism();
+                if (parallelism > 1 && getArchiveGrouping() != GroupingStrategy.NONE) {
+                    archiveInParallel(maxRecordId, parallelism);
+                } else {
+                    while (handleArchive(maxRecordId, null)) {
+                        // body intentionally empty
+                    }
                 }
             }
             onArchivingDone();
@@ -103,7 +124,74 @@ public class LogArchiver implements Job {
                 .executeUpdate();
     }
 
-    private boolean handleArchive(long maxRecordId) throws Exception {
+    /**
+     * Archives every group in its own transaction and with its own archive writer, so that the groups are
+     * processed concurrently. Each group has its own archive digest chain, so the linking info stays correct
+     * as long as the records of one group are archived in order by a single worker.
+     * <p>
+     * All the groups are waited for before the first failure is rethrown. The records of the groups that were
+     * archived successfully remain archived, but the time-stamp records are not marked archived and the archiving
+     * is not reported done if any of the groups failed.
+     */
+    private void archiveInParallel(long maxRecordId, int parallelism) throws Exception {
+        final List<Grouping> groupings = doInTransaction(session -> getNonArchivedGroupings(session, maxRecordId));
+        if (groupings.isEmpty()) {
+            return;
+        }
+
+        final long start = System.currentTimeMillis();
+        final int workers = Math.min(parallelism, groupings.size());
+        log.info("Archiving log records of {} groups using {} workers...", groupings.size(), workers);
+
+        final ExecutorService executor = Executors.newFixedThreadPool(workers,
+                Thread.ofPlatform().name("log-archiver-", 0).factory());
+        try {
+            final Map<Grouping, Future<?>> results = new LinkedHashMap<>();
+            for (Grouping grouping : groupings) {
+                results.put(grouping, executor.submit(() -> {
+                    while (handleArchive(maxRecordId, grouping)) {
+                        // body intentionally empty
+                    }
+                    return null;
+                }));
+            }
+
+            Exception failure = null;
+            for (Map.Entry<Grouping, Future<?>> result : results.entrySet()) {
+                try {
+                    result.getValue().get();
+                } catch (ExecutionException e) {
+                    log.error("Failed to archive log records of group {}", result.getKey().name(), e.getCause());
+                    Exception cause = e.getCause() instanceof Exception exception ? exception : e;
+                    if (failure == null) {
+                        failure = cause;
+                    } else {
+                        failure.addSuppressed(cause);
+                    }
+                }
+            }
+
+            if (failure != null) {
+                // the records of the failed groups stay non-archived, and so do the time-stamp records
+                throw failure;
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        doInTransaction(this::markTimestampRecordsArchived);
+        runTransferCommand(getArchiveTransferCommand());
+        log.info("Archived log records of {} groups in {} ms", groupings.size(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Archives a batch of records.
+     *
+     * @param maxRecordId the id of the last record to archive
+     * @param grouping the group of records to archive, or null to archive records of all groups
+     * @return true if the batch was full and there may be more records to archive
+     */
+    private boolean handleArchive(long maxRecordId, Grouping grouping) throws Exception {
         return doInTransaction(session -> {
             final int limit = getArchiveTransactionBatchSize();
             final String archiveTransferCommand = getArchiveTransferCommand();
@@ -115,7 +203,7 @@ public class LogArchiver implements Job {
 
             try (LogArchiveWriter archiveWriter = createLogArchiveWriter(session)) {
                 List<Long> recordIds = new ArrayList<>(100);
-                try (Stream<MessageRecord> records = getNonArchivedMessageRecords(session, maxRecordId, limit)) {
+                try (Stream<MessageRecord> records = getNonArchivedMessageRecords(session, maxRecordId, limit, grouping)) {
                     for (Iterator<MessageRecord> it = records.iterator(); it.hasNext(); ) {
                         MessageRecord messageRecord = it.next();
                         recordIds.add(messageRecord.getId());
@@ -138,15 +226,21 @@ public class LogArchiver implements Job {
                         markArchived(session, recordIds);
                         recordIds.clear();
                     }
-                    markTimestampRecordsArchived(session);
+                    if (grouping == null) {
+                        // in parallel mode, time-stamp records are marked once after all the groups are done
+                        markTimestampRecordsArchived(session);
+                    }
                 }
                 session.flush();
             } catch (Exception e) {
                 throw new CodedException(ErrorCodes.X_INTERNAL_ERROR, e);
             } finally {
                 if (recordsArchived > 0) {
-                    runTransferCommand(archiveTransferCommand);
-                    log.info("Archived {} log records in {} ms", recordsArchived, System.currentTimeMillis() - start);
+                    if (grouping == null) {
+                        runTransferCommand(archiveTransferCommand);
+                    }
+                    log.info("Archived {} log records{} in {} ms", recordsArchived,
+                            grouping == null ? "" : " of group " + grouping.name(), System.currentTimeMillis() - start);
                 }
             }
             //try to continue if the batch was full (there might be more)
@@ -195,21 +289,63 @@ public class LogArchiver implements Job {
         return session.createQuery(query).uniqueResult();
     }
 
-    protected Stream<MessageRecord> getNonArchivedMessageRecords(Session session, Long maxId, int limit) {
+    protected List<Grouping> getNonArchivedGroupings(Session session, Long maxId) {
         final CriteriaBuilder cb = session.getCriteriaBuilder();
-        final CriteriaQuery<MessageRecord> query = cb.createQuery(MessageRecord.class);
+        final CriteriaQuery<Tuple> query = cb.createTupleQuery();
         final Root<MessageRecord> m = query.from(MessageRecord.class);
 
-        query.select(m)
+        query.multiselect(m.get(PROPERTY_NAME_MEMBER_CLASS), m.get(PROPERTY_NAME_MEMBER_CODE),
+                        m.get(PROPERTY_NAME_SUBSYSTEM_CODE))
+                .distinct(true)
                 .where(cb.and(
                         cb.isNotNull(m.get("timestampRecord")),
                         cb.isFalse(m.get(PROPERTY_NAME_ARCHIVED)),
-                        cb.lessThanOrEqualTo(m.get("id"), maxId)))
+                        cb.lessThanOrEqualTo(m.get("id"), maxId)));
+
+        final GroupingStrategy groupingStrategy = getArchiveGrouping();
+        final Map<String, Grouping> groupings = new LinkedHashMap<>();
+        for (Tuple tuple : session.createQuery(query).getResultList()) {
+            final Grouping grouping = groupingStrategy.forClient(ClientId.Conf.create(
+                    globalConfProvider.getInstanceIdentifier(),
+                    tuple.get(0, String.class), tuple.get(1, String.class), tuple.get(2, String.class)));
+            groupings.putIfAbsent(grouping.name(), grouping);
+        }
+
+        return new ArrayList<>(groupings.values());
+    }
+
+    protected Stream<MessageRecord> getNonArchivedMessageRecords(Session session, Long maxId, int limit) {
+        return getNonArchivedMessageRecords(session, maxId, limit, null);
+    }
+
+    protected Stream<MessageRecord> getNonArchivedMessageRecords(Session session, Long maxId, int limit,
+                                                                 Grouping grouping) {
+        final CriteriaBuilder cb = session.getCriteriaBuilder();
+        final CriteriaQuery<MessageRecord> query = cb.createQuery(MessageRecord.class);
+        final Root<MessageRecord> m = query.from(MessageRecord.class);
+
+        final List<Predicate> predicates = new ArrayList<>();
+        predicates.add(cb.isNotNull(m.get("timestampRecord")));
+        predicates.add(cb.isFalse(m.get(PROPERTY_NAME_ARCHIVED)));
+        predicates.add(cb.lessThanOrEqualTo(m.get("id"), maxId));
+        if (grouping != null && grouping.getClientId() != null) {
+            final ClientId clientId = grouping.getClientId();
+            predicates.add(cb.equal(m.get(PROPERTY_NAME_MEMBER_CLASS), clientId.getMemberClass()));
+            predicates.add(cb.equal(m.get(PROPERTY_NAME_MEMBER_CODE), clientId.getMemberCode()));
+            if (getArchiveGrouping() == GroupingStrategy.SUBSYSTEM) {
+                predicates.add(clientId.getSubsystemCode() == null
+                        ? cb.isNull(m.get(PROPERTY_NAME_SUBSYSTEM_CODE))
+                        : cb.equal(m.get(PROPERTY_NAME_SUBSYSTEM_CODE), clientId.getSubsystemCode()));
+            }
+        }
+
+        query.select(m)
+                .where(cb.and(predicates.toArray(new Predicate[0])))
                 .orderBy(
                         // order is important for archive grouping
-                        cb.asc(m.get("memberClass")),
-                        cb.asc(m.get("memberCode")),
-                        cb.asc(m.get("subsystemCode")),
+                        cb.asc(m.get(PROPERTY_NAME_MEMBER_CLASS)),
+                        cb.asc(m.get(PROPERTY_NAME_MEMBER_CODE)),
+                        cb.asc(m.get(PROPERTY_NAME_SUBSYSTEM_CODE)),
                         cb.asc(m.get("id")));
 
         return session
@@ -226,7 +362,8 @@ public class LogArchiver implements Job {
         //hook for testing
     }
 
-    private static void runTransferCommand(String transferCommand) {
+    // synchronized so that the archive groups archived in parallel do not run the command concurrently
+    private static synchronized void runTransferCommand(String transferCommand) {
         if (isBlank(transferCommand)) {
             return;
         }
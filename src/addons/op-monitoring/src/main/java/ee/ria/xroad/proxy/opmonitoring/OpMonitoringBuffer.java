@@ -30,14 +30,15 @@ import ee.ria.xroad.common.opmonitoring.AbstractOpMonitoringBuffer;
 import ee.ria.xroad.common.opmonitoring.OpMonitoringData;
 import ee.ria.xroad.common.opmonitoring.OpMonitoringSystemProperties;
 
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.jmx.JmxReporter;
 import lombok.extern.slf4j.Slf4j;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.BlockingDeque;
-import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.LinkedBlockingDeque;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
@@ -45,19 +46,29 @@ import java.util.concurrent.TimeUnit;
  * Operational monitoring buffer. This buffer is used for gathering
  * operational data and for periodically sending the data to the operational
  * monitoring daemon (using OpMonitoringDaemonSender).
+ * <p>
+ * Records are stored in a lock-free ring so that the proxy threads calling {@link #store(OpMonitoringData)}
+ * never wait for each other or for the sender. When the ring is full, the oldest records are dropped.
  */
 @Slf4j
 public class OpMonitoringBuffer extends AbstractOpMonitoringBuffer {
+    static final String METRIC_OCCUPANCY = MetricRegistry.name("opMonitoringBuffer", "occupancy");
+    static final String METRIC_DROPPED = MetricRegistry.name("opMonitoringBuffer", "dropped");
+    static final String METRIC_SEND_LATENCY = MetricRegistry.name("opMonitoringBuffer", "sendLatency");
+
     private final int maxBufferSize = OpMonitoringSystemProperties.getOpMonitorBufferSize();
     private final int maxRecordsInMessage = OpMonitoringSystemProperties.getOpMonitorBufferMaxRecordsInMessage();
 
-    private final ExecutorService executorService;
+    private final MetricRegistry metricRegistry = new MetricRegistry();
+    private final JmxReporter reporter = JmxReporter.forRegistry(metricRegistry).build();
+
     private final ScheduledExecutorService taskScheduler;
     private final OpMonitoringDataProcessor opMonitoringDataProcessor;
     private final OpMonitoringDaemonSender sender;
     private final SavedServiceEndpoint savedServiceEndpoint;
+    private final Counter dropped;
 
-    final BlockingDeque<OpMonitoringData> buffer = new LinkedBlockingDeque<>();
+    final OpMonitoringRingBuffer buffer;
 
     /**
      * Constructor.
@@ -69,14 +80,18 @@ public class OpMonitoringBuffer extends AbstractOpMonitoringBuffer {
         if (ignoreOpMonitoringData()) {
             log.info("Operational monitoring buffer is switched off, no operational monitoring data is stored");
 
+            buffer = null;
+            dropped = null;
             sender = null;
-            executorService = null;
             taskScheduler = null;
             opMonitoringDataProcessor = null;
             savedServiceEndpoint = null;
         } else {
+            buffer = new OpMonitoringRingBuffer(maxBufferSize);
+            dropped = metricRegistry.counter(METRIC_DROPPED);
+            metricRegistry.gauge(METRIC_OCCUPANCY, () -> (Gauge<Integer>) buffer::size);
+
             sender = createSender(serverConfProvider);
-            executorService = Executors.newSingleThreadExecutor();
             taskScheduler = Executors.newSingleThreadScheduledExecutor();
             opMonitoringDataProcessor = createDataProcessor();
             savedServiceEndpoint = new SavedServiceEndpoint(serverConfProvider);
@@ -96,67 +111,67 @@ public class OpMonitoringBuffer extends AbstractOpMonitoringBuffer {
         if (ignoreOpMonitoringData()) {
             return;
         }
-        executorService.execute(() -> {
-            try {
-                data.setSecurityServerInternalIp(opMonitoringDataProcessor.getIpAddress());
-                data.setRestPath(savedServiceEndpoint.getPathIfExists(data));
-
-                buffer.addLast(data);
-                if (buffer.size() > maxBufferSize) {
-                    synchronized (buffer) {
-                        if (buffer.size() > maxBufferSize) {
-                            buffer.removeFirst();
-                            log.warn("Operational monitoring buffer overflow (limit: {}), removing oldest record. Current size: {}",
-                                    maxBufferSize, buffer.size());
-                        }
-                    }
-                }
-                sendInternal();
-            } catch (Exception e) {
-                log.error("Failed to process OpMonitoringData..", e);
-            }
-        });
+
+        int evicted = buffer.offerEvictingOldest(data);
+        if (evicted > 0) {
+            dropped.inc(evicted);
+            log.warn("Operational monitoring buffer overflow (limit: {}), removing oldest record. Current size: {}",
+                    maxBufferSize, buffer.size());
+        }
+
+        send();
     }
 
     private void send() {
-        executorService.execute(() -> {
-            try {
-                this.sendInternal();
-            } catch (Exception e) {
-                log.error("Failed to send message", e);
-            }
-        });
+        try {
+            sendInternal();
+        } catch (Exception e) {
+            log.error("Failed to send message", e);
+        }
     }
 
     private void sendInternal() {
-        if (!canSend()) {
-            return;
-        }
+        // Every sender slot that can be claimed takes its own batch, so a backlog is sent in parallel.
+        while (!buffer.isEmpty() && sender.tryAcquire()) {
+            final List<OpMonitoringData> dataToProcess = new ArrayList<>(maxRecordsInMessage);
 
-        final List<OpMonitoringData> dataToProcess = new ArrayList<>();
+            if (buffer.drainTo(dataToProcess, maxRecordsInMessage) == 0) {
+                sender.release();
+                return;
+            }
 
-        buffer.drainTo(dataToProcess, maxRecordsInMessage);
-        if (log.isDebugEnabled()) {
-            log.debug("Op monitoring remaining buffer records count {}", buffer.size());
-        }
+            if (log.isDebugEnabled()) {
+                log.debug("Op monitoring remaining buffer records count {}", buffer.size());
+            }
 
-        sender.sendMessage(dataToProcess);
+            sender.sendMessage(dataToProcess);
+        }
     }
 
-    private boolean canSend() {
-        return !buffer.isEmpty() && sender.isReady();
+    /**
+     * Completes the records with data that is too expensive to look up on the thread storing them. Called by the
+     * sender just before the records are serialized.
+     */
+    void prepareForSending(List<OpMonitoringData> dataToProcess) {
+        for (OpMonitoringData data : dataToProcess) {
+            data.setSecurityServerInternalIp(opMonitoringDataProcessor.getIpAddress());
+            data.setRestPath(savedServiceEndpoint.getPathIfExists(data));
+        }
     }
 
     void sendingSuccess(int count) {
         log.trace("Sent {} messages from buffer", count);
 
-        if (canSend()) {
-            send();
-        }
+        send();
     }
 
     void sendingFailure(List<OpMonitoringData> failedData) {
-        failedData.forEach(buffer::addFirst);
+        for (OpMonitoringData data : failedData) {
+            int evicted = buffer.offerEvictingOldest(data);
+            if (evicted > 0) {
+                dropped.inc(evicted);
+            }
+        }
         // Do not worry, scheduled sending retries.
     }
 
@@ -169,13 +184,11 @@ public class OpMonitoringBuffer extends AbstractOpMonitoringBuffer {
         var sendingIntervalSeconds = OpMonitoringSystemProperties.getOpMonitorBufferSendingIntervalSeconds();
         taskScheduler.scheduleWithFixedDelay(this::send, sendingIntervalSeconds, sendingIntervalSeconds, TimeUnit.SECONDS);
 
+        reporter.start();
     }
 
     @Override
     public void destroy() {
-        if (executorService != null) {
-            executorService.shutdown();
-        }
         if (taskScheduler != null) {
             taskScheduler.shutdown();
         }
@@ -183,6 +196,8 @@ public class OpMonitoringBuffer extends AbstractOpMonitoringBuffer {
         if (sender != null) {
             sender.destroy();
         }
+
+        reporter.stop();
     }
 
     private boolean ignoreOpMonitoringData() {
@@ -193,4 +208,12 @@ public class OpMonitoringBuffer extends AbstractOpMonitoringBuffer {
         return buffer.size();
     }
 
+    /**
+     * @return the registry holding the buffer occupancy, dropped records and send latency metrics, which are
+     * reported over JMX
+     */
+    MetricRegistry getMetricRegistry() {
+        return metricRegistry;
+    }
+
 }
@@ -33,10 +33,10 @@ import ee.ria.xroad.common.opmonitoring.OpMonitoringSystemProperties;
 import ee.ria.xroad.common.opmonitoring.StoreOpMonitoringDataResponse;
 import ee.ria.xroad.common.util.HttpSender;
 import ee.ria.xroad.common.util.JsonUtils;
-import ee.ria.xroad.common.util.MimeTypes;
 import ee.ria.xroad.common.util.MimeUtils;
 import ee.ria.xroad.common.util.TimeUtils;
 
+import com.codahale.metrics.Timer;
 import com.fasterxml.jackson.databind.ObjectReader;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.io.IOUtils;
@@ -49,7 +49,7 @@ import java.net.URISyntaxException;
 import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static ee.ria.xroad.common.opmonitoring.StoreOpMonitoringDataResponse.STATUS_ERROR;
 import static ee.ria.xroad.common.opmonitoring.StoreOpMonitoringDataResponse.STATUS_OK;
@@ -57,6 +57,8 @@ import static ee.ria.xroad.common.opmonitoring.StoreOpMonitoringDataResponse.STA
 /**
  * Actor for sending operational data to the operational monitoring daemon. This actor is used by the
  * OpMonitoringBuffer class for periodically forwarding operational data gathered in the buffer.
+ * Up to {@link OpMonitoringSystemProperties#getOpMonitorBufferSenderCount()} messages are sent concurrently,
+ * each over its own connection.
  */
 @Slf4j
 public class OpMonitoringDaemonSender implements DisposableBean {
@@ -73,45 +75,71 @@ public class OpMonitoringDaemonSender implements DisposableBean {
     private final ServerConfProvider serverConfProvider;
     private final OpMonitoringBuffer opMonitoringBuffer;
     private final CloseableHttpClient httpClient;
-    private final ExecutorService executorService = Executors.newSingleThreadExecutor();
+    private final int senderCount;
+    private final ExecutorService executorService;
+    private final Timer sendLatency;
 
-    private final AtomicBoolean processing = new AtomicBoolean(false);
+    private final AtomicInteger inFlight = new AtomicInteger();
 
     OpMonitoringDaemonSender(ServerConfProvider serverConfProvider, OpMonitoringBuffer opMonitoringBuffer) throws Exception {
         this.serverConfProvider = serverConfProvider;
+        this.senderCount = Math.max(1, OpMonitoringSystemProperties.getOpMonitorBufferSenderCount());
         this.httpClient = createHttpClient();
         this.opMonitoringBuffer = opMonitoringBuffer;
+        this.executorService = Executors.newFixedThreadPool(senderCount);
+        this.sendLatency = opMonitoringBuffer.getMetricRegistry().timer(OpMonitoringBuffer.METRIC_SEND_LATENCY);
     }
 
+    /**
+     * Claims a sender slot. Every successful call must be followed by either {@link #sendMessage(List)}
+     * or {@link #release()}.
+     * @return false if all senders are busy
+     */
+    boolean tryAcquire() {
+        int current;
+        do {
+            current = inFlight.get();
+            if (current >= senderCount) {
+                return false;
+            }
+        } while (!inFlight.compareAndSet(current, current + 1));
+
+        return true;
+    }
+
+    void release() {
+        inFlight.decrementAndGet();
+    }
+
+    /**
+     * Sends the records using a sender slot claimed with {@link #tryAcquire()}. The slot is released
+     * once the daemon has responded.
+     */
     void sendMessage(final List<OpMonitoringData> dataToProcess) {
         executorService.execute(() -> {
-            try {
-                processing.set(true);
-                var json = opMonitoringDataProcessor.prepareMonitoringMessage(dataToProcess);
-                log.trace("onReceive: {}", json);
+            try (Timer.Context ignored = sendLatency.time()) {
+                opMonitoringBuffer.prepareForSending(dataToProcess);
 
-                send(json);
-
-                processing.set(false);
-                opMonitoringBuffer.sendingSuccess(dataToProcess.size());
+                send(dataToProcess);
             } catch (Exception e) {
                 log.error("Sending operational monitoring data failed", e);
-                processing.set(false);
+                release();
                 opMonitoringBuffer.sendingFailure(dataToProcess);
+
+                return;
             }
-        });
-    }
 
-    public boolean isReady() {
-        return Boolean.FALSE.equals(processing.get());
+            release();
+            opMonitoringBuffer.sendingSuccess(dataToProcess.size());
+        });
     }
 
-    private void send(String json) throws Exception {
+    private void send(List<OpMonitoringData> dataToProcess) throws Exception {
         try (HttpSender sender = new HttpSender(httpClient)) {
             sender.setConnectionTimeout(CONNECTION_TIMEOUT_MILLISECONDS);
             sender.setSocketTimeout(SOCKET_TIMEOUT_MILLISECONDS);
 
-            sender.doPost(getAddress(), json, MimeTypes.JSON);
+            sender.doPost(getAddress(), opMonitoringDataProcessor.prepareMonitoringMessage(dataToProcess));
 
             String responseJson = IOUtils.toString(sender.getResponseContent(), MimeUtils.UTF8);
             StoreOpMonitoringDataResponse response;
@@ -145,7 +173,7 @@ public class OpMonitoringDaemonSender implements DisposableBean {
 
     CloseableHttpClient createHttpClient() throws Exception {
         return OpMonitoringDaemonHttpClient.createHttpClient(serverConfProvider.getSSLKey(),
-                1, 1,
+                senderCount, senderCount,
                 TimeUtils.secondsToMillis(OpMonitoringSystemProperties.getOpMonitorBufferConnectionTimeoutSeconds()),
                 TimeUtils.secondsToMillis(OpMonitoringSystemProperties.getOpMonitorBufferSocketTimeoutSeconds()));
     }
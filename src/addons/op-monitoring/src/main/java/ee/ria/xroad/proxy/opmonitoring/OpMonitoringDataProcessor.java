@@ -26,16 +26,25 @@
 package ee.ria.xroad.proxy.opmonitoring;
 
 import ee.ria.xroad.common.opmonitoring.OpMonitoringData;
+import ee.ria.xroad.common.opmonitoring.OpMonitoringSystemProperties;
 import ee.ria.xroad.common.opmonitoring.StoreOpMonitoringDataRequest;
 import ee.ria.xroad.common.util.JsonUtils;
+import ee.ria.xroad.common.util.MimeTypes;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectWriter;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.output.CloseShieldOutputStream;
+import org.apache.http.HttpEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.EntityTemplate;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.net.NetworkInterface;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.zip.GZIPOutputStream;
 
 import static java.net.NetworkInterface.getNetworkInterfaces;
 import static java.util.Collections.list;
@@ -44,19 +53,52 @@ import static java.util.Collections.list;
 public class OpMonitoringDataProcessor {
     private static final ObjectWriter OBJECT_WRITER = JsonUtils.getObjectWriter();
 
+    private static final String GZIP_ENCODING = "gzip";
+    private static final int GZIP_BUFFER_SIZE = 8192;
+
     private static final String NO_ADDRESS_FOUND = "No suitable IP address is bound to the network interface ";
     private static final String NO_INTERFACE_FOUND = "No non-loopback network interface found";
 
-    private String ipAddress;
+    private final boolean compressionEnabled = OpMonitoringSystemProperties.isOpMonitorBufferCompressionEnabled();
+
+    private volatile String ipAddress;
+
+    /**
+     * Creates an entity that serializes the records directly into the request body while it is being sent,
+     * without building the whole message in memory first. If compression is enabled, the body is gzip encoded.
+     */
+    HttpEntity prepareMonitoringMessage(List<OpMonitoringData> dataToProcess) {
+        EntityTemplate entity;
+
+        if (compressionEnabled) {
+            entity = new EntityTemplate(out -> writeCompressedMonitoringMessage(dataToProcess, out));
+            entity.setContentEncoding(GZIP_ENCODING);
+        } else {
+            entity = new EntityTemplate(out -> writeMonitoringMessage(dataToProcess, out));
+        }
+
+        entity.setContentType(ContentType.create(MimeTypes.JSON, StandardCharsets.UTF_8).toString());
+        entity.setChunked(true);
+
+        return entity;
+    }
+
+    void writeCompressedMonitoringMessage(List<OpMonitoringData> dataToProcess, OutputStream out) throws IOException {
+        // Closing the gzip stream writes the trailer, the connection stream itself must stay open.
+        try (GZIPOutputStream gzip = new GZIPOutputStream(CloseShieldOutputStream.wrap(out), GZIP_BUFFER_SIZE)) {
+            writeMonitoringMessage(dataToProcess, gzip);
+        }
+    }
 
-    String prepareMonitoringMessage(List<OpMonitoringData> dataToProcess) throws JsonProcessingException {
+    void writeMonitoringMessage(List<OpMonitoringData> dataToProcess, OutputStream out) throws IOException {
         StoreOpMonitoringDataRequest request = new StoreOpMonitoringDataRequest();
 
         for (OpMonitoringData data : dataToProcess) {
             request.addRecord(data.getData());
         }
 
-        return OBJECT_WRITER.writeValueAsString(request);
+        // The caller owns the stream, Jackson must not close it.
+        OBJECT_WRITER.writeValue(CloseShieldOutputStream.wrap(out), request);
     }
 
     String getIpAddress() {
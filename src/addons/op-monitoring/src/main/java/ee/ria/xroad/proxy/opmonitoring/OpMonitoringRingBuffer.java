@@ -0,0 +1,185 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.proxy.opmonitoring;
+
+import ee.ria.xroad.common.opmonitoring.OpMonitoringData;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded lock-free ring of operational monitoring records. Any number of producers and consumers may use the
+ * ring concurrently. Every slot carries a sequence number telling whether it is free for the producer at a given
+ * position or holds a record for the consumer at that position, so producers and consumers only contend on
+ * a single compare-and-set of the tail or head counter.
+ */
+final class OpMonitoringRingBuffer {
+
+    private final int capacity;
+    private final AtomicReferenceArray<OpMonitoringData> slots;
+    private final AtomicLongArray sequences;
+
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+
+    OpMonitoringRingBuffer(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+
+        this.capacity = capacity;
+        this.slots = new AtomicReferenceArray<>(capacity);
+        this.sequences = new AtomicLongArray(capacity);
+
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * Appends the record to the ring.
+     * @param data the record
+     * @return false if the ring is full
+     */
+    boolean offer(OpMonitoringData data) {
+        long position = tail.get();
+
+        while (true) {
+            int index = index(position);
+            long difference = sequences.get(index) - position;
+
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    slots.set(index, data);
+                    sequences.set(index, position + 1);
+
+                    return true;
+                }
+
+                position = tail.get();
+            } else if (difference < 0) {
+                return false;
+            } else {
+                position = tail.get();
+            }
+        }
+    }
+
+    /**
+     * Appends the record to the ring, removing the oldest records while the ring is full.
+     * @param data the record
+     * @return the number of records removed to make room
+     */
+    int offerEvictingOldest(OpMonitoringData data) {
+        int evicted = 0;
+
+        while (!offer(data)) {
+            if (poll() != null) {
+                evicted++;
+            } else {
+                // A consumer has claimed the slot but not yet released it.
+                Thread.onSpinWait();
+            }
+        }
+
+        return evicted;
+    }
+
+    /**
+     * Removes the oldest record from the ring.
+     * @return the record or null if the ring is empty
+     */
+    OpMonitoringData poll() {
+        long position = head.get();
+
+        while (true) {
+            int index = index(position);
+            long difference = sequences.get(index) - (position + 1);
+
+            if (difference == 0) {
+                if (head.compareAndSet(position, position + 1)) {
+                    OpMonitoringData data = slots.getAndSet(index, null);
+                    sequences.set(index, position + capacity);
+
+                    return data;
+                }
+
+                position = head.get();
+            } else if (difference < 0) {
+                return null;
+            } else {
+                position = head.get();
+            }
+        }
+    }
+
+    /**
+     * Moves at most maxRecords oldest records from the ring to the given list.
+     * @param target the list to add the records to
+     * @param maxRecords the maximum number of records to move
+     * @return the number of records moved
+     */
+    int drainTo(List<OpMonitoringData> target, int maxRecords) {
+        int drained = 0;
+
+        while (drained < maxRecords) {
+            OpMonitoringData data = poll();
+
+            if (data == null) {
+                break;
+            }
+
+            target.add(data);
+            drained++;
+        }
+
+        return drained;
+    }
+
+    /**
+     * @return the number of records in the ring; the value is exact only when the ring is not being modified
+     */
+    int size() {
+        long currentHead = head.get();
+        long currentTail = tail.get();
+
+        return (int) Math.max(0, Math.min(capacity, currentTail - currentHead));
+    }
+
+    boolean isEmpty() {
+        return size() == 0;
+    }
+
+    int capacity() {
+        return capacity;
+    }
+
+    private int index(long position) {
+        return (int) (position % capacity);
+    }
+}
@@ -47,6 +47,8 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -54,7 +56,6 @@ import java.util.stream.IntStream;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.junit.jupiter.api.Assertions.assertEquals;
-import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
@@ -155,6 +156,8 @@ class OpMonitoringBufferTest {
                         assertEquals(requestCount, processedCounter.get());
                         assertEquals(0, opMonitoringBuffer.getCurrentBufferSize());
                     });
+
+            assertTrue(opMonitoringBuffer.getMetricRegistry().timer(OpMonitoringBuffer.METRIC_SEND_LATENCY).getCount() > 0);
         } finally {
             executorService.shutdownNow();
         }
@@ -169,7 +172,7 @@ class OpMonitoringBufferTest {
             @Override
             OpMonitoringDaemonSender createSender(ServerConfProvider serverConfProvider) throws Exception {
                 var mockedSender = mock(OpMonitoringDaemonSender.class);
-                when(mockedSender.isReady()).thenReturn(false);
+                when(mockedSender.tryAcquire()).thenReturn(false);
                 return mockedSender;
             }
         };
@@ -184,17 +187,13 @@ class OpMonitoringBufferTest {
         opMonitoringBuffer.store(opMonitoringData2);
         opMonitoringBuffer.store(opMonitoringData3);
 
-        Awaitility.await()
-                .atMost(Duration.ofSeconds(20))
-                .pollDelay(Duration.ofSeconds(1))
-                .untilAsserted(() -> {
-                    assertEquals(2, opMonitoringBuffer.buffer.size());
-                    assertFalse(opMonitoringBuffer.buffer.contains(opMonitoringData1));
-                    assertTrue(opMonitoringBuffer.buffer.contains(opMonitoringData2));
-                    assertTrue(opMonitoringBuffer.buffer.contains(opMonitoringData3));
-                });
+        assertEquals(2, opMonitoringBuffer.getCurrentBufferSize());
+        assertEquals(1, opMonitoringBuffer.getMetricRegistry().counter(OpMonitoringBuffer.METRIC_DROPPED).getCount());
+
+        List<OpMonitoringData> remaining = new ArrayList<>();
+        opMonitoringBuffer.buffer.drainTo(remaining, 10);
 
-//
+        assertEquals(List.of(opMonitoringData2, opMonitoringData3), remaining);
     }
 
     @Test
@@ -0,0 +1,143 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.proxy.opmonitoring;
+
+import ee.ria.xroad.common.opmonitoring.OpMonitoringData;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the operational monitoring ring buffer.
+ */
+class OpMonitoringRingBufferTest {
+
+    @Test
+    void keepsInsertionOrder() {
+        OpMonitoringRingBuffer ring = new OpMonitoringRingBuffer(3);
+        List<OpMonitoringData> records = createRecords(3);
+
+        records.forEach(data -> assertTrue(ring.offer(data)));
+
+        assertFalse(ring.offer(createRecord(100)));
+        assertEquals(3, ring.size());
+
+        List<OpMonitoringData> drained = new ArrayList<>();
+        assertEquals(3, ring.drainTo(drained, 10));
+        assertEquals(records, drained);
+        assertNull(ring.poll());
+        assertTrue(ring.isEmpty());
+    }
+
+    @Test
+    void evictsOldestWhenFull() {
+        OpMonitoringRingBuffer ring = new OpMonitoringRingBuffer(2);
+        List<OpMonitoringData> records = createRecords(5);
+
+        int evicted = 0;
+        for (OpMonitoringData data : records) {
+            evicted += ring.offerEvictingOldest(data);
+        }
+
+        assertEquals(3, evicted);
+        assertEquals(records.get(3), ring.poll());
+        assertEquals(records.get(4), ring.poll());
+        assertNull(ring.poll());
+    }
+
+    @Test
+    void concurrentProducersAndConsumersDoNotLoseRecords() throws Exception {
+        final int producers = 8;
+        final int consumers = 4;
+        final int recordsPerProducer = 20_000;
+
+        OpMonitoringRingBuffer ring = new OpMonitoringRingBuffer(1024);
+        ExecutorService executor = Executors.newFixedThreadPool(producers + consumers);
+        CountDownLatch producersDone = new CountDownLatch(producers);
+        AtomicInteger evicted = new AtomicInteger();
+        Set<OpMonitoringData> consumed = ConcurrentHashMap.newKeySet();
+
+        try {
+            for (int p = 0; p < producers; p++) {
+                executor.execute(() -> {
+                    for (int i = 0; i < recordsPerProducer; i++) {
+                        evicted.addAndGet(ring.offerEvictingOldest(createRecord(i)));
+                    }
+                    producersDone.countDown();
+                });
+            }
+
+            List<Future<?>> consumerTasks = new ArrayList<>();
+            for (int c = 0; c < consumers; c++) {
+                consumerTasks.add(executor.submit(() -> {
+                    List<OpMonitoringData> batch = new ArrayList<>();
+                    while (producersDone.getCount() > 0 || !ring.isEmpty()) {
+                        batch.clear();
+                        ring.drainTo(batch, 100);
+                        consumed.addAll(batch);
+                    }
+                }));
+            }
+
+            assertTrue(producersDone.await(60, TimeUnit.SECONDS));
+            for (Future<?> task : consumerTasks) {
+                task.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(producers * recordsPerProducer, consumed.size() + evicted.get());
+        assertTrue(ring.isEmpty());
+    }
+
+    private static List<OpMonitoringData> createRecords(int count) {
+        List<OpMonitoringData> records = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            records.add(createRecord(i));
+        }
+        return records;
+    }
+
+    private static OpMonitoringData createRecord(long timestamp) {
+        return new OpMonitoringData(OpMonitoringData.SecurityServerType.CLIENT, timestamp);
+    }
+}
@@ -53,5 +53,14 @@ public interface ConfigurationService {
 
     Set<DistributedFile> getAllConfigurationFiles(int version);
 
+    /**
+     * Returns a marker that changes whenever a registry change is recorded or a configuration file of the
+     * version is saved, so that an unchanged configuration can be detected without generating it.
+     *
+     * @param version configuration version
+     * @return configuration revision
+     */
+    String getConfigurationRevision(int version);
+
     void uploadConfigurationPart(ConfigurationSourceType sourceType, String contentIdentifier, String originalFileName, byte[] data);
 }
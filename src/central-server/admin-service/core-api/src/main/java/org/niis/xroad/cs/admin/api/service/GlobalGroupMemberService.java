@@ -39,6 +39,7 @@ import org.niis.xroad.cs.admin.api.paging.Page;
 import org.niis.xroad.cs.admin.api.paging.PageRequestDto;
 
 import java.util.List;
+import java.util.Map;
 
 public interface GlobalGroupMemberService {
 
@@ -46,6 +47,12 @@ public interface GlobalGroupMemberService {
 
     List<GlobalGroupMember> findByGroupCode(String groupCode);
 
+    /**
+     * Loads the members of all global groups with a single query.
+     * @return member identifiers by global group code
+     */
+    Map<String, List<ClientId>> findAllMembersByGroupCode();
+
     void addMemberToGlobalGroup(MemberId memberId, String groupCode);
 
     void removeMemberFromGlobalGroup(String groupCode, String memberId);
@@ -34,6 +34,7 @@ import org.niis.xroad.cs.admin.api.domain.ManagementRequestStatus;
 import org.niis.xroad.cs.admin.api.domain.SecurityServer;
 import org.niis.xroad.cs.admin.api.domain.XRoadMember;
 import org.niis.xroad.cs.admin.api.dto.SecurityServerAuthenticationCertificateDetails;
+import org.niis.xroad.cs.admin.api.dto.SecurityServerSummary;
 import org.niis.xroad.cs.admin.api.paging.Page;
 import org.niis.xroad.cs.admin.api.paging.PageRequestDto;
 
@@ -53,6 +54,12 @@ public interface SecurityServerService {
 
     List<SecurityServer> findAll();
 
+    /**
+     * Loads all security servers together with their authentication certificates and enabled clients
+     * using a fixed number of queries regardless of the number of servers.
+     */
+    List<SecurityServerSummary> findAllSummaries();
+
     List<FlattenedSecurityServerClientView> findClients(SecurityServerId serverId);
 
     Set<SecurityServerAuthenticationCertificateDetails> findAuthCertificates(SecurityServerId id);
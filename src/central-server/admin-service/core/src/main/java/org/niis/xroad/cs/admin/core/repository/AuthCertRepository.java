@@ -26,8 +26,10 @@
  */
 package org.niis.xroad.cs.admin.core.repository;
 
+import org.niis.xroad.cs.admin.api.dto.SecurityServerAuthCert;
 import org.niis.xroad.cs.admin.core.entity.AuthCertEntity;
 
+import java.util.List;
 import java.util.Optional;
 
 
@@ -36,4 +38,6 @@ public interface AuthCertRepository extends GenericRepository<AuthCertEntity, In
     boolean existsByCert(byte[] certificate);
 
     Optional<AuthCertEntity> findByCert(byte[] certificate);
+
+    List<SecurityServerAuthCert> findAllServerAuthCerts();
 }
@@ -40,4 +40,10 @@ public interface DistributedFileRepository extends GenericRepository<Distributed
     Set<DistributedFileEntity> findAllByContentIdentifierAndHaNodeName(String contentIdentifier, String haNodeName);
 
     Optional<DistributedFileEntity> findFirstByContentIdentifierAndHaNodeName(String contentIdentifier, String haNodeName);
+
+    /**
+     * @return the id of the last recorded registry change combined with the count and the last update time of the
+     * configuration files of the version
+     */
+    String getConfigurationRevision(int version);
 }
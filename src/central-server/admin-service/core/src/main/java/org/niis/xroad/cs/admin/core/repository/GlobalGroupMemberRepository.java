@@ -26,6 +26,7 @@
  */
 package org.niis.xroad.cs.admin.core.repository;
 
+import org.niis.xroad.cs.admin.api.dto.GlobalGroupMemberInfo;
 import org.niis.xroad.cs.admin.core.entity.GlobalGroupMemberEntity;
 
 import java.util.List;
@@ -36,4 +37,6 @@ public interface GlobalGroupMemberRepository extends GenericRepository<GlobalGro
 
     List<GlobalGroupMemberEntity> findMemberGroups(ee.ria.xroad.common.identifier.ClientId memberId);
 
+    List<GlobalGroupMemberInfo> findAllMemberInfos();
+
 }
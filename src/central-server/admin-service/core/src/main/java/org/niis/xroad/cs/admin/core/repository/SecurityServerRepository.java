@@ -29,10 +29,12 @@ package org.niis.xroad.cs.admin.core.repository;
 import ee.ria.xroad.common.identifier.ClientId;
 import ee.ria.xroad.common.identifier.SecurityServerId;
 
+import org.niis.xroad.cs.admin.api.dto.SecurityServerInfo;
 import org.niis.xroad.cs.admin.core.entity.SecurityServerEntity;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
+import java.util.List;
 import java.util.Optional;
 
 public interface SecurityServerRepository extends
@@ -50,4 +52,6 @@ public interface SecurityServerRepository extends
 
     boolean existsBy(SecurityServerId serverId);
 
+    List<SecurityServerInfo> findAllServerInfos();
+
 }
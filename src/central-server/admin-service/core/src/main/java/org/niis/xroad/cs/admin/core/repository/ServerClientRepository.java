@@ -26,8 +26,12 @@
  */
 package org.niis.xroad.cs.admin.core.repository;
 
+import org.niis.xroad.cs.admin.api.dto.SecurityServerClientInfo;
 import org.niis.xroad.cs.admin.core.entity.ServerClientEntity;
 
+import java.util.List;
+
 public interface ServerClientRepository extends GenericRepository<ServerClientEntity, Integer> {
 
+    List<SecurityServerClientInfo> findAllEnabledClientInfos();
 }
@@ -236,6 +236,11 @@ public class ConfigurationServiceImpl implements ConfigurationService {
                 .collect(toSet());
     }
 
+    @Override
+    public String getConfigurationRevision(int version) {
+        return distributedFileRepository.getConfigurationRevision(version);
+    }
+
     @Override
     public void uploadConfigurationPart(ConfigurationSourceType sourceType,
                                         String contentIdentifier, String originalFileName, byte[] data) {
@@ -35,6 +35,7 @@ import org.niis.xroad.common.exception.NotFoundException;
 import org.niis.xroad.cs.admin.api.domain.GlobalGroupMember;
 import org.niis.xroad.cs.admin.api.domain.GlobalGroupMemberView;
 import org.niis.xroad.cs.admin.api.domain.MemberId;
+import org.niis.xroad.cs.admin.api.dto.GlobalGroupMemberInfo;
 import org.niis.xroad.cs.admin.api.paging.Page;
 import org.niis.xroad.cs.admin.api.paging.PageRequestDto;
 import org.niis.xroad.cs.admin.api.service.GlobalGroupMemberService;
@@ -55,10 +56,15 @@ import org.niis.xroad.restapi.config.audit.AuditDataHelper;
 import org.niis.xroad.restapi.config.audit.RestApiAuditProperty;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static java.util.Collections.singletonList;
+import static java.util.stream.Collectors.groupingBy;
+import static java.util.stream.Collectors.mapping;
 import static java.util.stream.Collectors.toList;
 import static org.niis.xroad.cs.admin.api.exception.ErrorMessage.GLOBAL_GROUP_NOT_FOUND;
 import static org.niis.xroad.cs.admin.api.exception.ErrorMessage.MEMBER_NOT_FOUND;
@@ -97,6 +103,18 @@ public class GlobalGroupMemberServiceImpl implements GlobalGroupMemberService {
                 .collect(toList());
     }
 
+    @Override
+    public Map<String, List<ClientId>> findAllMembersByGroupCode() {
+        return globalGroupMemberRepository.findAllMemberInfos().stream()
+                .collect(groupingBy(GlobalGroupMemberInfo::getGroupCode, LinkedHashMap::new,
+                        mapping(GlobalGroupMemberServiceImpl::toClientId, toList())));
+    }
+
+    private static ClientId toClientId(GlobalGroupMemberInfo member) {
+        return ClientId.Conf.create(member.getXroadInstance(), member.getMemberClass(), member.getMemberCode(),
+                member.getSubsystemCode());
+    }
+
     @Override
     public void addMemberToGlobalGroup(MemberId memberId, String groupCode) {
         final XRoadMemberEntity memberEntity = getMemberIdEntity(memberId);
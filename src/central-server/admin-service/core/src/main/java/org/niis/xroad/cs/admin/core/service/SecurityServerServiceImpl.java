@@ -42,7 +42,10 @@ import org.niis.xroad.cs.admin.api.domain.MemberId;
 import org.niis.xroad.cs.admin.api.domain.SecurityServer;
 import org.niis.xroad.cs.admin.api.domain.ServerClient;
 import org.niis.xroad.cs.admin.api.domain.XRoadMember;
+import org.niis.xroad.cs.admin.api.dto.SecurityServerAuthCert;
 import org.niis.xroad.cs.admin.api.dto.SecurityServerAuthenticationCertificateDetails;
+import org.niis.xroad.cs.admin.api.dto.SecurityServerClientInfo;
+import org.niis.xroad.cs.admin.api.dto.SecurityServerSummary;
 import org.niis.xroad.cs.admin.api.paging.Page;
 import org.niis.xroad.cs.admin.api.paging.PageRequestDto;
 import org.niis.xroad.cs.admin.api.service.ClientService;
@@ -62,14 +65,18 @@ import org.niis.xroad.cs.admin.core.entity.XRoadMemberEntity;
 import org.niis.xroad.cs.admin.core.entity.mapper.SecurityServerMapper;
 import org.niis.xroad.cs.admin.core.repository.AuthCertRepository;
 import org.niis.xroad.cs.admin.core.repository.SecurityServerRepository;
+import org.niis.xroad.cs.admin.core.repository.ServerClientRepository;
 import org.niis.xroad.cs.admin.core.repository.paging.StableSortHelper;
 import org.niis.xroad.restapi.config.audit.AuditDataHelper;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 
+import static java.util.stream.Collectors.groupingBy;
+import static java.util.stream.Collectors.mapping;
 import static java.util.stream.Collectors.toList;
 import static java.util.stream.Collectors.toSet;
 import static org.niis.xroad.cs.admin.api.domain.Origin.CENTER;
@@ -94,6 +101,7 @@ public class SecurityServerServiceImpl implements SecurityServerService {
     private final StableSortHelper stableSortHelper;
     private final AuthCertRepository authCertRepository;
     private final SecurityServerRepository securityServerRepository;
+    private final ServerClientRepository serverClientRepository;
     private final ManagementRequestService managementRequestService;
     private final ClientService clientService;
     private final GlobalGroupMemberService groupMemberService;
@@ -162,6 +170,30 @@ public class SecurityServerServiceImpl implements SecurityServerService {
                 .collect(toList());
     }
 
+    @Override
+    public List<SecurityServerSummary> findAllSummaries() {
+        Map<Integer, List<byte[]>> authCerts = authCertRepository.findAllServerAuthCerts().stream()
+                .collect(groupingBy(SecurityServerAuthCert::getSecurityServerId,
+                        mapping(SecurityServerAuthCert::getCert, toList())));
+        Map<Integer, List<ClientId>> clients = serverClientRepository.findAllEnabledClientInfos().stream()
+                .collect(groupingBy(SecurityServerClientInfo::getSecurityServerId,
+                        mapping(SecurityServerServiceImpl::toClientId, toList())));
+
+        return securityServerRepository.findAllServerInfos().stream()
+                .map(server -> new SecurityServerSummary(
+                        SecurityServerId.Conf.create(server.getXroadInstance(), server.getMemberClass(),
+                                server.getMemberCode(), server.getServerCode()),
+                        server.getAddress(),
+                        authCerts.getOrDefault(server.getId(), List.of()),
+                        clients.getOrDefault(server.getId(), List.of())))
+                .toList();
+    }
+
+    private static ClientId toClientId(SecurityServerClientInfo client) {
+        return ClientId.Conf.create(client.getXroadInstance(), client.getMemberClass(), client.getMemberCode(),
+                client.getSubsystemCode());
+    }
+
     @Override
     public List<FlattenedSecurityServerClientView> findClients(SecurityServerId serverId) {
         return securityServerRepository.findBy(serverId)
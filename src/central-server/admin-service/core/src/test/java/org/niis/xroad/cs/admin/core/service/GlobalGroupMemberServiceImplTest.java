@@ -27,6 +27,8 @@
 
 package org.niis.xroad.cs.admin.core.service;
 
+import ee.ria.xroad.common.identifier.ClientId;
+
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
@@ -34,6 +36,7 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.niis.xroad.cs.admin.api.domain.MemberId;
+import org.niis.xroad.cs.admin.api.dto.GlobalGroupMemberInfo;
 import org.niis.xroad.cs.admin.core.entity.GlobalGroupEntity;
 import org.niis.xroad.cs.admin.core.entity.GlobalGroupMemberEntity;
 import org.niis.xroad.cs.admin.core.entity.MemberIdEntity;
@@ -42,6 +45,7 @@ import org.niis.xroad.cs.admin.core.repository.GlobalGroupMemberRepository;
 import org.niis.xroad.cs.admin.core.repository.GlobalGroupRepository;
 import org.niis.xroad.cs.admin.core.repository.XRoadMemberRepository;
 
+import java.util.List;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -157,4 +161,20 @@ class GlobalGroupMemberServiceImplTest {
         verifyNoInteractions(globalGroupMemberRepository);
     }
 
+    @Test
+    void findAllMembersByGroupCode() {
+        when(globalGroupMemberRepository.findAllMemberInfos()).thenReturn(List.of(
+                new GlobalGroupMemberInfo(GROUP_CODE, INSTANCE, MEMBER_CLASS, MEMBER_CODE, null),
+                new GlobalGroupMemberInfo("other-group", INSTANCE, MEMBER_CLASS, MEMBER_CODE, "SUBSYSTEM"),
+                new GlobalGroupMemberInfo(GROUP_CODE, INSTANCE, MEMBER_CLASS, MEMBER_CODE, "SUBSYSTEM")));
+
+        var result = globalGroupMemberService.findAllMembersByGroupCode();
+
+        assertThat(result).containsOnlyKeys(GROUP_CODE, "other-group");
+        assertThat(result.get(GROUP_CODE)).containsExactly(
+                ClientId.Conf.create(INSTANCE, MEMBER_CLASS, MEMBER_CODE),
+                ClientId.Conf.create(INSTANCE, MEMBER_CLASS, MEMBER_CODE, "SUBSYSTEM"));
+        assertThat(result.get("other-group")).containsExactly(ClientId.Conf.create(INSTANCE, MEMBER_CLASS, MEMBER_CODE, "SUBSYSTEM"));
+    }
+
 }
@@ -48,7 +48,11 @@ import org.niis.xroad.cs.admin.api.domain.ManagementRequestView;
 import org.niis.xroad.cs.admin.api.domain.MemberId;
 import org.niis.xroad.cs.admin.api.domain.Request;
 import org.niis.xroad.cs.admin.api.domain.SecurityServer;
+import org.niis.xroad.cs.admin.api.dto.SecurityServerAuthCert;
 import org.niis.xroad.cs.admin.api.dto.SecurityServerAuthenticationCertificateDetails;
+import org.niis.xroad.cs.admin.api.dto.SecurityServerClientInfo;
+import org.niis.xroad.cs.admin.api.dto.SecurityServerInfo;
+import org.niis.xroad.cs.admin.api.dto.SecurityServerSummary;
 import org.niis.xroad.cs.admin.api.paging.Page;
 import org.niis.xroad.cs.admin.api.service.ClientService;
 import org.niis.xroad.cs.admin.api.service.GlobalGroupMemberService;
@@ -65,6 +69,7 @@ import org.niis.xroad.cs.admin.core.entity.XRoadMemberEntity;
 import org.niis.xroad.cs.admin.core.entity.mapper.SecurityServerMapper;
 import org.niis.xroad.cs.admin.core.repository.AuthCertRepository;
 import org.niis.xroad.cs.admin.core.repository.SecurityServerRepository;
+import org.niis.xroad.cs.admin.core.repository.ServerClientRepository;
 import org.niis.xroad.cs.admin.core.repository.paging.PageDto;
 import org.niis.xroad.cs.admin.core.service.managementrequest.ManagementRequestServiceImpl;
 import org.niis.xroad.restapi.config.audit.AuditDataHelper;
@@ -116,6 +121,8 @@ class SecurityServerServiceImplTest implements WithInOrder {
     @Mock
     private AuthCertRepository authCertRepository;
     @Mock
+    private ServerClientRepository serverClientRepository;
+    @Mock
     private CertificateConverter certificateConverter;
     @Mock
     private AuditDataHelper auditDataHelper;
@@ -189,6 +196,35 @@ class SecurityServerServiceImplTest implements WithInOrder {
         }
     }
 
+    @Nested
+    class FindAllSummaries {
+
+        @Test
+        void shouldCombineServersWithAuthCertsAndClients() {
+            var authCert = new byte[]{1, 2, 3};
+            when(securityServerRepository.findAllServerInfos()).thenReturn(List.of(
+                    new SecurityServerInfo(1, "INSTANCE", "CLASS", "OWNER", "SS1", "ss1.example.org"),
+                    new SecurityServerInfo(2, "INSTANCE", "CLASS", "OWNER", "SS2", "ss2.example.org")));
+            when(authCertRepository.findAllServerAuthCerts()).thenReturn(List.of(new SecurityServerAuthCert(1, authCert)));
+            when(serverClientRepository.findAllEnabledClientInfos()).thenReturn(List.of(
+                    new SecurityServerClientInfo(1, "INSTANCE", "CLASS", "MEMBER", null),
+                    new SecurityServerClientInfo(1, "INSTANCE", "CLASS", "MEMBER", "SUB")));
+
+            final List<SecurityServerSummary> result = securityServerService.findAllSummaries();
+
+            assertThat(result).hasSize(2);
+            assertThat(result.get(0).serverId()).isEqualTo(SecurityServerId.Conf.create("INSTANCE", "CLASS", "OWNER", "SS1"));
+            assertThat(result.get(0).address()).isEqualTo("ss1.example.org");
+            assertThat(result.get(0).authCerts()).containsExactly(authCert);
+            assertThat(result.get(0).clients()).containsExactly(
+                    ClientId.Conf.create("INSTANCE", "CLASS", "MEMBER"),
+                    ClientId.Conf.create("INSTANCE", "CLASS", "MEMBER", "SUB"));
+            assertThat(result.get(1).serverId().getServerCode()).isEqualTo("SS2");
+            assertThat(result.get(1).authCerts()).isEmpty();
+            assertThat(result.get(1).clients()).isEmpty();
+        }
+    }
+
     @Nested
     class FindClients {
 
@@ -44,7 +44,7 @@ import static org.niis.xroad.cs.admin.globalconf.generator.FileUtils.delete;
 @Slf4j
 @RequiredArgsConstructor
 public class GlobalConfApplier {
-    private static final int OLD_CONF_PRESERVING_SECONDS = 600;
+    static final int OLD_CONF_PRESERVING_SECONDS = 600;
 
     private final int confVersion;
     private final ConfigurationDistributor configurationDistributor;
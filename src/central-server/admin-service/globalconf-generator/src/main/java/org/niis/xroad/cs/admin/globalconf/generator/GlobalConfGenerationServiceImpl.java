@@ -30,6 +30,10 @@ import ee.ria.xroad.common.SystemProperties;
 import ee.ria.xroad.common.crypto.identifier.DigestAlgorithm;
 import ee.ria.xroad.common.util.TimeUtils;
 
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.codahale.metrics.jmx.JmxReporter;
 import lombok.RequiredArgsConstructor;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
@@ -42,20 +46,36 @@ import org.niis.xroad.cs.admin.api.service.ConfigurationService;
 import org.niis.xroad.cs.admin.api.service.ConfigurationSigningKeysService;
 import org.niis.xroad.cs.admin.api.service.GlobalConfGenerationService;
 import org.niis.xroad.cs.admin.api.service.SystemParameterService;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 
+import static ee.ria.xroad.common.SystemProperties.getCenterExternalDirectory;
+import static ee.ria.xroad.common.SystemProperties.getCenterInternalDirectory;
 import static ee.ria.xroad.common.conf.globalconf.ConfigurationConstants.CONTENT_ID_PRIVATE_PARAMETERS;
 import static ee.ria.xroad.common.conf.globalconf.ConfigurationConstants.CONTENT_ID_SHARED_PARAMETERS;
+import static ee.ria.xroad.common.crypto.Digests.hexDigest;
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.concurrent.TimeUnit.SECONDS;
+import static java.util.stream.Collectors.joining;
+import static java.util.stream.Collectors.toMap;
 import static java.util.stream.Collectors.toSet;
 import static java.util.stream.Stream.concat;
 import static org.niis.xroad.cs.admin.api.service.ConfigurationSigningKeysService.SOURCE_TYPE_EXTERNAL;
@@ -68,8 +88,9 @@ import static org.niis.xroad.cs.admin.globalconf.generator.GlobalConfGenerationE
 @Component
 @Slf4j
 @RequiredArgsConstructor
-public class GlobalConfGenerationServiceImpl implements GlobalConfGenerationService {
-
+public class GlobalConfGenerationServiceImpl implements GlobalConfGenerationService, InitializingBean, DisposableBean {
+    public static final String METRIC_GENERATION_DURATION = "globalConfGeneration.duration";
+    public static final String METRIC_SKIPPED_GENERATIONS = "globalConfGeneration.skipped";
 
     private static final Set<String> EXTERNAL_SOURCE_CONTENT_IDENTIFIERS = Set.of(
             CONTENT_ID_SHARED_PARAMETERS);
@@ -85,11 +106,42 @@ public class GlobalConfGenerationServiceImpl implements GlobalConfGenerationServ
 
     private final List<ConfigurationPartsGenerator> configurationPartsGenerators;
 
+    // the last distributed configuration per configuration version
+    private final Map<Integer, DistributedConfiguration> distributedConfigurations = new ConcurrentHashMap<>();
+
+    private final MetricRegistry metricRegistry = new MetricRegistry();
+    private final Timer generationDuration = metricRegistry.timer(METRIC_GENERATION_DURATION);
+    private final Counter skippedGenerations = metricRegistry.counter(METRIC_SKIPPED_GENERATIONS);
+    private final JmxReporter reporter = JmxReporter.forRegistry(metricRegistry).build();
+
     @SneakyThrows
     @Override
     @Transactional
     @Scheduled(fixedRateString = "${xroad.admin-service.global-configuration-generation-rate-in-seconds}", timeUnit = SECONDS)
     public void generate() {
+        try (var ignored = generationDuration.time()) {
+            generateAll();
+        }
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        reporter.start();
+    }
+
+    @Override
+    public void destroy() {
+        reporter.stop();
+    }
+
+    /**
+     * @return generation duration timer and skipped generation counter, which are reported over JMX
+     */
+    public MetricRegistry getMetricRegistry() {
+        return metricRegistry;
+    }
+
+    private void generateAll() {
         final var results = configurationPartsGenerators.stream()
                 .map(this::generate)
                 .filter(Optional::isPresent)
@@ -101,13 +153,17 @@ public class GlobalConfGenerationServiceImpl implements GlobalConfGenerationServ
         }
 
         if (results.stream().allMatch(Result::success)) {
-            results.stream()
-                    .map(Result::applier)
-                    .forEach(GlobalConfApplier::apply);
+            results.forEach(result -> {
+                if (result.applier() != null) {
+                    result.applier().apply();
+                }
+                distributedConfigurations.put(result.confVersion(), result.distributed());
+            });
             eventPublisher.publishEvent(SUCCESS);
         } else {
             results.stream()
                     .map(Result::applier)
+                    .filter(Objects::nonNull)
                     .forEach(GlobalConfApplier::rollback);
             eventPublisher.publishEvent(FAILURE);
         }
@@ -127,11 +183,26 @@ public class GlobalConfGenerationServiceImpl implements GlobalConfGenerationServ
         try {
             log.debug("Starting global conf V{} generation", confVersion);
 
-            var configurationParts = generator.generateConfigurationParts();
-            configurationParts.forEach(gp -> configurationService
-                    .saveConfigurationPart(gp.getContentIdentifier(), gp.getFilename(), gp.getData(), confVersion));
+            // read before generating, so that a change made during the generation is picked up by the next run
+            var revision = configurationService.getConfigurationRevision(confVersion);
+            var distributed = distributedConfigurations.get(confVersion);
+            var expireIntervalSeconds = systemParameterService.getConfExpireIntervalSeconds();
+            if (distributed != null && revision != null && revision.equals(distributed.revision())
+                    && distributed.isReusable(configGenerationTime, expireIntervalSeconds, configDistributor)) {
+                return Optional.of(keep(confVersion, distributed, configGenerationTime));
+            }
+
+            var allConfigurationParts = saveChangedConfigurationParts(generator.generateConfigurationParts(), confVersion);
+
+            var internalSigningKey = configurationSigningKeysService.findActiveForSource(SOURCE_TYPE_INTERNAL).orElseThrow();
+            var externalSigningKey = configurationSigningKeysService.findActiveForSource(SOURCE_TYPE_EXTERNAL).orElseThrow();
+
+            var fingerprint = fingerprint(allConfigurationParts, internalSigningKey, externalSigningKey);
+            if (distributed != null && distributed.fingerprint().equals(fingerprint)
+                    && distributed.isReusable(configGenerationTime, expireIntervalSeconds, configDistributor)) {
+                return Optional.of(keep(confVersion, distributed.withRevision(revision), configGenerationTime));
+            }
 
-            var allConfigurationParts = toConfigurationParts(configurationService.getAllConfigurationFiles(confVersion));
             globalConfApplier.addConfigurationParts(allConfigurationParts);
 
             var internalConfigurationParts = internalConfigurationParts(allConfigurationParts);
@@ -140,20 +211,84 @@ public class GlobalConfGenerationServiceImpl implements GlobalConfGenerationServ
             configDistributor.initConfLocation();
             configDistributor.writeConfigurationFiles(allConfigurationParts);
 
-            var internalSigningKey = configurationSigningKeysService.findActiveForSource(SOURCE_TYPE_INTERNAL).orElseThrow();
-            var externalSigningKey = configurationSigningKeysService.findActiveForSource(SOURCE_TYPE_EXTERNAL).orElseThrow();
-
             writeDirectoryContentFile(configDistributor, internalConfigurationParts, internalSigningKey, getTmpInternalDirectory());
             writeDirectoryContentFile(configDistributor, externalConfigurationParts, externalSigningKey, getTmpExternalDirectory());
 
             log.debug("Global conf generated");
-            return Optional.of(new Result(true, globalConfApplier));
+            return Optional.of(new Result(true, confVersion, globalConfApplier,
+                    new DistributedConfiguration(fingerprint, revision, configGenerationTime,
+                            configDistributor.getConfigLocationPath())));
         } catch (Exception e) {
             log.error("Global conf generation failed", e);
-            return Optional.of(new Result(false, globalConfApplier));
+            return Optional.of(new Result(false, confVersion, globalConfApplier, null));
         }
     }
 
+    /**
+     * Keeps the distributed configuration. Its directory is touched so that it is not cleaned up as an old
+     * configuration while it is still served.
+     */
+    @SneakyThrows
+    private Result keep(int confVersion, DistributedConfiguration distributed, Instant now) {
+        log.debug("Global conf V{} has not changed, keeping the distributed configuration", confVersion);
+        Files.setLastModifiedTime(distributed.directory(), FileTime.from(now));
+        skippedGenerations.inc();
+        return new Result(true, confVersion, null, distributed);
+    }
+
+    /**
+     * Saves the generated parts that differ from the stored ones.
+     * @return all configuration parts of the version
+     */
+    private Set<ConfigurationPart> saveChangedConfigurationParts(List<ConfigurationPart> generatedParts, int confVersion) {
+        var storedFiles = configurationService.getAllConfigurationFiles(confVersion).stream()
+                .collect(toMap(DistributedFile::getContentIdentifier, Function.identity(), (a, b) -> a));
+
+        var changedParts = generatedParts.stream()
+                .filter(gp -> isChanged(storedFiles.get(gp.getContentIdentifier()), gp))
+                .toList();
+        if (changedParts.isEmpty()) {
+            return toConfigurationParts(Set.copyOf(storedFiles.values()));
+        }
+
+        log.debug("Global conf V{} parts changed: {}", confVersion, changedParts.stream()
+                .map(ConfigurationPart::getContentIdentifier).toList());
+        changedParts.forEach(gp -> configurationService
+                .saveConfigurationPart(gp.getContentIdentifier(), gp.getFilename(), gp.getData(), confVersion));
+        return toConfigurationParts(configurationService.getAllConfigurationFiles(confVersion));
+    }
+
+    private static boolean isChanged(DistributedFile storedFile, ConfigurationPart generatedPart) {
+        return storedFile == null
+                || !generatedPart.getFilename().equals(storedFile.getFileName())
+                || !Arrays.equals(generatedPart.getData(), storedFile.getFileData());
+    }
+
+    /**
+     * Fingerprint of everything that goes into the signed directory, apart from the timestamps.
+     */
+    @SneakyThrows
+    private String fingerprint(Set<ConfigurationPart> configurationParts, ConfigurationSigningKey internalSigningKey,
+                               ConfigurationSigningKey externalSigningKey) {
+        var parts = configurationParts.stream()
+                .sorted(Comparator.comparing(ConfigurationPart::getContentIdentifier)
+                        .thenComparing(ConfigurationPart::getFilename))
+                .map(cp -> cp.getContentIdentifier() + ":" + cp.getFilename() + ":"
+                        + hexDigest(DigestAlgorithm.SHA256, cp.getData()))
+                .collect(joining(","));
+
+        return String.join("|",
+                parts,
+                internalSigningKey.getKeyIdentifier(),
+                externalSigningKey.getKeyIdentifier(),
+                systemParameterService.getInstanceIdentifier(),
+                String.valueOf(getConfHashAlgoId()),
+                String.valueOf(systemParameterService.getConfSignDigestAlgoId()),
+                String.valueOf(getConfSignCertHashAlgoId()),
+                String.valueOf(systemParameterService.getConfExpireIntervalSeconds()),
+                String.join(",", getInternalSourceContentIdentifiers().stream().sorted().toList()));
+    }
+
     private static Set<ConfigurationPart> internalConfigurationParts(Set<ConfigurationPart> configurationParts) {
         var contentIdentifiers = getInternalSourceContentIdentifiers();
         return configurationParts.stream()
@@ -226,7 +361,39 @@ public class GlobalConfGenerationServiceImpl implements GlobalConfGenerationServ
                 .collect(toSet());
     }
 
-    private record Result(boolean success, GlobalConfApplier applier) {
+    /**
+     * Result of generating one configuration version. The applier is null if the distributed configuration
+     * is kept as is.
+     */
+    private record Result(boolean success, int confVersion, GlobalConfApplier applier, DistributedConfiguration distributed) {
+    }
+
+    /**
+     * The last distributed configuration of a version.
+     *
+     * @param fingerprint fingerprint of the content of the configuration
+     * @param revision    configuration revision the configuration was generated from, or null if not known
+     * @param generatedAt time of the generation
+     * @param directory   directory the configuration files are served from
+     */
+    private record DistributedConfiguration(String fingerprint, String revision, Instant generatedAt, Path directory) {
+
+        DistributedConfiguration withRevision(String newRevision) {
+            return new DistributedConfiguration(fingerprint, newRevision, generatedAt, directory);
+        }
+
+        /**
+         * The distributed configuration can be kept if its files are in place and it is not yet halfway to its
+         * expiry. The configuration is re-signed at least every half of the old configuration preserving period,
+         * so that the directory it replaces is always preserved for the whole period after the switch.
+         */
+        boolean isReusable(Instant now, int expireIntervalSeconds, ConfigurationDistributor configDistributor) {
+            int reuseSeconds = Math.min(expireIntervalSeconds, GlobalConfApplier.OLD_CONF_PRESERVING_SECONDS) / 2;
+            return now.isBefore(generatedAt.plusSeconds(reuseSeconds))
+                    && Files.isDirectory(directory)
+                    && Files.exists(configDistributor.getVersionLocationPath().resolve(getCenterInternalDirectory()))
+                    && Files.exists(configDistributor.getVersionLocationPath().resolve(getCenterExternalDirectory()));
+        }
     }
 
 }
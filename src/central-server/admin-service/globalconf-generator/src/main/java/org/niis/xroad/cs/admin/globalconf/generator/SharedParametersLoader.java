@@ -32,16 +32,14 @@ import ee.ria.xroad.common.identifier.ClientId;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.niis.xroad.cs.admin.api.domain.AuthCert;
 import org.niis.xroad.cs.admin.api.domain.ConfigurationSigningKey;
 import org.niis.xroad.cs.admin.api.domain.ConfigurationSourceType;
 import org.niis.xroad.cs.admin.api.domain.FlattenedSecurityServerClientView;
 import org.niis.xroad.cs.admin.api.domain.GlobalGroup;
-import org.niis.xroad.cs.admin.api.domain.GlobalGroupMember;
-import org.niis.xroad.cs.admin.api.domain.SecurityServer;
 import org.niis.xroad.cs.admin.api.dto.CertificateAuthority;
 import org.niis.xroad.cs.admin.api.dto.CertificationService;
 import org.niis.xroad.cs.admin.api.dto.OcspResponder;
+import org.niis.xroad.cs.admin.api.dto.SecurityServerSummary;
 import org.niis.xroad.cs.admin.api.service.CertificationServicesService;
 import org.niis.xroad.cs.admin.api.service.ClientService;
 import org.niis.xroad.cs.admin.api.service.ConfigurationService;
@@ -58,7 +56,6 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
-import static java.util.stream.Collectors.toList;
 import static org.apache.commons.lang3.StringUtils.isNotBlank;
 
 @Component
@@ -166,32 +163,23 @@ class SharedParametersLoader {
     }
 
     private List<SharedParameters.SecurityServer> getSecurityServers() {
-        return securityServerService.findAll().stream()
+        return securityServerService.findAllSummaries().stream()
                 .map(this::toSecurityServer)
                 .toList();
     }
 
-    private SharedParameters.SecurityServer toSecurityServer(SecurityServer ss) {
+    private SharedParameters.SecurityServer toSecurityServer(SecurityServerSummary ss) {
         var result = new SharedParameters.SecurityServer();
-        result.setOwner(ss.getOwner().getIdentifier());
-        result.setAddress(ss.getAddress());
-        result.setServerCode(ss.getServerCode());
-        result.setClients(getSecurityServerClients(ss.getId()));
-        result.setAuthCertHashes(ss.getAuthCerts().stream()
-                .map(AuthCert::getCert)
+        result.setOwner(ss.serverId().getOwner());
+        result.setAddress(ss.address());
+        result.setServerCode(ss.serverId().getServerCode());
+        result.setClients(ss.clients());
+        result.setAuthCertHashes(ss.authCerts().stream()
                 .map(CertHash::new)
                 .toList());
         return result;
     }
 
-    private List<ClientId> getSecurityServerClients(int id) {
-        return clientService.find(new ClientService.SearchParameters()
-                        .setSecurityServerId(id)
-                        .setSecurityServerEnabled(true))
-                .stream().map(SharedParametersLoader::toClientId).toList();
-
-    }
-
     private static ClientId toClientId(FlattenedSecurityServerClientView client) {
         return ClientId.Conf.create(client.getXroadInstance(),
                 client.getMemberClass().getCode(),
@@ -200,22 +188,17 @@ class SharedParametersLoader {
     }
 
     private List<SharedParameters.GlobalGroup> getGlobalGroups() {
+        var groupMembers = globalGroupMemberService.findAllMembersByGroupCode();
         return globalGroupService.findGlobalGroups().stream()
-                .map(this::getGlobalGroup)
+                .map(globalGroup -> toGlobalGroup(globalGroup, groupMembers))
                 .toList();
     }
 
-    private SharedParameters.GlobalGroup getGlobalGroup(GlobalGroup globalGroup) {
+    private SharedParameters.GlobalGroup toGlobalGroup(GlobalGroup globalGroup, Map<String, List<ClientId>> groupMembers) {
         return new SharedParameters.GlobalGroup(
                 globalGroup.getGroupCode(),
                 globalGroup.getDescription(),
-                getGroupMembers(globalGroup.getGroupCode()));
-    }
-
-    private List<ClientId> getGroupMembers(String groupCode) {
-        return globalGroupMemberService.findByGroupCode(groupCode).stream()
-                .map(GlobalGroupMember::getIdentifier)
-                .collect(toList());
+                new ArrayList<>(groupMembers.getOrDefault(globalGroup.getGroupCode(), List.of())));
     }
 
     private SharedParameters.GlobalSettings getGlobalSettings() {
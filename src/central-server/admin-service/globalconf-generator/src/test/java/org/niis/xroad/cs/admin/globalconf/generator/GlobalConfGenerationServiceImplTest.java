@@ -0,0 +1,238 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.niis.xroad.cs.admin.globalconf.generator;
+
+import ee.ria.xroad.common.SystemProperties;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.niis.xroad.cs.admin.api.domain.ConfigurationSigningKey;
+import org.niis.xroad.cs.admin.api.domain.DistributedFile;
+import org.niis.xroad.cs.admin.api.facade.SignerProxyFacade;
+import org.niis.xroad.cs.admin.api.service.ConfigurationService;
+import org.niis.xroad.cs.admin.api.service.ConfigurationSigningKeysService;
+import org.niis.xroad.cs.admin.api.service.SystemParameterService;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static ee.ria.xroad.common.conf.globalconf.ConfigurationConstants.CONTENT_ID_PRIVATE_PARAMETERS;
+import static ee.ria.xroad.common.conf.globalconf.ConfigurationConstants.CONTENT_ID_SHARED_PARAMETERS;
+import static ee.ria.xroad.common.crypto.identifier.DigestAlgorithm.SHA512;
+import static ee.ria.xroad.common.crypto.identifier.SignMechanism.CKM_RSA_PKCS;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.niis.xroad.cs.admin.api.service.ConfigurationSigningKeysService.SOURCE_TYPE_EXTERNAL;
+import static org.niis.xroad.cs.admin.api.service.ConfigurationSigningKeysService.SOURCE_TYPE_INTERNAL;
+import static org.niis.xroad.cs.admin.globalconf.generator.GlobalConfGenerationEvent.SUCCESS;
+import static org.niis.xroad.cs.admin.globalconf.generator.GlobalConfGenerationServiceImpl.METRIC_SKIPPED_GENERATIONS;
+
+class GlobalConfGenerationServiceImplTest {
+    private static final String GENERATED_CONF_DIR = "xroad.center.generated-conf-dir";
+    private static final int CONF_VERSION = 3;
+    private static final String INTERNAL_KEY_ID = "INTERNAL-KEY";
+    private static final String EXTERNAL_KEY_ID = "EXTERNAL-KEY";
+
+    @TempDir
+    static Path tempDir;
+
+    private static String currentGeneratedConfDir;
+    private static String currentConfigurationPath;
+
+    private final SignerProxyFacade signerProxyFacade = mock(SignerProxyFacade.class);
+    private final SystemParameterService systemParameterService = mock(SystemParameterService.class);
+    private final ConfigurationService configurationService = mock(ConfigurationService.class);
+    private final ConfigurationSigningKeysService configurationSigningKeysService = mock(ConfigurationSigningKeysService.class);
+    private final ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+
+    private final Map<String, DistributedFile> storedFiles = new HashMap<>();
+    private String sharedParameters = "shared-parameters";
+    private int generatedTimes;
+
+    private GlobalConfGenerationServiceImpl service;
+
+    @BeforeAll
+    static void setSystemProperties() {
+        currentGeneratedConfDir = System.getProperty(GENERATED_CONF_DIR);
+        currentConfigurationPath = System.getProperty(SystemProperties.CONFIGURATION_PATH);
+        System.setProperty(GENERATED_CONF_DIR, tempDir.resolve("generated").toString());
+        System.setProperty(SystemProperties.CONFIGURATION_PATH, tempDir.resolve("local").toString());
+    }
+
+    @AfterAll
+    static void restoreSystemProperties() {
+        restore(GENERATED_CONF_DIR, currentGeneratedConfDir);
+        restore(SystemProperties.CONFIGURATION_PATH, currentConfigurationPath);
+    }
+
+    private static void restore(String property, String value) {
+        if (value == null) {
+            System.clearProperty(property);
+        } else {
+            System.setProperty(property, value);
+        }
+    }
+
+    @BeforeEach
+    void setUp() throws Exception {
+        when(systemParameterService.getInstanceIdentifier()).thenReturn("CS");
+        when(systemParameterService.getConfExpireIntervalSeconds()).thenReturn(600);
+        when(systemParameterService.getConfHashAlgoUri()).thenReturn(SHA512);
+        when(systemParameterService.getConfSignDigestAlgoId()).thenReturn(SHA512);
+        when(systemParameterService.getConfSignCertHashAlgoUri()).thenReturn(SHA512);
+
+        when(configurationSigningKeysService.findActiveForSource(SOURCE_TYPE_INTERNAL))
+                .thenReturn(Optional.of(signingKey(INTERNAL_KEY_ID)));
+        when(configurationSigningKeysService.findActiveForSource(SOURCE_TYPE_EXTERNAL))
+                .thenReturn(Optional.of(signingKey(EXTERNAL_KEY_ID)));
+        when(signerProxyFacade.getSignMechanism(anyString())).thenReturn(CKM_RSA_PKCS);
+        when(signerProxyFacade.sign(anyString(), any(), any())).thenReturn("<signature>".getBytes(UTF_8));
+
+        doAnswer(invocation -> {
+            var file = new DistributedFile();
+            file.setContentIdentifier(invocation.getArgument(0));
+            file.setFileName(invocation.getArgument(1));
+            file.setFileData(invocation.getArgument(2));
+            file.setVersion(invocation.getArgument(3));
+            storedFiles.put(file.getContentIdentifier(), file);
+            return null;
+        }).when(configurationService).saveConfigurationPart(anyString(), anyString(), any(), anyInt());
+        when(configurationService.getAllConfigurationFiles(CONF_VERSION))
+                .thenAnswer(invocation -> new HashSet<>(storedFiles.values()));
+
+        service = new GlobalConfGenerationServiceImpl(signerProxyFacade, systemParameterService, configurationService,
+                configurationSigningKeysService, eventPublisher, List.of(new TestPartsGenerator()));
+    }
+
+    @Test
+    void unchangedConfigurationIsNotSignedAgain() throws Exception {
+        service.generate();
+        service.generate();
+
+        verify(signerProxyFacade, times(2)).sign(anyString(), any(), any());
+        verify(configurationService, times(2)).saveConfigurationPart(anyString(), anyString(), any(), anyInt());
+        verify(eventPublisher, times(2)).publishEvent(SUCCESS);
+        assertThat(service.getMetricRegistry().counter(METRIC_SKIPPED_GENERATIONS).getCount()).isEqualTo(1);
+        assertThat(service.getMetricRegistry().timer(GlobalConfGenerationServiceImpl.METRIC_GENERATION_DURATION).getCount())
+                .isEqualTo(2);
+    }
+
+    @Test
+    void changedPartIsSavedAndSigned() throws Exception {
+        service.generate();
+        sharedParameters = "changed-shared-parameters";
+        service.generate();
+
+        verify(signerProxyFacade, times(4)).sign(anyString(), any(), any());
+        verify(configurationService, times(3)).saveConfigurationPart(anyString(), anyString(), any(), anyInt());
+        assertThat(storedFiles.get(CONTENT_ID_SHARED_PARAMETERS).getFileData())
+                .isEqualTo("changed-shared-parameters".getBytes(UTF_8));
+        assertThat(service.getMetricRegistry().counter(METRIC_SKIPPED_GENERATIONS).getCount()).isZero();
+    }
+
+    @Test
+    void changedSigningKeyCausesResigning() throws Exception {
+        service.generate();
+        when(configurationSigningKeysService.findActiveForSource(SOURCE_TYPE_INTERNAL))
+                .thenReturn(Optional.of(signingKey("NEW-INTERNAL-KEY")));
+        service.generate();
+
+        verify(signerProxyFacade, times(4)).sign(anyString(), any(), any());
+        verify(configurationService, times(2)).saveConfigurationPart(anyString(), anyString(), any(), anyInt());
+        assertThat(service.getMetricRegistry().counter(METRIC_SKIPPED_GENERATIONS).getCount()).isZero();
+    }
+
+    @Test
+    void unchangedRevisionSkipsGeneration() throws Exception {
+        when(configurationService.getConfigurationRevision(CONF_VERSION)).thenReturn("1");
+
+        service.generate();
+        service.generate();
+
+        assertThat(generatedTimes).isEqualTo(1);
+        verify(configurationService, times(2)).getAllConfigurationFiles(CONF_VERSION);
+        verify(signerProxyFacade, times(2)).sign(anyString(), any(), any());
+        assertThat(service.getMetricRegistry().counter(METRIC_SKIPPED_GENERATIONS).getCount()).isEqualTo(1);
+    }
+
+    @Test
+    void changedRevisionCausesChangeCheck() throws Exception {
+        when(configurationService.getConfigurationRevision(CONF_VERSION)).thenReturn("1", "2", "2");
+
+        service.generate();
+        service.generate();
+        service.generate();
+
+        assertThat(generatedTimes).isEqualTo(2);
+        verify(signerProxyFacade, times(2)).sign(anyString(), any(), any());
+        assertThat(service.getMetricRegistry().counter(METRIC_SKIPPED_GENERATIONS).getCount()).isEqualTo(2);
+    }
+
+    private static ConfigurationSigningKey signingKey(String keyId) {
+        return new ConfigurationSigningKey()
+                .setKeyIdentifier(keyId)
+                .setCert("SIGNING-CERT".getBytes(UTF_8));
+    }
+
+    private class TestPartsGenerator implements ConfigurationPartsGenerator {
+        @Override
+        public int getConfigurationVersion() {
+            return CONF_VERSION;
+        }
+
+        @Override
+        public List<ConfigurationPart> generateConfigurationParts() {
+            generatedTimes++;
+            return List.of(
+                    part(CONTENT_ID_PRIVATE_PARAMETERS, "private-params.xml", "private-parameters"),
+                    part(CONTENT_ID_SHARED_PARAMETERS, "shared-params.xml", sharedParameters));
+        }
+
+        private ConfigurationPart part(String contentIdentifier, String fileName, String data) {
+            return ConfigurationPart.builder()
+                    .contentIdentifier(contentIdentifier)
+                    .filename(fileName)
+                    .data(data.getBytes(UTF_8))
+                    .build();
+        }
+    }
+}
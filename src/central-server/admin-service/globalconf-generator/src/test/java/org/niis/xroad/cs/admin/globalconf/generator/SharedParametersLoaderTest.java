@@ -29,6 +29,7 @@ package org.niis.xroad.cs.admin.globalconf.generator;
 import ee.ria.xroad.common.conf.globalconf.CertHash;
 import ee.ria.xroad.common.conf.globalconf.SharedParameters;
 import ee.ria.xroad.common.identifier.ClientId;
+import ee.ria.xroad.common.identifier.SecurityServerId;
 
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -36,18 +37,15 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.niis.xroad.cs.admin.api.domain.ApprovedTsa;
-import org.niis.xroad.cs.admin.api.domain.AuthCert;
 import org.niis.xroad.cs.admin.api.domain.ConfigurationSigningKey;
 import org.niis.xroad.cs.admin.api.domain.FlattenedSecurityServerClientView;
 import org.niis.xroad.cs.admin.api.domain.GlobalGroup;
-import org.niis.xroad.cs.admin.api.domain.GlobalGroupMember;
 import org.niis.xroad.cs.admin.api.domain.MemberClass;
-import org.niis.xroad.cs.admin.api.domain.SecurityServer;
-import org.niis.xroad.cs.admin.api.domain.XRoadMember;
 import org.niis.xroad.cs.admin.api.dto.CertificateAuthority;
 import org.niis.xroad.cs.admin.api.dto.CertificateDetails;
 import org.niis.xroad.cs.admin.api.dto.CertificationService;
 import org.niis.xroad.cs.admin.api.dto.OcspResponder;
+import org.niis.xroad.cs.admin.api.dto.SecurityServerSummary;
 import org.niis.xroad.cs.admin.api.service.CertificationServicesService;
 import org.niis.xroad.cs.admin.api.service.ClientService;
 import org.niis.xroad.cs.admin.api.service.ConfigurationService;
@@ -88,7 +86,6 @@ class SharedParametersLoaderTest {
     private static final String XROAD_INSTANCE = "XRD";
     private static final String SECURITY_SERVER_ADDRESS = "security-server-address";
     private static final String SECURITY_SERVER_CODE = "SS1";
-    private static final int SECURITY_SERVER_ID = 1;
     private static final CertHash SECURITY_SERVER_AUTH_CERT = new CertHash("auth cert".getBytes(UTF_8));
     private static final String GLOBAL_GROUP_CODE = "GG";
     private static final String GLOBAL_GROUP_DESCRIPTION = "GG description";
@@ -131,14 +128,11 @@ class SharedParametersLoaderTest {
         when(timestampingServicesService.getTimestampingServices()).thenReturn(Set.of(getApprovedTsa()));
         when(clientService.findAll()).thenReturn(getClients());
 
-        when(securityServerService.findAll()).thenReturn(getSecurityServers());
-        when(clientService.find(new ClientService.SearchParameters()
-                .setSecurityServerId(SECURITY_SERVER_ID).setSecurityServerEnabled(true)))
-                .thenReturn(List.of(getFlattenedSecurityServerClientView("M2", "S1")));
+        when(securityServerService.findAllSummaries()).thenReturn(getSecurityServers());
 
         when(globalGroupService.findGlobalGroups()).thenReturn(List.of(getGlobalGroup()));
-        when(globalGroupMemberService.findByGroupCode(GLOBAL_GROUP_CODE)).thenReturn(List.of(
-                new GlobalGroupMember(null, ClientId.Conf.create(XROAD_INSTANCE, "CLASS", "M2", "S2"))));
+        when(globalGroupMemberService.findAllMembersByGroupCode()).thenReturn(Map.of(
+                GLOBAL_GROUP_CODE, List.of(ClientId.Conf.create(XROAD_INSTANCE, "CLASS", "M2", "S2"))));
 
         when(memberClassService.findAll()).thenReturn(List.of(new MemberClass(MEMBER_CLASS_CODE, MEMBER_CLASS_DESCRIPTION)));
         when(systemParameterService.getOcspFreshnessSeconds()).thenReturn(OCSP_FRESHNESS_SECONDS);
@@ -330,17 +324,12 @@ class SharedParametersLoaderTest {
         return memberClass;
     }
 
-    private List<SecurityServer> getSecurityServers() {
-        var owner = new XRoadMember("Member M1",
-                ClientId.Conf.create(XROAD_INSTANCE, "CLASS", "M1"),
-                getMemberClass());
-        var securityServer = new SecurityServer(owner, SECURITY_SERVER_CODE);
-        securityServer.setId(SECURITY_SERVER_ID);
-        securityServer.setAddress(SECURITY_SERVER_ADDRESS);
-        var authCert = new AuthCert();
-        authCert.setCert("auth cert".getBytes(UTF_8));
-        securityServer.setAuthCerts(Set.of(authCert));
-        return List.of(securityServer);
+    private List<SecurityServerSummary> getSecurityServers() {
+        return List.of(new SecurityServerSummary(
+                SecurityServerId.Conf.create(XROAD_INSTANCE, "CLASS", "M1", SECURITY_SERVER_CODE),
+                SECURITY_SERVER_ADDRESS,
+                List.of("auth cert".getBytes(UTF_8)),
+                List.of(ClientId.Conf.create(XROAD_INSTANCE, "CLASS", "M2", "S1"))));
     }
 
     private GlobalGroup getGlobalGroup() {
@@ -26,11 +26,14 @@
  */
 package org.niis.xroad.cs.admin.jpa.repository;
 
+import org.niis.xroad.cs.admin.api.dto.SecurityServerAuthCert;
 import org.niis.xroad.cs.admin.core.entity.AuthCertEntity;
 import org.niis.xroad.cs.admin.core.repository.AuthCertRepository;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -40,4 +43,9 @@ public interface JpaAuthCertRepository extends JpaRepository<AuthCertEntity, Int
 
     @Override
     Optional<AuthCertEntity> findByCert(byte[] certificate);
+
+    @Override
+    @Query("select new org.niis.xroad.cs.admin.api.dto.SecurityServerAuthCert(a.securityServer.id, a.cert) "
+            + "from AuthCertEntity a order by a.id")
+    List<SecurityServerAuthCert> findAllServerAuthCerts();
 }
@@ -47,6 +47,11 @@ public interface JpaDistributedFileRepository extends JpaRepository<DistributedF
     @Query("FROM DistributedFileEntity WHERE version in (:version, 0)")
     Set<DistributedFileEntity> findAllByVersion(int version);
 
+    // every change to the registry tables is recorded in the history table by triggers
+    @Query(value = "SELECT CONCAT((SELECT COALESCE(MAX(h.id), 0) FROM history h), '/', COUNT(f.id), '/', "
+            + "MAX(f.file_updated_at)) FROM distributed_files f WHERE f.version IN (:version, 0)", nativeQuery = true)
+    String getConfigurationRevision(int version);
+
     default Optional<DistributedFileEntity> findByContentIdAndVersion(String contentIdentifier, int version, String haNodeName) {
         var exampleDistributedFile = new DistributedFileEntity(contentIdentifier, version, haNodeName);
         return findBy(Example.of(exampleDistributedFile, ExampleMatcher.matching().withIgnorePaths(ID)),
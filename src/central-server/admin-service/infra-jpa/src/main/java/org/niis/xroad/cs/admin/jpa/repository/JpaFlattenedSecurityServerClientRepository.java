@@ -49,6 +49,7 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.PagingAndSortingRepository;
 import org.springframework.stereotype.Repository;
 
@@ -75,6 +76,9 @@ public interface JpaFlattenedSecurityServerClientRepository extends
             Specification<FlattenedSecurityServerClientViewEntity> spec,
             Pageable pageable);
 
+    @Override
+    @Query("select c from FlattenedSecurityServerClientViewEntity c "
+            + "left join fetch c.memberClass left join fetch c.identifier")
     List<FlattenedSecurityServerClientViewEntity> findAll();
 
     List<FlattenedSecurityServerClientViewEntity> findAll(Specification<FlattenedSecurityServerClientViewEntity> spec);
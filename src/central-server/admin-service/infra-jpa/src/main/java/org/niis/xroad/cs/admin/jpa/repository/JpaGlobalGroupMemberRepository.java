@@ -30,6 +30,7 @@ import jakarta.persistence.criteria.CriteriaBuilder;
 import jakarta.persistence.criteria.Join;
 import jakarta.persistence.criteria.Predicate;
 import jakarta.persistence.criteria.Root;
+import org.niis.xroad.cs.admin.api.dto.GlobalGroupMemberInfo;
 import org.niis.xroad.cs.admin.api.service.GlobalGroupService;
 import org.niis.xroad.cs.admin.core.entity.ClientIdEntity;
 import org.niis.xroad.cs.admin.core.entity.GlobalGroupMemberEntity;
@@ -39,6 +40,7 @@ import org.niis.xroad.cs.admin.core.repository.GlobalGroupMemberRepository;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.ArrayList;
@@ -51,6 +53,12 @@ public interface JpaGlobalGroupMemberRepository
 
     List<GlobalGroupMemberEntity> findByGlobalGroupGroupCode(String groupCode);
 
+    @Override
+    @Query("select new org.niis.xroad.cs.admin.api.dto.GlobalGroupMemberInfo(g.groupCode, "
+            + "i.xRoadInstance, i.memberClass, i.memberCode, i.subsystemCode) "
+            + "from GlobalGroupMemberEntity m join m.globalGroup g join m.identifier i order by m.id")
+    List<GlobalGroupMemberInfo> findAllMemberInfos();
+
     default List<GlobalGroupMemberEntity> findMemberGroups(ee.ria.xroad.common.identifier.ClientId clientId) {
         return findAll(findSpecification(GlobalGroupService.Criteria.builder()
                 .instance(clientId.getXRoadInstance())
@@ -34,6 +34,7 @@ import jakarta.persistence.criteria.CriteriaBuilder;
 import jakarta.persistence.criteria.Join;
 import jakarta.persistence.criteria.Predicate;
 import jakarta.persistence.criteria.Root;
+import org.niis.xroad.cs.admin.api.dto.SecurityServerInfo;
 import org.niis.xroad.cs.admin.core.entity.ClientIdEntity;
 import org.niis.xroad.cs.admin.core.entity.SecurityServerClientEntity;
 import org.niis.xroad.cs.admin.core.entity.SecurityServerClientEntity_;
@@ -51,8 +52,10 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -82,6 +85,12 @@ public interface JpaSecurityServerRepository extends
         return count(serverIdSpec(id));
     }
 
+    @Override
+    @Query("select new org.niis.xroad.cs.admin.api.dto.SecurityServerInfo(s.id, oid.xRoadInstance, oid.memberClass, "
+            + "oid.memberCode, s.serverCode, s.address) "
+            + "from SecurityServerEntity s join s.owner o join o.identifier oid order by s.id")
+    List<SecurityServerInfo> findAllServerInfos();
+
     static Specification<SecurityServerEntity> clientIdSpec(ClientId clientId) {
 
         return (root, query, builder) -> {
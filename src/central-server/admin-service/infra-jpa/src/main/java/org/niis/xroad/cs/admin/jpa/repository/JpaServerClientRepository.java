@@ -26,11 +26,22 @@
  */
 package org.niis.xroad.cs.admin.jpa.repository;
 
+import org.niis.xroad.cs.admin.api.dto.SecurityServerClientInfo;
 import org.niis.xroad.cs.admin.core.entity.ServerClientEntity;
 import org.niis.xroad.cs.admin.core.repository.ServerClientRepository;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+
 @Repository
 public interface JpaServerClientRepository extends JpaRepository<ServerClientEntity, Integer>, ServerClientRepository {
+
+    @Override
+    @Query("select new org.niis.xroad.cs.admin.api.dto.SecurityServerClientInfo(sc.securityServer.id, "
+            + "cid.xRoadInstance, cid.memberClass, cid.memberCode, cid.subsystemCode) "
+            + "from ServerClientEntity sc join sc.securityServerClient c join c.identifier cid "
+            + "where sc.enabled = true order by c.id")
+    List<SecurityServerClientInfo> findAllEnabledClientInfos();
 }
@@ -0,0 +1,109 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.common.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link PipedInputStream}/{@link PipedOutputStream} with {@link RingBufferPipe}
+ * when streaming a payload from a producer thread to a consumer thread, the way
+ * the client proxy hands the encoded request to the HTTP sender.
+ *
+ * Run with {@code ./gradlew :common:common-core:jmh}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class RingBufferPipeBenchmark {
+
+    private static final int CHUNK_SIZE = 8 * 1024;
+
+    @Param({"1024", "1048576", "104857600"})
+    private int payloadSize;
+
+    private byte[] chunk;
+    private byte[] readBuffer;
+
+    @Setup
+    public void setup() {
+        chunk = new byte[CHUNK_SIZE];
+        readBuffer = new byte[CHUNK_SIZE];
+    }
+
+    @Benchmark
+    public long pipedStreams() throws Exception {
+        PipedInputStream in = new PipedInputStream(RingBufferPipe.DEFAULT_CAPACITY);
+        PipedOutputStream out = new PipedOutputStream(in);
+
+        return transfer(in, out);
+    }
+
+    @Benchmark
+    public long ringBufferPipe() throws Exception {
+        RingBufferPipe pipe = new RingBufferPipe(RingBufferPipe.DEFAULT_CAPACITY);
+
+        return transfer(pipe.getInputStream(), pipe.getOutputStream());
+    }
+
+    private long transfer(InputStream in, OutputStream out) throws Exception {
+        Thread producer = Thread.ofVirtual().start(() -> {
+            try (out) {
+                int remaining = payloadSize;
+                while (remaining > 0) {
+                    int len = Math.min(remaining, chunk.length);
+                    out.write(chunk, 0, len);
+                    remaining -= len;
+                }
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        long total = 0;
+        int count;
+        while ((count = in.read(readBuffer)) != -1) {
+            total += count;
+        }
+
+        producer.join();
+
+        return total;
+    }
+}
@@ -263,6 +263,22 @@ public final class SystemProperties {
 
     public static final String SERVER_CONF_SERVICE_ENDPOINTS_CACHE_SIZE = PROXY_PREFIX + "server-conf-service-endpoints-cache-size";
 
+    public static final String SERVER_CONF_VERSION_CHECK_INTERVAL = PROXY_PREFIX + "server-conf-version-check-interval";
+
+    public static final String BODY_BUFFER_HEAP_LIMIT = PROXY_PREFIX + "body-buffer-heap-limit";
+
+    public static final String BODY_BUFFER_OFF_HEAP_BUDGET = PROXY_PREFIX + "body-buffer-off-heap-budget";
+
+    /** Property name of the maximum number of signing requests that are signed in one batch */
+    public static final String PROXY_BATCH_SIGNER_MAX_BATCH_SIZE = PROXY_PREFIX + "batch-signer-max-batch-size";
+
+    /** Property name of the maximum time in milliseconds a batch is kept open for further signing requests */
+    public static final String PROXY_BATCH_SIGNER_MAX_LATENCY = PROXY_PREFIX + "batch-signer-max-latency";
+
+    private static final String DEFAULT_PROXY_BATCH_SIGNER_MAX_BATCH_SIZE = "1000";
+
+    private static final String DEFAULT_PROXY_BATCH_SIGNER_MAX_LATENCY = "5";
+
     /** Property name of the idle time that connections to the ServerProxy Connector are allowed, in milliseconds */
     private static final String SERVERPROXY_CONNECTOR_MAX_IDLE_TIME =
             PROXY_PREFIX + "server-connector-max-idle-time";
@@ -426,6 +442,11 @@ public final class SystemProperties {
 
     private static final int OCSP_VERIFIER_CACHE_PERIOD_MAX = 180;
 
+    private static final String CERT_PATH_VALIDATION_CACHE_PERIOD =
+            PROXY_PREFIX + "cert-path-validation-cache-period";
+
+    private static final String DEFAULT_CERT_PATH_VALIDATION_CACHE_PERIOD = "60";
+
     // Signer -----------------------------------------------------------------
 
     /** Property name of the key configuration file. */
@@ -460,16 +481,34 @@ public final class SystemProperties {
 
     private static final String DEFAULT_SIGNER_OCSP_RETRY_DELAY = "60";
 
+    public static final String SIGNER_OCSP_FETCH_THREADS = SIGNER_PREFIX + "ocsp-fetch-threads";
+
+    private static final String DEFAULT_SIGNER_OCSP_FETCH_THREADS = "8";
+
+    public static final String SIGNER_OCSP_FETCH_MAX_REQUESTS_PER_RESPONDER = SIGNER_PREFIX + "ocsp-fetch-max-requests-per-responder";
+
+    private static final String DEFAULT_SIGNER_OCSP_FETCH_MAX_REQUESTS_PER_RESPONDER = "2";
+
+    public static final String SIGNER_OCSP_RESPONDER_CONNECT_TIMEOUT = SIGNER_PREFIX + "ocsp-responder-connect-timeout";
+
+    private static final String DEFAULT_SIGNER_OCSP_RESPONDER_CONNECT_TIMEOUT = "20000";
+
+    public static final String SIGNER_OCSP_RESPONDER_READ_TIMEOUT = SIGNER_PREFIX + "ocsp-responder-read-timeout";
+
+    private static final String DEFAULT_SIGNER_OCSP_RESPONDER_READ_TIMEOUT = "60000";
+
     public static final String SIGNER_MODULE_MANAGER_UPDATE_INTERVAL = SIGNER_PREFIX + "module-manager-update-interval";
     public static final String SOFT_TOKEN_RSA_SIGN_MECHANISM = SIGNER_PREFIX + "soft-token-rsa-sign-mechanism";
     public static final String SOFT_TOKEN_EC_SIGN_MECHANISM = SIGNER_PREFIX + "soft-token-ec-sign-mechanism";
     public static final String SOFT_TOKEN_PIN_KEYSTORE_ALGORITHM = SIGNER_PREFIX + "soft-token-pin-keystore-algorithm";
     public static final String SIGNER_SELF_SIGNED_CERT_DIGEST_ALGORITHM = SIGNER_PREFIX + "selfsigned-cert-digest-algorithm";
+    public static final String SOFT_TOKEN_SIGN_CONCURRENCY = SIGNER_PREFIX + "soft-token-sign-concurrency";
 
     public static final String DEFAULT_SIGNER_MODULE_MANAGER_UPDATE_INTERVAL = "60";
     public static final KeyAlgorithm DEFAULT_SIGNER_DEFAULT_KEY_ALGORITHM = KeyAlgorithm.RSA;
     public static final String DEFAULT_SIGNER_KEY_NAMED_CURVE = "secp256r1";
     public static final KeyAlgorithm DEFAULT_SOFT_TOKEN_PIN_KEYSTORE_ALGORITHM = KeyAlgorithm.RSA;
+    public static final String DEFAULT_SOFT_TOKEN_SIGN_CONCURRENCY = "1";
 
     // AntiDos ----------------------------------------------------------------
 
@@ -516,6 +555,12 @@ public final class SystemProperties {
     public static final String CONFIGURATION_CLIENT_ALLOWED_FEDERATIONS =
             PREFIX + "configuration-client.allowed-federations";
 
+    public static final String CONFIGURATION_CLIENT_LOCATION_HEDGE_DELAY =
+            PREFIX + "configuration-client.location-hedge-delay";
+
+    public static final String CONFIGURATION_CLIENT_CONTENT_DOWNLOAD_THREADS =
+            PREFIX + "configuration-client.content-download-threads";
+
     /**
      * A constant to describe the X-Road instances this security server federates with.
      * {@link #CUSTOM} means a list of named, comma-separated X-Road instances to allow.
@@ -1154,6 +1199,38 @@ public final class SystemProperties {
                 DEFAULT_SIGNER_OCSP_RETRY_DELAY));
     }
 
+    /**
+     * @return the maximum number of OCSP requests signer sends in parallel, 8 by default
+     */
+    public static int getOcspFetchThreads() {
+        return Math.max(1, Integer.parseInt(System.getProperty(SIGNER_OCSP_FETCH_THREADS,
+                DEFAULT_SIGNER_OCSP_FETCH_THREADS)));
+    }
+
+    /**
+     * @return the maximum number of concurrent requests signer sends to a single OCSP responder, 2 by default
+     */
+    public static int getOcspFetchMaxRequestsPerResponder() {
+        return Math.max(1, Integer.parseInt(System.getProperty(SIGNER_OCSP_FETCH_MAX_REQUESTS_PER_RESPONDER,
+                DEFAULT_SIGNER_OCSP_FETCH_MAX_REQUESTS_PER_RESPONDER)));
+    }
+
+    /**
+     * @return the OCSP responder connect timeout in milliseconds, 20000 by default
+     */
+    public static int getOcspResponderConnectTimeout() {
+        return Integer.parseInt(System.getProperty(SIGNER_OCSP_RESPONDER_CONNECT_TIMEOUT,
+                DEFAULT_SIGNER_OCSP_RESPONDER_CONNECT_TIMEOUT));
+    }
+
+    /**
+     * @return the OCSP responder read timeout in milliseconds, 60000 by default
+     */
+    public static int getOcspResponderReadTimeout() {
+        return Integer.parseInt(System.getProperty(SIGNER_OCSP_RESPONDER_READ_TIMEOUT,
+                DEFAULT_SIGNER_OCSP_RESPONDER_READ_TIMEOUT));
+    }
+
     /**
      * @return the module manager update interval in seconds that should be set for signer, 60 by default
      */
@@ -1189,6 +1266,14 @@ public final class SystemProperties {
                 .orElse(DEFAULT_SOFT_TOKEN_PIN_KEYSTORE_ALGORITHM);
     }
 
+    /**
+     * @return number of signing operations a software token may execute in parallel, 1 by default
+     */
+    public static int getSoftTokenSignConcurrency() {
+        return Math.max(1, Integer.parseInt(System.getProperty(SOFT_TOKEN_SIGN_CONCURRENCY,
+                DEFAULT_SOFT_TOKEN_SIGN_CONCURRENCY)));
+    }
+
     /**
      * @return software token keystore PIN file algorithm, RSA by default
      */
@@ -1307,6 +1392,21 @@ public final class SystemProperties {
         return System.getProperty(CONFIGURATION_CLIENT_ALLOWED_FEDERATIONS, AllowedFederationMode.NONE.name());
     }
 
+    /**
+     * @return the time in milliseconds configuration client waits for a configuration location to respond
+     * before also trying the next location, '2000' by default.
+     */
+    public static int getConfigurationClientLocationHedgeDelay() {
+        return Integer.parseInt(System.getProperty(CONFIGURATION_CLIENT_LOCATION_HEDGE_DELAY, "2000"));
+    }
+
+    /**
+     * @return the number of configuration parts configuration client downloads in parallel, '4' by default.
+     */
+    public static int getConfigurationClientContentDownloadThreads() {
+        return Math.max(1, Integer.parseInt(System.getProperty(CONFIGURATION_CLIENT_CONTENT_DOWNLOAD_THREADS, "4")));
+    }
+
     /**
      * @return the HTTP port on which the server proxy OCSP responder is listening, '5577' by default.
      */
@@ -1647,6 +1747,46 @@ public final class SystemProperties {
         return Integer.parseInt(System.getProperty(SERVER_CONF_CACHE_PERIOD, "60"));
     }
 
+    /**
+     * @return the interval in seconds at which the serverconf version is checked for changes, '5' by default
+     */
+    public static int getServerConfVersionCheckInterval() {
+        return Integer.parseInt(System.getProperty(SERVER_CONF_VERSION_CHECK_INTERVAL, "5"));
+    }
+
+    /**
+     * @return the number of bytes of a cached message body or attachment that is kept in heap memory,
+     * '65536' by default
+     */
+    public static int getBodyBufferHeapLimit() {
+        return Integer.parseInt(System.getProperty(BODY_BUFFER_HEAP_LIMIT, "65536"));
+    }
+
+    /**
+     * @return the total number of bytes of direct memory used for caching message bodies and attachments
+     * before they are spilled to temporary files, '67108864' by default
+     */
+    public static long getBodyBufferOffHeapBudget() {
+        return Long.parseLong(System.getProperty(BODY_BUFFER_OFF_HEAP_BUDGET, "67108864"));
+    }
+
+    /**
+     * @return the maximum number of signing requests that are signed in one batch, '1000' by default
+     */
+    public static int getBatchSignerMaxBatchSize() {
+        return Math.max(1, Integer.parseInt(System.getProperty(PROXY_BATCH_SIGNER_MAX_BATCH_SIZE,
+                DEFAULT_PROXY_BATCH_SIGNER_MAX_BATCH_SIZE)));
+    }
+
+    /**
+     * @return the maximum time in milliseconds the batch signer waits for further signing requests
+     * before signing a batch under concurrent load, '5' by default. Value 0 disables the batch window.
+     */
+    public static int getBatchSignerMaxLatency() {
+        return Math.max(0, Integer.parseInt(System.getProperty(PROXY_BATCH_SIGNER_MAX_LATENCY,
+                DEFAULT_PROXY_BATCH_SIGNER_MAX_LATENCY)));
+    }
+
     /**
      * @return the interval in seconds at which verifier caches results.
      * Max value is 180 seconds and cannot be exceeded in configuration.
@@ -1657,6 +1797,15 @@ public final class SystemProperties {
         return period < OCSP_VERIFIER_CACHE_PERIOD_MAX ? period : OCSP_VERIFIER_CACHE_PERIOD_MAX;
     }
 
+    /**
+     * @return the time in seconds for which a validated certification path is reused without building and
+     * validating it again, '60' by default. Value 0 disables the cache.
+     */
+    public static int getCertPathValidationCachePeriod() {
+        return Math.max(0, Integer.parseInt(System.getProperty(CERT_PATH_VALIDATION_CACHE_PERIOD,
+                DEFAULT_CERT_PATH_VALIDATION_CACHE_PERIOD)));
+    }
+
     /**
      * @return serverproxy initial idle time (used until the request processing starts)
      */
@@ -28,8 +28,6 @@ package ee.ria.xroad.common.util;
 import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.nio.channels.Channels;
-import java.nio.channels.SeekableByteChannel;
 
 /**
  * Cache contents as an input stream
@@ -37,10 +35,6 @@ import java.nio.channels.SeekableByteChannel;
 public final class CacheInputStream extends FilterInputStream {
     private final long size;
 
-    CacheInputStream(SeekableByteChannel ch) throws IOException {
-        this(Channels.newInputStream(ch.position(0)), ch.size());
-    }
-
     public CacheInputStream(InputStream is, long size) {
         super(is);
         this.size = size;
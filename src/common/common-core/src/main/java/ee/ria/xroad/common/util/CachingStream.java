@@ -26,88 +26,328 @@
 package ee.ria.xroad.common.util;
 
 import ee.ria.xroad.common.DefaultFilepaths;
-import ee.ria.xroad.common.ErrorCodes;
+import ee.ria.xroad.common.SystemProperties;
 
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
 import lombok.extern.slf4j.Slf4j;
 
-import java.io.FilterOutputStream;
 import java.io.IOException;
-import java.nio.channels.Channels;
-import java.nio.channels.SeekableByteChannel;
-import java.nio.file.Files;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
- * Caches stuff in a temporary file.
+ * Caches message content (REST bodies, SOAP attachments) so that it can be read back.
+ * <p>
+ * The content is kept in pooled heap chunks up to {@link SystemProperties#getBodyBufferHeapLimit()} bytes per stream,
+ * then in pooled direct buffers as long as the global {@link SystemProperties#getBodyBufferOffHeapBudget()} allows.
+ * Only the rest of the content is spilled to a temporary file.
  */
 @Slf4j
-public class CachingStream extends FilterOutputStream {
-    private SeekableByteChannel channel;
-    private Path tempFile;
+public class CachingStream extends OutputStream {
+    static final int HEAP_CHUNK_SIZE = 8 * 1024;
+    static final int DIRECT_CHUNK_SIZE = 64 * 1024;
+    private static final int HEAP_POOL_SIZE = 1024;
 
-    /**
-     * Constructs a new caching stream that caches data in a temporary file.
-     *
-     * @throws IOException if I/O errors occurred
-     */
-    public CachingStream() throws IOException {
-        // Construct the parent class with null stream and replace it later.
-        super(null);
+    public static final String METRIC_HEAP_BYTES = "bodyBuffer.heapBytes";
+    public static final String METRIC_OFF_HEAP_BYTES = "bodyBuffer.offHeapBytes";
+    public static final String METRIC_OFF_HEAP_ALLOCATED_BYTES = "bodyBuffer.offHeapAllocatedBytes";
+    public static final String METRIC_SPILLED_BYTES = "bodyBuffer.spilledBytes";
+    public static final String METRIC_MEMORY_BYTES = "bodyBuffer.memoryBytes";
+
+    private static final Queue<byte[]> HEAP_POOL = new ArrayBlockingQueue<>(HEAP_POOL_SIZE);
+    private static final Queue<ByteBuffer> DIRECT_POOL = new ConcurrentLinkedQueue<>();
 
-        tempFile = DefaultFilepaths.createTempFile("tmpattach", null);
-        channel = Files.newByteChannel(tempFile, StandardOpenOption.CREATE,
-                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING,
-                StandardOpenOption.READ, StandardOpenOption.DELETE_ON_CLOSE);
+    // heap and direct memory held by the streams, direct memory allocated in total (including the pooled buffers)
+    // and the content currently in spill files
+    private static final AtomicLong HEAP_BYTES = new AtomicLong();
+    private static final AtomicLong OFF_HEAP_BYTES = new AtomicLong();
+    private static final AtomicLong OFF_HEAP_ALLOCATED_BYTES = new AtomicLong();
+    private static final AtomicLong SPILLED_BYTES = new AtomicLong();
 
-        // Now that we are set up, we can set the output stream in the
-        // parent class.
-        out = Channels.newOutputStream(channel);
+    private static final MetricRegistry METRIC_REGISTRY = new MetricRegistry();
+
+    static {
+        METRIC_REGISTRY.register(METRIC_HEAP_BYTES, (Gauge<Long>) HEAP_BYTES::get);
+        METRIC_REGISTRY.register(METRIC_OFF_HEAP_BYTES, (Gauge<Long>) OFF_HEAP_BYTES::get);
+        METRIC_REGISTRY.register(METRIC_OFF_HEAP_ALLOCATED_BYTES, (Gauge<Long>) OFF_HEAP_ALLOCATED_BYTES::get);
+        METRIC_REGISTRY.register(METRIC_SPILLED_BYTES, (Gauge<Long>) SPILLED_BYTES::get);
+        METRIC_REGISTRY.register(METRIC_MEMORY_BYTES, (Gauge<Long>) () -> HEAP_BYTES.get() + OFF_HEAP_BYTES.get());
+    }
+
+    private final int heapLimit;
+    private final List<byte[]> heapChunks = new ArrayList<>();
+    private final List<ByteBuffer> directChunks = new ArrayList<>();
+    private final byte[] singleByte = new byte[1];
+
+    private Path spillFile;
+    private FileChannel spillChannel;
+
+    private long heapSize;
+    private long directSize;
+    private long spillSize;
+    private volatile boolean consumed;
+
+    /**
+     * Constructs a new caching stream.
+     */
+    public CachingStream() {
+        heapLimit = SystemProperties.getBodyBufferHeapLimit();
     }
 
     @Override
-    public void close() throws IOException {
-        // we must not close the channel before reading it
-        flush();
+    public void write(int b) throws IOException {
+        singleByte[0] = (byte) b;
+        write(singleByte, 0, 1);
     }
 
     @Override
     public void write(byte[] b, int off, int len) throws IOException {
-        // prevent FilterOutputStream from writing inefficiently
-        out.write(b, off, len);
+        if (consumed) {
+            throw new IOException("Caching stream has been consumed");
+        }
+        Objects.checkFromIndexSize(off, len, b.length);
+
+        int offset = off;
+        int remaining = len;
+        while (remaining > 0) {
+            int count = writeChunk(b, offset, remaining);
+            offset += count;
+            remaining -= count;
+        }
+    }
+
+    // the tiers are filled in order, so the content is heap chunks, then direct chunks, then the spill file
+    private int writeChunk(byte[] b, int off, int len) throws IOException {
+        if (spillChannel == null && directChunks.isEmpty()) {
+            int room = heapRoom();
+            if (room > 0) {
+                int count = Math.min(room, len);
+                byte[] chunk = heapChunks.get(heapChunks.size() - 1);
+                System.arraycopy(b, off, chunk, (int) (heapSize % HEAP_CHUNK_SIZE), count);
+                heapSize += count;
+                return count;
+            }
+        }
+
+        if (spillChannel == null) {
+            int room = directRoom();
+            if (room > 0) {
+                int count = Math.min(room, len);
+                ByteBuffer chunk = directChunks.get(directChunks.size() - 1);
+                chunk.put((int) (directSize % DIRECT_CHUNK_SIZE), b, off, count);
+                directSize += count;
+                return count;
+            }
+        }
+
+        return spill(b, off, len);
+    }
+
+    private int heapRoom() {
+        int used = (int) (heapSize % HEAP_CHUNK_SIZE);
+        if (used > 0) {
+            return HEAP_CHUNK_SIZE - used;
+        }
+        if (heapSize >= heapLimit) {
+            return 0;
+        }
+        heapChunks.add(acquireHeapChunk());
+        return HEAP_CHUNK_SIZE;
+    }
+
+    private int directRoom() {
+        int used = (int) (directSize % DIRECT_CHUNK_SIZE);
+        if (used > 0) {
+            return DIRECT_CHUNK_SIZE - used;
+        }
+        ByteBuffer chunk = acquireDirectChunk();
+        if (chunk == null) {
+            return 0;
+        }
+        directChunks.add(chunk);
+        return DIRECT_CHUNK_SIZE;
+    }
+
+    private int spill(byte[] b, int off, int len) throws IOException {
+        if (spillChannel == null) {
+            spillFile = DefaultFilepaths.createTempFile("tmpattach", null);
+            spillChannel = FileChannel.open(spillFile, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.READ, StandardOpenOption.DELETE_ON_CLOSE);
+        }
+
+        ByteBuffer src = ByteBuffer.wrap(b, off, len);
+        while (src.hasRemaining()) {
+            spillSize += spillChannel.write(src, spillSize);
+        }
+        SPILLED_BYTES.addAndGet(len);
+        return len;
+    }
+
+    @Override
+    public void close() {
+        // the content must remain readable until consumed
     }
 
     /**
      * @return input stream that contains the encoded attachment contents.
      * The returned stream does not support mark, and closing the stream has no effect.
+     * Each call returns a new stream that reads the contents from the beginning.
      * @see #consume() to free resources used by the cache.
      */
     public CacheInputStream getCachedContents() {
-        try {
-            return new CacheInputStream(channel);
-        } catch (IOException ex) { // the position shouldn't really throw
-            throw ErrorCodes.translateException(ex);
-        }
+        return new CacheInputStream(new ContentInputStream(size()), size());
     }
 
     /**
-     * Finalize caching stream. Use to avoid file handle leaks.
+     * Finalize caching stream. Returns the buffers to the pool and deletes the spill file, if any.
      */
     public void consume() {
-        try {
-            channel.close();
-        } catch (IOException e) {
-            log.warn("Error closing channel of the temporary file '{}'", tempFile.toString(), e);
+        if (consumed) {
+            return;
+        }
+        consumed = true;
+
+        heapChunks.forEach(CachingStream::releaseHeapChunk);
+        heapChunks.clear();
+        directChunks.forEach(CachingStream::releaseDirectChunk);
+        directChunks.clear();
+
+        if (spillChannel != null) {
+            SPILLED_BYTES.addAndGet(-spillSize);
+            try {
+                spillChannel.close();
+            } catch (IOException e) {
+                log.warn("Error closing channel of the temporary file '{}'", spillFile, e);
+            }
         }
     }
 
     public long size() {
-        try {
-            return channel.size();
-        } catch (IOException ex) {
-            throw ErrorCodes.translateException(ex);
+        return heapSize + directSize + spillSize;
+    }
+
+    /**
+     * @return gauges of the memory and disk space held by the caching streams, for the hosting process to report
+     */
+    public static MetricRegistry getMetricRegistry() {
+        return METRIC_REGISTRY;
+    }
+
+    private int readAt(long position, byte[] b, int off, int len) throws IOException {
+        if (consumed) {
+            throw new IOException("Caching stream has been consumed");
+        }
+
+        long pos = position;
+        if (pos < heapSize) {
+            int index = (int) (pos % HEAP_CHUNK_SIZE);
+            int count = (int) Math.min(Math.min(len, HEAP_CHUNK_SIZE - index), heapSize - pos);
+            System.arraycopy(heapChunks.get((int) (pos / HEAP_CHUNK_SIZE)), index, b, off, count);
+            return count;
+        }
+
+        pos -= heapSize;
+        if (pos < directSize) {
+            int index = (int) (pos % DIRECT_CHUNK_SIZE);
+            int count = (int) Math.min(Math.min(len, DIRECT_CHUNK_SIZE - index), directSize - pos);
+            directChunks.get((int) (pos / DIRECT_CHUNK_SIZE)).get(index, b, off, count);
+            return count;
+        }
+
+        pos -= directSize;
+        int count = spillChannel.read(ByteBuffer.wrap(b, off, (int) Math.min(len, spillSize - pos)), pos);
+        if (count < 0) {
+            throw new IOException("Unexpected end of the temporary file");
+        }
+        return count;
+    }
+
+    private static byte[] acquireHeapChunk() {
+        byte[] chunk = HEAP_POOL.poll();
+        HEAP_BYTES.addAndGet(HEAP_CHUNK_SIZE);
+        return chunk != null ? chunk : new byte[HEAP_CHUNK_SIZE];
+    }
+
+    private static void releaseHeapChunk(byte[] chunk) {
+        HEAP_BYTES.addAndGet(-HEAP_CHUNK_SIZE);
+        HEAP_POOL.offer(chunk);
+    }
+
+    private static ByteBuffer acquireDirectChunk() {
+        ByteBuffer chunk = DIRECT_POOL.poll();
+        if (chunk == null) {
+            long budget = SystemProperties.getBodyBufferOffHeapBudget();
+            long allocated;
+            do {
+                allocated = OFF_HEAP_ALLOCATED_BYTES.get();
+                if (allocated + DIRECT_CHUNK_SIZE > budget) {
+                    return null;
+                }
+            } while (!OFF_HEAP_ALLOCATED_BYTES.compareAndSet(allocated, allocated + DIRECT_CHUNK_SIZE));
+            chunk = ByteBuffer.allocateDirect(DIRECT_CHUNK_SIZE);
         }
+        OFF_HEAP_BYTES.addAndGet(DIRECT_CHUNK_SIZE);
+        return chunk;
     }
 
+    private static void releaseDirectChunk(ByteBuffer chunk) {
+        OFF_HEAP_BYTES.addAndGet(-DIRECT_CHUNK_SIZE);
+        DIRECT_POOL.offer(chunk);
+    }
+
+    /**
+     * Reads the cached contents independently of other readers.
+     */
+    private final class ContentInputStream extends InputStream {
+        private final long end;
+        private long position;
+
+        ContentInputStream(long end) {
+            this.end = end;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            return read(b, 0, 1) < 0 ? -1 : b[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (position >= end) {
+                return -1;
+            }
+            int count = readAt(position, b, off, (int) Math.min(len, end - position));
+            position += count;
+            return count;
+        }
 
+        @Override
+        public long skip(long n) {
+            long count = Math.max(0, Math.min(n, end - position));
+            position += count;
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return (int) Math.min(end - position, Integer.MAX_VALUE);
+        }
+    }
 }
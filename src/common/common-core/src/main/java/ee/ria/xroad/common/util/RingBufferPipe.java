@@ -0,0 +1,272 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.common.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.Objects;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Bounded single-producer single-consumer byte pipe backed by a ring buffer.
+ * <p>
+ * A replacement for {@link java.io.PipedInputStream}/{@link java.io.PipedOutputStream}
+ * for handing a stream from one thread to another. The producer and the consumer
+ * exchange data through volatile read and write positions without locks, and a
+ * side waits with {@link LockSupport#park(Object)} only when the buffer is full
+ * (producer) or empty (consumer). Parking does not pin virtual threads to their
+ * carrier threads and there is no polling.
+ * <p>
+ * Only one thread may write to {@link #getOutputStream()} and only one thread may
+ * read from {@link #getInputStream()} at a time. Closing the output stream signals
+ * the end of the stream to the reader once the buffered data has been consumed.
+ * Closing the input stream makes any further writes fail. Interrupting a waiting
+ * thread makes the blocked operation fail with {@link InterruptedIOException}.
+ */
+public final class RingBufferPipe {
+
+    /** Default capacity of the ring buffer in bytes. */
+    public static final int DEFAULT_CAPACITY = 64 * 1024;
+
+    private static final int MAX_CAPACITY = 1 << 30;
+
+    private static final int BYTE_MASK = 0xFF;
+
+    private final byte[] buffer;
+    private final int mask;
+
+    /** Total number of bytes read. Only updated by the reader. */
+    private volatile long readPosition;
+    /** Total number of bytes written. Only updated by the writer. */
+    private volatile long writePosition;
+
+    private volatile boolean writerClosed;
+    private volatile boolean readerClosed;
+
+    private volatile Thread waitingReader;
+    private volatile Thread waitingWriter;
+
+    private final PipeInputStream inputStream = new PipeInputStream();
+    private final PipeOutputStream outputStream = new PipeOutputStream();
+
+    /**
+     * Creates a pipe with the default capacity.
+     */
+    public RingBufferPipe() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a pipe with at least the given capacity. The capacity is rounded
+     * up to the next power of two.
+     * @param capacity minimum capacity of the ring buffer in bytes
+     */
+    public RingBufferPipe(int capacity) {
+        if (capacity <= 0 || capacity > MAX_CAPACITY) {
+            throw new IllegalArgumentException("Invalid pipe capacity: " + capacity);
+        }
+
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+
+        this.buffer = new byte[size];
+        this.mask = size - 1;
+    }
+
+    /**
+     * @return the reading end of the pipe
+     */
+    public InputStream getInputStream() {
+        return inputStream;
+    }
+
+    /**
+     * @return the writing end of the pipe
+     */
+    public OutputStream getOutputStream() {
+        return outputStream;
+    }
+
+    /**
+     * @return the capacity of the ring buffer in bytes
+     */
+    public int capacity() {
+        return buffer.length;
+    }
+
+    private int read(byte[] b, int off, int len) throws IOException {
+        Objects.checkFromIndexSize(off, len, b.length);
+
+        if (len == 0) {
+            return 0;
+        }
+
+        while (true) {
+            if (readerClosed) {
+                throw new IOException("Pipe closed");
+            }
+
+            long read = readPosition;
+            int available = (int) (writePosition - read);
+
+            if (available > 0) {
+                int count = Math.min(len, available);
+                int index = (int) (read & mask);
+                int first = Math.min(count, buffer.length - index);
+
+                System.arraycopy(buffer, index, b, off, first);
+                System.arraycopy(buffer, 0, b, off + first, count - first);
+
+                readPosition = read + count;
+                LockSupport.unpark(waitingWriter);
+
+                return count;
+            }
+
+            if (writerClosed) {
+                // The writer may have written its last bytes just before closing.
+                if (writePosition == readPosition) {
+                    return -1;
+                }
+
+                continue;
+            }
+
+            waitingReader = Thread.currentThread();
+            try {
+                // Check again after announcing ourselves so that a wake-up is not lost.
+                if (writePosition == readPosition && !writerClosed && !readerClosed) {
+                    LockSupport.park(this);
+                }
+            } finally {
+                waitingReader = null;
+            }
+
+            checkInterrupted();
+        }
+    }
+
+    private void write(byte[] b, int off, int len) throws IOException {
+        Objects.checkFromIndexSize(off, len, b.length);
+
+        int offset = off;
+        int remaining = len;
+
+        while (remaining > 0) {
+            if (readerClosed || writerClosed) {
+                throw new IOException("Pipe closed");
+            }
+
+            long write = writePosition;
+            int free = buffer.length - (int) (write - readPosition);
+
+            if (free > 0) {
+                int count = Math.min(remaining, free);
+                int index = (int) (write & mask);
+                int first = Math.min(count, buffer.length - index);
+
+                System.arraycopy(b, offset, buffer, index, first);
+                System.arraycopy(b, offset + first, buffer, 0, count - first);
+
+                writePosition = write + count;
+                LockSupport.unpark(waitingReader);
+
+                offset += count;
+                remaining -= count;
+
+                continue;
+            }
+
+            waitingWriter = Thread.currentThread();
+            try {
+                // Check again after announcing ourselves so that a wake-up is not lost.
+                if (writePosition - readPosition == buffer.length && !readerClosed) {
+                    LockSupport.park(this);
+                }
+            } finally {
+                waitingWriter = null;
+            }
+
+            checkInterrupted();
+        }
+    }
+
+    private static void checkInterrupted() throws InterruptedIOException {
+        if (Thread.interrupted()) {
+            throw new InterruptedIOException("Interrupted while waiting on pipe");
+        }
+    }
+
+    private final class PipeInputStream extends InputStream {
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            int count = RingBufferPipe.this.read(single, 0, 1);
+
+            return count < 0 ? -1 : single[0] & BYTE_MASK;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            return RingBufferPipe.this.read(b, off, len);
+        }
+
+        @Override
+        public int available() {
+            return readerClosed ? 0 : (int) (writePosition - readPosition);
+        }
+
+        @Override
+        public void close() {
+            readerClosed = true;
+            LockSupport.unpark(waitingWriter);
+        }
+    }
+
+    private final class PipeOutputStream extends OutputStream {
+
+        @Override
+        public void write(int b) throws IOException {
+            RingBufferPipe.this.write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            RingBufferPipe.this.write(b, off, len);
+        }
+
+        @Override
+        public void close() {
+            writerClosed = true;
+            LockSupport.unpark(waitingReader);
+        }
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.common.util;
+
+import ee.ria.xroad.common.SystemProperties;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link CachingStream}.
+ */
+public class CachingStreamTest {
+
+    private static final int HEAP_LIMIT = 2 * CachingStream.HEAP_CHUNK_SIZE;
+    private static final int OFF_HEAP_BUDGET = 2 * CachingStream.DIRECT_CHUNK_SIZE;
+
+    @Rule
+    public TemporaryFolder tempDir = new TemporaryFolder();
+
+    @Before
+    public void setUp() {
+        System.setProperty(SystemProperties.TEMP_FILES_PATH, tempDir.getRoot().getAbsolutePath());
+        System.setProperty(SystemProperties.BODY_BUFFER_HEAP_LIMIT, String.valueOf(HEAP_LIMIT));
+        System.setProperty(SystemProperties.BODY_BUFFER_OFF_HEAP_BUDGET, String.valueOf(OFF_HEAP_BUDGET));
+    }
+
+    @After
+    public void tearDown() {
+        System.clearProperty(SystemProperties.TEMP_FILES_PATH);
+        System.clearProperty(SystemProperties.BODY_BUFFER_HEAP_LIMIT);
+        System.clearProperty(SystemProperties.BODY_BUFFER_OFF_HEAP_BUDGET);
+    }
+
+    @Test
+    public void smallContentStaysOnHeap() throws IOException {
+        assertContent(1000);
+    }
+
+    @Test
+    public void contentOverHeapLimitUsesDirectBuffers() throws IOException {
+        assertContent(HEAP_LIMIT + CachingStream.DIRECT_CHUNK_SIZE + 1);
+    }
+
+    @Test
+    public void contentOverOffHeapBudgetIsSpilledToFile() throws IOException {
+        assertContent(HEAP_LIMIT + OFF_HEAP_BUDGET + CachingStream.DIRECT_CHUNK_SIZE);
+    }
+
+    @Test
+    public void emptyContent() throws IOException {
+        CachingStream stream = new CachingStream();
+        assertEquals(0, stream.size());
+        assertEquals(-1, stream.getCachedContents().read());
+        stream.consume();
+    }
+
+    @Test
+    public void memoryIsReleasedOnConsume() throws IOException {
+        long before = memoryBytes();
+        CachingStream stream = new CachingStream();
+        stream.write(new byte[3 * CachingStream.HEAP_CHUNK_SIZE]);
+        assertTrue(memoryBytes() > before);
+
+        stream.consume();
+        stream.consume();
+        assertEquals(before, memoryBytes());
+    }
+
+    @Test(expected = IOException.class)
+    public void readAfterConsumeFails() throws IOException {
+        CachingStream stream = new CachingStream();
+        stream.write(new byte[10]);
+        InputStream contents = stream.getCachedContents();
+        stream.consume();
+        contents.read();
+    }
+
+    private static void assertContent(int size) throws IOException {
+        byte[] data = new byte[size];
+        new Random(size).nextBytes(data);
+
+        CachingStream stream = new CachingStream();
+        try {
+            // mix single byte and bulk writes
+            stream.write(data[0]);
+            stream.write(data, 1, size / 2 - 1);
+            stream.write(data, size / 2, size - size / 2);
+            stream.close();
+
+            assertEquals(size, stream.size());
+            assertEquals(Math.max(0, size - HEAP_LIMIT - OFF_HEAP_BUDGET), gauge(CachingStream.METRIC_SPILLED_BYTES));
+
+            // every call returns an independent stream
+            CacheInputStream first = stream.getCachedContents();
+            CacheInputStream second = stream.getCachedContents();
+            assertEquals(size, first.size());
+            assertEquals(data[0], (byte) second.read());
+            assertArrayEquals(data, IOUtils.toByteArray(first));
+            assertEquals(size - 1, second.skip(Long.MAX_VALUE));
+            assertEquals(-1, second.read());
+        } finally {
+            stream.consume();
+        }
+        assertEquals(0, gauge(CachingStream.METRIC_SPILLED_BYTES));
+        assertEquals(0, gauge(CachingStream.METRIC_MEMORY_BYTES));
+    }
+
+    private static long memoryBytes() {
+        return gauge(CachingStream.METRIC_MEMORY_BYTES);
+    }
+
+    private static long gauge(String name) {
+        return (Long) CachingStream.getMetricRegistry().getGauges().get(name).getValue();
+    }
+}
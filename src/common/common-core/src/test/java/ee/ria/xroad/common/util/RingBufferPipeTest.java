@@ -0,0 +1,170 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.common.util;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for {@link RingBufferPipe}.
+ */
+public class RingBufferPipeTest {
+
+    @Test
+    public void capacityIsRoundedUpToPowerOfTwo() {
+        assertEquals(1024, new RingBufferPipe(1000).capacity());
+        assertEquals(1024, new RingBufferPipe(1024).capacity());
+        assertEquals(RingBufferPipe.DEFAULT_CAPACITY, new RingBufferPipe().capacity());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectInvalidCapacity() {
+        new RingBufferPipe(0);
+    }
+
+    @Test
+    public void shouldTransferDataLargerThanCapacity() throws Exception {
+        byte[] data = new byte[1024 * 1024 + 17];
+        new Random(42).nextBytes(data);
+
+        RingBufferPipe pipe = new RingBufferPipe(4096);
+
+        CompletableFuture<Void> writer = CompletableFuture.runAsync(() -> {
+            try (OutputStream out = pipe.getOutputStream()) {
+                int off = 0;
+                int chunk = 1;
+                while (off < data.length) {
+                    int len = Math.min(chunk, data.length - off);
+                    out.write(data, off, len);
+                    off += len;
+                    chunk = chunk % 9000 + 1;
+                }
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+
+        byte[] received;
+        try (InputStream in = pipe.getInputStream()) {
+            received = in.readAllBytes();
+        }
+
+        writer.get(10, TimeUnit.SECONDS);
+        assertArrayEquals(data, received);
+    }
+
+    @Test
+    public void shouldTransferSingleBytes() throws Exception {
+        RingBufferPipe pipe = new RingBufferPipe(2);
+        OutputStream out = pipe.getOutputStream();
+        InputStream in = pipe.getInputStream();
+
+        out.write(0xFE);
+        out.write(1);
+
+        assertEquals(2, in.available());
+        assertEquals(0xFE, in.read());
+        assertEquals(1, in.read());
+    }
+
+    @Test
+    public void shouldReturnEndOfStreamAfterWriterClosed() throws Exception {
+        RingBufferPipe pipe = new RingBufferPipe(16);
+        OutputStream out = pipe.getOutputStream();
+        InputStream in = pipe.getInputStream();
+
+        out.write(new byte[] {1, 2, 3});
+        out.close();
+
+        assertArrayEquals(new byte[] {1, 2, 3}, in.readAllBytes());
+        assertEquals(-1, in.read());
+    }
+
+    @Test
+    public void shouldFailWriteAfterReaderClosed() throws Exception {
+        RingBufferPipe pipe = new RingBufferPipe(16);
+        pipe.getInputStream().close();
+
+        try {
+            pipe.getOutputStream().write(new byte[] {1});
+            fail("Write to a pipe with a closed reader must fail");
+        } catch (IOException expected) {
+            // expected
+        }
+    }
+
+    @Test
+    public void shouldUnblockWriterWhenReaderCloses() throws Exception {
+        RingBufferPipe pipe = new RingBufferPipe(16);
+
+        CompletableFuture<Throwable> writer = CompletableFuture.supplyAsync(() -> {
+            try {
+                pipe.getOutputStream().write(new byte[64]);
+                return null;
+            } catch (IOException e) {
+                return e;
+            }
+        });
+
+        Thread.sleep(50);
+        pipe.getInputStream().close();
+
+        assertTrue(writer.get(10, TimeUnit.SECONDS) instanceof IOException);
+    }
+
+    @Test
+    public void interruptedReaderShouldFail() throws Exception {
+        RingBufferPipe pipe = new RingBufferPipe(16);
+        AtomicReference<Throwable> error = new AtomicReference<>();
+
+        Thread reader = new Thread(() -> {
+            try {
+                pipe.getInputStream().read();
+            } catch (IOException e) {
+                error.set(e);
+            }
+        });
+        reader.start();
+        Thread.sleep(50);
+        reader.interrupt();
+        reader.join(TimeUnit.SECONDS.toMillis(10));
+
+        assertTrue(error.get() instanceof InterruptedIOException);
+    }
+}
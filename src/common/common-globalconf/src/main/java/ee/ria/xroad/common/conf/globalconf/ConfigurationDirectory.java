@@ -81,6 +81,34 @@ public interface ConfigurationDirectory {
         saveMetadata(fileName, expirationDate);
     }
 
+    /**
+     * Moves the downloaded content to its place on disk and saves the corresponding expiration date file.
+     *
+     * @param fileName the name of the file to save
+     * @param content the file holding the content, it is removed once the content is saved
+     * @param expirationDate the file expiration date
+     * @throws Exception if an error occurs
+     */
+    static void save(Path fileName, Path content, ConfigurationPartMetadata expirationDate) throws Exception {
+        if (fileName == null) {
+            return;
+        }
+
+        Path parent = fileName.getParent();
+
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+
+        LOG.info("Saving content to file {}", fileName);
+
+        // Move the content in place, the content may have been staged on another file system.
+        AtomicSave.moveBetweenFilesystems(content.toString(), fileName.toString());
+
+        // Save the content metadata date to disk.
+        saveMetadata(fileName, expirationDate);
+    }
+
     /**
      * Saves the expiration date for the given file.
      *
@@ -25,9 +25,14 @@
  */
 package ee.ria.xroad.common.conf.globalconf;
 
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.codahale.metrics.jmx.JmxReporter;
 import lombok.RequiredArgsConstructor;
 import lombok.ToString;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.InitializingBean;
 
 import java.nio.file.Files;
@@ -38,13 +43,28 @@ import java.util.Optional;
 
 /**
  * Wrapper source for file system based global configuration.
+ * <p>
+ * On reload the new configuration directory is built next to the current one, reusing the parameters and shared
+ * parameters caches of instances that have not changed, and is then published with a single volatile write. Readers
+ * keep using the current directory until then.
  */
 @Slf4j
-public class FileSystemGlobalConfSource implements GlobalConfSource, InitializingBean {
+public class FileSystemGlobalConfSource implements GlobalConfSource, InitializingBean, DisposableBean {
+    public static final String METRIC_RELOAD_DURATION = "globalConfReload.duration";
+    public static final String METRIC_CHANGED_PARAMETERS = "globalConfReload.changedParameters";
+    public static final String METRIC_REBUILT_INDEX_GROUPS = "globalConfReload.rebuiltIndexGroups";
+
+    private final MetricRegistry metricRegistry = new MetricRegistry();
+    private final Timer reloadDuration = metricRegistry.timer(METRIC_RELOAD_DURATION);
+    private final Histogram changedParameters = metricRegistry.histogram(METRIC_CHANGED_PARAMETERS);
+    private final Histogram rebuiltIndexGroups = metricRegistry.histogram(METRIC_REBUILT_INDEX_GROUPS);
+    private final JmxReporter reporter = JmxReporter.forRegistry(metricRegistry).build();
+
     private final FSGlobalConfValidator fsGlobalConfValidator;
     private final String globalConfigurationDir;
     private volatile VersionedConfigurationDirectory configurationDirectory;
     private GlobalConfInitState lastState = GlobalConfInitState.UNKNOWN;
+    private volatile long modificationCount;
 
     public FileSystemGlobalConfSource(String confDir) {
         this.globalConfigurationDir = confDir;
@@ -53,6 +73,7 @@ public class FileSystemGlobalConfSource implements GlobalConfSource, Initializin
 
     @Override
     public void afterPropertiesSet() {
+        reporter.start();
         try {
             load();
         } catch (Exception e) {
@@ -60,6 +81,11 @@ public class FileSystemGlobalConfSource implements GlobalConfSource, Initializin
         }
     }
 
+    @Override
+    public void destroy() {
+        reporter.stop();
+    }
+
     @Override
     public Integer getVersion() {
         return getConfigurationDirectory().getVersion();
@@ -100,6 +126,11 @@ public class FileSystemGlobalConfSource implements GlobalConfSource, Initializin
         return getConfigurationDirectory().isExpired();
     }
 
+    @Override
+    public long getModificationCount() {
+        return modificationCount;
+    }
+
     @Override
     public void reload() {
         synchronized (FileSystemGlobalConfSource.class) {
@@ -135,14 +166,23 @@ public class FileSystemGlobalConfSource implements GlobalConfSource, Initializin
         var state = fsGlobalConfValidator.getReadinessState(globalConfigurationDir);
         if (state == GlobalConfInitState.READY_TO_INIT) {
             VersionedConfigurationDirectory original = configurationDirectory;
-            try {
+            try (var ignored = reloadDuration.time()) {
+                VersionedConfigurationDirectory loaded;
                 if (original != null) {
-                    configurationDirectory = new VersionedConfigurationDirectory(globalConfigurationDir, original);
-                    log.info("Configuration source was successfully reloaded");
+                    loaded = new VersionedConfigurationDirectory(globalConfigurationDir, original);
+                    log.info("Configuration source was successfully reloaded ({} changed parameters, {} rebuilt index groups)",
+                            loaded.getChangedParameterCount(), loaded.getRebuiltIndexGroupCount());
                 } else {
-                    configurationDirectory = new VersionedConfigurationDirectory(globalConfigurationDir);
+                    loaded = new VersionedConfigurationDirectory(globalConfigurationDir);
                     log.info("Configuration source was successfully loaded");
                 }
+                changedParameters.update(loaded.getChangedParameterCount());
+                rebuiltIndexGroups.update(loaded.getRebuiltIndexGroupCount());
+
+                configurationDirectory = loaded;
+                if (loaded.isModified()) {
+                    modificationCount++;
+                }
 
                 lastState = GlobalConfInitState.INITIALIZED;
                 return true;
@@ -157,6 +197,14 @@ public class FileSystemGlobalConfSource implements GlobalConfSource, Initializin
     }
 
 
+    /**
+     * @return the metric registry holding the reload duration timer and the histograms of changed parameters files
+     * and rebuilt shared parameters cache index groups per reload, which are reported over JMX while the source is in use
+     */
+    public MetricRegistry getMetricRegistry() {
+        return metricRegistry;
+    }
+
     @Override
     public GlobalConfInitState getReadinessState() {
         return lastState;
@@ -51,6 +51,12 @@ public interface GlobalConfSource {
 
     void reload();
 
+    /**
+     * Returns a counter that is incremented every time loading picks up changed configuration files.
+     * Callers can compare it before and after {@link #reload()} to find out whether the configuration changed.
+     */
+    long getModificationCount();
+
     GlobalConfInitState getReadinessState();
 
     FileSource getFile(String fileName);
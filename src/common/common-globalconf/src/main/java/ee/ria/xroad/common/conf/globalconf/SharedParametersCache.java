@@ -30,6 +30,7 @@ import ee.ria.xroad.common.identifier.ClientId;
 import ee.ria.xroad.common.identifier.SecurityServerId;
 import ee.ria.xroad.common.util.CryptoUtils;
 
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NonNull;
 import lombok.SneakyThrows;
@@ -45,41 +46,113 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 
 import static ee.ria.xroad.common.util.EncoderUtils.encodeBase64;
 import static org.apache.commons.lang3.StringUtils.isNotBlank;
 
+/**
+ * Lookup indexes over the shared parameters of one instance. The indexes are grouped by the part of the shared
+ * parameters they are built from (approved CAs, security servers and global groups). When the shared parameters
+ * of an instance change, the cache is built from the previous one and index groups whose source part is unchanged
+ * are shared with it instead of being rebuilt. The indexes are not modified after the cache has been built.
+ */
 @Getter
 public class SharedParametersCache {
     private final SharedParameters sharedParameters;
 
     // Utility maps of existing data to speed up searches, filled at conf initialization
-    private final Map<X500Name, X509Certificate> subjectsAndCaCerts = new HashMap<>();
-    private final Map<X509Certificate, String> caCertsAndCertProfiles = new HashMap<>();
-    private final Map<X509Certificate, SharedParameters.ApprovedCA> caCertsAndApprovedCAData = new HashMap<>();
-    private final Map<X509Certificate, List<SharedParameters.OcspInfo>> caCertsAndOcspData = new HashMap<>();
-    private final List<X509Certificate> verificationCaCerts = new ArrayList<>();
-    private final Map<ClientId, Set<String>> memberAddresses = new HashMap<>();
-    private final Map<ClientId, Set<byte[]>> memberAuthCerts = new HashMap<>();
-    private final Map<String, SharedParameters.SecurityServer> serverByAuthCert = new HashMap<>();
-    private final Map<SecurityServerId, Set<ClientId>> securityServerClients = new HashMap<>();
-    private final Set<String> knownAddresses = new HashSet<>();
-    private final Map<SecurityServerId, SharedParameters.SecurityServer> securityServersById = new HashMap<>();
+    private final Map<X500Name, X509Certificate> subjectsAndCaCerts;
+    private final Map<X509Certificate, String> caCertsAndCertProfiles;
+    private final Map<X509Certificate, SharedParameters.ApprovedCA> caCertsAndApprovedCAData;
+    private final Map<X509Certificate, List<SharedParameters.OcspInfo>> caCertsAndOcspData;
+    private final Map<X509Certificate, List<X509Certificate>> caCertsAndOcspResponderCerts;
+    private final List<X509Certificate> ocspResponderCerts;
+    private final List<X509Certificate> verificationCaCerts;
+    private final Map<ClientId, Set<String>> memberAddresses;
+    // base64 encoded authentication certificate hashes per member
+    private final Map<ClientId, Set<String>> memberAuthCerts;
+    private final Map<String, SharedParameters.SecurityServer> serverByAuthCert;
+    private final Map<SecurityServerId, Set<ClientId>> securityServerClients;
+    private final Set<String> knownAddresses;
+    private final Map<SecurityServerId, SharedParameters.SecurityServer> securityServersById;
+    private final Map<String, Set<ClientId>> globalGroupMembers;
+
+    // number of index groups that were built for this cache instead of being shared with the previous cache
+    @Getter(AccessLevel.PACKAGE)
+    private final int rebuiltIndexGroups;
 
     public String getInstanceIdentifier() {
         return sharedParameters.getInstanceIdentifier();
     }
 
-    @SneakyThrows
     SharedParametersCache(@NonNull SharedParameters sharedParameters) {
+        this(sharedParameters, null);
+    }
+
+    /**
+     * Builds the cache for the given shared parameters, sharing the index groups of the previous cache of the same
+     * instance whose source part of the shared parameters has not changed.
+     * @param sharedParameters the shared parameters
+     * @param previous cache built for the previous shared parameters of the instance, or null
+     */
+    @SneakyThrows
+    SharedParametersCache(@NonNull SharedParameters sharedParameters, SharedParametersCache previous) {
         this.sharedParameters = sharedParameters;
 
-        cacheCaCerts();
-        cacheKnownAddresses();
-        cacheSecurityServers();
-    }
+        int rebuilt = 0;
 
+        if (previous != null && Objects.equals(previous.sharedParameters.getApprovedCAs(), sharedParameters.getApprovedCAs())) {
+            subjectsAndCaCerts = previous.subjectsAndCaCerts;
+            caCertsAndCertProfiles = previous.caCertsAndCertProfiles;
+            caCertsAndApprovedCAData = previous.caCertsAndApprovedCAData;
+            caCertsAndOcspData = previous.caCertsAndOcspData;
+            caCertsAndOcspResponderCerts = previous.caCertsAndOcspResponderCerts;
+            ocspResponderCerts = previous.ocspResponderCerts;
+            verificationCaCerts = previous.verificationCaCerts;
+        } else {
+            subjectsAndCaCerts = new HashMap<>();
+            caCertsAndCertProfiles = new HashMap<>();
+            caCertsAndApprovedCAData = new HashMap<>();
+            caCertsAndOcspData = new HashMap<>();
+            caCertsAndOcspResponderCerts = new HashMap<>();
+            ocspResponderCerts = new ArrayList<>();
+            verificationCaCerts = new ArrayList<>();
+            cacheCaCerts();
+            rebuilt++;
+        }
+
+        if (previous != null && Objects.equals(previous.getInstanceIdentifier(), sharedParameters.getInstanceIdentifier())
+                && Objects.equals(previous.sharedParameters.getSecurityServers(), sharedParameters.getSecurityServers())) {
+            memberAddresses = previous.memberAddresses;
+            memberAuthCerts = previous.memberAuthCerts;
+            serverByAuthCert = previous.serverByAuthCert;
+            securityServerClients = previous.securityServerClients;
+            knownAddresses = previous.knownAddresses;
+            securityServersById = previous.securityServersById;
+        } else {
+            memberAddresses = new HashMap<>();
+            memberAuthCerts = new HashMap<>();
+            serverByAuthCert = new HashMap<>();
+            securityServerClients = new HashMap<>();
+            knownAddresses = new HashSet<>();
+            securityServersById = new HashMap<>();
+            cacheKnownAddresses();
+            cacheSecurityServers();
+            rebuilt++;
+        }
+
+        if (previous != null && Objects.equals(previous.sharedParameters.getGlobalGroups(), sharedParameters.getGlobalGroups())) {
+            globalGroupMembers = previous.globalGroupMembers;
+        } else {
+            globalGroupMembers = new HashMap<>();
+            cacheGlobalGroups();
+            rebuilt++;
+        }
+
+        rebuiltIndexGroups = rebuilt;
+    }
 
     private void cacheCaCerts() throws CertificateEncodingException, IOException {
         List<X509Certificate> allCaCerts = new ArrayList<>();
@@ -113,6 +186,8 @@ public class SharedParametersCache {
                 subjectsAndCaCerts.put(certHolder.getSubject(), cert);
             }
         }
+
+        caCertsAndOcspResponderCerts.values().forEach(ocspResponderCerts::addAll);
     }
 
     private void cacheOcspData(List<SharedParameters.CaInfo> typesUnderCA) {
@@ -120,6 +195,11 @@ public class SharedParametersCache {
             X509Certificate cert = CryptoUtils.readCertificate(caInfo.getCert());
             List<SharedParameters.OcspInfo> caOcspTypes = caInfo.getOcsp();
             caCertsAndOcspData.put(cert, caOcspTypes);
+            caCertsAndOcspResponderCerts.put(cert, caOcspTypes.stream()
+                    .map(SharedParameters.OcspInfo::getCert)
+                    .filter(Objects::nonNull)
+                    .map(CryptoUtils::readCertificate)
+                    .toList());
         }
     }
 
@@ -163,7 +243,7 @@ public class SharedParametersCache {
 
         // Add the mapping from client to authentication certificate.
         for (CertHash authCert : server.getAuthCertHashes()) {
-            addToMap(memberAuthCerts, client, authCert.getHash());
+            addToMap(memberAuthCerts, client, encodeBase64(authCert.getHash()));
         }
 
         SecurityServerId securityServerId = SecurityServerId.Conf.create(
@@ -174,6 +254,15 @@ public class SharedParametersCache {
         addToMap(securityServerClients, securityServerId, client);
     }
 
+    private void cacheGlobalGroups() {
+        for (SharedParameters.GlobalGroup group : sharedParameters.getGlobalGroups()) {
+            Set<ClientId> members = globalGroupMembers.computeIfAbsent(group.getGroupCode(), k -> new HashSet<>());
+            if (group.getGroupMembers() != null) {
+                members.addAll(group.getGroupMembers());
+            }
+        }
+    }
+
     private static <K, V> void addToMap(Map<K, Set<V>> map, K key, V value) {
         Set<V> coll = map.computeIfAbsent(key, k -> new HashSet<>());
         coll.add(value);
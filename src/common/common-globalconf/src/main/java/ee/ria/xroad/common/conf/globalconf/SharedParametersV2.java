@@ -73,10 +73,10 @@ public class SharedParametersV2 extends AbstractXmlConf<SharedParametersTypeV2>
         initCompleted = true;
     }
 
-    private SharedParametersV2(SharedParametersV2 original, OffsetDateTime newExpiresOn) throws CertificateEncodingException, IOException {
+    private SharedParametersV2(SharedParametersV2 original, OffsetDateTime newExpiresOn) {
         super(original);
         expiresOn = newExpiresOn;
-        sharedParameters = converter.convert(confType);
+        sharedParameters = original.getSharedParameters();
         initCompleted = true;
     }
 
@@ -70,10 +70,10 @@ public class SharedParametersV3 extends AbstractXmlConf<SharedParametersTypeV3>
         initCompleted = true;
     }
 
-    private SharedParametersV3(SharedParametersV3 original, OffsetDateTime newExpiresOn) throws CertificateEncodingException, IOException {
+    private SharedParametersV3(SharedParametersV3 original, OffsetDateTime newExpiresOn) {
         super(original);
         expiresOn = newExpiresOn;
-        sharedParameters = converter.convert(confType);
+        sharedParameters = original.getSharedParameters();
         initCompleted = true;
     }
 
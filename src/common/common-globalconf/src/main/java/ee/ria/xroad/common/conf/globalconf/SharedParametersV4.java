@@ -70,10 +70,10 @@ public class SharedParametersV4 extends AbstractXmlConf<SharedParametersTypeV4>
         initCompleted = true;
     }
 
-    private SharedParametersV4(SharedParametersV4 original, OffsetDateTime newExpiresOn) throws CertificateEncodingException, IOException {
+    private SharedParametersV4(SharedParametersV4 original, OffsetDateTime newExpiresOn) {
         super(original);
         expiresOn = newExpiresOn;
-        sharedParameters = converter.convert(confType);
+        sharedParameters = original.getSharedParameters();
         initCompleted = true;
     }
 
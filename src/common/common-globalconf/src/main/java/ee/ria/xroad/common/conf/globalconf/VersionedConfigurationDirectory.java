@@ -79,6 +79,12 @@ public class VersionedConfigurationDirectory implements ConfigurationDirectory {
 
     private final ConcurrentHashMap<String, SharedParametersCache> sharedParametersCacheMap = new ConcurrentHashMap<>();
 
+    // Number of parameters files that had to be (re)read while loading instead of reusing the base directory's parameters.
+    private int changedParameters;
+
+    // Number of shared parameters cache index groups that had to be rebuilt instead of being shared with the base directory.
+    private int rebuiltIndexGroups;
+
     // ------------------------------------------------------------------------
 
     /**
@@ -109,6 +115,37 @@ public class VersionedConfigurationDirectory implements ConfigurationDirectory {
 
         privateParameters = Map.copyOf(loadPrivateParameters(base.privateParameters));
         sharedParameters = Map.copyOf(loadSharedParameters(base.sharedParameters));
+
+        updateSharedParametersCaches(base);
+    }
+
+    /**
+     * Prepares the shared parameters caches that were in use in the base directory, so that the caches are ready
+     * before this directory is published to readers. A cache is reused as is if the shared parameters of the instance
+     * have not changed, otherwise it is built from the base cache rebuilding only the index groups whose source has
+     * changed. Caches that were not used in the base directory are built on first use.
+     */
+    private void updateSharedParametersCaches(VersionedConfigurationDirectory base) {
+        for (SharedParametersProvider provider : sharedParameters.values()) {
+            SharedParameters params = provider.getSharedParameters();
+            if (params == null) {
+                continue;
+            }
+
+            SharedParametersCache baseCache = base.sharedParametersCacheMap.get(params.getInstanceIdentifier());
+            if (baseCache == null) {
+                continue;
+            }
+
+            if (baseCache.getSharedParameters() == params) {
+                sharedParametersCacheMap.put(params.getInstanceIdentifier(), baseCache);
+            } else {
+                log.trace("Updating SharedParametersCache of {}", params.getInstanceIdentifier());
+                SharedParametersCache cache = new SharedParametersCache(params, baseCache);
+                rebuiltIndexGroups += cache.getRebuiltIndexGroups();
+                sharedParametersCacheMap.put(params.getInstanceIdentifier(), cache);
+            }
+        }
     }
 
     /**
@@ -143,6 +180,7 @@ public class VersionedConfigurationDirectory implements ConfigurationDirectory {
                     parametersToUse = existingParameters.refresh(fileExpiresOn);
                 } else {
                     log.trace("Reloading PrivateParameters from {} ", privateParametersPath);
+                    changedParameters++;
                     parametersToUse = ParametersProviderFactory.forGlobalConfVersion(getVersion(privateParametersPath))
                             .privateParametersProvider(privateParametersPath, fileExpiresOn);
                 }
@@ -188,6 +226,7 @@ public class VersionedConfigurationDirectory implements ConfigurationDirectory {
                     parametersToUse = existingParameters.refresh(fileExpiresOn);
                 } else {
                     log.trace("Reloading SharedParameters from {} ", sharedParametersPath);
+                    changedParameters++;
                     parametersToUse = ParametersProviderFactory.forGlobalConfVersion(getVersion(sharedParametersPath))
                             .sharedParametersProvider(sharedParametersPath, fileExpiresOn);
                 }
@@ -200,6 +239,29 @@ public class VersionedConfigurationDirectory implements ConfigurationDirectory {
         }
     }
 
+    /**
+     * @return true if some parameters were loaded from files instead of being reused from the base directory,
+     * i.e. the configuration differs from the one this directory was constructed from
+     */
+    public boolean isModified() {
+        return changedParameters > 0;
+    }
+
+    /**
+     * @return number of parameters files that were loaded from files instead of being reused from the base directory
+     */
+    int getChangedParameterCount() {
+        return changedParameters;
+    }
+
+    /**
+     * @return number of shared parameters cache index groups that were rebuilt instead of being reused from the
+     * base directory
+     */
+    int getRebuiltIndexGroupCount() {
+        return rebuiltIndexGroups;
+    }
+
     /**
      * Returns private parameters for a given instance identifier.
      * @param instanceId the instance identifier
@@ -0,0 +1,181 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.common.conf.globalconf;
+
+import ee.ria.xroad.common.identifier.ClientId;
+import ee.ria.xroad.common.util.CryptoUtils;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.security.cert.X509Certificate;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static ee.ria.xroad.common.util.EncoderUtils.encodeBase64;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests that the lookup indexes of {@link SharedParametersCache} give the same results as scanning the shared
+ * parameters.
+ */
+public class SharedParametersCacheTest {
+    private static final String CONF_DIR = "src/test/resources/globalconf_good_v4";
+    private static final String UNKNOWN_GROUP = "unknown-group";
+    private static final ClientId UNKNOWN_CLIENT = ClientId.Conf.create("EE", "BUSINESS", "unknown");
+
+    private List<SharedParametersCache> caches;
+
+    @Before
+    public void setUp() throws Exception {
+        caches = new VersionedConfigurationDirectory(CONF_DIR).getSharedParametersCaches();
+
+        assertFalse(caches.isEmpty());
+    }
+
+    /**
+     * Tests that the global group members index matches scanning the global groups.
+     */
+    @Test
+    public void globalGroupMembersMatchGroupScan() {
+        int memberships = 0;
+
+        for (SharedParametersCache cache : caches) {
+            SharedParameters params = cache.getSharedParameters();
+
+            for (String groupCode : groupCodes(params)) {
+                for (ClientId client : clients(params)) {
+                    boolean expected = params.getGlobalGroups().stream()
+                            .filter(g -> g.getGroupCode().equals(groupCode))
+                            .findFirst()
+                            .filter(g -> g.getGroupMembers().stream().anyMatch(m -> m.equals(client)))
+                            .isPresent();
+                    Set<ClientId> members = cache.getGlobalGroupMembers().get(groupCode);
+
+                    assertEquals(groupCode + " " + client, expected, members != null && members.contains(client));
+                    memberships += expected ? 1 : 0;
+                }
+            }
+        }
+
+        assertTrue(memberships > 0);
+    }
+
+    /**
+     * Tests that the OCSP responder certificate indexes match parsing the OCSP data of the CAs.
+     */
+    @Test
+    public void ocspResponderCertsMatchCaScan() {
+        int responderCerts = 0;
+
+        for (SharedParametersCache cache : caches) {
+            for (SharedParameters.CaInfo caInfo : caInfos(cache.getSharedParameters())) {
+                X509Certificate caCert = CryptoUtils.readCertificate(caInfo.getCert());
+
+                assertEquals(parseOcspCerts(caInfo.getOcsp()), cache.getCaCertsAndOcspResponderCerts().get(caCert));
+            }
+
+            List<X509Certificate> expected = cache.getCaCertsAndOcspData().values().stream()
+                    .flatMap(ocsps -> parseOcspCerts(ocsps).stream())
+                    .toList();
+
+            assertEquals(expected, cache.getOcspResponderCerts());
+            responderCerts += expected.size();
+        }
+
+        assertTrue(responderCerts > 0);
+    }
+
+    /**
+     * Tests that the member authentication certificate index matches scanning the security servers of the member.
+     */
+    @Test
+    public void memberAuthCertsMatchServerScan() {
+        int matches = 0;
+
+        for (SharedParametersCache cache : caches) {
+            SharedParameters params = cache.getSharedParameters();
+
+            for (ClientId client : clients(params)) {
+                for (SharedParameters.SecurityServer server : params.getSecurityServers()) {
+                    for (CertHash certHash : server.getAuthCertHashes()) {
+                        byte[] hash = certHash.getHash();
+                        boolean expected = params.getSecurityServers().stream()
+                                .filter(s -> s.getOwner().equals(client) || s.getClients().contains(client))
+                                .flatMap(s -> s.getAuthCertHashes().stream())
+                                .anyMatch(h -> Arrays.equals(h.getHash(), hash));
+                        Set<String> authCerts = cache.getMemberAuthCerts().get(client);
+
+                        assertEquals(client.toString(), expected, authCerts != null && authCerts.contains(encodeBase64(hash)));
+                        matches += expected ? 1 : 0;
+                    }
+                }
+            }
+        }
+
+        assertTrue(matches > 0);
+    }
+
+    private static Set<String> groupCodes(SharedParameters params) {
+        Set<String> groupCodes = new HashSet<>();
+        params.getGlobalGroups().forEach(g -> groupCodes.add(g.getGroupCode()));
+        groupCodes.add(UNKNOWN_GROUP);
+
+        return groupCodes;
+    }
+
+    private static Set<ClientId> clients(SharedParameters params) {
+        Set<ClientId> clients = new HashSet<>();
+        params.getGlobalGroups().forEach(g -> clients.addAll(g.getGroupMembers()));
+        params.getSecurityServers().forEach(s -> {
+            clients.add(s.getOwner());
+            clients.addAll(s.getClients());
+        });
+        clients.add(UNKNOWN_CLIENT);
+
+        return clients;
+    }
+
+    private static List<SharedParameters.CaInfo> caInfos(SharedParameters params) {
+        return params.getApprovedCAs().stream()
+                .flatMap(ca -> Stream.concat(Stream.of(ca.getTopCA()), ca.getIntermediateCas().stream()))
+                .toList();
+    }
+
+    private static List<X509Certificate> parseOcspCerts(List<SharedParameters.OcspInfo> ocsps) {
+        return ocsps.stream()
+                .map(SharedParameters.OcspInfo::getCert)
+                .filter(Objects::nonNull)
+                .map(CryptoUtils::readCertificate)
+                .toList();
+    }
+}
@@ -25,13 +25,20 @@
  */
 package ee.ria.xroad.common.conf.globalconf;
 
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
+import java.io.File;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.List;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -39,6 +46,9 @@ import static org.junit.Assert.assertTrue;
  */
 public class VersionedConfigurationDirectoryTest {
 
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
     /**
      * Test to ensure a correct configuration directory is read properly.
      *
@@ -233,6 +243,63 @@ public class VersionedConfigurationDirectoryTest {
         assertTrue(dir.findShared("foo").isEmpty());
     }
 
+    /**
+     * Test to ensure that reloading an unchanged directory reuses the shared parameters caches.
+     *
+     * @throws Exception in case of any unexpected errors
+     */
+    @Test
+    public void reloadUnchangedDirectoryReusesCaches() throws Exception {
+        Path root = copyOfDirectory("src/test/resources/globalconf_good_v4");
+        VersionedConfigurationDirectory dir = new VersionedConfigurationDirectory(root.toString());
+        SharedParametersCache cache = dir.findSharedParametersCache("EE").orElseThrow();
+
+        VersionedConfigurationDirectory reloaded = new VersionedConfigurationDirectory(root.toString(), dir);
+
+        assertFalse(reloaded.isModified());
+        assertEquals(0, reloaded.getChangedParameterCount());
+        assertEquals(0, reloaded.getRebuiltIndexGroupCount());
+        assertSame(cache, reloaded.findSharedParametersCache("EE").orElseThrow());
+    }
+
+    /**
+     * Test to ensure that reloading a directory rebuilds only the shared parameters cache index groups
+     * affected by the change.
+     *
+     * @throws Exception in case of any unexpected errors
+     */
+    @Test
+    public void reloadChangedDirectoryRebuildsAffectedIndexes() throws Exception {
+        Path root = copyOfDirectory("src/test/resources/globalconf_good_v4");
+        VersionedConfigurationDirectory dir = new VersionedConfigurationDirectory(root.toString());
+        SharedParametersCache eeCache = dir.findSharedParametersCache("EE").orElseThrow();
+        SharedParametersCache bazCache = dir.findSharedParametersCache("baz_v3").orElseThrow();
+
+        Path sharedParams = root.resolve("EE").resolve(ConfigurationConstants.FILE_NAME_SHARED_PARAMETERS);
+        Files.writeString(sharedParams, Files.readString(sharedParams)
+                .replace("<description>Description</description>", "<description>Changed</description>"));
+
+        VersionedConfigurationDirectory reloaded = new VersionedConfigurationDirectory(root.toString(), dir);
+
+        assertTrue(reloaded.isModified());
+        assertEquals(1, reloaded.getChangedParameterCount());
+        assertEquals(1, reloaded.getRebuiltIndexGroupCount());
+        assertSame(bazCache, reloaded.findSharedParametersCache("baz_v3").orElseThrow());
+
+        SharedParametersCache reloadedEeCache = reloaded.findSharedParametersCache("EE").orElseThrow();
+        assertNotSame(eeCache, reloadedEeCache);
+        assertSame(eeCache.getSubjectsAndCaCerts(), reloadedEeCache.getSubjectsAndCaCerts());
+        assertSame(eeCache.getSecurityServersById(), reloadedEeCache.getSecurityServersById());
+        assertNotSame(eeCache.getGlobalGroupMembers(), reloadedEeCache.getGlobalGroupMembers());
+        assertEquals(eeCache.getGlobalGroupMembers(), reloadedEeCache.getGlobalGroupMembers());
+    }
+
+    private Path copyOfDirectory(String directory) throws Exception {
+        File copy = tempFolder.newFolder();
+        FileUtils.copyDirectory(new File(directory), copy);
+        return copy.toPath();
+    }
+
     private boolean pathExists(List<Path> paths, String path) {
         return null != paths.stream()
                 .filter(p -> (p.getParent() + "/" + p.getFileName()).equals(path))
@@ -206,6 +206,14 @@ public class MultipartEncoder implements AutoCloseable {
         IOUtils.copy(content, out);
     }
 
+    /**
+     * Flushes the content written so far to the underlying output stream.
+     * @throws IOException in case an I/O error occurred
+     */
+    public void flush() throws IOException {
+        out.flush();
+    }
+
     @Override
     public void close() throws IOException {
         while (!parts.isEmpty()) {
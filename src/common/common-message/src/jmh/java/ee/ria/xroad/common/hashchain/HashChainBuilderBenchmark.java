@@ -0,0 +1,91 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.common.hashchain;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import static ee.ria.xroad.common.crypto.Digests.calculateDigest;
+import static ee.ria.xroad.common.crypto.identifier.DigestAlgorithm.SHA256;
+
+/**
+ * Compares the default (sequential, JAXB) and the parallel hash chain builder
+ * modes for signing batches of various sizes. Every input consists of a message
+ * and an attachment so that a batch of one message also produces a hash chain.
+ *
+ * Run with {@code ./gradlew :common:common-message:jmh}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class HashChainBuilderBenchmark {
+
+    @Param({"1", "10", "100", "1000", "10000"})
+    private int batchSize;
+
+    private byte[][][] inputs;
+
+    @Setup
+    public void setup() throws Exception {
+        inputs = new byte[batchSize][][];
+        for (int i = 0; i < batchSize; ++i) {
+            inputs[i] = new byte[][]{
+                    calculateDigest(SHA256, ("message" + i).getBytes(StandardCharsets.UTF_8)),
+                    calculateDigest(SHA256, ("attachment" + i).getBytes(StandardCharsets.UTF_8))
+            };
+        }
+    }
+
+    @Benchmark
+    public void sequential(Blackhole blackhole) throws Exception {
+        build(new HashChainBuilder(SHA256), blackhole);
+    }
+
+    @Benchmark
+    public void parallel(Blackhole blackhole) throws Exception {
+        build(new HashChainBuilder(SHA256, true), blackhole);
+    }
+
+    private void build(HashChainBuilder builder, Blackhole blackhole) throws Exception {
+        for (byte[][] input : inputs) {
+            builder.addInputHash(input);
+        }
+        builder.finishBuilding();
+
+        blackhole.consume(builder.getHashChainResult("/hashchain.xml"));
+        blackhole.consume(builder.getHashChains("/message.xml"));
+    }
+}
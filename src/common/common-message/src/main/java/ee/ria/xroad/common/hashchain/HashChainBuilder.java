@@ -30,6 +30,7 @@ import ee.ria.xroad.common.crypto.identifier.DigestAlgorithm;
 import jakarta.xml.bind.JAXBContext;
 import jakarta.xml.bind.JAXBElement;
 import jakarta.xml.bind.Marshaller;
+import lombok.SneakyThrows;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -38,6 +39,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.IntStream;
 
 import static ee.ria.xroad.common.hashchain.DigestList.digestHashStep;
 import static ee.ria.xroad.common.util.MessageFileNames.attachmentOfIdx;
@@ -66,6 +68,11 @@ import static java.lang.Integer.numberOfLeadingZeros;
  * treated as a single array consisting of nodes+inputs.
  *
  * For incomplete binary trees, some inputs and nodes can be null.
+ *
+ * In parallel mode, the pairs of each tree level are hashed on the
+ * common fork-join pool and hash chains are created concurrently and
+ * serialized with {@link HashChainXmlWriter} instead of JAXB. Small
+ * trees are still processed on the calling thread.
  */
 public final class HashChainBuilder {
 
@@ -84,6 +91,15 @@ public final class HashChainBuilder {
 
     private static final String STEP = "STEP";
 
+    /**
+     * Minimum number of independent items (pairs on a tree level or hash chains)
+     * for which work is split between fork-join workers in parallel mode.
+     */
+    private static final int PARALLEL_THRESHOLD = 64;
+
+    /** Whether the tree levels and hash chains are computed in parallel. */
+    private final boolean parallel;
+
     /** Hash algorithm used to hash tree nodes and inputs. */
     private final DigestAlgorithm hashAlgorithm;
 
@@ -120,11 +136,28 @@ public final class HashChainBuilder {
      * @throws Exception in case of errors
      */
     public HashChainBuilder(DigestAlgorithm hashAlgorithm) throws Exception {
+        this(hashAlgorithm, false);
+    }
+
+    /**
+     * Constructs a hash chain builder.
+     * @param hashAlgorithm Identifier (not URL) of the hash algorithm
+     *                      used in the hash chain. We assume that the
+     *                      input data items were created with the same
+     *                      algorithm. Example: SHA-256.
+     * @param parallel whether to hash tree levels and create hash chains
+     *                 in parallel, intended for large signing batches
+     * @throws Exception in case of errors
+     */
+    public HashChainBuilder(DigestAlgorithm hashAlgorithm, boolean parallel) throws Exception {
         this.hashAlgorithm = hashAlgorithm;
+        this.parallel = parallel;
 
-        marshaller = jaxbCtx.createMarshaller();
-        // Format the XML, good for debugging.
-        marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.TRUE);
+        if (!parallel) {
+            marshaller = jaxbCtx.createMarshaller();
+            // Format the XML, good for debugging.
+            marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.TRUE);
+        }
     }
 
     /**
@@ -219,6 +252,10 @@ public final class HashChainBuilder {
         result.setDigestMethod(digestMethod());
         result.setURI(hashChainFileName + "#" + STEP + "0");
 
+        if (parallel) {
+            return HashChainXmlWriter.write(result);
+        }
+
         return elementToString(objectFactory.createHashChainResult(result));
     }
 
@@ -252,9 +289,7 @@ public final class HashChainBuilder {
         String[] ret = new String[inputs.size()];
 
         if (inputs.size() > 1) {
-            for (int i = 0; i < inputs.size(); ++i) {
-                ret[i] = makeHashChain(i);
-            }
+            forEach(inputs.size(), i -> ret[i] = makeHashChain(i));
         } else {
             // Special case for one input.
             ret[0] = makeSingleInputHashChain();
@@ -274,10 +309,20 @@ public final class HashChainBuilder {
             int levelEnd = levelStart * 2;
 
             LOG.trace("Combining: {}-{}", levelStart, levelEnd);
-            // Walk through the pairs in this level.
+            // Count the complete pairs in this level, they are always
+            // at the beginning of the level.
+            int pairs = 0;
             for (int i = levelStart;
                     i < levelEnd && nodes[i] != null && nodes[i + 1] != null;
                     i += 2) {
+                ++pairs;
+            }
+
+            // Walk through the pairs in this level.
+            final int start = levelStart;
+            forEach(pairs, pair -> {
+                int i = start + 2 * pair;
+
                 // Combine nodes[i] and nodes[i + 1]
                 LOG.trace("Nodes: Combining {} and {}", i, i + 1);
                 byte[] stepDigest = digestHashStep(hashAlgorithm,
@@ -286,7 +331,7 @@ public final class HashChainBuilder {
                 // Store the digest as parent of two inputs.
                 LOG.trace("Storing at {}", parentIdx(i));
                 nodes[parentIdx(i)] = stepDigest;
-            }
+            });
         }
     }
 
@@ -295,7 +340,9 @@ public final class HashChainBuilder {
      * level of non-leaf nodes.
      */
     private void hashInputs() throws Exception {
-        for (int i = 0; i < inputs.size() - 1; i += 2) {
+        forEach(inputs.size() / 2, pair -> {
+            int i = 2 * pair;
+
             // Compute the index for nodes.
             int itemIdx = nodes.length + i;
 
@@ -307,9 +354,35 @@ public final class HashChainBuilder {
             // Store the digest as parent of two inputs.
             LOG.trace("Storing at {}", parentIdx(itemIdx));
             nodes[parentIdx(itemIdx)] = stepDigest;
+        });
+    }
+
+    /**
+     * Runs the action for indexes 0..count-1. In parallel mode, large ranges
+     * are split between the workers of the common fork-join pool. The action
+     * must only write to the slots that belong to its own index.
+     */
+    @SneakyThrows
+    private void forEach(int count, IndexAction action) {
+        if (parallel && count >= PARALLEL_THRESHOLD) {
+            IntStream.range(0, count).parallel().forEach(i -> run(action, i));
+        } else {
+            for (int i = 0; i < count; ++i) {
+                action.run(i);
+            }
         }
     }
 
+    @SneakyThrows
+    private static void run(IndexAction action, int index) {
+        action.run(index);
+    }
+
+    @FunctionalInterface
+    private interface IndexAction {
+        void run(int index) throws Exception;
+    }
+
     /**
      * Returns the topmost hash of the Merkle tree.
      */
@@ -482,7 +555,7 @@ public final class HashChainBuilder {
                     multipartStep(multiparts.get(itemIndex), stepCount));
         }
 
-        return elementToString(objectFactory.createHashChain(hashChain));
+        return hashChainToString(hashChain);
     }
 
     /**
@@ -533,7 +606,7 @@ public final class HashChainBuilder {
         // the input parts
         hashChain.getHashStep().add(multipartStep(multiparts.get(0), 0));
 
-        return elementToString(objectFactory.createHashChain(hashChain));
+        return hashChainToString(hashChain);
     }
 
     private HashStepType multipartStep(byte[][] inputSet, int stepCount) {
@@ -563,6 +636,17 @@ public final class HashChainBuilder {
         return digestMethod;
     }
 
+    /**
+     * Serializes the given hash chain to a string.
+     */
+    private String hashChainToString(HashChainType hashChain) throws Exception {
+        if (parallel) {
+            return HashChainXmlWriter.write(hashChain);
+        }
+
+        return elementToString(objectFactory.createHashChain(hashChain));
+    }
+
     /**
      * Serializes the given XML element to a string.
      */
@@ -0,0 +1,143 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.common.hashchain;
+
+import static ee.ria.xroad.common.util.EncoderUtils.encodeBase64;
+import static org.apache.commons.text.StringEscapeUtils.escapeXml10;
+
+/**
+ * Serializes hash chain objects directly to XML text without going through
+ * a JAXB marshaller. The output has the same structure and formatting as the
+ * JAXB formatted output, so the documents are interchangeable.
+ *
+ * Instances are cheap and not thread-safe; create one per document.
+ */
+final class HashChainXmlWriter {
+
+    private static final String XML_DECLARATION = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n";
+    private static final String NAMESPACES =
+            " xmlns:ns2=\"http://cyber.ee/hashchain\" xmlns=\"http://www.w3.org/2000/09/xmldsig#\"";
+
+    private static final String INDENT1 = "    ";
+    private static final String INDENT2 = INDENT1 + INDENT1;
+    private static final String INDENT3 = INDENT2 + INDENT1;
+
+    /** Rough size of a single hash step, used to presize the buffer. */
+    private static final int STEP_SIZE_ESTIMATE = 256;
+
+    private final StringBuilder out;
+
+    private HashChainXmlWriter(int capacity) {
+        this.out = new StringBuilder(capacity);
+    }
+
+    /**
+     * Serializes the given hash chain result to XML.
+     * @param result the hash chain result
+     * @return XML-encoded hash chain result
+     */
+    static String write(HashChainResultType result) {
+        HashChainXmlWriter writer = new HashChainXmlWriter(STEP_SIZE_ESTIMATE);
+
+        writer.out.append(XML_DECLARATION)
+                .append("<ns2:HashChainResult URI=\"").append(escapeXml10(result.getURI())).append('"')
+                .append(NAMESPACES).append(">\n");
+        writer.digestMethod(INDENT1, "DigestMethod", result.getDigestMethod());
+        writer.digestValue(INDENT1, result.getDigestValue());
+        writer.out.append("</ns2:HashChainResult>\n");
+
+        return writer.out.toString();
+    }
+
+    /**
+     * Serializes the given hash chain to XML.
+     * @param hashChain the hash chain
+     * @return XML-encoded hash chain
+     */
+    static String write(HashChainType hashChain) {
+        HashChainXmlWriter writer = new HashChainXmlWriter(
+                STEP_SIZE_ESTIMATE * (hashChain.getHashStep().size() + 1));
+
+        writer.out.append(XML_DECLARATION)
+                .append("<ns2:HashChain").append(NAMESPACES).append(">\n");
+        writer.digestMethod(INDENT1, "ns2:DefaultDigestMethod", hashChain.getDefaultDigestMethod());
+
+        for (HashStepType step : hashChain.getHashStep()) {
+            writer.hashStep(step);
+        }
+
+        writer.out.append("</ns2:HashChain>\n");
+
+        return writer.out.toString();
+    }
+
+    private void hashStep(HashStepType step) {
+        out.append(INDENT1).append("<ns2:HashStep");
+
+        if (step.getId() != null) {
+            out.append(" id=\"").append(escapeXml10(step.getId())).append('"');
+        }
+
+        out.append(">\n");
+
+        for (Object item : step.getHashValueOrStepRefOrDataRef()) {
+            if (item instanceof HashValueType hashValue) {
+                out.append(INDENT2).append("<ns2:HashValue>\n");
+                digestMethod(INDENT3, "DigestMethod", hashValue.getDigestMethod());
+                digestValue(INDENT3, hashValue.getDigestValue());
+                out.append(INDENT2).append("</ns2:HashValue>\n");
+            } else if (item instanceof DataRefType dataRef) {
+                out.append(INDENT2).append("<ns2:DataRef URI=\"").append(escapeXml10(dataRef.getURI())).append("\">\n");
+                digestMethod(INDENT3, "DigestMethod", dataRef.getDigestMethod());
+                digestValue(INDENT3, dataRef.getDigestValue());
+                out.append(INDENT2).append("</ns2:DataRef>\n");
+            } else if (item instanceof StepRefType stepRef) {
+                if (stepRef.getDigestMethod() == null) {
+                    out.append(INDENT2).append("<ns2:StepRef URI=\"").append(escapeXml10(stepRef.getURI())).append("\"/>\n");
+                } else {
+                    out.append(INDENT2).append("<ns2:StepRef URI=\"").append(escapeXml10(stepRef.getURI())).append("\">\n");
+                    digestMethod(INDENT3, "DigestMethod", stepRef.getDigestMethod());
+                    out.append(INDENT2).append("</ns2:StepRef>\n");
+                }
+            } else {
+                throw new IllegalArgumentException("Unsupported hash step item: " + item);
+            }
+        }
+
+        out.append(INDENT1).append("</ns2:HashStep>\n");
+    }
+
+    private void digestMethod(String indent, String elementName, DigestMethodType digestMethod) {
+        if (digestMethod != null) {
+            out.append(indent).append('<').append(elementName)
+                    .append(" Algorithm=\"").append(escapeXml10(digestMethod.getAlgorithm())).append("\"/>\n");
+        }
+    }
+
+    private void digestValue(String indent, byte[] digestValue) {
+        out.append(indent).append("<DigestValue>").append(encodeBase64(digestValue)).append("</DigestValue>\n");
+    }
+}
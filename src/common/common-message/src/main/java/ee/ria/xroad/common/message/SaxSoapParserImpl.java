@@ -43,8 +43,11 @@ import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.io.input.BOMInputStream;
 import org.apache.commons.io.input.TeeInputStream;
+import org.apache.commons.io.output.TeeOutputStream;
+import org.apache.commons.io.output.UnsynchronizedByteArrayOutputStream;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.text.StringEscapeUtils;
+import org.bouncycastle.operator.DigestCalculator;
 import org.xml.sax.Attributes;
 import org.xml.sax.SAXException;
 import org.xml.sax.SAXParseException;
@@ -56,7 +59,6 @@ import javax.xml.parsers.SAXParser;
 import javax.xml.parsers.SAXParserFactory;
 
 import java.io.BufferedWriter;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStreamWriter;
@@ -77,12 +79,16 @@ import static ee.ria.xroad.common.ErrorCodes.X_MISSING_BODY;
 import static ee.ria.xroad.common.ErrorCodes.X_MISSING_HEADER;
 import static ee.ria.xroad.common.ErrorCodes.X_MISSING_HEADER_FIELD;
 import static ee.ria.xroad.common.ErrorCodes.translateException;
+import static ee.ria.xroad.common.crypto.Digests.createDigestCalculator;
 import static ee.ria.xroad.common.message.SoapUtils.validateMimeType;
 import static ee.ria.xroad.common.util.HeaderValueUtils.hasUtf8Charset;
 import static ee.ria.xroad.common.util.MimeUtils.UTF8;
 
 /**
  * SOAP message parser that does not construct a DOM tree of the message.
+ * <p>
+ * When the original XML is used as the message, the message hash is calculated while the message is being parsed
+ * and no processed XML is buffered.
  */
 @Slf4j
 public class SaxSoapParserImpl implements SoapParser {
@@ -195,8 +201,29 @@ public class SaxSoapParserImpl implements SoapParser {
     private Soap parseMessage(InputStream is, String mimeType, String contentType, String charset) throws Exception {
         log.trace("parseMessage({}, {})", mimeType, charset);
 
-        ByteArrayOutputStream rawXml = new ByteArrayOutputStream();
-        ByteArrayOutputStream processedXml = new ByteArrayOutputStream();
+        if (isProcessedXmlRequired()) {
+            return parseProcessedMessage(is, contentType, charset);
+        }
+
+        UnsynchronizedByteArrayOutputStream rawXml = UnsynchronizedByteArrayOutputStream.builder().get();
+        DigestCalculator digestCalculator = createDigestCalculator(SoapUtils.getHashAlgoId());
+
+        // The original XML is the message, so hash it in the same pass.
+        InputStream proxyStream = excludeUtf8Bom(contentType,
+                new TeeInputStream(is, new TeeOutputStream(rawXml, digestCalculator.getOutputStream())));
+        XRoadSoapHandler handler = handleSoap(Writer.nullWriter(), proxyStream);
+
+        CodedException fault = handler.getFault();
+        if (fault != null) {
+            return createSoapFault(charset, rawXml.toByteArray(), fault);
+        }
+
+        return createSoapMessage(contentType, charset, handler, rawXml.toByteArray(), digestCalculator.getDigest());
+    }
+
+    private Soap parseProcessedMessage(InputStream is, String contentType, String charset) throws Exception {
+        UnsynchronizedByteArrayOutputStream rawXml = UnsynchronizedByteArrayOutputStream.builder().get();
+        UnsynchronizedByteArrayOutputStream processedXml = UnsynchronizedByteArrayOutputStream.builder().get();
 
         InputStream proxyStream = excludeUtf8Bom(contentType, new TeeInputStream(is, rawXml));
         Writer outputWriter = new OutputStreamWriter(processedXml, charset);
@@ -204,12 +231,10 @@ public class SaxSoapParserImpl implements SoapParser {
 
         CodedException fault = handler.getFault();
         if (fault != null) {
-            return createSoapFault(charset, rawXml, fault);
+            return createSoapFault(charset, rawXml.toByteArray(), fault);
         }
 
-        byte[] xmlBytes = isProcessedXmlRequired() ? processedXml.toByteArray() : rawXml.toByteArray();
-
-        return createSoapMessage(contentType, charset, handler, xmlBytes);
+        return createSoapMessage(contentType, charset, handler, processedXml.toByteArray(), null);
     }
 
     private XRoadSoapHandler handleSoap(Writer writer, InputStream inputStream)
@@ -231,16 +256,16 @@ public class SaxSoapParserImpl implements SoapParser {
     }
 
     private static Soap createSoapMessage(String contentType, String charset,
-                                          XRoadSoapHandler handler, byte[] xmlBytes) throws Exception {
+                                          XRoadSoapHandler handler, byte[] xmlBytes, byte[] hash) throws Exception {
         return new SoapMessageImpl(xmlBytes, charset, handler.getHeader(),
-                null, handler.getServiceName(), handler.isRpc(), contentType);
+                null, handler.getServiceName(), handler.isRpc(), contentType, hash);
     }
 
     private static Soap createSoapFault(String charset,
-                                        ByteArrayOutputStream rawXml, CodedException fault) {
+                                        byte[] rawXml, CodedException fault) {
         return new SoapFault(fault.getFaultCode(), fault.getFaultString(),
                 fault.getFaultActor(), fault.getFaultDetail(),
-                rawXml.toByteArray(), charset);
+                rawXml, charset);
     }
 
     @SneakyThrows
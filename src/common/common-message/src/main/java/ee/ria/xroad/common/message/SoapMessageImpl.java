@@ -45,8 +45,17 @@ public class SoapMessageImpl extends AbstractSoapMessage<SoapHeader> {
     SoapMessageImpl(byte[] rawXml, String charset, SoapHeader header,
                     SOAPMessage soap, String serviceName, boolean isRpcEncoded,
                     String originalContentType) {
+        this(rawXml, charset, header, soap, serviceName, isRpcEncoded, originalContentType, null);
+    }
+
+    SoapMessageImpl(byte[] rawXml, String charset, SoapHeader header,
+                    SOAPMessage soap, String serviceName, boolean isRpcEncoded,
+                    String originalContentType, byte[] hash) {
         super(rawXml, charset, header, soap, isResponseMessage(serviceName),
                 isRpcEncoded, originalContentType);
+
+        // The parser may have calculated the hash already while reading the message.
+        this.hash = hash;
     }
 
     /**
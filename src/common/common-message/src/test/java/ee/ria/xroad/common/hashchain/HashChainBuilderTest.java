@@ -35,6 +35,7 @@ import static ee.ria.xroad.common.crypto.Digests.calculateDigest;
 import static ee.ria.xroad.common.crypto.identifier.DigestAlgorithm.SHA256;
 import static ee.ria.xroad.common.util.EncoderUtils.encodeBase64;
 import static ee.ria.xroad.common.util.EncoderUtils.encodeHex;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNull;
@@ -103,6 +104,48 @@ public class HashChainBuilderTest {
         }
     }
 
+    /**
+     * Test to ensure that the parallel mode produces the same tree and
+     * the same hash chains as the default JAXB based mode.
+     * @throws Exception in case of unexpected errors
+     */
+    @Test
+    public void parallelTreeBuilding() throws Exception {
+        for (int treeSize : new int[]{2, 3, 63, 64, 65, 200, 1025}) {
+            HashChainBuilder builder = new HashChainBuilder(SHA256);
+            HashChainBuilder parallelBuilder = new HashChainBuilder(SHA256, true);
+            for (int i = 0; i < treeSize; ++i) {
+                byte[] hash = calculateDigest(SHA256, String.valueOf(i).getBytes(StandardCharsets.UTF_8));
+                if (i % 10 == 0) {
+                    byte[][] parts = {hash, new byte[]{(byte) i}};
+                    builder.addInputHash(parts);
+                    parallelBuilder.addInputHash(parts);
+                } else {
+                    builder.addInputHash(hash);
+                    parallelBuilder.addInputHash(hash);
+                }
+            }
+            builder.finishBuilding();
+            parallelBuilder.finishBuilding();
+
+            assertArrayEquals(builder.getTreeTop(), parallelBuilder.getTreeTop());
+            assertEquals(normalize(builder.getHashChainResult("foo")),
+                    normalize(parallelBuilder.getHashChainResult("foo")));
+
+            String[] hashChains = builder.getHashChains("/foo");
+            String[] parallelHashChains = parallelBuilder.getHashChains("/foo");
+            assertEquals(hashChains.length, parallelHashChains.length);
+            for (int i = 0; i < hashChains.length; ++i) {
+                assertEquals("i = " + i + ", size = " + treeSize,
+                        normalize(hashChains[i]), normalize(parallelHashChains[i]));
+            }
+        }
+    }
+
+    private static String normalize(String xml) {
+        return xml.replaceAll(">\\s+<", "><").trim();
+    }
+
     /**
      * Tests with concrete hash values from the specification.
      * @throws Exception in case of unexpected errors
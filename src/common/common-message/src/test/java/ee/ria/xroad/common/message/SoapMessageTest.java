@@ -51,6 +51,7 @@ import static ee.ria.xroad.common.ErrorCodes.X_INVALID_PROTOCOL_VERSION;
 import static ee.ria.xroad.common.ErrorCodes.X_MISSING_BODY;
 import static ee.ria.xroad.common.ErrorCodes.X_MISSING_HEADER;
 import static ee.ria.xroad.common.ErrorCodes.X_MISSING_HEADER_FIELD;
+import static ee.ria.xroad.common.crypto.Digests.calculateDigest;
 import static ee.ria.xroad.common.message.SoapMessageTestUtil.QUERY_DIR;
 import static ee.ria.xroad.common.message.SoapMessageTestUtil.build;
 import static ee.ria.xroad.common.message.SoapMessageTestUtil.createRequest;
@@ -416,6 +417,43 @@ public class SoapMessageTest {
         assertTrue(Arrays.areEqual(in, out));
     }
 
+    /**
+     * Test that the SAX parser calculates the message hash while parsing and that
+     * the result matches the hash of the message bytes.
+     *
+     * @throws Exception in case of any unexpected errors
+     */
+    @Test
+    public void saxParserShouldHashMessageWhileParsing() throws Exception {
+        byte[] in = fileToBytes("simple.query");
+        SoapMessageImpl message = (SoapMessageImpl) new SaxSoapParserImpl().parse(MimeTypes.TEXT_XML_UTF8,
+                new ByteArrayInputStream(in));
+
+        assertTrue(Arrays.areEqual(in, message.getBytes()));
+        assertTrue(Arrays.areEqual(calculateDigest(SoapUtils.getHashAlgoId(), in), message.getHash()));
+    }
+
+    /**
+     * Test that the SAX parser produces processed XML and keeps the original
+     * XML aside when processed XML is required.
+     *
+     * @throws Exception in case of any unexpected errors
+     */
+    @Test
+    public void saxParserShouldProduceProcessedXml() throws Exception {
+        byte[] in = fileToBytes("simple.query");
+        SoapMessageImpl message = (SoapMessageImpl) new SaxSoapParserImpl() {
+            @Override
+            protected boolean isProcessedXmlRequired() {
+                return true;
+            }
+        }.parse(MimeTypes.TEXT_XML_UTF8, new ByteArrayInputStream(in));
+
+        assertEquals("1234567890", message.getQueryId());
+        assertTrue(Arrays.areEqual(calculateDigest(SoapUtils.getHashAlgoId(), message.getBytes()),
+                message.getHash()));
+    }
+
     /**
      * Test protocol version.
      *
@@ -58,8 +58,16 @@ public final class MessageLogProperties {
 
     private static final int DEFAULT_TIMESTAMP_RETRY_DELAY = 60;
 
+    private static final int DEFAULT_TIMESTAMPER_HEDGE_DELAY = 1000;
+    private static final int DEFAULT_TIMESTAMPER_HEDGE_PERCENTILE = 95;
+
     private static final int DEFAULT_ARCHIVE_TRANSACTION_BATCH_SIZE = 10000;
     private static final int DEFAULT_CLEAN_TRANSACTION_BATCH_SIZE = 10000;
+    private static final int DEFAULT_ARCHIVE_PARALLELISM = 1;
+
+    private static final int DEFAULT_WRITE_QUEUE_SIZE = 10000;
+    private static final int DEFAULT_WRITE_BATCH_SIZE = 100;
+    private static final int DEFAULT_WRITE_QUEUE_TIMEOUT = 5000;
 
     private static final long DEFAULT_MAX_LOGGABLE_MESSAGE_BODY_SIZE = 10 * 1024 * 1024;
     private static final long MAX_LOGGABLE_MESSAGE_BODY_SIZE_LIMIT = 1024 * 1024 * 1024;
@@ -76,6 +84,22 @@ public final class MessageLogProperties {
      */
     public static final String TIMESTAMPER_CLIENT_READ_TIMEOUT = PREFIX + "timestamper-client-read-timeout";
 
+    /**
+     * Property name of the flag that enables hedged requests to the time-stamping services.
+     */
+    public static final String TIMESTAMPER_HEDGING = PREFIX + "timestamper-hedging";
+
+    /**
+     * Property name of the latency percentile of a time-stamping service after which the request is also
+     * sent to the next service.
+     */
+    public static final String TIMESTAMPER_HEDGE_PERCENTILE = PREFIX + "timestamper-hedge-percentile";
+
+    /**
+     * Property name of the hedging delay (milliseconds) used until a service has latency measurements.
+     */
+    public static final String TIMESTAMPER_HEDGE_DELAY = PREFIX + "timestamper-hedge-delay";
+
     public static final String TIMESTAMP_IMMEDIATELY = PREFIX + "timestamp-immediately";
 
     public static final String TIMESTAMP_RECORDS_LIMIT = PREFIX + "timestamp-records-limit";
@@ -89,6 +113,26 @@ public final class MessageLogProperties {
 
     public static final String KEEP_RECORDS_FOR = PREFIX + "keep-records-for";
 
+    /**
+     * Property name of the maximum number of message records waiting to be written to the database.
+     */
+    public static final String WRITE_QUEUE_SIZE = PREFIX + "write-queue-size";
+
+    /**
+     * Property name of the maximum number of message records written in one database transaction.
+     */
+    public static final String WRITE_BATCH_SIZE = PREFIX + "write-batch-size";
+
+    /**
+     * Property name of the time (milliseconds) to wait for space in a full write queue.
+     */
+    public static final String WRITE_QUEUE_TIMEOUT = PREFIX + "write-queue-timeout";
+
+    /**
+     * Property name of the flag that makes logging wait until the message record has been committed.
+     */
+    public static final String WRITE_ACK_AFTER_COMMIT = PREFIX + "write-ack-after-commit";
+
     public static final String ARCHIVE_MAX_FILESIZE = PREFIX + "archive-max-filesize";
 
     public static final String ARCHIVE_INTERVAL = PREFIX + "archive-interval";
@@ -97,6 +141,11 @@ public final class MessageLogProperties {
 
     public static final String ARCHIVE_TRANSACTION_BATCH = PREFIX + "archive-transaction-batch";
 
+    /**
+     * Property name of the number of archive groups archived concurrently.
+     */
+    public static final String ARCHIVE_PARALLELISM = PREFIX + "archive-parallelism";
+
     public static final String CLEAN_INTERVAL = PREFIX + "clean-interval";
 
     private static final String CLEAN_TRANSACTION_BATCH = "clean-transaction-batch";
@@ -207,6 +256,28 @@ public final class MessageLogProperties {
                 DEFAULT_TIMESTAMP_RETRY_DELAY);
     }
 
+    /**
+     * @return true if a time-stamp request is also sent to the next time-stamping service when the preferred
+     * service is slower than usual, false if the services are tried one after another.
+     */
+    public static boolean isTimestamperHedgingEnabled() {
+        return "true".equalsIgnoreCase(System.getProperty(TIMESTAMPER_HEDGING, "false"));
+    }
+
+    /**
+     * @return the latency percentile of a time-stamping service after which the request is hedged.
+     */
+    public static int getTimestamperHedgePercentile() {
+        return getInt(System.getProperty(TIMESTAMPER_HEDGE_PERCENTILE), DEFAULT_TIMESTAMPER_HEDGE_PERCENTILE);
+    }
+
+    /**
+     * @return the hedging delay in milliseconds for time-stamping services without latency measurements.
+     */
+    public static int getTimestamperHedgeDelay() {
+        return getInt(System.getProperty(TIMESTAMPER_HEDGE_DELAY), DEFAULT_TIMESTAMPER_HEDGE_DELAY);
+    }
+
     /**
      * @return true if the time-stamp is created synchronously for each request message. This is a security policy to
      * guarantee the time-stamp at the time of logging the message.
@@ -215,6 +286,35 @@ public final class MessageLogProperties {
         return "true".equalsIgnoreCase(System.getProperty(TIMESTAMP_IMMEDIATELY, "false"));
     }
 
+    /**
+     * @return the maximum number of message records waiting to be written to the database.
+     */
+    public static int getWriteQueueSize() {
+        return getInt(System.getProperty(WRITE_QUEUE_SIZE), DEFAULT_WRITE_QUEUE_SIZE);
+    }
+
+    /**
+     * @return the maximum number of message records written in one database transaction.
+     */
+    public static int getWriteBatchSize() {
+        return getInt(System.getProperty(WRITE_BATCH_SIZE), DEFAULT_WRITE_BATCH_SIZE);
+    }
+
+    /**
+     * @return the time in milliseconds to wait for space in a full write queue before logging fails.
+     */
+    public static int getWriteQueueTimeout() {
+        return getInt(System.getProperty(WRITE_QUEUE_TIMEOUT), DEFAULT_WRITE_QUEUE_TIMEOUT);
+    }
+
+    /**
+     * @return true if logging a message waits until the message record has been committed to the database,
+     * false if it returns as soon as the record has been queued for writing.
+     */
+    public static boolean isWriteAckAfterCommit() {
+        return !"false".equalsIgnoreCase(System.getProperty(WRITE_ACK_AFTER_COMMIT, "true"));
+    }
+
     /**
      * @return the maximum number of records to time-stamp in one batch.
      */
@@ -245,6 +345,14 @@ public final class MessageLogProperties {
         return getInt(System.getProperty(ARCHIVE_TRANSACTION_BATCH), DEFAULT_ARCHIVE_TRANSACTION_BATCH_SIZE);
     }
 
+    /**
+     * @return number of archive groups (see {@link #getArchiveGrouping()}) archived concurrently, 1 if the
+     * records are archived sequentially.
+     */
+    public static int getArchiveParallelism() {
+        return getInt(System.getProperty(ARCHIVE_PARALLELISM), DEFAULT_ARCHIVE_PARALLELISM);
+    }
+
     /**
      * @return the time interval as Cron expression for cleaning archived records from online database.
      */
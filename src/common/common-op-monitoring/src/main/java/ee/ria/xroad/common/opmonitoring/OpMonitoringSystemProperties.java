@@ -74,6 +74,19 @@ public final class OpMonitoringSystemProperties {
     private static final String OP_MONITOR_BUFFER_CONNECTION_TIMEOUT_SECONDS =
             PREFIX + "op-monitor-buffer.connection-timeout-seconds";
 
+    /**
+     * Property name of the number of concurrent senders of the operational monitoring buffer.
+     */
+    private static final String OP_MONITOR_BUFFER_SENDER_COUNT =
+            PREFIX + "op-monitor-buffer.sender-count";
+
+    /**
+     * Property name of the flag that enables gzip compression of the messages sent by the operational monitoring
+     * buffer to the operational monitoring daemon.
+     */
+    private static final String OP_MONITOR_BUFFER_COMPRESSION_ENABLED =
+            PREFIX + "op-monitor-buffer.compression-enabled";
+
     // Operational monitoring service ---------------------------------------//
 
     /**
@@ -193,6 +206,21 @@ public final class OpMonitoringSystemProperties {
         return Integer.parseInt(System.getProperty(OP_MONITOR_BUFFER_CONNECTION_TIMEOUT_SECONDS, "30"));
     }
 
+    /**
+     * @return the number of messages the operational monitoring buffer may be sending to the operational monitoring
+     * daemon at the same time, '1' by default.
+     */
+    public static int getOpMonitorBufferSenderCount() {
+        return Integer.parseInt(System.getProperty(OP_MONITOR_BUFFER_SENDER_COUNT, "1"));
+    }
+
+    /**
+     * @return whether the messages sent to the operational monitoring daemon are gzip compressed, 'false' by default.
+     */
+    public static boolean isOpMonitorBufferCompressionEnabled() {
+        return Boolean.parseBoolean(System.getProperty(OP_MONITOR_BUFFER_COMPRESSION_ENABLED, "false"));
+    }
+
     /**
      * @return the operational monitoring service HTTP client SO_TIMEOUT in seconds, '60' by default.
      */
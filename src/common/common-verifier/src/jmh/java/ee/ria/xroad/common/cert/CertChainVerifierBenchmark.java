@@ -0,0 +1,139 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.common.cert;
+
+import ee.ria.xroad.common.OcspTestUtils;
+import ee.ria.xroad.common.TestCertUtil;
+import ee.ria.xroad.common.TestSecurityUtil;
+import ee.ria.xroad.common.conf.globalconf.EmptyGlobalConf;
+import ee.ria.xroad.common.conf.globalconf.GlobalConfProvider;
+
+import org.bouncycastle.cert.ocsp.CertificateStatus;
+import org.bouncycastle.cert.ocsp.OCSPResp;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the certificate chain verification done for every signature, once with the validated
+ * certification paths served from {@link CertPathValidationCache} and once with the cache disabled.
+ * The chain consists of a user certificate, three intermediate CAs and the trusted root.
+ *
+ * Run with {@code ./gradlew :common:common-verifier:jmh}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CertChainVerifierBenchmark {
+
+    private static final long ONE_DAY_MILLIS = TimeUnit.DAYS.toMillis(1);
+
+    private GlobalConfProvider globalConfProvider;
+    private CertChain chain;
+    private List<OCSPResp> ocspResponses;
+    private Date atDate;
+
+    @Setup
+    public void setup() throws Exception {
+        TestSecurityUtil.initSecurity();
+
+        X509Certificate rootCa = TestCertUtil.getCertChainCert("root_ca.p12");
+        List<X509Certificate> intermediates = List.of(
+                TestCertUtil.getCertChainCert("ca_1.p12"),
+                TestCertUtil.getCertChainCert("ca_2.p12"),
+                TestCertUtil.getCertChainCert("ca_3.p12"));
+        X509Certificate userCert = TestCertUtil.getCertChainCert("user_3.p12");
+
+        globalConfProvider = new BenchmarkGlobalConf(intermediates);
+        chain = new CertChain("EE", userCert, rootCa, intermediates);
+
+        List<X509Certificate> subjects = new ArrayList<>(intermediates);
+        subjects.add(userCert);
+        ocspResponses = new ArrayList<>();
+        for (X509Certificate subject : subjects) {
+            ocspResponses.add(OcspTestUtils.createOCSPResponse(subject, getIssuer(subject, intermediates, rootCa),
+                    TestCertUtil.getOcspSigner().certChain[0], TestCertUtil.getOcspSigner().key,
+                    CertificateStatus.GOOD));
+        }
+
+        // the test certificates are valid for a year from their issue date
+        atDate = new Date(rootCa.getNotBefore().getTime() + ONE_DAY_MILLIS);
+    }
+
+    @Benchmark
+    public CertChainVerifier cached() {
+        return verify();
+    }
+
+    @Benchmark
+    @Fork(jvmArgsAppend = "-Dxroad.proxy.cert-path-validation-cache-period=0")
+    public CertChainVerifier uncached() {
+        return verify();
+    }
+
+    private CertChainVerifier verify() {
+        CertChainVerifier verifier = new CertChainVerifier(globalConfProvider, chain);
+        verifier.verify(ocspResponses, atDate);
+        return verifier;
+    }
+
+    private static X509Certificate getIssuer(X509Certificate subject, List<X509Certificate> certs,
+                                             X509Certificate rootCa) {
+        return certs.stream()
+                .filter(c -> c.getSubjectX500Principal().equals(subject.getIssuerX500Principal()))
+                .findFirst()
+                .orElse(rootCa);
+    }
+
+    private static final class BenchmarkGlobalConf extends EmptyGlobalConf {
+        private final List<X509Certificate> caCerts;
+
+        BenchmarkGlobalConf(List<X509Certificate> caCerts) {
+            this.caCerts = caCerts;
+        }
+
+        @Override
+        public List<X509Certificate> getOcspResponderCertificates() {
+            return List.of(TestCertUtil.getOcspSigner().certChain[0]);
+        }
+
+        @Override
+        public X509Certificate getCaCert(String instanceIdentifier, X509Certificate orgCert) {
+            return getIssuer(orgCert, caCerts, TestCertUtil.getCertChainCert("root_ca.p12"));
+        }
+    }
+}
@@ -86,7 +86,8 @@ public class CertChainVerifier {
 
     /**
      * Builds the certificate path for the target certificate using a list
-     * of trust anchors and a list of intermediate certificates.
+     * of trust anchors and a list of intermediate certificates. Validated
+     * paths are reused from {@link CertPathValidationCache}.
      *
      * @param globalConfProvider the global configuration provider
      * @param certChain          the certificate chain object
@@ -163,14 +164,14 @@ public class CertChainVerifier {
     private void verifyImpl(List<OCSPResp> ocspResponses, Date atDate) {
         pkixParams.setDate(atDate);
         try {
-            certPath = buildCertPath(pkixParams);
-
-            PKIXCertPathValidatorResult pkixResult =
-                    verifyCertPath(certPath, pkixParams);
+            certPath = CertPathValidationCache.get(certChain, atDate, () -> {
+                CertPath path = buildCertPath(pkixParams);
+                verifyCertPath(path, pkixParams);
+                return path;
+            });
 
             if (ocspResponses != null) {
-                verifyOcspResponses(
-                        getCerts(), ocspResponses, pkixResult, atDate);
+                verifyOcspResponses(getCerts(), ocspResponses, atDate);
             }
         } catch (CertPathBuilderException ex) {
             throw translateWithPrefix(X_CANNOT_CREATE_CERT_PATH, ex);
@@ -180,8 +181,10 @@ public class CertChainVerifier {
     }
 
     private void verifyOcspResponses(List<X509Certificate> certs,
-                                     List<OCSPResp> ocspResponses, PKIXCertPathValidatorResult result,
+                                     List<OCSPResp> ocspResponses,
                                      Date atDate) throws Exception {
+        OcspVerifier verifier = new OcspVerifier(globalConfProvider,
+                new OcspVerifierOptions(globalConfProvider.getGlobalConfExtensions().shouldVerifyOcspNextUpdate()));
         for (X509Certificate subject : certs) {
             X509Certificate issuer =
                     globalConfProvider.getCaCert(certChain.getInstanceIdentifier(),
@@ -194,8 +197,6 @@ public class CertChainVerifier {
                                 + subject.getSubjectX500Principal().getName());
             }
 
-            OcspVerifier verifier = new OcspVerifier(globalConfProvider,
-                    new OcspVerifierOptions(globalConfProvider.getGlobalConfExtensions().shouldVerifyOcspNextUpdate()));
             verifier.verifyValidityAndStatus(response, subject, issuer,
                     atDate);
         }
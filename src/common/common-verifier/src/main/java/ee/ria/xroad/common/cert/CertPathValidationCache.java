@@ -0,0 +1,180 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.common.cert;
+
+import ee.ria.xroad.common.SystemProperties;
+import ee.ria.xroad.common.crypto.identifier.DigestAlgorithm;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import org.bouncycastle.operator.DigestCalculator;
+
+import java.io.OutputStream;
+import java.security.cert.CertPath;
+import java.security.cert.Certificate;
+import java.security.cert.X509Certificate;
+import java.util.Date;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static ee.ria.xroad.common.crypto.Digests.createDigestCalculator;
+import static ee.ria.xroad.common.util.EncoderUtils.encodeHex;
+
+/**
+ * Caches certification paths that have been built and validated by {@link CertChainVerifier}.
+ * <p>
+ * Entries are keyed by a fingerprint of the chain (end entity, intermediates and trusted root) and
+ * the current trust anchor generation, which is advanced whenever global configuration changes.
+ * Each entry remembers the period in which all certificates of the chain are valid, so a cached path
+ * is only reused for dates within that period. Failed validations are not cached.
+ */
+public final class CertPathValidationCache {
+
+    public static final String METRIC_HITS = "certPathValidationCache.hits";
+    public static final String METRIC_MISSES = "certPathValidationCache.misses";
+    public static final String METRIC_HIT_RATE = "certPathValidationCache.hitRate";
+    public static final String METRIC_SIZE = "certPathValidationCache.size";
+
+    private static final int MAX_SIZE = 10000;
+
+    private static final int CACHE_PERIOD = SystemProperties.getCertPathValidationCachePeriod();
+
+    private static final Cache<Key, ValidatedPath> CACHE = CacheBuilder.newBuilder()
+            .expireAfterWrite(CACHE_PERIOD, TimeUnit.SECONDS)
+            .maximumSize(MAX_SIZE)
+            .recordStats()
+            .build();
+
+    private static final AtomicLong TRUST_ANCHOR_GENERATION = new AtomicLong();
+
+    private static final MetricRegistry METRIC_REGISTRY = new MetricRegistry();
+
+    static {
+        METRIC_REGISTRY.register(METRIC_HITS, (Gauge<Long>) () -> CACHE.stats().hitCount());
+        METRIC_REGISTRY.register(METRIC_MISSES, (Gauge<Long>) () -> CACHE.stats().missCount());
+        METRIC_REGISTRY.register(METRIC_HIT_RATE, (Gauge<Double>) () -> CACHE.stats().hitRate());
+        METRIC_REGISTRY.register(METRIC_SIZE, (Gauge<Long>) CACHE::size);
+    }
+
+    private CertPathValidationCache() {
+    }
+
+    /**
+     * Returns the validated certification path for the chain, running the validator if there is no cached path
+     * that is valid at the given date.
+     *
+     * @param chain     the certificate chain
+     * @param atDate    the date at which the path must be valid, null meaning the current time
+     * @param validator builds and validates the path when it is not cached
+     * @return the validated certification path
+     * @throws Exception if the validator fails
+     */
+    static CertPath get(CertChain chain, Date atDate, Callable<CertPath> validator) throws Exception {
+        if (CACHE_PERIOD == 0) {
+            return validator.call();
+        }
+
+        Date date = atDate != null ? atDate : new Date();
+        Key key = new Key(TRUST_ANCHOR_GENERATION.get(), fingerprint(chain));
+
+        ValidatedPath cached = CACHE.getIfPresent(key);
+        if (cached != null && cached.isValidAt(date)) {
+            return cached.certPath();
+        }
+
+        try {
+            // A cached path that is not valid at the requested date is validated again, so that
+            // the validator reports the actual error for that date.
+            ValidatedPath validated = cached == null
+                    ? CACHE.get(key, () -> validate(validator))
+                    : validate(validator);
+            return validated.certPath();
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            throw (Exception) e.getCause();
+        }
+    }
+
+    /**
+     * Discards all cached paths and starts a new trust anchor generation. Called when global configuration
+     * has changed, since the trusted root and intermediate certificates come from there.
+     */
+    public static void invalidate() {
+        TRUST_ANCHOR_GENERATION.incrementAndGet();
+        CACHE.invalidateAll();
+    }
+
+    /**
+     * @return the metric registry holding hit, miss, hit rate and size gauges of the cache, for the hosting process
+     * to report
+     */
+    public static MetricRegistry getMetricRegistry() {
+        return METRIC_REGISTRY;
+    }
+
+    private static ValidatedPath validate(Callable<CertPath> validator) throws Exception {
+        CertPath certPath = validator.call();
+
+        Date notBefore = null;
+        Date notAfter = null;
+        for (Certificate cert : certPath.getCertificates()) {
+            X509Certificate x509 = (X509Certificate) cert;
+            if (notBefore == null || x509.getNotBefore().after(notBefore)) {
+                notBefore = x509.getNotBefore();
+            }
+            if (notAfter == null || x509.getNotAfter().before(notAfter)) {
+                notAfter = x509.getNotAfter();
+            }
+        }
+
+        return new ValidatedPath(certPath, notBefore, notAfter);
+    }
+
+    private static String fingerprint(CertChain chain) throws Exception {
+        DigestCalculator dc = createDigestCalculator(DigestAlgorithm.SHA256);
+        try (OutputStream out = dc.getOutputStream()) {
+            for (X509Certificate cert : chain.getAllCerts()) {
+                out.write(cert.getEncoded());
+            }
+        }
+
+        return encodeHex(dc.getDigest());
+    }
+
+    private record Key(long trustAnchorGeneration, String chainFingerprint) {
+    }
+
+    private record ValidatedPath(CertPath certPath, Date notBefore, Date notAfter) {
+        boolean isValidAt(Date date) {
+            return (notBefore == null || !date.before(notBefore))
+                    && (notAfter == null || !date.after(notAfter));
+        }
+    }
+}
@@ -28,6 +28,7 @@ package ee.ria.xroad.common.conf.globalconf;
 import ee.ria.xroad.common.CodedException;
 import ee.ria.xroad.common.cert.CertChain;
 import ee.ria.xroad.common.cert.CertChainFactory;
+import ee.ria.xroad.common.cert.CertPathValidationCache;
 import ee.ria.xroad.common.certificateprofile.AuthCertificateProfileInfo;
 import ee.ria.xroad.common.certificateprofile.CertificateProfileInfoProvider;
 import ee.ria.xroad.common.certificateprofile.GetCertificateProfile;
@@ -36,6 +37,7 @@ import ee.ria.xroad.common.conf.globalconfextension.GlobalConfExtensions;
 import ee.ria.xroad.common.identifier.ClientId;
 import ee.ria.xroad.common.identifier.GlobalGroupId;
 import ee.ria.xroad.common.identifier.SecurityServerId;
+import ee.ria.xroad.common.ocsp.OcspVerifier;
 import ee.ria.xroad.common.util.CertUtils;
 import ee.ria.xroad.common.util.CryptoUtils;
 
@@ -84,7 +86,13 @@ public class GlobalConfImpl implements GlobalConfProvider {
 
     @Override
     public void reload() {
+        long modificationCount = globalConfSource.getModificationCount();
         globalConfSource.reload();
+        if (globalConfSource.getModificationCount() != modificationCount) {
+            log.debug("Global configuration has changed, clearing verification caches");
+            OcspVerifier.clearCache();
+            CertPathValidationCache.invalidate();
+        }
     }
 
     // ------------------------------------------------------------------------
@@ -309,13 +317,7 @@ public class GlobalConfImpl implements GlobalConfProvider {
         List<X509Certificate> responderCerts = new ArrayList<>();
         try {
             for (SharedParametersCache p : getSharedParametersCaches()) {
-                for (List<SharedParameters.OcspInfo> ocsps : p.getCaCertsAndOcspData().values()) {
-                    ocsps.stream()
-                            .map(SharedParameters.OcspInfo::getCert)
-                            .filter(Objects::nonNull)
-                            .map(CryptoUtils::readCertificate)
-                            .forEach(responderCerts::add);
-                }
+                responderCerts.addAll(p.getOcspResponderCerts());
             }
         } catch (Exception e) {
             log.error("Error while getting OCSP responder certificates", e);
@@ -401,11 +403,8 @@ public class GlobalConfImpl implements GlobalConfProvider {
     public boolean isOcspResponderCert(X509Certificate ca,
                                        X509Certificate ocspCert) {
         return getSharedParametersCaches().stream()
-                .map(p -> p.getCaCertsAndOcspData().get(ca))
-                .filter(Objects::nonNull).flatMap(Collection::stream)
-                .map(SharedParameters.OcspInfo::getCert).filter(Objects::nonNull)
-                .map(CryptoUtils::readCertificate)
-                .anyMatch(c -> c.equals(ocspCert));
+                .map(p -> p.getCaCertsAndOcspResponderCerts().get(ca))
+                .anyMatch(certs -> certs != null && certs.contains(ocspCert));
     }
 
     @Override
@@ -459,11 +458,9 @@ public class GlobalConfImpl implements GlobalConfProvider {
     public boolean authCertMatchesMember(X509Certificate cert, ClientId memberId)
             throws CertificateEncodingException, IOException, OperatorCreationException {
         for (SharedParametersCache p : getSharedParametersCaches()) {
-            byte[] inputCertHash = calculateCertHash(p.getInstanceIdentifier(), cert);
-            boolean match = Optional.ofNullable(p.getMemberAuthCerts().get(memberId)).stream()
-                    .flatMap(Collection::stream)
-                    .anyMatch(h -> Arrays.equals(inputCertHash, h));
-            if (match) {
+            Set<String> authCertHashes = p.getMemberAuthCerts().get(memberId);
+            if (authCertHashes != null
+                    && authCertHashes.contains(encodeBase64(calculateCertHash(p.getInstanceIdentifier(), cert)))) {
                 return true;
             }
         }
@@ -558,18 +555,12 @@ public class GlobalConfImpl implements GlobalConfProvider {
 
     @Override
     public boolean isSubjectInGlobalGroup(ClientId subjectId, GlobalGroupId groupId) {
-        return findGlobalGroup(groupId)
-                .filter(group -> group.getGroupMembers().stream().anyMatch(m -> m.equals(subjectId)))
+        return globalConfSource.findSharedParametersCache(groupId.getXRoadInstance())
+                .map(p -> p.getGlobalGroupMembers().get(groupId.getGroupCode()))
+                .filter(members -> members.contains(subjectId))
                 .isPresent();
     }
 
-    Optional<SharedParameters.GlobalGroup> findGlobalGroup(GlobalGroupId groupId) {
-        Optional<SharedParameters> sharedParameters = globalConfSource.findShared(groupId.getXRoadInstance());
-        return sharedParameters.flatMap(params -> params.getGlobalGroups().stream()
-                .filter(g -> g.getGroupCode().equals(groupId.getGroupCode()))
-                .findFirst());
-    }
-
     @Override
     public boolean isSecurityServerClient(ClientId clientId,
                                           SecurityServerId securityServerId) {
@@ -28,24 +28,31 @@ package ee.ria.xroad.common.ocsp;
 import ee.ria.xroad.common.conf.globalconf.GlobalConfProvider;
 
 import lombok.extern.slf4j.Slf4j;
+import org.bouncycastle.cert.ocsp.BasicOCSPResp;
+import org.bouncycastle.cert.ocsp.OCSPException;
 import org.bouncycastle.cert.ocsp.OCSPResp;
 
+import java.util.AbstractMap.SimpleImmutableEntry;
 import java.util.Date;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
 
 /**
  * Holds OCSP response per key. When getting the response, it is checked
  * if the response is expired at the specified date, and if it is, the
  * response is removed from the cache and null is returned.
+ * <p>
+ * The thisUpdate time of each response is decoded once when the response is
+ * put into the cache, so the expiry check does not need to parse the response.
  */
 @Slf4j
 public class OcspCache {
     private final GlobalConfProvider globalConfProvider;
 
-    protected final Map<String, OCSPResp> cache = new ConcurrentHashMap<>();
+    protected final Map<String, CachedResponse> cache = new ConcurrentHashMap<>();
 
     public OcspCache(GlobalConfProvider globalConfProvider) {
         this.globalConfProvider = globalConfProvider;
@@ -69,7 +76,16 @@ public class OcspCache {
      */
     public OCSPResp put(String key, OCSPResp value) {
         log.trace("Setting OCSP response for '{}'", key);
-        return cache.put(key, value);
+
+        Date thisUpdate = null;
+        try {
+            thisUpdate = getThisUpdate(value);
+        } catch (Exception e) {
+            log.error("Failed to read thisUpdate of OCSP response for '{}'", key, e);
+        }
+
+        CachedResponse previous = cache.put(key, new CachedResponse(value, thisUpdate));
+        return previous != null ? previous.response() : null;
     }
 
     /**
@@ -80,19 +96,26 @@ public class OcspCache {
     }
 
     /**
-     * @return a Set view of the mappings contained in this map.
+     * @return a snapshot of the mappings contained in this cache.
      */
     public Set<Entry<String, OCSPResp>> entrySet() {
-        return cache.entrySet();
+        return cache.entrySet().stream()
+                .<Entry<String, OCSPResp>>map(e -> new SimpleImmutableEntry<>(e.getKey(), e.getValue().response()))
+                .collect(Collectors.toSet());
     }
 
     protected OCSPResp getResponse(Object key, Date atDate) {
         log.trace("Retrieving OCSP response for certificate '{}' at {}", key,
                 atDate);
 
-        OCSPResp cachedResponse = cache.get(key);
+        CachedResponse cachedResponse = cache.get(key);
+        if (cachedResponse == null) {
+            return null;
+        }
+
         try {
-            if (cachedResponse != null && isExpired(cachedResponse, atDate)) {
+            if (cachedResponse.thisUpdate() == null
+                    || isExpired(cachedResponse.thisUpdate(), atDate)) {
                 log.trace("Cached OCSP response for certificate "
                         + "'{}' has expired", key);
                 cache.remove(key);
@@ -104,13 +127,24 @@ public class OcspCache {
             return null;
         }
 
-        return cachedResponse;
+        return cachedResponse.response();
     }
 
     protected boolean isExpired(OCSPResp response, Date atDate)
             throws Exception {
-        OcspVerifier verifier = new OcspVerifier(globalConfProvider,
-                new OcspVerifierOptions(globalConfProvider.getGlobalConfExtensions().shouldVerifyOcspNextUpdate()));
-        return verifier.isExpired(response, atDate);
+        return isExpired(getThisUpdate(response), atDate);
+    }
+
+    private boolean isExpired(Date thisUpdate, Date atDate) {
+        return OcspVerifier.isExpired(thisUpdate, atDate,
+                globalConfProvider.getOcspFreshnessSeconds());
+    }
+
+    private static Date getThisUpdate(OCSPResp response) throws OCSPException {
+        BasicOCSPResp basicResp = (BasicOCSPResp) response.getResponseObject();
+        return basicResp.getResponses()[0].getThisUpdate();
+    }
+
+    protected record CachedResponse(OCSPResp response, Date thisUpdate) {
     }
 }
@@ -63,6 +63,7 @@ import static ee.ria.xroad.common.ErrorCodes.X_CERT_VALIDATION;
 import static ee.ria.xroad.common.ErrorCodes.X_INCORRECT_VALIDATION_INFO;
 import static ee.ria.xroad.common.crypto.Digests.calculateDigest;
 import static ee.ria.xroad.common.crypto.Digests.createDigestCalculator;
+import static ee.ria.xroad.common.crypto.Digests.hexDigest;
 import static ee.ria.xroad.common.util.CryptoUtils.createCertId;
 import static ee.ria.xroad.common.util.CryptoUtils.createDefaultContentVerifier;
 import static ee.ria.xroad.common.util.TimeUtils.toOffsetDateTime;
@@ -81,7 +82,11 @@ public final class OcspVerifier {
 
     private final OcspVerifierOptions options;
 
-    private static final Cache<String, SingleResp> RESPONSE_VALIDITY_CACHE;
+    /**
+     * Responses that have passed the signature and responder checks, keyed by the response digest and the
+     * certificate pair they were verified for. Cleared when global configuration changes.
+     */
+    private static final Cache<ResponseKey, VerifiedResponse> RESPONSE_VALIDITY_CACHE;
 
     private static final int RESPONSE_VALIDITY_CACHE_MAX_SIZE = 1000;
 
@@ -176,24 +181,24 @@ public final class OcspVerifier {
                     subject.getSubjectX500Principal().getName(),
                     issuer.getSubjectX500Principal().getName(), toOffsetDateTime(atDate));
         }
-        SingleResp singleResp = verifyResponseValidityCached(response, subject, issuer);
-        verifyValidityAt(atDate, singleResp);
+        VerifiedResponse verified = verifyResponseValidityCached(response, subject, issuer);
+        verifyValidityAt(atDate, verified);
     }
 
-    private void verifyValidityAt(Date atDate, SingleResp singleResp) {
+    private void verifyValidityAt(Date atDate, VerifiedResponse verified) {
         // 5. The time at which the status being indicated is known
         // to be correct (thisUpdate) is sufficiently recent.
-        if (isExpired(singleResp, atDate)) {
+        if (isExpired(verified.thisUpdate(), atDate, ocspFreshnessSeconds)) {
             throw new CodedException(X_INCORRECT_VALIDATION_INFO,
                     "OCSP response is too old (thisUpdate: %s)",
-                    toOffsetDateTime(singleResp.getThisUpdate()));
+                    toOffsetDateTime(verified.thisUpdate()));
         }
 
         if (options.isVerifyNextUpdate()) {
             // 6. When available, the time at or before which newer information will
             // be available about the status of the certificate (nextUpdate) is
             // greater than the current time.
-            final Date nextUpdate = singleResp.getNextUpdate();
+            final Date nextUpdate = verified.nextUpdate();
             if (log.isDebugEnabled()) {
                 log.debug("Verify OCSP nextUpdate, atDate: {} nextUpdate: {}", toOffsetDateTime(atDate),
                         toOffsetDateTime(nextUpdate));
@@ -209,16 +214,27 @@ public final class OcspVerifier {
         }
     }
 
-    private SingleResp verifyResponseValidityCached(final OCSPResp response, final X509Certificate subject,
-                                                    final X509Certificate issuer) throws Exception {
+    private VerifiedResponse verifyResponseValidityCached(final OCSPResp response, final X509Certificate subject,
+                                                          final X509Certificate issuer) throws Exception {
         try {
-            final String key = response.hashCode() + ":" + subject.hashCode() + ":" + issuer.hashCode();
-            return RESPONSE_VALIDITY_CACHE.get(key, () -> verifyResponseValidity(response, subject, issuer));
+            final ResponseKey key = new ResponseKey(hexDigest(DigestAlgorithm.SHA256, response.getEncoded()), subject, issuer);
+            return RESPONSE_VALIDITY_CACHE.get(key, () -> {
+                SingleResp singleResp = verifyResponseValidity(response, subject, issuer);
+                return new VerifiedResponse(singleResp.getThisUpdate(), singleResp.getNextUpdate());
+            });
         } catch (ExecutionException | UncheckedExecutionException e) {
             throw (Exception) e.getCause();
         }
     }
 
+    /**
+     * Discards all cached verification results. Called when global configuration has changed, since the
+     * trusted OCSP responders and CA certificates used for verification come from there.
+     */
+    public static void clearCache() {
+        RESPONSE_VALIDITY_CACHE.invalidateAll();
+    }
+
     private SingleResp verifyResponseValidity(OCSPResp response, X509Certificate subject, X509Certificate issuer)
             throws Exception {
         BasicOCSPResp basicResp = (BasicOCSPResp) response.getResponseObject();
@@ -296,13 +312,17 @@ public final class OcspVerifier {
      * @return true, if the OCSP response is expired
      */
     public boolean isExpired(SingleResp singleResp, Date atDate) {
-        final Date allowedThisUpdate = Date.from(atDate.toInstant().minusSeconds(ocspFreshnessSeconds));
+        return isExpired(singleResp.getThisUpdate(), atDate, ocspFreshnessSeconds);
+    }
+
+    static boolean isExpired(Date thisUpdate, Date atDate, int freshnessSeconds) {
+        final Date allowedThisUpdate = Date.from(atDate.toInstant().minusSeconds(freshnessSeconds));
         if (log.isTraceEnabled()) {
             log.trace("isExpired(thisUpdate: {}, allowedThisUpdate: {}, atDate: {})",
-                    toOffsetDateTime(singleResp.getThisUpdate()), toOffsetDateTime(allowedThisUpdate),
+                    toOffsetDateTime(thisUpdate), toOffsetDateTime(allowedThisUpdate),
                     toOffsetDateTime(atDate));
         }
-        return singleResp.getThisUpdate().before(allowedThisUpdate);
+        return thisUpdate.before(allowedThisUpdate);
     }
 
     /**
@@ -429,4 +449,10 @@ public final class OcspVerifier {
 
         return false;
     }
+
+    private record ResponseKey(String responseHash, X509Certificate subject, X509Certificate issuer) {
+    }
+
+    private record VerifiedResponse(Date thisUpdate, Date nextUpdate) {
+    }
 }
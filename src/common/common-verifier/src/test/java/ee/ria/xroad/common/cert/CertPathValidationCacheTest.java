@@ -0,0 +1,119 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.common.cert;
+
+import ee.ria.xroad.common.TestCertUtil;
+import ee.ria.xroad.common.TestSecurityUtil;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.security.cert.CertPath;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Tests the certification path validation cache.
+ */
+public class CertPathValidationCacheTest {
+
+    static {
+        TestSecurityUtil.initSecurity();
+    }
+
+    private final AtomicInteger validations = new AtomicInteger();
+
+    private X509Certificate userCert;
+    private CertChain chain;
+    private CertPath path;
+
+    /**
+     * Clears the cache and creates a chain with its certification path.
+     *
+     * @throws Exception if an error occurs
+     */
+    @Before
+    public void setUp() throws Exception {
+        CertPathValidationCache.invalidate();
+
+        X509Certificate rootCa = TestCertUtil.getCertChainCert("root_ca.p12");
+        userCert = TestCertUtil.getCertChainCert("user_0.p12");
+        chain = new CertChain("EE", userCert, rootCa, List.of());
+        path = CertificateFactory.getInstance("X.509").generateCertPath(List.of(userCert));
+    }
+
+    /**
+     * Tests that a validated path is reused for dates within the validity period of its certificates.
+     *
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void reusesPathWithinValidityPeriod() throws Exception {
+        Date atDate = userCert.getNotBefore();
+
+        assertSame(path, CertPathValidationCache.get(chain, atDate, this::validate));
+        assertSame(path, CertPathValidationCache.get(chain, userCert.getNotAfter(), this::validate));
+        assertEquals(1, validations.get());
+    }
+
+    /**
+     * Tests that the path is validated again for dates outside the validity period of its certificates.
+     *
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void validatesAgainOutsideValidityPeriod() throws Exception {
+        CertPathValidationCache.get(chain, userCert.getNotBefore(), this::validate);
+        CertPathValidationCache.get(chain, new Date(userCert.getNotAfter().getTime() + 1), this::validate);
+
+        assertEquals(2, validations.get());
+    }
+
+    /**
+     * Tests that invalidating the cache forces validation.
+     *
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void invalidate() throws Exception {
+        CertPathValidationCache.get(chain, userCert.getNotBefore(), this::validate);
+        CertPathValidationCache.invalidate();
+        CertPathValidationCache.get(chain, userCert.getNotBefore(), this::validate);
+
+        assertEquals(2, validations.get());
+    }
+
+    private CertPath validate() {
+        validations.incrementAndGet();
+        return path;
+    }
+}
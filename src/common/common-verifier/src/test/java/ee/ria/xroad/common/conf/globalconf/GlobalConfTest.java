@@ -34,6 +34,7 @@ import ee.ria.xroad.common.certificateprofile.impl.SignCertificateProfileInfoPar
 import ee.ria.xroad.common.identifier.ClientId;
 import ee.ria.xroad.common.identifier.GlobalGroupId;
 import ee.ria.xroad.common.identifier.SecurityServerId;
+import ee.ria.xroad.common.util.CryptoUtils;
 
 import org.apache.commons.io.FileUtils;
 import org.junit.AfterClass;
@@ -53,11 +54,15 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Objects;
 import java.util.Set;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static ee.ria.xroad.common.SystemProperties.getConfigurationPath;
 import static ee.ria.xroad.common.TestCertUtil.getCertChainCert;
+import static ee.ria.xroad.common.util.CryptoUtils.certHash;
+import static ee.ria.xroad.common.util.CryptoUtils.certSha1Hash;
 import static java.util.Collections.singleton;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
@@ -75,6 +80,7 @@ public class GlobalConfTest {
     @Rule
     public ExpectedCodedException thrown = ExpectedCodedException.none();
 
+    private static GlobalConfSource globalConfSource;
     private static GlobalConfProvider globalConfProvider;
 
     /**
@@ -88,7 +94,8 @@ public class GlobalConfTest {
 
         createConfigurationFiles();
 
-        globalConfProvider = new GlobalConfImpl(new FileSystemGlobalConfSource(getConfigurationPath()));
+        globalConfSource = new FileSystemGlobalConfSource(getConfigurationPath());
+        globalConfProvider = new GlobalConfImpl(globalConfSource);
     }
 
     private static void createConfigurationFiles() throws IOException {
@@ -457,6 +464,112 @@ public class GlobalConfTest {
         assertEquals(5, cas.size());
     }
 
+    /**
+     * Tests that checking global group membership gives the same results as scanning the global groups.
+     */
+    @Test
+    public void isSubjectInGlobalGroupMatchesGroupScan() {
+        for (SharedParameters params : getSharedParameters()) {
+            for (SharedParameters.GlobalGroup group : params.getGlobalGroups()) {
+                for (ClientId client : getClients(params)) {
+                    boolean expected = params.getGlobalGroups().stream()
+                            .filter(g -> g.getGroupCode().equals(group.getGroupCode()))
+                            .findFirst()
+                            .filter(g -> g.getGroupMembers().contains(client))
+                            .isPresent();
+
+                    assertEquals(group.getGroupCode() + " " + client, expected, globalConfProvider.isSubjectInGlobalGroup(
+                            client, GlobalGroupId.Conf.create(params.getInstanceIdentifier(), group.getGroupCode())));
+                }
+            }
+        }
+    }
+
+    /**
+     * Tests that checking OCSP responder certificates gives the same results as parsing the OCSP data of the CAs.
+     */
+    @Test
+    public void ocspResponderCertsMatchCaScan() {
+        List<SharedParameters.CaInfo> caInfos = getSharedParameters().stream()
+                .flatMap(params -> params.getApprovedCAs().stream())
+                .flatMap(ca -> Stream.concat(Stream.of(ca.getTopCA()), ca.getIntermediateCas().stream()))
+                .toList();
+        List<X509Certificate> caCerts = caInfos.stream().map(c -> CryptoUtils.readCertificate(c.getCert())).toList();
+        List<X509Certificate> responderCerts = caInfos.stream().flatMap(c -> parseOcspCerts(c.getOcsp()).stream()).toList();
+
+        for (X509Certificate caCert : caCerts) {
+            for (X509Certificate cert : Stream.concat(caCerts.stream(), responderCerts.stream()).toList()) {
+                boolean expected = caInfos.stream()
+                        .filter(c -> CryptoUtils.readCertificate(c.getCert()).equals(caCert))
+                        .anyMatch(c -> parseOcspCerts(c.getOcsp()).contains(cert));
+
+                assertEquals(expected, globalConfProvider.isOcspResponderCert(caCert, cert));
+            }
+        }
+
+        List<X509Certificate> expected = globalConfSource.getSharedParametersCaches().stream()
+                .flatMap(p -> p.getCaCertsAndOcspData().values().stream())
+                .flatMap(ocsps -> parseOcspCerts(ocsps).stream())
+                .toList();
+
+        assertEquals(expected, globalConfProvider.getOcspResponderCertificates());
+    }
+
+    /**
+     * Tests that matching authentication certificates to members gives the same results as scanning the security
+     * servers of the member.
+     *
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void authCertMatchesMemberMatchesServerScan() throws Exception {
+        List<X509Certificate> certs = List.of(TestCertUtil.getProducer().certChain[0],
+                TestCertUtil.getConsumer().certChain[0], TestCertUtil.getOcspSigner().certChain[0]);
+        Integer version = globalConfSource.getVersion();
+
+        for (X509Certificate cert : certs) {
+            byte[] hash = version != null && version > 2 ? certHash(cert.getEncoded()) : certSha1Hash(cert.getEncoded());
+
+            for (SharedParameters params : getSharedParameters()) {
+                for (ClientId client : getClients(params)) {
+                    boolean expected = getSharedParameters().stream()
+                            .flatMap(p -> p.getSecurityServers().stream())
+                            .filter(s -> s.getOwner().equals(client) || s.getClients().contains(client))
+                            .flatMap(s -> s.getAuthCertHashes().stream())
+                            .anyMatch(h -> Arrays.equals(h.getHash(), hash));
+
+                    assertEquals(client.toString(), expected, globalConfProvider.authCertMatchesMember(cert, client));
+                }
+            }
+        }
+    }
+
+    private static List<SharedParameters> getSharedParameters() {
+        return globalConfSource.getSharedParametersCaches().stream()
+                .map(SharedParametersCache::getSharedParameters)
+                .toList();
+    }
+
+    private static Set<ClientId> getClients(SharedParameters params) {
+        Set<ClientId> clients = new HashSet<>();
+        params.getGlobalGroups().forEach(g -> clients.addAll(g.getGroupMembers()));
+        params.getSecurityServers().forEach(s -> {
+            clients.add(s.getOwner());
+            clients.addAll(s.getClients());
+        });
+        clients.add(newClientId("unknown"));
+
+        return clients;
+    }
+
+    private static List<X509Certificate> parseOcspCerts(List<SharedParameters.OcspInfo> ocsps) {
+        return ocsps.stream()
+                .map(SharedParameters.OcspInfo::getCert)
+                .filter(Objects::nonNull)
+                .map(CryptoUtils::readCertificate)
+                .toList();
+    }
+
     private static ClientId newClientId(String name) {
         return ClientId.Conf.create("EE", "BUSINESS", name);
     }
@@ -38,7 +38,6 @@ import org.bouncycastle.asn1.x509.CRLReason;
 import org.bouncycastle.cert.ocsp.CertificateStatus;
 import org.bouncycastle.cert.ocsp.OCSPResp;
 import org.bouncycastle.cert.ocsp.RevokedStatus;
-import org.bouncycastle.cert.ocsp.SingleResp;
 import org.bouncycastle.cert.ocsp.UnknownStatus;
 import org.junit.Before;
 import org.junit.Rule;
@@ -54,6 +53,7 @@ import java.util.List;
 
 import static ee.ria.xroad.common.ErrorCodes.X_CERT_VALIDATION;
 import static ee.ria.xroad.common.ErrorCodes.X_INCORRECT_VALIDATION_INFO;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
@@ -267,9 +267,33 @@ public class OcspVerifierTest {
         verifier.verifyValidity(ocsp, subject, issuer);
         Field field = OcspVerifier.class.getDeclaredField("RESPONSE_VALIDITY_CACHE");
         field.setAccessible(true);
-        Cache<String, SingleResp> cache = (Cache<String, SingleResp>) field.get(verifier);
+        Cache<?, ?> cache = (Cache<?, ?>) field.get(verifier);
         assertTrue("Cache should be filled", cache != null && cache.size() > 0);
 
+        OcspVerifier.clearCache();
+        assertEquals(0, cache.size());
+    }
+
+    /**
+     * Tests that a response which is already in the verification cache is still checked against
+     * its validity window at the requested date.
+     *
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void cachedResponseValidityWindow() throws Exception {
+        Date thisUpdate = new Date();
+        Date nextUpdate = Date.from(thisUpdate.toInstant().plus(1, ChronoUnit.HOURS));
+        OCSPResp ocsp = OcspTestUtils.createOCSPResponse(subject, issuer,
+                signer, signerKey, CertificateStatus.GOOD,
+                thisUpdate, nextUpdate);
+
+        OcspVerifier verifier =
+                new OcspVerifier(globalConfProvider, new OcspVerifierOptions(true));
+        verifier.verifyValidity(ocsp, subject, issuer, thisUpdate);
+
+        thrown.expectError(X_INCORRECT_VALIDATION_INFO);
+        verifier.verifyValidity(ocsp, subject, issuer, Date.from(nextUpdate.toInstant().plusSeconds(1)));
     }
 
     /**
@@ -0,0 +1,142 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.common.conf.globalconf;
+
+import ee.ria.xroad.common.CodedException;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpStatus;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.util.List;
+import java.util.Map;
+
+import static ee.ria.xroad.common.ErrorCodes.X_HTTP_ERROR;
+
+/**
+ * Configuration parser that downloads the configuration directory with a conditional request. If the directory
+ * has not been modified since it was last parsed, the previously parsed and verified configuration is returned
+ * instead of downloading and verifying the directory again.
+ */
+@Slf4j
+class ConditionalConfigurationParser extends ConfigurationParser {
+
+    private final Map<DirectoryKey, ParsedDirectory> parsedDirectories;
+
+    private ParsedDirectory previous;
+    private String entityTag;
+    private String lastModified;
+
+    ConditionalConfigurationParser(Map<DirectoryKey, ParsedDirectory> parsedDirectories) {
+        this.parsedDirectories = parsedDirectories;
+    }
+
+    @Override
+    public synchronized Configuration parse(ConfigurationLocation location, String... contentIdentifiersToBeHandled)
+            throws Exception {
+        DirectoryKey key = new DirectoryKey(location.getDownloadURL(), List.of(contentIdentifiersToBeHandled));
+
+        previous = parsedDirectories.get(key);
+        if (previous != null && !isReusable(previous, location)) {
+            previous = null;
+        }
+
+        entityTag = null;
+        lastModified = null;
+
+        try {
+            Configuration parsed = super.parse(location, contentIdentifiersToBeHandled);
+
+            if (entityTag != null || lastModified != null) {
+                parsedDirectories.put(key, new ParsedDirectory(entityTag, lastModified, parsed));
+            } else {
+                parsedDirectories.remove(key);
+            }
+
+            return parsed;
+        } catch (DirectoryNotModifiedException e) {
+            log.debug("Configuration directory {} has not been modified", location.getDownloadURL());
+
+            return previous.configuration();
+        }
+    }
+
+    private static boolean isReusable(ParsedDirectory parsedDirectory, ConfigurationLocation location) {
+        // the directory was verified using the certificates of the location it was parsed for
+        return parsedDirectory.configuration().getLocation().equals(location)
+                && !parsedDirectory.configuration().isExpired();
+    }
+
+    @Override
+    protected InputStream getInputStream() throws Exception {
+        try {
+            HttpURLConnection connection = (HttpURLConnection) ConfigurationLocation.getDownloadURLConnection(
+                    configuration.getLocation().getDownloadURL());
+
+            if (previous != null) {
+                if (previous.entityTag() != null) {
+                    connection.setRequestProperty(HttpHeaders.IF_NONE_MATCH, previous.entityTag());
+                }
+
+                if (previous.lastModified() != null) {
+                    connection.setRequestProperty(HttpHeaders.IF_MODIFIED_SINCE, previous.lastModified());
+                }
+            }
+
+            if (previous != null && connection.getResponseCode() == HttpStatus.SC_NOT_MODIFIED) {
+                connection.disconnect();
+
+                throw new DirectoryNotModifiedException();
+            }
+
+            entityTag = connection.getHeaderField(HttpHeaders.ETAG);
+            lastModified = connection.getHeaderField(HttpHeaders.LAST_MODIFIED);
+
+            return connection.getInputStream();
+        } catch (IOException e) {
+            throw new CodedException(X_HTTP_ERROR, e);
+        }
+    }
+
+    /**
+     * Identifies a parsed configuration directory.
+     */
+    record DirectoryKey(String downloadUrl, List<String> contentIdentifiers) {
+    }
+
+    /**
+     * Configuration directory parsed earlier with the validators the server returned for it.
+     */
+    record ParsedDirectory(String entityTag, String lastModified, Configuration configuration) {
+    }
+
+    private static final class DirectoryNotModifiedException extends Exception {
+    }
+}
@@ -26,31 +26,45 @@
 package ee.ria.xroad.common.conf.globalconf;
 
 import ee.ria.xroad.common.CodedException;
+import ee.ria.xroad.common.SystemProperties;
 import ee.ria.xroad.common.crypto.identifier.DigestAlgorithm;
 
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.TeeOutputStream;
 import org.apache.commons.lang3.StringUtils;
 import org.bouncycastle.operator.DigestCalculator;
 
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.HttpURLConnection;
 import java.net.URI;
 import java.net.URL;
 import java.net.URLConnection;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Stream;
 
 import static ee.ria.xroad.common.ErrorCodes.X_IO_ERROR;
@@ -67,9 +81,16 @@ import static ee.ria.xroad.common.util.EncoderUtils.encodeBase64;
  * When there is only one configuration location in the configuration anchor, it
  * is used. If there is more than one configuration location, then, for
  * high-availability concerns, list of configuration locations is shuffled and
- * then traversed to find the first location where configuration * can be
- * downloaded. The successful location is remembered and used first next time
- * the configuration is downloaded.
+ * then traversed to find the first location where configuration can be
+ * downloaded. A location that does not respond within the hedge delay (see
+ * {@link SystemProperties#getConfigurationClientLocationHedgeDelay()}) does not
+ * block the download, the next location is tried alongside it and the first
+ * valid configuration directory is used. The successful location is remembered
+ * and used first next time the configuration is downloaded.
+ * <p>
+ * The configuration directory is downloaded with a conditional request and the
+ * content parts are downloaded in parallel and verified while they are written
+ * to disk.
  */
 @Slf4j
 public class ConfigurationDownloader {
@@ -77,6 +98,8 @@ public class ConfigurationDownloader {
     public static final int READ_TIMEOUT = 30000;
     protected final FileNameProvider fileNameProvider;
     private final Map<String, ConfigurationLocation> successfulLocations = new HashMap<>();
+    private final Map<ConditionalConfigurationParser.DirectoryKey, ConditionalConfigurationParser.ParsedDirectory>
+            parsedDirectories = new ConcurrentHashMap<>();
     private final SharedParametersConfigurationLocations sharedParametersConfigurationLocations;
 
     @Getter
@@ -101,7 +124,7 @@ public class ConfigurationDownloader {
     }
 
     ConfigurationParser getParser() {
-        return new ConfigurationParser();
+        return new ConditionalConfigurationParser(parsedDirectories);
     }
 
     /**
@@ -135,21 +158,70 @@ public class ConfigurationDownloader {
         return downloadResult(prevCachedKey.orElse(null), locations, contentIdentifiers);
     }
 
+    /**
+     * Downloads the configuration directory from the first location. If the location fails or does not respond
+     * within the hedge delay, the directory is also requested from the next location. The content is downloaded
+     * from the location that first returns a valid directory, the other requests are cancelled.
+     */
     private DownloadResult downloadResult(String prevCachedKey, List<ConfigurationLocation> locations, String... contentIdentifiers) {
         DownloadResult result = new DownloadResult();
-        for (ConfigurationLocation location : locations) {
-            String cacheKey = prevCachedKey != null ? prevCachedKey : location.getDownloadURL();
+        if (locations.isEmpty()) {
+            return result.failure();
+        }
+
+        final long hedgeDelay = SystemProperties.getConfigurationClientLocationHedgeDelay();
+
+        final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        try {
+            final CompletionService<Configuration> directories = new ExecutorCompletionService<>(executor);
+            final Map<Future<Configuration>, ConfigurationLocation> pending = new HashMap<>();
+            final Iterator<ConfigurationLocation> next = locations.iterator();
+
+            ConfigurationLocation first = next.next();
+            pending.put(directories.submit(() -> downloadDirectory(first, contentIdentifiers)), first);
 
             try {
-                location = toVersionedLocation(location);
-                Configuration config = download(location, contentIdentifiers);
-                rememberLastSuccessfulLocation(cacheKey, location);
-                return result.success(config);
-            } catch (Exception e) {
-                log.warn("Unable to download Global Configuration. Because {}", e.toString());
-                successfulLocations.remove(cacheKey);
-                result.addFailure(location, e);
+                while (!pending.isEmpty()) {
+                    Future<Configuration> done;
+                    if (next.hasNext()) {
+                        done = directories.poll(hedgeDelay, TimeUnit.MILLISECONDS);
+                        if (done == null) {
+                            ConfigurationLocation location = next.next();
+                            log.debug("No configuration directory in time, also trying {}", location.getDownloadURL());
+                            pending.put(directories.submit(() -> downloadDirectory(location, contentIdentifiers)), location);
+                            continue;
+                        }
+                    } else {
+                        done = directories.take();
+                    }
+
+                    ConfigurationLocation location = pending.remove(done);
+                    String cacheKey = prevCachedKey != null ? prevCachedKey : location.getDownloadURL();
+
+                    try {
+                        Configuration config = downloadAndPersistContent(getResult(done));
+                        rememberLastSuccessfulLocation(cacheKey, config.getLocation());
+                        return result.success(config);
+                    } catch (Exception e) {
+                        log.warn("Unable to download Global Configuration. Because {}", e.toString());
+                        successfulLocations.remove(cacheKey);
+                        result.addFailure(location, e);
+
+                        if (next.hasNext()) {
+                            ConfigurationLocation nextLocation = next.next();
+                            pending.put(directories.submit(() -> downloadDirectory(nextLocation, contentIdentifiers)),
+                                    nextLocation);
+                        }
+                    }
+                }
+            } finally {
+                pending.keySet().forEach(f -> f.cancel(true));
             }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            // do not wait for the cancelled requests
+            executor.shutdownNow();
         }
         return result.failure();
     }
@@ -170,55 +242,101 @@ public class ConfigurationDownloader {
         successfulLocations.put(cacheKey, location);
     }
 
-    Configuration download(ConfigurationLocation location, String[] contentIdentifiers) throws Exception {
-        log.info("Downloading configuration from {}", location.getDownloadURL());
+    private Configuration downloadDirectory(ConfigurationLocation location, String[] contentIdentifiers) throws Exception {
+        ConfigurationLocation versionedLocation = toVersionedLocation(location);
+        log.info("Downloading configuration from {}", versionedLocation.getDownloadURL());
 
-        Configuration configuration = getParser().parse(location, contentIdentifiers);
+        return getParser().parse(versionedLocation, contentIdentifiers);
+    }
 
-        // first download all parts into memory and verify then
-        List<DownloadedContent> downloadedContents = downloadAllContent(configuration);
+    private Configuration downloadAndPersistContent(Configuration configuration) throws Exception {
+        Path stagingDir = createStagingDir();
+        try {
+            // first download all parts to the staging directory and verify them
+            List<DownloadedContent> downloadedContents = downloadAllContent(configuration, stagingDir);
 
-        // when everything is ok save contents and/or update expiry dates
-        Set<Path> neededFiles = persistAllContent(downloadedContents);
+            // when everything is ok save contents and/or update expiry dates
+            Set<Path> neededFiles = persistAllContent(downloadedContents);
 
-        deleteExtraFiles(configuration.getInstanceIdentifier(), neededFiles);
+            deleteExtraFiles(configuration.getInstanceIdentifier(), neededFiles);
 
-        return configuration;
+            return configuration;
+        } finally {
+            FileUtils.deleteQuietly(stagingDir.toFile());
+        }
+    }
+
+    private static Path createStagingDir() throws IOException {
+        Path tempFilesPath = Paths.get(SystemProperties.getTempFilesPath());
+        Files.createDirectories(tempFilesPath);
+
+        return Files.createTempDirectory(tempFilesPath, "conf");
     }
 
     /**
      * Download all configuration files if the conditions are met {@link #shouldDownload(ConfigurationFile, Path)}.
+     * The files are downloaded in parallel (see {@link SystemProperties#getConfigurationClientContentDownloadThreads()}).
      *
      * @param configuration configuration object with details about the configuration download location
+     * @param stagingDir    directory where the downloaded files are kept until they are persisted
      * @return list of downloaded content
      * @throws Exception in case downloading or handling a file fails
      */
-    List<DownloadedContent> downloadAllContent(Configuration configuration) throws Exception {
+    List<DownloadedContent> downloadAllContent(Configuration configuration, Path stagingDir) throws Exception {
         log.trace("downloadAllContent");
 
-        List<DownloadedContent> result = new ArrayList<>();
+        List<ConfigurationFile> files = configuration.getFiles();
         ConfigurationLocation location = configuration.getLocation();
 
         var contentHandler = ContentHandler.forVersion(configuration.getVersion());
 
-        for (ConfigurationFile file : configuration.getFiles()) {
-            Path contentFileName = fileNameProvider.getFileName(file);
-            if (shouldDownload(file, contentFileName)) {
-                byte[] content = downloadContent(location, file);
+        int threads = Math.max(1, Math.min(files.size(), SystemProperties.getConfigurationClientContentDownloadThreads()));
+        ExecutorService executor = Executors.newFixedThreadPool(threads, Thread.ofVirtual().name("conf-content-", 0).factory());
+        List<Future<Path>> downloads = new ArrayList<>(files.size());
+        try {
+            for (ConfigurationFile file : files) {
+                downloads.add(executor.submit(() -> downloadIfChanged(location, file, stagingDir)));
+            }
+
+            List<DownloadedContent> result = new ArrayList<>(files.size());
+            for (int i = 0; i < files.size(); i++) {
+                ConfigurationFile file = files.get(i);
+                Path content = getResult(downloads.get(i));
 
-                verifyContent(content, file);
                 validateContent(file);
-                contentHandler.handleContent(content, file);
+                if (content != null) {
+                    contentHandler.handleContent(content, file);
+                }
 
                 result.add(new DownloadedContent(file, content));
-            } else {
-                log.trace("{} is up to date", file.getContentLocation());
-                validateContent(file);
-                result.add(new DownloadedContent(file, null));
             }
+
+            return result;
+        } catch (Exception e) {
+            downloads.forEach(download -> download.cancel(true));
+            throw e;
+        } finally {
+            // wait for the cancelled downloads so that nothing is written to the staging directory afterwards
+            executor.close();
         }
+    }
 
-        return result;
+    private Path downloadIfChanged(ConfigurationLocation location, ConfigurationFile file, Path stagingDir) throws Exception {
+        Path contentFileName = fileNameProvider.getFileName(file);
+        if (shouldDownload(file, contentFileName)) {
+            return downloadContent(location, file, Files.createTempFile(stagingDir, "conf", null));
+        }
+
+        log.trace("{} is up to date", file.getContentLocation());
+        return null;
+    }
+
+    private static <T> T getResult(Future<T> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception cause ? cause : e;
+        }
     }
 
     Set<Path> persistAllContent(List<DownloadedContent> downloadedContents) throws Exception {
@@ -256,10 +374,11 @@ public class ConfigurationDownloader {
     protected static class DownloadedContent {
         ConfigurationFile file;
 
-        // if null content was not downloaded as it was not changed
-        byte[] content;
+        // if null content was not downloaded as it was not changed,
+        // otherwise the verified content staged on disk
+        Path content;
 
-        DownloadedContent(ConfigurationFile file, byte[] content) {
+        DownloadedContent(ConfigurationFile file, Path content) {
             this.file = file;
             this.content = content;
         }
@@ -309,21 +428,33 @@ public class ConfigurationDownloader {
         return this.locationVersionResolver(location).toVersionedLocation();
     }
 
-    byte[] downloadContent(ConfigurationLocation location, ConfigurationFile file) throws Exception {
+    /**
+     * Downloads the content to the given file, calculating the hash of the content while it is written.
+     *
+     * @return the file holding the verified content
+     */
+    Path downloadContent(ConfigurationLocation location, ConfigurationFile file, Path destination) throws Exception {
+        DigestCalculator dc = createDigestCalculator(file.getHashAlgorithmId());
+
+        try (InputStream in = openContent(location, file);
+             OutputStream out = new TeeOutputStream(Files.newOutputStream(destination), dc.getOutputStream())) {
+            IOUtils.copy(in, out);
+        }
+
+        verifyContent(dc.getDigest(), file);
+
+        return destination;
+    }
+
+    InputStream openContent(ConfigurationLocation location, ConfigurationFile file) throws Exception {
         URLConnection connection = getDownloadURLConnection(getDownloadURL(location, file));
         log.info("Downloading content from {}", connection.getURL());
-        try (InputStream in = connection.getInputStream()) {
-            return IOUtils.toByteArray(in);
-        }
+        return connection.getInputStream();
     }
 
-    void verifyContent(byte[] content, ConfigurationFile file) throws Exception {
+    void verifyContent(byte[] hash, ConfigurationFile file) throws Exception {
         log.trace("verifyContent({}, {})", file.getHash(), file.getHashAlgorithmId());
 
-        DigestCalculator dc = createDigestCalculator(file.getHashAlgorithmId());
-        dc.getOutputStream().write(content);
-
-        byte[] hash = dc.getDigest();
         if (!Arrays.equals(hash, decodeBase64(file.getHash()))) {
             log.trace("Content {} hash {} does not match expected hash {}", file, encodeBase64(hash), file.getHash());
             throw new CodedException(X_IO_ERROR, "Failed to verify content integrity (%s)", file);
@@ -334,7 +465,7 @@ public class ConfigurationDownloader {
         //make possible with current structure to be overridden and validations called
     }
 
-    void persistContent(byte[] content, Path destination, ConfigurationFile file) throws Exception {
+    void persistContent(Path content, Path destination, ConfigurationFile file) throws Exception {
         log.info("Saving {} to {}", file, destination);
 
         ConfigurationDirectory.save(destination, content, file.getMetadata());
@@ -31,6 +31,8 @@ import ee.ria.xroad.common.CodedException;
 import org.apache.commons.lang3.StringUtils;
 
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.security.cert.CertificateEncodingException;
 
 import static ee.ria.xroad.common.ErrorCodes.X_MALFORMED_GLOBALCONF;
@@ -54,6 +56,16 @@ final class ContentHandler {
         return parametersProviderFactory.sharedParametersProvider(content);
     }
 
+    void handleContent(Path content, ConfigurationFile file) throws CertificateEncodingException, IOException {
+        switch (file.getContentIdentifier()) {
+            case ConfigurationConstants.CONTENT_ID_PRIVATE_PARAMETERS, ConfigurationConstants.CONTENT_ID_SHARED_PARAMETERS:
+                handleContent(Files.readAllBytes(content), file);
+                break;
+            default:
+                break;
+        }
+    }
+
     void handleContent(byte[] content, ConfigurationFile file) throws CertificateEncodingException, IOException {
         switch (file.getContentIdentifier()) {
             case ConfigurationConstants.CONTENT_ID_PRIVATE_PARAMETERS:
@@ -26,10 +26,12 @@
 package ee.ria.xroad.common.conf.globalconf;
 
 import ee.ria.xroad.common.CodedException;
+import ee.ria.xroad.common.SystemProperties;
 import ee.ria.xroad.common.TestCertUtil;
 
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.io.IOUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 
@@ -59,6 +61,19 @@ class ConfigurationClientTest {
     @TempDir
     File tempDir;
 
+    @TempDir
+    File tempFilesDir;
+
+    @BeforeEach
+    void setUp() {
+        System.setProperty(SystemProperties.TEMP_FILES_PATH, tempFilesDir.getAbsolutePath());
+    }
+
+    @AfterEach
+    void tearDown() {
+        System.clearProperty(SystemProperties.TEMP_FILES_PATH);
+    }
+
     /**
      * Test to ensure a simple configuration will be downloaded.
      *
@@ -189,7 +204,7 @@ class ConfigurationClientTest {
             }
 
             @Override
-            void persistContent(byte[] content, Path destination, ConfigurationFile file) throws Exception {
+            void persistContent(Path content, Path destination, ConfigurationFile file) throws Exception {
                 receivedParts.add(file.getContentIdentifier());
                 super.persistContent(content, destination, file);
             }
@@ -199,11 +214,8 @@ class ConfigurationClientTest {
             }
 
             @Override
-            byte[] downloadContent(ConfigurationLocation location, ConfigurationFile file) throws Exception {
-                try (InputStream in = Files.newInputStream(
-                        Paths.get(confPath, file.getInstanceIdentifier(), file.getContentLocation()))) {
-                    return IOUtils.toByteArray(in);
-                }
+            InputStream openContent(ConfigurationLocation location, ConfigurationFile file) throws Exception {
+                return Files.newInputStream(Paths.get(confPath, file.getInstanceIdentifier(), file.getContentLocation()));
             }
         };
 
@@ -0,0 +1,207 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.common.conf.globalconf;
+
+import ee.ria.xroad.common.CodedException;
+import ee.ria.xroad.common.SystemProperties;
+import ee.ria.xroad.common.TestCertUtil;
+import ee.ria.xroad.common.crypto.identifier.SignAlgorithm;
+
+import com.github.tomakehurst.wiremock.junit5.WireMockExtension;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.Signature;
+import java.time.Instant;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.absent;
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.equalTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.ok;
+import static com.github.tomakehurst.wiremock.client.WireMock.status;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
+import static ee.ria.xroad.common.ErrorCodes.X_IO_ERROR;
+import static ee.ria.xroad.common.util.EncoderUtils.encodeBase64;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for downloading configuration over HTTP from one or more configuration locations.
+ */
+class ConfigurationDownloaderHttpTest {
+    private static final int VERSION = 3;
+    private static final int SLOW_LOCATION_DELAY = 5000;
+
+    @RegisterExtension
+    static WireMockExtension location1 = WireMockExtension.newInstance()
+            .options(wireMockConfig().dynamicPort())
+            .build();
+
+    @RegisterExtension
+    static WireMockExtension location2 = WireMockExtension.newInstance()
+            .options(wireMockConfig().dynamicPort())
+            .build();
+
+    @TempDir
+    Path globalConfDir;
+
+    @TempDir
+    Path tempFilesDir;
+
+    @BeforeEach
+    void setUp() {
+        System.setProperty(SystemProperties.TEMP_FILES_PATH, tempFilesDir.toString());
+        System.setProperty(SystemProperties.CONFIGURATION_CLIENT_LOCATION_HEDGE_DELAY, "100");
+    }
+
+    @AfterEach
+    void tearDown() {
+        System.clearProperty(SystemProperties.TEMP_FILES_PATH);
+        System.clearProperty(SystemProperties.CONFIGURATION_CLIENT_LOCATION_HEDGE_DELAY);
+    }
+
+    @Test
+    void slowLocationDoesNotBlockDownload() throws Exception {
+        String directory = signedDirectory(part("FOO", "/foo.xml", "foo"), part("BAR", "/bar.xml", "bar"));
+        location1.stubFor(get(urlPathEqualTo("/conf")).willReturn(ok(directory).withFixedDelay(SLOW_LOCATION_DELAY)));
+        location2.stubFor(get(urlPathEqualTo("/conf")).willReturn(ok(directory)));
+        location2.stubFor(get(urlEqualTo("/foo.xml")).willReturn(ok("foo")));
+        location2.stubFor(get(urlEqualTo("/bar.xml")).willReturn(ok("bar")));
+
+        long started = System.currentTimeMillis();
+        DownloadResult result = new ConfigurationDownloader(globalConfDir.toString(), VERSION)
+                .download(source(location1, location2));
+
+        assertThat(result.isSuccess()).isTrue();
+        assertThat(System.currentTimeMillis() - started).isLessThan(SLOW_LOCATION_DELAY);
+        assertThat(result.getConfiguration().getLocation().getDownloadURL()).startsWith(location2.baseUrl());
+        assertThat(globalConfDir.resolve("EE/foo.xml")).hasContent("foo");
+        assertThat(globalConfDir.resolve("EE/bar.xml")).hasContent("bar");
+        assertThat(tempFilesDir).isEmptyDirectory();
+    }
+
+    @Test
+    void notModifiedDirectoryIsReused() throws Exception {
+        String directory = signedDirectory(part("FOO", "/foo.xml", "foo"));
+        location1.stubFor(get(urlPathEqualTo("/conf")).withHeader("If-None-Match", absent())
+                .willReturn(ok(directory).withHeader("ETag", "\"1\"")));
+        location1.stubFor(get(urlPathEqualTo("/conf")).withHeader("If-None-Match", equalTo("\"1\""))
+                .willReturn(status(304)));
+        location1.stubFor(get(urlEqualTo("/foo.xml")).willReturn(ok("foo")));
+
+        ConfigurationDownloader downloader = new ConfigurationDownloader(globalConfDir.toString(), VERSION);
+        DownloadResult first = downloader.download(source(location1));
+        DownloadResult second = downloader.download(source(location1));
+
+        assertThat(first.isSuccess()).isTrue();
+        assertThat(second.isSuccess()).isTrue();
+        assertThat(second.getConfiguration()).isSameAs(first.getConfiguration());
+        location1.verify(1, getRequestedFor(urlPathEqualTo("/conf")).withHeader("If-None-Match", equalTo("\"1\"")));
+        location1.verify(1, getRequestedFor(urlEqualTo("/foo.xml")));
+        assertThat(globalConfDir.resolve("EE/foo.xml")).hasContent("foo");
+    }
+
+    @Test
+    void contentWithInvalidHashIsRejected() throws Exception {
+        location1.stubFor(get(urlPathEqualTo("/conf")).willReturn(ok(signedDirectory(part("FOO", "/foo.xml", "foo")))));
+        location1.stubFor(get(urlEqualTo("/foo.xml")).willReturn(aResponse().withBody("tampered")));
+
+        DownloadResult result = new ConfigurationDownloader(globalConfDir.toString(), VERSION)
+                .download(source(location1));
+
+        assertThat(result.isSuccess()).isFalse();
+        assertThat(result.getExceptions().values())
+                .singleElement()
+                .isInstanceOfSatisfying(CodedException.class, e -> assertThat(e.getFaultCode()).isEqualTo(X_IO_ERROR));
+        assertThat(globalConfDir.resolve("EE/foo.xml")).doesNotExist();
+        assertThat(tempFilesDir).isEmptyDirectory();
+    }
+
+    private static ConfigurationSource source(WireMockExtension... locations) throws Exception {
+        List<byte[]> verificationCerts = List.of(TestCertUtil.getConsumer().certChain[0].getEncoded());
+        List<ConfigurationLocation> configurationLocations = List.of(locations).stream()
+                .map(location -> new ConfigurationLocation("EE", location.baseUrl() + "/conf", verificationCerts))
+                .toList();
+
+        return new ConfigurationSource() {
+            @Override
+            public String getInstanceIdentifier() {
+                return "EE";
+            }
+
+            @Override
+            public List<ConfigurationLocation> getLocations() {
+                return configurationLocations;
+            }
+        };
+    }
+
+    private static String part(String contentIdentifier, String contentLocation, String content) throws Exception {
+        return "--innerboundary\n"
+                + "Content-type: application/octet-stream\n"
+                + "Content-transfer-encoding: base64\n"
+                + "Content-identifier: " + contentIdentifier + "; instance=\"EE\"\n"
+                + "Content-location: " + contentLocation + "\n"
+                + "Hash-algorithm-id: http://www.w3.org/2001/04/xmlenc#sha512\n\n"
+                + GenerateTestData.hash(content);
+    }
+
+    private static String signedDirectory(String... parts) throws Exception {
+        String expireDate = DateTimeFormatter.ISO_INSTANT.format(Instant.now().plus(1, ChronoUnit.DAYS).truncatedTo(ChronoUnit.SECONDS));
+        String signedData = "--innerboundary\nExpire-date: " + expireDate + "\n\n"
+                + "\n" + String.join("\n", parts);
+
+        Signature signature = Signature.getInstance(SignAlgorithm.SHA512_WITH_RSA.name());
+        signature.initSign(TestCertUtil.getConsumer().key);
+        signature.update(signedData.getBytes(StandardCharsets.UTF_8));
+
+        return "Content-Type: multipart/related; charset=UTF-8;boundary=envelopeboundary\n\n"
+                + "--envelopeboundary\n"
+                + "Content-Type: multipart/mixed; charset=UTF-8;boundary=innerboundary\n\n"
+                + signedData
+                + "\n--envelopeboundary\n"
+                + "Content-type: application/octet-stream\n"
+                + "Content-transfer-encoding: base64\n"
+                + "Signature-algorithm-id: http://www.w3.org/2001/04/xmldsig-more#rsa-sha512\n"
+                + "Verification-certificate-hash: "
+                + GenerateTestData.hash(TestCertUtil.getConsumer().certChain[0].getEncoded())
+                + "; hash-algorithm-id=\"http://www.w3.org/2001/04/xmlenc#sha512\"\n"
+                + "\n" + encodeBase64(signature.sign()) + "\n"
+                + "--envelopeboundary--";
+    }
+}
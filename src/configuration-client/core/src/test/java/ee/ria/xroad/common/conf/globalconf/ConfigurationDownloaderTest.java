@@ -33,7 +33,10 @@ import org.hamcrest.Description;
 import org.hamcrest.Matcher;
 import org.hamcrest.MatcherAssert;
 import org.hamcrest.TypeSafeMatcher;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 import javax.net.ssl.HostnameVerifier;
 import javax.net.ssl.HttpsURLConnection;
@@ -41,6 +44,7 @@ import javax.net.ssl.HttpsURLConnection;
 import java.io.IOException;
 import java.net.URL;
 import java.net.URLConnection;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -58,6 +62,19 @@ class ConfigurationDownloaderTest {
     private static final String LOCATION_URL_SUCCESS = "http://x-road.global/";
     private static final String LOCATION_HTTPS_URL_SUCCESS = "https://x-road.global/";
 
+    @TempDir
+    Path tempFilesDir;
+
+    @BeforeEach
+    void setUp() {
+        System.setProperty(SystemProperties.TEMP_FILES_PATH, tempFilesDir.toString());
+    }
+
+    @AfterEach
+    void tearDown() {
+        System.clearProperty(SystemProperties.TEMP_FILES_PATH);
+    }
+
     /**
      * For better HA, the order of sources to be tried to download configuration
      * from, must be random.
@@ -29,24 +29,29 @@ import ee.ria.xroad.common.util.JsonUtils;
 import ee.ria.xroad.common.util.RequestWrapper;
 
 import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.databind.ObjectReader;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.io.IOUtils;
-import org.apache.commons.lang3.StringUtils;
+import org.eclipse.jetty.http.HttpHeader;
 
-import java.nio.charset.StandardCharsets;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
+import java.util.zip.GZIPInputStream;
 
 import static ee.ria.xroad.common.util.TimeUtils.getEpochSecond;
 
 /**
- * The processor class for store operational monitoring data (JSON) requests.
+ * The processor class for store operational monitoring data (JSON) requests. The request body may be gzip
+ * compressed, in which case it is decompressed while parsed.
  */
 @Slf4j
 class StoreRequestProcessor {
 
     private static final ObjectReader OBJECT_READER = JsonUtils.getObjectReader();
 
+    private static final String GZIP_ENCODING = "gzip";
+
     /**
      * The servlet request.
      */
@@ -70,12 +75,10 @@ class StoreRequestProcessor {
      * @throws Exception in case of any errors
      */
     void process() throws Exception {
-        String rawJson = IOUtils.toString(request.getInputStream(),
-                StandardCharsets.UTF_8);
-
-        log.trace("Incoming JSON: {}", rawJson);
+        String contentEncoding = request.getHeaders().get(HttpHeader.CONTENT_ENCODING);
 
-        List<OperationalDataRecord> records = prepareRawStoreData(rawJson);
+        List<OperationalDataRecord> records = prepareRawStoreData(
+                request.getInputStream(), contentEncoding);
 
         log.debug("Process {} record{}", records.size(),
                 records.size() == 1 ? "" : "s");
@@ -86,23 +89,43 @@ class StoreRequestProcessor {
     }
 
     // Get usable operational data to be stored. If no such data is found,
-    // send an error message right away.
-    private static List<OperationalDataRecord> prepareRawStoreData(
-            String rawJsonData) throws Exception {
-        if (StringUtils.isBlank(rawJsonData)) {
-            throw new Exception(
-                    "No data was found in the request to store data");
+    // send an error message right away. The records are parsed directly
+    // from the request stream without reading the whole body first.
+    static List<OperationalDataRecord> prepareRawStoreData(
+            InputStream body, String contentEncoding) throws Exception {
+        try (InputStream in = decode(body, contentEncoding);
+             JsonParser parser = OBJECT_READER.createParser(in)) {
+            if (parser.nextToken() == null) {
+                throw new Exception(
+                        "No data was found in the request to store data");
+            }
+
+            OperationalDataRecords records;
+
+            try {
+                records = OBJECT_READER.readValue(parser, OperationalDataRecords.class);
+            } catch (Exception e) {
+                throw new Exception("Received invalid request", e);
+            }
+
+            return records.getRecords();
         }
+    }
 
-        OperationalDataRecords records;
+    private static InputStream decode(InputStream body, String contentEncoding) throws Exception {
+        if (contentEncoding == null || contentEncoding.isBlank()) {
+            return body;
+        }
 
-        try {
-            records = OBJECT_READER.readValue(rawJsonData, OperationalDataRecords.class);
-        } catch (Exception e) {
-            throw new Exception("Received invalid request", e);
+        if (GZIP_ENCODING.equalsIgnoreCase(contentEncoding.trim())) {
+            try {
+                return new GZIPInputStream(body);
+            } catch (IOException e) {
+                throw new Exception("Received invalid request", e);
+            }
         }
 
-        return records.getRecords();
+        throw new Exception("Unsupported content encoding " + contentEncoding);
     }
 
 }
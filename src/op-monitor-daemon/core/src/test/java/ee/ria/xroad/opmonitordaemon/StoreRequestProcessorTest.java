@@ -0,0 +1,88 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.opmonitordaemon;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+/**
+ * Tests decoding of store operational monitoring data requests.
+ */
+public class StoreRequestProcessorTest {
+
+    private static final String RECORDS_JSON = "{\"records\":["
+            + "{\"serviceCode\":\"trains\",\"securityServerType\":\"Producer\",\"requestInTs\":1619523069297},"
+            + "{\"serviceCode\":\"buses\",\"securityServerType\":\"Client\",\"requestInTs\":1619523069298}]}";
+
+    @Test
+    public void parsePlainRequest() throws Exception {
+        List<OperationalDataRecord> records = StoreRequestProcessor.prepareRawStoreData(
+                new ByteArrayInputStream(RECORDS_JSON.getBytes(UTF_8)), null);
+
+        assertEquals(2, records.size());
+        assertEquals("trains", records.get(0).getServiceCode());
+        assertEquals("buses", records.get(1).getServiceCode());
+    }
+
+    @Test
+    public void parseGzipRequest() throws Exception {
+        List<OperationalDataRecord> records = StoreRequestProcessor.prepareRawStoreData(gzip(RECORDS_JSON), "gzip");
+
+        assertEquals(2, records.size());
+        assertEquals(Long.valueOf(1619523069298L), records.get(1).getRequestInTs());
+    }
+
+    @Test
+    public void emptyRequestIsRejected() {
+        Exception e = assertThrows(Exception.class, () -> StoreRequestProcessor.prepareRawStoreData(
+                new ByteArrayInputStream(" ".getBytes(UTF_8)), null));
+
+        assertEquals("No data was found in the request to store data", e.getMessage());
+    }
+
+    @Test
+    public void unsupportedEncodingIsRejected() {
+        assertThrows(Exception.class, () -> StoreRequestProcessor.prepareRawStoreData(
+                new ByteArrayInputStream(RECORDS_JSON.getBytes(UTF_8)), "br"));
+    }
+
+    private static InputStream gzip(String json) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(json.getBytes(UTF_8));
+        }
+        return new ByteArrayInputStream(bytes.toByteArray());
+    }
+}
@@ -30,6 +30,11 @@ import ee.ria.xroad.common.SystemProperties;
 import ee.ria.xroad.common.crypto.identifier.SignAlgorithm;
 import ee.ria.xroad.signer.SignerProxy;
 
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.SlidingTimeWindowArrayReservoir;
+import com.codahale.metrics.jmx.JmxReporter;
 import lombok.Data;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
@@ -37,12 +42,12 @@ import org.springframework.beans.factory.DisposableBean;
 
 import java.security.cert.X509Certificate;
 import java.util.ArrayList;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
@@ -58,31 +63,72 @@ import static ee.ria.xroad.common.util.CryptoUtils.calculateCertHexHash;
  * <p>
  * Moreover, multiple signing requests for the same signing certificate
  * (and thus the same key id) are signed in batch and the resulting hash
- * chain is produced for each request.
+ * chain is produced for each request. Under concurrent load the worker keeps
+ * the batch open for at most {@link SystemProperties#getBatchSignerMaxLatency()}
+ * milliseconds or until {@link SystemProperties#getBatchSignerMaxBatchSize()}
+ * requests have been collected. Isolated requests are signed immediately.
  */
 @Slf4j
 public class BatchSigner implements DisposableBean {
 
     private static final int TIMEOUT_MILLIS = SystemProperties.getSignerClientTimeout();
 
+    private static final int BATCH_SIZE_STATS_PERIOD_SECONDS = 60;
+
     private static BatchSigner instance;
 
     private final Map<String, WorkerImpl> workers = new ConcurrentHashMap<>();
 
+    private final MetricRegistry metricRegistry = new MetricRegistry();
+    private final JmxReporter reporter = JmxReporter.forRegistry(metricRegistry).build();
+
+    private final KeySigner keySigner;
+
+    private BatchSigner(KeySigner keySigner) {
+        this.keySigner = keySigner;
+        reporter.start();
+    }
+
     public static BatchSigner init() {
-        instance = new BatchSigner();
+        return init(SIGNER_PROXY);
+    }
+
+    static BatchSigner init(KeySigner keySigner) {
+        instance = new BatchSigner(keySigner);
         return instance;
     }
 
+    /**
+     * Signs digests with the keys of the signer.
+     */
+    interface KeySigner {
+        boolean isBatchSigningEnabled(String keyId) throws Exception;
+
+        byte[] sign(String keyId, SignAlgorithm signatureAlgorithmId, byte[] digest) throws Exception;
+    }
+
+    private static final KeySigner SIGNER_PROXY = new KeySigner() {
+        @Override
+        public boolean isBatchSigningEnabled(String keyId) throws Exception {
+            return SignerProxy.isTokenBatchSigningEnabled(keyId);
+        }
+
+        @Override
+        public byte[] sign(String keyId, SignAlgorithm signatureAlgorithmId, byte[] digest) throws Exception {
+            return SignerProxy.sign(keyId, signatureAlgorithmId, digest);
+        }
+    };
+
     @Override
     public void destroy() {
         if (instance != null) {
             instance.workers.values().forEach(WorkerImpl::stop);
         }
+        reporter.stop();
     }
 
     /**
-     * Submits the given signing request for batch signing.
+     * Submits the given signing request for batch signing and waits for the result.
      *
      * @param keyId                the signing key
      * @param signatureAlgorithmId ID of the signature algorithm to use
@@ -92,21 +138,65 @@ public class BatchSigner implements DisposableBean {
      */
     public static SignatureData sign(String keyId, SignAlgorithm signatureAlgorithmId, SigningRequest request)
             throws Exception {
+        try {
+            return signAsync(keyId, signatureAlgorithmId, request).get();
+        } catch (ExecutionException executionException) {
+            Throwable cause = executionException.getCause();
+
+            if (cause instanceof TimeoutException) {
+                throw new CodedException(X_INTERNAL_ERROR, "Signature creation timed out");
+            } else if (cause instanceof Exception exception) {
+                throw exception;
+            }
+
+            throw executionException;
+        }
+    }
+
+    /**
+     * Submits the given signing request for batch signing without blocking the caller.
+     * The returned future is completed exceptionally with {@link TimeoutException} if the
+     * signature is not created within the signer client timeout.
+     *
+     * @param keyId                the signing key
+     * @param signatureAlgorithmId ID of the signature algorithm to use
+     * @param request              the signing request
+     * @return future that is completed with the signature data
+     */
+    public static CompletableFuture<SignatureData> signAsync(String keyId, SignAlgorithm signatureAlgorithmId,
+                                                             SigningRequest request) {
         if (instance == null) {
-            throw new IllegalStateException("BatchSigner is not initialized");
+            return CompletableFuture.failedFuture(new IllegalStateException("BatchSigner is not initialized"));
         }
 
         CompletableFuture<SignatureData> completableFuture = new CompletableFuture<>();
         final SigningRequestWrapper signRequestWrapper = new SigningRequestWrapper(
                 completableFuture,
                 keyId, signatureAlgorithmId, request);
-        instance.handle(signRequestWrapper);
 
         try {
-            return completableFuture.get(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
-        } catch (TimeoutException timeoutException) {
-            throw new CodedException(X_INTERNAL_ERROR, "Signature creation timed out");
+            instance.handle(signRequestWrapper);
+        } catch (Exception e) {
+            completableFuture.completeExceptionally(e);
         }
+
+        return completableFuture.orTimeout(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Returns the registry holding the queue depth gauges and batch size histograms of the workers. There is a worker
+     * for every signing certificate, the metrics are named {@code batchSigner.<certHash>.queueDepth} and
+     * {@code batchSigner.<certHash>.batchSize} after the SHA-256 hash of the certificate. The metrics are
+     * reported over JMX.
+     *
+     * @return the metric registry
+     */
+    public static MetricRegistry getMetricRegistry() {
+        if (instance == null) {
+            throw new IllegalStateException("BatchSigner is not initialized");
+        }
+
+        return instance.metricRegistry;
     }
 
     private void handle(SigningRequestWrapper signRequest) {
@@ -122,7 +212,7 @@ public class BatchSigner implements DisposableBean {
 
             return workers.computeIfAbsent(name, key -> {
                 log.trace("Creating new worker for cert '{}'", name);
-                return new WorkerImpl(signRequest.getKeyId());
+                return new WorkerImpl(name, signRequest.getKeyId(), keySigner, metricRegistry);
             });
         } catch (Exception e) {
             throw new RuntimeException("Unable to get worker", e);
@@ -134,21 +224,37 @@ public class BatchSigner implements DisposableBean {
      */
     private static class WorkerImpl {
 
+        private final KeySigner keySigner;
         private final boolean batchSigningEnabled;
+        private final int maxBatchSize = SystemProperties.getBatchSignerMaxBatchSize();
+        private final long maxLatencyNanos = TimeUnit.MILLISECONDS.toNanos(SystemProperties.getBatchSignerMaxLatency());
         private final BlockingQueue<SigningRequestWrapper> requestsQueue = new LinkedBlockingQueue<>();
-        private boolean stopping;
+        private final Histogram batchSizes;
+        private volatile boolean stopping;
+        private int lastBatchSize;
         private final Thread workerThread;
 
-        protected WorkerImpl(String keyId) {
+        protected WorkerImpl(String certHash, String keyId, KeySigner keySigner, MetricRegistry metricRegistry) {
+            this.keySigner = keySigner;
+
             try {
-                batchSigningEnabled = SignerProxy.isTokenBatchSigningEnabled(keyId);
+                batchSigningEnabled = keySigner.isBatchSigningEnabled(keyId);
             } catch (Exception e) {
                 log.error("Failed to query if batch signing is enabled for token with key {}", keyId, e);
                 throw new RuntimeException(e);
             }
-            workerThread = new Thread(this::process);
-            workerThread.setDaemon(true);
-            workerThread.start();
+
+            batchSizes = metricRegistry.histogram(MetricRegistry.name("batchSigner", certHash, "batchSize"),
+                    () -> new Histogram(new SlidingTimeWindowArrayReservoir(BATCH_SIZE_STATS_PERIOD_SECONDS,
+                            TimeUnit.SECONDS)));
+            metricRegistry.gauge(MetricRegistry.name("batchSigner", certHash, "queueDepth"),
+                    () -> (Gauge<Integer>) requestsQueue::size);
+
+            // The worker spends most of its time waiting for the queue or the signer,
+            // so it does not need a platform thread of its own.
+            workerThread = Thread.ofVirtual()
+                    .name("batch-signer-" + keyId)
+                    .start(this::process);
         }
 
         public void handleSignRequest(SigningRequestWrapper signRequest) {
@@ -177,25 +283,59 @@ public class BatchSigner implements DisposableBean {
         }
 
         private boolean isExpired(SigningRequestWrapper requestWrapper) {
-            // do not sign requests if timeout is already passed.
-            return System.currentTimeMillis() - requestWrapper.getCreatedOn() > TIMEOUT_MILLIS;
+            // do not sign requests if timeout is already passed or the client has given up.
+            return requestWrapper.getClientFuture().isDone()
+                    || System.currentTimeMillis() - requestWrapper.getCreatedOn() > TIMEOUT_MILLIS;
         }
 
-        private synchronized void process() {
+        /**
+         * Collects the next batch starting with the given request. If the previous or the current
+         * batch contained more than one request, the signing is under concurrent load and the batch
+         * is kept open for the configured window to let further requests join it.
+         */
+        private List<SigningRequestWrapper> collectBatch(SigningRequestWrapper first) throws InterruptedException {
+            List<SigningRequestWrapper> requests = new ArrayList<>();
+            requests.add(first);
+
+            if (!batchSigningEnabled) {
+                return requests;
+            }
+
+            requestsQueue.drainTo(requests, maxBatchSize - requests.size());
+
+            if (maxLatencyNanos > 0 && (requests.size() > 1 || lastBatchSize > 1)) {
+                long deadline = System.nanoTime() + maxLatencyNanos;
+
+                while (requests.size() < maxBatchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    SigningRequestWrapper next = remaining > 0
+                            ? requestsQueue.poll(remaining, TimeUnit.NANOSECONDS)
+                            : null;
+
+                    if (next == null) {
+                        break;
+                    }
+
+                    requests.add(next);
+                    requestsQueue.drainTo(requests, maxBatchSize - requests.size());
+                }
+            }
+
+            lastBatchSize = requests.size();
+
+            return requests;
+        }
+
+        private void process() {
             while (!stopping) {
                 log.trace("polling queue");
-                List<SigningRequestWrapper> requests = new LinkedList<>();
                 try {
                     SigningRequestWrapper first;
                     do {
                         first = requestsQueue.take();
                     } while (isExpired(first));
 
-                    requests.add(first);
-                    if (batchSigningEnabled) {
-                        // poll all remaining
-                        requestsQueue.drainTo(requests);
-                    }
+                    List<SigningRequestWrapper> requests = collectBatch(first);
 
                     log.trace("processing {} sign requests", requests.size());
                     BatchSignatureCtx ctx = new BatchSignatureCtx(first.getKeyId(), first.getSignatureAlgorithmId());
@@ -203,10 +343,16 @@ public class BatchSigner implements DisposableBean {
                             .filter(req -> !isExpired(req))
                             .forEach(req -> ctx.add(req.getClientFuture(), req.getRequest()));
 
+                    if (ctx.getClients().isEmpty()) {
+                        continue;
+                    }
+
+                    batchSizes.update(ctx.getClients().size());
+
                     try {
                         byte[] digest = calculateDigest(ctx.getSignatureAlgorithmId().digest(),
                                 ctx.getDataToBeSigned());
-                        final byte[] response = SignerProxy.sign(ctx.getKeyId(), ctx.getSignatureAlgorithmId(), digest);
+                        final byte[] response = keySigner.sign(ctx.getKeyId(), ctx.getSignatureAlgorithmId(), digest);
                         sendSignatureResponse(ctx, response);
                     } catch (Exception exception) {
                         sendException(ctx, exception);
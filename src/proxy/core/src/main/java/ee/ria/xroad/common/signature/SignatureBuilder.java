@@ -34,6 +34,7 @@ import org.bouncycastle.cert.ocsp.OCSPResp;
 import java.security.cert.X509Certificate;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Collects all the parts to be signed and creates the signature.
@@ -90,11 +91,29 @@ public class SignatureBuilder {
     public SignatureData build(SigningKey signingKey, DigestAlgorithm signatureDigestAlgorithmId) throws Exception {
         log.trace("Sign, {} part(s)", parts.size());
 
+        return signingKey.calculateSignature(createSigningRequest(), signatureDigestAlgorithmId);
+    }
+
+    /**
+     * Builds signature data using the given signing key and signature digest algorithm
+     * without blocking the caller.
+     * @param signingKey the signing key
+     * @param signatureDigestAlgorithmId ID of the signature digest algorithm
+     * @return future that is completed with the signature data
+     */
+    public CompletableFuture<SignatureData> buildAsync(SigningKey signingKey,
+                                                       DigestAlgorithm signatureDigestAlgorithmId) {
+        log.trace("Sign asynchronously, {} part(s)", parts.size());
+
+        return signingKey.calculateSignatureAsync(createSigningRequest(), signatureDigestAlgorithmId);
+    }
+
+    private SigningRequest createSigningRequest() {
         SigningRequest request = new SigningRequest(signingCert, parts);
         request.getExtraCertificates().addAll(extraCertificates);
         request.getOcspResponses().addAll(ocspResponses);
 
-        return signingKey.calculateSignature(request, signatureDigestAlgorithmId);
+        return request;
     }
 
 }
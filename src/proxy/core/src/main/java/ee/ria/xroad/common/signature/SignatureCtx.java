@@ -62,6 +62,9 @@ import static ee.ria.xroad.common.util.MessageFileNames.SIG_HASH_CHAIN_RESULT;
 @Slf4j
 class SignatureCtx {
 
+    /** Batch size from which the hash chains are built in parallel. */
+    private static final int PARALLEL_HASH_CHAIN_THRESHOLD = 64;
+
     private final List<SigningRequest> requests = new ArrayList<>();
 
     @Getter(AccessLevel.PACKAGE)
@@ -131,7 +134,8 @@ class SignatureCtx {
     private void buildHashChain() throws Exception {
         log.trace("buildHashChain()");
 
-        HashChainBuilder hashChainBuilder = new HashChainBuilder(signatureAlgorithmId.digest());
+        HashChainBuilder hashChainBuilder = new HashChainBuilder(signatureAlgorithmId.digest(),
+                requests.size() >= PARALLEL_HASH_CHAIN_THRESHOLD);
 
         for (SigningRequest request : requests) {
             hashChainBuilder.addInputHash(getHashChainInputs(request));
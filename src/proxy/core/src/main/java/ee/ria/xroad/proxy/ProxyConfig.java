@@ -60,6 +60,11 @@ import org.springframework.context.annotation.Import;
 @Configuration
 public class ProxyConfig {
 
+    @Bean
+    ProxyMetrics proxyMetrics() {
+        return new ProxyMetrics();
+    }
+
     @Bean
     BatchSigner batchSigner() {
         return BatchSigner.init();
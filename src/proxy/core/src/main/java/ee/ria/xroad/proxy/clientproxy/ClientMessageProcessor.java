@@ -45,6 +45,7 @@ import ee.ria.xroad.common.util.HttpSender;
 import ee.ria.xroad.common.util.MimeUtils;
 import ee.ria.xroad.common.util.RequestWrapper;
 import ee.ria.xroad.common.util.ResponseWrapper;
+import ee.ria.xroad.common.util.RingBufferPipe;
 import ee.ria.xroad.proxy.conf.KeyConfProvider;
 import ee.ria.xroad.proxy.messagelog.MessageLog;
 import ee.ria.xroad.proxy.protocol.ProxyMessage;
@@ -60,9 +61,9 @@ import org.apache.http.client.HttpClient;
 import org.bouncycastle.cert.ocsp.OCSPResp;
 import org.bouncycastle.util.Arrays;
 
+import java.io.IOException;
 import java.io.InputStream;
-import java.io.PipedInputStream;
-import java.io.PipedOutputStream;
+import java.io.OutputStream;
 import java.net.URI;
 import java.util.List;
 import java.util.Map;
@@ -98,6 +99,9 @@ class ClientMessageProcessor extends AbstractClientMessageProcessor {
      */
     private static final int WAIT_FOR_SOAP_TIMEOUT = 30; // seconds
 
+    /** Capacity of the buffer between the SOAP handler and the HTTP sender. */
+    private static final int REQUEST_PIPE_CAPACITY = 64 * 1024;
+
     /**
      * By using a count down latch we can make the main thread wait for the
      * request handler thread to read the SOAP request, since we cannot open
@@ -129,8 +133,8 @@ class ClientMessageProcessor extends AbstractClientMessageProcessor {
     /**
      * Holds the proxy message output stream and associated info.
      */
-    private PipedInputStream reqIns;
-    private volatile PipedOutputStream reqOuts;
+    private InputStream reqIns;
+    private volatile OutputStream reqOuts;
     private volatile String outputContentType;
 
     /**
@@ -167,8 +171,9 @@ class ClientMessageProcessor extends AbstractClientMessageProcessor {
             throws Exception {
         super(globalConfProvider, keyConfProvider, serverConfProvider, certChainFactory, request, response, httpClient, clientCert,
                 opMonitoringData);
-        this.reqIns = new PipedInputStream();
-        this.reqOuts = new PipedOutputStream(reqIns);
+        RingBufferPipe requestPipe = new RingBufferPipe(REQUEST_PIPE_CAPACITY);
+        this.reqIns = requestPipe.getInputStream();
+        this.reqOuts = requestPipe.getOutputStream();
         this.xRequestId = UUID.randomUUID().toString();
     }
 
@@ -455,11 +460,21 @@ class ClientMessageProcessor extends AbstractClientMessageProcessor {
         } catch (Throwable ex) {
             setError(ex);
         } finally {
+            closeRequestOutput();
             continueProcessing();
             continueReadingResponse();
         }
     }
 
+    private void closeRequestOutput() {
+        // Make sure the HTTP sender reaches the end of the request even if no message was encoded.
+        try {
+            reqOuts.close();
+        } catch (IOException e) {
+            log.trace("Closing request output failed", e);
+        }
+    }
+
     private final class SoapMessageHandler implements SoapMessageDecoder.Callback {
 
         @Override
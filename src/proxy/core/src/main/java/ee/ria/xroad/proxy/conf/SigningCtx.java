@@ -28,6 +28,8 @@ package ee.ria.xroad.proxy.conf;
 import ee.ria.xroad.common.signature.SignatureBuilder;
 import ee.ria.xroad.common.signature.SignatureData;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * Encapsulates security-related parameters of a given member,
  * such as currently used signing key and cert.
@@ -40,4 +42,18 @@ public interface SigningCtx {
      * @throws Exception in case of any errors
      */
     SignatureData buildSignature(SignatureBuilder builder) throws Exception;
+
+    /**
+     * Creates and signs the signature without blocking the caller. By default delegates
+     * to {@link #buildSignature(SignatureBuilder)}.
+     * @param builder the signature builder instance
+     * @return future that is completed with the signature data
+     */
+    default CompletableFuture<SignatureData> buildSignatureAsync(SignatureBuilder builder) {
+        try {
+            return CompletableFuture.completedFuture(buildSignature(builder));
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
 }
@@ -50,6 +50,8 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 
 import static ee.ria.xroad.common.ErrorCodes.translateException;
 import static ee.ria.xroad.common.crypto.Digests.createDigestCalculator;
@@ -310,6 +312,9 @@ public class ProxyMessageEncoder implements ProxyMessageConsumer {
 
     /**
      * Signs all the parts. Call after adding SOAP message and attachments.
+     * <p>
+     * The signature is requested asynchronously and the parts encoded so far are flushed to the output stream
+     * while it is being created, so that sending the message overlaps with signing it.
      *
      * @param securityCtx signing context to use when signing the parts
      * @throws Exception in case of any errors
@@ -317,7 +322,29 @@ public class ProxyMessageEncoder implements ProxyMessageConsumer {
     public void sign(SigningCtx securityCtx) throws Exception {
         log.trace("sign()");
 
-        signer.sign(securityCtx);
+        CompletableFuture<SignatureData> signature = signAsync(securityCtx);
+
+        endAttachments();
+        mpEncoder.flush();
+
+        try {
+            signature.get();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception cause ? cause : e;
+        }
+    }
+
+    /**
+     * Signs all the parts without blocking the caller. Call after adding SOAP message
+     * and attachments, and call {@link #writeSignature()} once the returned future has completed.
+     *
+     * @param securityCtx signing context to use when signing the parts
+     * @return future that is completed with the signature data
+     */
+    public CompletableFuture<SignatureData> signAsync(SigningCtx securityCtx) {
+        log.trace("signAsync()");
+
+        return signer.signAsync(securityCtx);
     }
 
     /**
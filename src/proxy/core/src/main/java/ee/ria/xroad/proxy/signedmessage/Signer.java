@@ -33,6 +33,8 @@ import ee.ria.xroad.common.signature.SignatureData;
 import ee.ria.xroad.common.util.MessageFileNames;
 import ee.ria.xroad.proxy.conf.SigningCtx;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * Encapsulates message signing functionality. This class does not
  * deal with the signed data itself, it is only interested in hashes
@@ -84,6 +86,20 @@ public class Signer {
         signature = ctx.buildSignature(builder);
     }
 
+    /**
+     * Signs the hashes and creates the signature without blocking the caller.
+     * The signature data is available from {@link #getSignatureData()} once
+     * the returned future has completed.
+     * @param ctx signing context used for signing
+     * @return future that is completed with the signature data
+     */
+    public CompletableFuture<SignatureData> signAsync(SigningCtx ctx) {
+        return ctx.buildSignatureAsync(builder).thenApply(signatureData -> {
+            signature = signatureData;
+            return signatureData;
+        });
+    }
+
     /**
      * @return the signature data
      */
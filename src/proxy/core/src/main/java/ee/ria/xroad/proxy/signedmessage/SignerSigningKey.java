@@ -35,6 +35,9 @@ import ee.ria.xroad.common.signature.SigningRequest;
 
 import lombok.extern.slf4j.Slf4j;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
 import static ee.ria.xroad.common.ErrorCodes.X_CANNOT_CREATE_SIGNATURE;
 import static ee.ria.xroad.common.ErrorCodes.translateWithPrefix;
 
@@ -83,4 +86,21 @@ public class SignerSigningKey implements SigningKey {
             throw translateWithPrefix(X_CANNOT_CREATE_SIGNATURE, e);
         }
     }
+
+    @Override
+    public CompletableFuture<SignatureData> calculateSignatureAsync(SigningRequest request,
+                                                                    DigestAlgorithm digestAlgoId) {
+        SignAlgorithm signAlgoId = SignAlgorithm.ofDigestAndMechanism(digestAlgoId, signMechanismName);
+
+        log.trace("Calculating signature asynchronously using algorithm {}", signAlgoId);
+
+        if (SystemProperties.USE_DUMMY_SIGNATURE) {
+            return CompletableFuture.completedFuture(
+                    new SignatureData("dummySignatureXML", "dummyHashChainResult", "dummyHashChain"));
+        }
+
+        return BatchSigner.signAsync(keyId, signAlgoId, request)
+                .exceptionallyCompose(e -> CompletableFuture.failedFuture(translateWithPrefix(X_CANNOT_CREATE_SIGNATURE,
+                        e instanceof CompletionException && e.getCause() != null ? e.getCause() : e)));
+    }
 }
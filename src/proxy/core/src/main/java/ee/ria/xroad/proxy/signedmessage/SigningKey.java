@@ -29,6 +29,8 @@ import ee.ria.xroad.common.crypto.identifier.DigestAlgorithm;
 import ee.ria.xroad.common.signature.SignatureData;
 import ee.ria.xroad.common.signature.SigningRequest;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * API for implementing signing key.
  */
@@ -42,4 +44,20 @@ public interface SigningKey {
      * @return the signature data
      */
     SignatureData calculateSignature(SigningRequest request, DigestAlgorithm digestAlgoId) throws Exception;
+
+    /**
+     * Calculates signature without blocking the caller. By default delegates to
+     * {@link #calculateSignature(SigningRequest, DigestAlgorithm)}.
+     * @param request signing request information
+     * @param digestAlgoId digest algorithm to use for signing
+     * @return future that is completed with the signature data
+     */
+    default CompletableFuture<SignatureData> calculateSignatureAsync(SigningRequest request,
+                                                                     DigestAlgorithm digestAlgoId) {
+        try {
+            return CompletableFuture.completedFuture(calculateSignature(request, digestAlgoId));
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
 }
@@ -0,0 +1,142 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.common.signature;
+
+import ee.ria.xroad.common.TestCertUtil;
+import ee.ria.xroad.common.TestSecurityUtil;
+import ee.ria.xroad.common.crypto.Digests;
+import ee.ria.xroad.common.crypto.identifier.DigestAlgorithm;
+import ee.ria.xroad.common.crypto.identifier.SignAlgorithm;
+import ee.ria.xroad.common.util.MessageFileNames;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import org.junit.After;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static ee.ria.xroad.common.util.CryptoUtils.calculateCertHexHash;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests that concurrent signing requests for the same certificate are combined into batches.
+ */
+public class BatchSignerTest {
+
+    private static final String KEY_ID = "key";
+    private static final int CONCURRENT_REQUESTS = 10;
+
+    static {
+        TestSecurityUtil.initSecurity();
+    }
+
+    private BatchSigner batchSigner;
+
+    @After
+    public void tearDown() {
+        if (batchSigner != null) {
+            batchSigner.destroy();
+        }
+    }
+
+    /**
+     * Requests that arrive while the signer is busy are signed together in the next batch.
+     * @throws Exception in case of any unexpected error
+     */
+    @Test
+    public void batchesRequestsArrivingWhileSigning() throws Exception {
+        CountDownLatch firstSignStarted = new CountDownLatch(1);
+        CountDownLatch releaseFirstSign = new CountDownLatch(1);
+        AtomicInteger signCalls = new AtomicInteger();
+
+        batchSigner = BatchSigner.init(new BatchSigner.KeySigner() {
+            @Override
+            public boolean isBatchSigningEnabled(String keyId) {
+                return true;
+            }
+
+            @Override
+            public byte[] sign(String keyId, SignAlgorithm signatureAlgorithmId, byte[] digest) throws Exception {
+                if (signCalls.incrementAndGet() == 1) {
+                    firstSignStarted.countDown();
+                    assertTrue(releaseFirstSign.await(10, TimeUnit.SECONDS));
+                }
+                return digest;
+            }
+        });
+
+        X509Certificate cert = TestCertUtil.getConsumer().certChain[0];
+        String certHash = calculateCertHexHash(cert);
+
+        CompletableFuture<SignatureData> first = signAsync(cert, 0);
+        assertTrue(firstSignStarted.await(10, TimeUnit.SECONDS));
+
+        List<CompletableFuture<SignatureData>> batched = new ArrayList<>();
+        for (int i = 1; i <= CONCURRENT_REQUESTS; i++) {
+            batched.add(signAsync(cert, i));
+        }
+
+        MetricRegistry metrics = BatchSigner.getMetricRegistry();
+        Gauge<?> queueDepth = metrics.getGauges().get(MetricRegistry.name("batchSigner", certHash, "queueDepth"));
+        assertNotNull(queueDepth);
+        assertEquals(CONCURRENT_REQUESTS, queueDepth.getValue());
+
+        releaseFirstSign.countDown();
+
+        SignatureData firstSignature = first.get(10, TimeUnit.SECONDS);
+        assertNotNull(firstSignature.getSignatureXml());
+
+        for (CompletableFuture<SignatureData> future : batched) {
+            SignatureData signature = future.get(10, TimeUnit.SECONDS);
+            assertTrue(signature.isBatchSignature());
+        }
+
+        assertEquals(2, signCalls.get());
+        assertArrayEquals(new long[] {1, CONCURRENT_REQUESTS},
+                metrics.getHistograms().get(MetricRegistry.name("batchSigner", certHash, "batchSize"))
+                        .getSnapshot().getValues());
+    }
+
+    private static CompletableFuture<SignatureData> signAsync(X509Certificate cert, int index) throws Exception {
+        byte[] message = ("<message" + index + "/>").getBytes(StandardCharsets.UTF_8);
+        MessagePart part = new MessagePart(MessageFileNames.MESSAGE, DigestAlgorithm.SHA512,
+                Digests.calculateDigest(DigestAlgorithm.SHA512, message), message);
+
+        return BatchSigner.signAsync(KEY_ID, SignAlgorithm.SHA512_WITH_RSA,
+                new SigningRequest(cert, List.of(part)));
+    }
+}
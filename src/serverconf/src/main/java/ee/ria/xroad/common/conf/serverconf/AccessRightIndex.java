@@ -0,0 +1,198 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.common.conf.serverconf;
+
+import ee.ria.xroad.common.conf.serverconf.model.EndpointType;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import static ee.ria.xroad.common.conf.serverconf.model.EndpointType.ANY_METHOD;
+import static ee.ria.xroad.common.conf.serverconf.model.EndpointType.ANY_PATH;
+
+/**
+ * Precompiled access decision structure for the endpoints a client may call on one service.
+ * <p>
+ * Endpoints are grouped by method and their path globs are stored in a trie of path segments. Segments that are
+ * plain literals or a single '*' are matched by lookups in the trie. The first segment that uses any other glob
+ * syntax ('**', partial wildcards, escapes) ends the trie walk, and the rest of the path is checked with the
+ * compiled {@link PathGlob} pattern of the whole glob. The result is the same as calling
+ * {@link EndpointType#matches(String, String)} for every endpoint.
+ */
+final class AccessRightIndex {
+
+    static final AccessRightIndex EMPTY = new AccessRightIndex();
+
+    private static final char SEPARATOR = '/';
+
+    private final Map<String, Node> byMethod = new HashMap<>();
+    private final Node anyMethod = new Node();
+    private int size;
+
+    private AccessRightIndex() {
+    }
+
+    /**
+     * Compiles the given access right endpoints into an index.
+     * @param endpoints endpoints the client has access to
+     * @return the index, {@link #EMPTY} if there are no endpoints
+     */
+    static AccessRightIndex compile(List<EndpointType> endpoints) {
+        if (endpoints.isEmpty()) {
+            return EMPTY;
+        }
+
+        AccessRightIndex index = new AccessRightIndex();
+        for (EndpointType endpoint : endpoints) {
+            Node root = ANY_METHOD.equals(endpoint.getMethod())
+                    ? index.anyMethod
+                    : index.byMethod.computeIfAbsent(endpoint.getMethod().toUpperCase(Locale.ROOT), k -> new Node());
+            root.add(endpoint.getPath());
+            index.size++;
+        }
+        return index;
+    }
+
+    /**
+     * @param method request method, null for SOAP requests
+     * @param path normalized request path, null for SOAP requests
+     * @return true if some endpoint in the index allows the request
+     */
+    boolean isAllowed(String method, String path) {
+        if (size == 0) {
+            return false;
+        }
+
+        if (matches(anyMethod, path)) {
+            return true;
+        }
+
+        if (method == null) {
+            return false;
+        }
+
+        Node root = byMethod.get(method.toUpperCase(Locale.ROOT));
+        return root != null && matches(root, path);
+    }
+
+    /**
+     * @return number of endpoints in the index
+     */
+    int size() {
+        return size;
+    }
+
+    private static boolean matches(Node root, String path) {
+        if (root.anyPath) {
+            return true;
+        }
+        return path != null && matches(root, path, 0);
+    }
+
+    private static boolean matches(Node node, String path, int start) {
+        if (node.matchesRemainder(path)) {
+            return true;
+        }
+
+        int end = path.indexOf(SEPARATOR, start);
+        boolean last = end < 0;
+        String segment = last ? path.substring(start) : path.substring(start, end);
+
+        return matchesChild(node.literals.get(segment), path, end, last)
+                || matchesChild(node.wildcard, path, end, last);
+    }
+
+    private static boolean matchesChild(Node child, String path, int end, boolean last) {
+        if (child == null) {
+            return false;
+        }
+        if (last) {
+            return child.terminal || child.matchesRemainder(path);
+        }
+        return matches(child, path, end + 1);
+    }
+
+    private static final class Node {
+        private final Map<String, Node> literals = new HashMap<>();
+        private Node wildcard;
+        private boolean terminal;
+        private boolean anyPath;
+        private final List<Pattern> remainders = new ArrayList<>();
+
+        void add(String glob) {
+            if (ANY_PATH.equals(glob)) {
+                anyPath = true;
+                return;
+            }
+
+            Node node = this;
+            int start = 0;
+            while (true) {
+                int end = glob.indexOf(SEPARATOR, start);
+                String segment = end < 0 ? glob.substring(start) : glob.substring(start, end);
+                if (!isSimple(segment)) {
+                    node.remainders.add(PathGlob.compile(glob));
+                    return;
+                }
+
+                node = "*".equals(segment)
+                        ? (node.wildcard != null ? node.wildcard : (node.wildcard = new Node()))
+                        : node.literals.computeIfAbsent(segment, k -> new Node());
+                if (end < 0) {
+                    node.terminal = true;
+                    return;
+                }
+                start = end + 1;
+            }
+        }
+
+        boolean matchesRemainder(String path) {
+            for (Pattern pattern : remainders) {
+                if (pattern.matcher(path).matches()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private static boolean isSimple(String segment) {
+            if ("*".equals(segment)) {
+                return true;
+            }
+            for (int i = 0; i < segment.length(); i++) {
+                char ch = segment.charAt(i);
+                if (ch == '*' || ch == '\\' || ch == '?') {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
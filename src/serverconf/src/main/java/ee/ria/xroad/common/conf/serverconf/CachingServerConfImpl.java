@@ -38,11 +38,18 @@ import ee.ria.xroad.common.identifier.SecurityServerId;
 import ee.ria.xroad.common.identifier.ServiceId;
 import ee.ria.xroad.common.metadata.Endpoint;
 
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.jmx.JmxReporter;
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.ObjectUtils;
 import org.hibernate.Session;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
 
 import java.util.Collections;
 import java.util.List;
@@ -51,68 +58,131 @@ import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 
 import static ee.ria.xroad.common.ErrorCodes.X_UNKNOWN_SERVICE;
+import static ee.ria.xroad.common.ErrorCodes.translateException;
 
 /**
  * Caching implementation for ServerConf
- * The long lasting and frequently used operations are cached
+ * The long lasting and frequently used operations are cached.
+ * <p>
+ * Cached values stay valid until the serverconf version in the database changes, after which they are reloaded
+ * in the background by {@link #refreshCache()} while the old values are still served. If the database does not
+ * track the version, the values are reloaded once per cache period instead.
  */
 @Slf4j
-public class CachingServerConfImpl extends ServerConfImpl {
+public class CachingServerConfImpl extends ServerConfImpl implements InitializingBean, DisposableBean {
 
     public static final String TSP_URL = "tsp_url";
 
+    private static final double NANOS_PER_MILLI = 1_000_000d;
+
     private volatile SecurityServerId.Conf serverId;
-    private final Cache<Object, List<String>> tspCache;
-    private final Cache<ServiceId, Optional<ServiceType>> serviceCache;
-    private final Cache<AclCacheKey, List<EndpointType>> aclCache;
-    private final Cache<ServiceId, List<Endpoint>> serviceEndpointsCache;
-    private final Cache<ClientId, Optional<ClientType>> clientCache;
+    private final LoadingCache<Object, List<String>> tspCache;
+    private final LoadingCache<ServiceId, Optional<ServiceType>> serviceCache;
+    private final LoadingCache<AclCacheKey, List<EndpointType>> aclCache;
+    private final LoadingCache<AclCacheKey, AccessRightIndex> accessRightsCache;
+    private final LoadingCache<ServiceId, List<Endpoint>> serviceEndpointsCache;
+    private final LoadingCache<ClientId, Optional<ClientType>> clientCache;
     private final Cache<String, InternalSSLKey> internalKeyCache;
 
+    private final MetricRegistry metricRegistry = new MetricRegistry();
+    private final JmxReporter reporter = JmxReporter.forRegistry(metricRegistry).build();
+    private final long cachePeriodMillis;
+    private volatile Long confVersion;
+    private volatile long lastRefreshMillis;
+
     /**
-     * Constructor, creates time based object cache with expireSeconds (or internalKeyExpireSeconds
-     * with internal key cache)
+     * Constructor, creates the object caches. The internal key is not stored in the database and is cached
+     * for expireSeconds (or until the cache is cleared).
      */
     @SuppressWarnings("checkstyle:MagicNumber")
     public CachingServerConfImpl(GlobalConfProvider globalConfProvider) {
         super(globalConfProvider);
         int expireSeconds = SystemProperties.getServerConfCachePeriod();
+        cachePeriodMillis = TimeUnit.SECONDS.toMillis(expireSeconds);
+        lastRefreshMillis = System.currentTimeMillis();
 
         internalKeyCache = CacheBuilder.newBuilder()
                 .maximumSize(1)
                 .expireAfterWrite(expireSeconds, TimeUnit.SECONDS)
+                .recordStats()
                 .build();
 
         tspCache = CacheBuilder.newBuilder()
                 .maximumSize(1)
-                .expireAfterWrite(expireSeconds, TimeUnit.SECONDS)
-                .build();
+                .recordStats()
+                .build(CacheLoader.from((Object key) -> super.getTspUrl()));
 
         clientCache = CacheBuilder.newBuilder()
                 .maximumSize(SystemProperties.getServerConfClientCacheSize())
-                .expireAfterWrite(expireSeconds, TimeUnit.SECONDS)
                 .recordStats()
-                .build();
+                .build(CacheLoader.from((ClientId clientId) ->
+                        tx(session -> Optional.ofNullable(super.getClient(session, clientId)))));
 
         serviceCache = CacheBuilder.newBuilder()
                 .maximumSize(SystemProperties.getServerConfServiceCacheSize())
-                .expireAfterWrite(expireSeconds, TimeUnit.SECONDS)
                 .recordStats()
-                .build();
-
+                .build(CacheLoader.from((ServiceId serviceId) ->
+                        tx(session -> Optional.ofNullable(super.getService(session, serviceId)))));
+
+        /*
+         * Implementation note. The loader of the ACL cache may be executed in a thread that is already in a
+         * transaction, in which case the transaction simply joins the current one. However, this is not explicitly
+         * promised by the API, so a transaction is started if necessary.
+         */
         aclCache = CacheBuilder.newBuilder()
                 .weigher((AclCacheKey k, List<EndpointType> v) -> v.size() + 1)
                 .maximumWeight(SystemProperties.getServerConfAclCacheSize())
-                .expireAfterWrite(expireSeconds, TimeUnit.SECONDS)
                 .recordStats()
-                .build();
+                .build(CacheLoader.from((AclCacheKey key) -> tx(s -> super.getAclEndpoints(s, key.client(), key.serviceId()))));
+
+        accessRightsCache = CacheBuilder.newBuilder()
+                .weigher((AclCacheKey k, AccessRightIndex v) -> v.size() + 1)
+                .maximumWeight(SystemProperties.getServerConfAclCacheSize())
+                .recordStats()
+                .build(CacheLoader.from((AclCacheKey key) ->
+                        AccessRightIndex.compile(tx(s -> getAclEndpoints(s, key.client(), key.serviceId())))));
 
         serviceEndpointsCache = CacheBuilder.newBuilder()
                 .weigher((ServiceId k, List<Endpoint> v) -> v.size() + 1)
                 .maximumWeight(SystemProperties.getServerConfServiceEndpointsCacheSize())
-                .expireAfterWrite(expireSeconds, TimeUnit.SECONDS)
                 .recordStats()
-                .build();
+                .build(CacheLoader.from((ServiceId serviceId) -> super.getServiceEndpoints(serviceId)));
+
+        registerMetrics("internalKeyCache", internalKeyCache);
+        registerMetrics("tspCache", tspCache);
+        registerMetrics("clientCache", clientCache);
+        registerMetrics("serviceCache", serviceCache);
+        registerMetrics("aclCache", aclCache);
+        registerMetrics("accessRightsCache", accessRightsCache);
+        registerMetrics("serviceEndpointsCache", serviceEndpointsCache);
+    }
+
+    private void registerMetrics(String cacheName, Cache<?, ?> cache) {
+        metricRegistry.register(MetricRegistry.name("serverConf", cacheName, "hits"),
+                (Gauge<Long>) () -> cache.stats().hitCount());
+        metricRegistry.register(MetricRegistry.name("serverConf", cacheName, "misses"),
+                (Gauge<Long>) () -> cache.stats().missCount());
+        metricRegistry.register(MetricRegistry.name("serverConf", cacheName, "averageLoadTimeMillis"),
+                (Gauge<Double>) () -> cache.stats().averageLoadPenalty() / NANOS_PER_MILLI);
+        metricRegistry.register(MetricRegistry.name("serverConf", cacheName, "size"),
+                (Gauge<Long>) cache::size);
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        reporter.start();
+    }
+
+    @Override
+    public void destroy() {
+        reporter.stop();
+    }
+
+    /**
+     * @return hit, miss, load time and size gauges of the serverconf caches, which are reported over JMX
+     */
+    public MetricRegistry getMetricRegistry() {
+        return metricRegistry;
     }
 
     @Override
@@ -155,7 +225,7 @@ public class CachingServerConfImpl extends ServerConfImpl {
     @Override
     public List<String> getTspUrl() {
         try {
-            return tspCache.get(TSP_URL, super::getTspUrl);
+            return tspCache.get(TSP_URL);
         } catch (ExecutionException e) {
             if (e.getCause() instanceof CodedException) {
                 throw (CodedException) e.getCause();
@@ -173,7 +243,7 @@ public class CachingServerConfImpl extends ServerConfImpl {
     @Override
     public List<Endpoint> getServiceEndpoints(ServiceId serviceId) {
         try {
-            return serviceEndpointsCache.get(serviceId, () -> super.getServiceEndpoints(serviceId));
+            return serviceEndpointsCache.get(serviceId);
         } catch (ExecutionException e) {
             if (e.getCause() instanceof CodedException codedException) {
                 throw codedException;
@@ -231,16 +301,47 @@ public class CachingServerConfImpl extends ServerConfImpl {
         return getService(service).map(ServiceType::getTimeout).orElse(DEFAULT_SERVICE_TIMEOUT);
     }
 
+    @Override
+    public boolean isQueryAllowed(ClientId client, ServiceId service, String method, String path) {
+        if (client == null) {
+            return false;
+        }
+
+        final String normalizedPath;
+        try {
+            normalizedPath = normalizePath(path);
+        } catch (Exception e) {
+            throw translateException(e);
+        }
+
+        // the compiled access rights are cached per client and service, also when they are empty,
+        // so that repeated unauthorized requests do not hit the database
+        return getAccessRights(client, service).isAllowed(method, normalizedPath);
+    }
+
+    @Override
+    AccessRightIndex getAccessRights(Session session, ClientId client, ServiceId service) {
+        return getAccessRights(client, service);
+    }
+
+    private AccessRightIndex getAccessRights(ClientId client, ServiceId service) {
+        final AclCacheKey key = new AclCacheKey(client, service);
+        try {
+            return accessRightsCache.get(key);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof CodedException) {
+                throw (CodedException) e.getCause();
+            }
+            log.debug("Failed to compile access rights", e);
+            return AccessRightIndex.EMPTY;
+        }
+    }
+
     @Override
     protected List<EndpointType> getAclEndpoints(Session session, ClientId client, ServiceId service) {
         final AclCacheKey key = new AclCacheKey(client, service);
         try {
-            /*
-             * Implementation note. It seems that the loader function is executed in the same thread, in which case the
-             * transaction simply joins the current one. However, this is not explicitly promised by the API,
-             * so we start a transaction if necessary.
-             */
-            return aclCache.get(key, () -> tx(s -> super.getAclEndpoints(s, client, service)));
+            return aclCache.get(key);
         } catch (ExecutionException e) {
             if (e.getCause() instanceof CodedException) {
                 throw (CodedException) e.getCause();
@@ -252,8 +353,7 @@ public class CachingServerConfImpl extends ServerConfImpl {
 
     private Optional<ServiceType> getService(ServiceId serviceId) {
         try {
-            return serviceCache
-                    .get(serviceId, () -> tx(session -> Optional.ofNullable(super.getService(session, serviceId))));
+            return serviceCache.get(serviceId);
         } catch (ExecutionException e) {
             if (e.getCause() instanceof CodedException) {
                 throw (CodedException) e.getCause();
@@ -265,8 +365,7 @@ public class CachingServerConfImpl extends ServerConfImpl {
 
     private Optional<ClientType> getClient(ClientId clientId) {
         try {
-            return clientCache.get(clientId,
-                    () -> tx(session -> Optional.ofNullable(super.getClient(session, clientId))));
+            return clientCache.get(clientId);
         } catch (ExecutionException e) {
             if (e.getCause() instanceof CodedException) {
                 throw (CodedException) e.getCause();
@@ -279,12 +378,18 @@ public class CachingServerConfImpl extends ServerConfImpl {
     @Override
     public void logStatistics() {
         if (log.isTraceEnabled()) {
+            log.trace("ServerConf.internalKeyCache: entries: {}, stats: {}", internalKeyCache.size(),
+                    internalKeyCache.stats());
+            log.trace("ServerConf.tspCache: entries: {}, stats: {}", tspCache.size(),
+                    tspCache.stats());
             log.trace("ServerConf.clientCache : entries: {}, stats: {}", clientCache.size(),
                     clientCache.stats());
             log.trace("ServerConf.serviceCache: entries: {}, stats: {}", serviceCache.size(),
                     serviceCache.stats());
             log.trace("ServerConf.aclCache    : entries: {}, stats: {}", aclCache.size(),
                     aclCache.stats());
+            log.trace("ServerConf.accessRightsCache: entries: {}, stats: {}", accessRightsCache.size(),
+                    accessRightsCache.stats());
             log.trace("ServerConf.serviceEndpointsCache: entries: {}, stats: {}", serviceEndpointsCache.size(),
                     serviceEndpointsCache.stats());
         }
@@ -296,6 +401,46 @@ public class CachingServerConfImpl extends ServerConfImpl {
         internalKeyCache.invalidateAll();
     }
 
+    /**
+     * Reloads the cached values if serverconf has changed since the last check. The caches are refreshed in
+     * dependency order (the access rights are compiled from the reloaded ACL entries and so on), and the old
+     * values are served until the new ones are loaded.
+     */
+    @Override
+    public void refreshCache() {
+        final Long version = getConfVersion();
+        final long now = System.currentTimeMillis();
+        if (version != null ? version.equals(confVersion) : now - lastRefreshMillis < cachePeriodMillis) {
+            return;
+        }
+
+        log.debug("Refreshing configuration cache, serverconf version {} -> {}", confVersion, version);
+        confVersion = version;
+        lastRefreshMillis = now;
+
+        serverId = null;
+        refresh(tspCache);
+        refresh(clientCache);
+        refresh(serviceCache);
+        refresh(serviceEndpointsCache);
+        refresh(aclCache);
+        refresh(accessRightsCache);
+    }
+
+    private Long getConfVersion() {
+        try {
+            return tx(this::getConfVersion);
+        } catch (Exception e) {
+            log.debug("Serverconf version is not available", e);
+            return null;
+        }
+    }
+
+    private static <K> void refresh(LoadingCache<K, ?> cache) {
+        // a failed reload is logged by the cache and the old value is kept
+        List.copyOf(cache.asMap().keySet()).forEach(cache::refresh);
+    }
+
     private record AclCacheKey(ClientId client, ServiceId serviceId) {
     }
 }
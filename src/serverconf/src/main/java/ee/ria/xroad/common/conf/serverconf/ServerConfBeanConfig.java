@@ -31,9 +31,14 @@ import ee.ria.xroad.common.conf.globalconf.GlobalConfProvider;
 
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
 
 @Configuration
+@EnableScheduling
 public class ServerConfBeanConfig {
+    public static final String BEAN_SERVER_CONF_SCHEDULER = "serverConfRefreshScheduler";
 
     @Bean
     ServerConfProvider serverConfProvider(GlobalConfProvider globalConfProvider) {
@@ -43,4 +48,16 @@ public class ServerConfBeanConfig {
         return new ServerConfImpl(globalConfProvider);
 
     }
+
+    @Bean
+    ServerConfRefreshJob serverConfRefreshJob(ServerConfProvider serverConfProvider) {
+        return new ServerConfRefreshJob(serverConfProvider);
+    }
+
+    @Bean
+    TaskScheduler serverConfRefreshScheduler() {
+        var taskScheduler = new ThreadPoolTaskScheduler();
+        taskScheduler.setThreadNamePrefix("serverconf-refresh-");
+        return taskScheduler;
+    }
 }
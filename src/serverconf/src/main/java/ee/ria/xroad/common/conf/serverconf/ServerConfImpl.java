@@ -39,6 +39,7 @@ import ee.ria.xroad.common.conf.serverconf.model.CertificateType;
 import ee.ria.xroad.common.conf.serverconf.model.ClientType;
 import ee.ria.xroad.common.conf.serverconf.model.DescriptionType;
 import ee.ria.xroad.common.conf.serverconf.model.EndpointType;
+import ee.ria.xroad.common.conf.serverconf.model.GroupMemberType;
 import ee.ria.xroad.common.conf.serverconf.model.ServerConfType;
 import ee.ria.xroad.common.conf.serverconf.model.ServiceDescriptionType;
 import ee.ria.xroad.common.conf.serverconf.model.ServiceType;
@@ -73,8 +74,11 @@ import org.hibernate.SharedSessionContract;
 import java.net.URI;
 import java.security.cert.X509Certificate;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import static ee.ria.xroad.common.ErrorCodes.X_MALFORMED_SERVERCONF;
@@ -394,6 +398,10 @@ public class ServerConfImpl implements ServerConfProvider {
         return serverConfDao.getConf(session);
     }
 
+    protected Long getConfVersion(Session session) {
+        return serverConfDao.getConfVersion(session);
+    }
+
     protected ClientType getClient(Session session, ClientId c) {
         return clientDao.getClient(session, c);
     }
@@ -416,16 +424,25 @@ public class ServerConfImpl implements ServerConfProvider {
         return checkAccessRights(session, client, service, method, path);
     }
 
-    @SuppressWarnings("squid:S3776")
     private boolean checkAccessRights(Session session, ClientId client, ServiceId service, String method, String path) {
-        final String normalizedPath;
+        return getAccessRights(session, client, service).isAllowed(method, normalizePath(path));
+    }
+
+    /**
+     * Normalizes and percent-decodes the request path before it is matched against the access rights.
+     */
+    protected static String normalizePath(String path) {
         if (path == null) {
-            normalizedPath = null;
-        } else {
-            normalizedPath = UriUtils.uriPathPercentDecode(URI.create(path).normalize().getRawPath(), true);
+            return null;
         }
-        return getAclEndpoints(session, client, service).stream()
-                .anyMatch(ep -> ep.matches(method, normalizedPath));
+        return UriUtils.uriPathPercentDecode(URI.create(path).normalize().getRawPath(), true);
+    }
+
+    /**
+     * Returns the compiled access rights of the client for the service.
+     */
+    AccessRightIndex getAccessRights(Session session, ClientId client, ServiceId service) {
+        return AccessRightIndex.compile(getAclEndpoints(session, client, service));
     }
 
     /**
@@ -467,27 +484,34 @@ public class ServerConfImpl implements ServerConfProvider {
                         cb.equal(endpoint.get("serviceCode"), service.getServiceCode())),
                 cb.or(orPredicates.toArray(new Predicate[0])));
 
+        // local group members of the service owner, hashed on first use
+        final Map<String, Set<ClientId>> localGroupMembers = new HashMap<>();
+
         return session.createQuery(query).setReadOnly(true).list().stream()
-                .filter(it -> subjectMatches(serviceOwner, it.getSubjectId(), client))
+                .filter(it -> subjectMatches(serviceOwner, localGroupMembers, it.getSubjectId(), client))
                 .map(AccessRightType::getEndpoint)
                 .collect(Collectors.toList());
     }
 
-    private boolean subjectMatches(ClientType serviceOwner, XRoadId aclSubject, ClientId client) {
+    private boolean subjectMatches(ClientType serviceOwner, Map<String, Set<ClientId>> localGroupMembers,
+                                   XRoadId aclSubject, ClientId client) {
         if (aclSubject instanceof GlobalGroupId globalGroupId) {
             return globalConfProvider.isSubjectInGlobalGroup(client, globalGroupId);
         } else if (aclSubject instanceof LocalGroupId localGroupId) {
-            return isMemberInLocalGroup(client, localGroupId, serviceOwner);
+            return localGroupMembers
+                    .computeIfAbsent(localGroupId.getGroupCode(), code -> getLocalGroupMembers(serviceOwner, code))
+                    .contains(client);
         } else {
             return client.equals(aclSubject);
         }
     }
 
-    private boolean isMemberInLocalGroup(ClientId member, LocalGroupId groupId, ClientType groupOwner) {
+    private static Set<ClientId> getLocalGroupMembers(ClientType groupOwner, String groupCode) {
         return groupOwner.getLocalGroup().stream()
-                .filter(g -> Objects.equals(groupId.getGroupCode(), g.getGroupCode()))
+                .filter(g -> Objects.equals(groupCode, g.getGroupCode()))
                 .flatMap(g -> g.getGroupMember().stream())
-                .anyMatch(m -> m.getGroupMemberId().equals(member));
+                .map(GroupMemberType::getGroupMemberId)
+                .collect(Collectors.toSet());
     }
 
     /**
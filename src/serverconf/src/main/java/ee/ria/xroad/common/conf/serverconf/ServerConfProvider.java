@@ -215,6 +215,13 @@ public interface ServerConfProvider {
         // by default there is no cache to clear
     }
 
+    /**
+     * Reload the cached configuration if it has changed
+     */
+    default void refreshCache() {
+        // by default there is no cache to refresh
+    }
+
     /**
      * @return true if this provider is capable of providing configuration
      */
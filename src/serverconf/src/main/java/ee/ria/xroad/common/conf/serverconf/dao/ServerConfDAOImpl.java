@@ -75,6 +75,15 @@ public class ServerConfDAOImpl {
         return confType;
     }
 
+    /**
+     * The version is incremented by database triggers whenever serverconf is modified.
+     * @return the serverconf version
+     */
+    public Long getConfVersion(Session session) {
+        return session.createNativeQuery("SELECT version FROM serverconf_version WHERE id = 1", Long.class)
+                .uniqueResult();
+    }
+
     private <T> T getFirst(Session session, final Class<T> clazz) {
         final CriteriaQuery<T> q = session.getCriteriaBuilder().createQuery(clazz);
         q.select(q.from(clazz));
@@ -0,0 +1,108 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.common.conf.serverconf;
+
+import ee.ria.xroad.common.conf.serverconf.model.EndpointType;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * AccessRightIndex Unit Tests
+ */
+@RunWith(Parameterized.class)
+public class AccessRightIndexTest {
+
+    private static final List<EndpointType> ENDPOINTS = List.of(
+            endpoint("GET", "/pets"),
+            endpoint("get", "/pets/*"),
+            endpoint("POST", "/pets/*/photos/**"),
+            endpoint("PUT", "/stores/**/orders"),
+            endpoint("DELETE", "/users/user-*"),
+            endpoint("PATCH", "/users/\\*"),
+            endpoint("*", "/public/**"),
+            endpoint("*", "/status"));
+
+    private static final AccessRightIndex INDEX = AccessRightIndex.compile(ENDPOINTS);
+
+    /**
+     * test data
+     * method, path, expected result
+     */
+    @Parameterized.Parameters(name = "{index}: {0} <{1}> is {2}")
+    public static List<Object[]> params() {
+        return Arrays.asList(new Object[][]{
+                {"GET", "/pets", true},
+                {"get", "/pets", true},
+                {"POST", "/pets", false},
+                {"GET", "/pets/", true},
+                {"GET", "/pets/1", true},
+                {"GET", "/pets/1/photos", false},
+                {"POST", "/pets/1/photos", false},
+                {"POST", "/pets/1/photos/", true},
+                {"POST", "/pets/1/photos/a/b", true},
+                {"PUT", "/stores/orders", false},
+                {"PUT", "/stores//orders", true},
+                {"PUT", "/stores/1/2/orders", true},
+                {"PUT", "/stores/1/2/orders/3", false},
+                {"DELETE", "/users/user-1", true},
+                {"DELETE", "/users/admin", false},
+                {"PATCH", "/users/*", true},
+                {"PATCH", "/users/x", false},
+                {"HEAD", "/public/", true},
+                {"OPTIONS", "/public/a/b/c", true},
+                {"TRACE", "/status", true},
+                {"TRACE", "/status/", false},
+                {null, null, false},
+                {"GET", null, false},
+                {null, "/pets", false},
+        });
+    }
+
+    @Parameterized.Parameter(0)
+    public String method;
+
+    @Parameterized.Parameter(1)
+    public String path;
+
+    @Parameterized.Parameter(2)
+    public boolean expected;
+
+    @Test
+    public void isAllowed() {
+        assertEquals(expected, INDEX.isAllowed(method, path));
+    }
+
+    static EndpointType endpoint(String method, String path) {
+        return new EndpointType("service", method, path, false);
+    }
+}
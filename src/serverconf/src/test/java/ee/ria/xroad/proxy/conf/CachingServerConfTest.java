@@ -39,6 +39,7 @@ import ee.ria.xroad.common.identifier.ServiceId;
 import ee.ria.xroad.common.metadata.Endpoint;
 import ee.ria.xroad.common.util.CryptoUtils;
 
+import org.hibernate.Session;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.BeforeClass;
@@ -210,6 +211,45 @@ public class CachingServerConfTest {
                 serverConfProvider.getServiceTimeout(service));
     }
 
+    /**
+     * Tests that the cached values are kept until the serverconf version changes.
+     */
+    @Test
+    public void refreshCacheOnVersionChange() {
+        final Session session = ServerConfDatabaseCtx.get().getSession();
+        final ServiceId.Conf serviceId = ServiceId.Conf.create(XROAD_INSTANCE, MEMBER_CLASS,
+                client(1), null, service(1, 1), SERVICE_VERSION);
+        final long id = new ServiceDAOImpl().getService(session, serviceId).getId();
+
+        session.createNativeQuery("CREATE TABLE serverconf_version (id INT PRIMARY KEY, version BIGINT NOT NULL)")
+                .executeUpdate();
+        session.createNativeQuery("INSERT INTO serverconf_version VALUES (1, 0)").executeUpdate();
+        try {
+            final CachingServerConfImpl provider = new CachingServerConfImpl(globalConfProvider);
+            provider.refreshCache();
+            assertEquals(SERVICE_URL + 1, provider.getServiceAddress(serviceId));
+
+            setServiceUrl(session, id, "http://changed");
+            provider.refreshCache();
+            assertEquals(SERVICE_URL + 1, provider.getServiceAddress(serviceId));
+
+            session.createNativeQuery("UPDATE serverconf_version SET version = version + 1").executeUpdate();
+            provider.refreshCache();
+            assertEquals("http://changed", provider.getServiceAddress(serviceId));
+        } finally {
+            setServiceUrl(session, id, SERVICE_URL + 1);
+            session.createNativeQuery("DROP TABLE serverconf_version").executeUpdate();
+        }
+    }
+
+    private static void setServiceUrl(Session session, long id, String url) {
+        session.createNativeQuery("UPDATE service SET url = :url WHERE id = :id")
+                .setParameter("url", url)
+                .setParameter("id", id)
+                .executeUpdate();
+        session.clear();
+    }
+
     /**
      * Tests getting service description disabled notice.
      */
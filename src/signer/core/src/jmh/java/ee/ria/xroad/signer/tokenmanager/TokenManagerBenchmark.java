@@ -0,0 +1,148 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.signer.tokenmanager;
+
+import ee.ria.xroad.common.crypto.identifier.SignMechanism;
+import ee.ria.xroad.common.identifier.ClientId;
+import ee.ria.xroad.signer.tokenmanager.token.SoftwareTokenType;
+
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.cert.jcajce.JcaX509v3CertificateBuilder;
+import org.bouncycastle.operator.ContentSigner;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.math.BigInteger;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static ee.ria.xroad.common.util.CryptoUtils.calculateCertHexHash;
+
+/**
+ * Measures concurrent {@link TokenManager} lookups done for every signing request against a token holding
+ * thousands of keys, each with a certificate. The mixed group adds a thread that keeps changing keys while the
+ * other threads read.
+ *
+ * Run with {@code ./gradlew :signer:core:jmh}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TokenManagerBenchmark {
+
+    private static final ClientId.Conf MEMBER = ClientId.Conf.create("EE", "GOV", "1234");
+    private static final long VALIDITY_MILLIS = TimeUnit.DAYS.toMillis(365);
+
+    @Param({"1000", "5000"})
+    private int keyCount;
+
+    private String[] keyIds;
+    private String[] certHashes;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        String tokenId = TokenManager.createToken(new SoftwareTokenType(Map.of())).getId();
+
+        KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance("EC");
+        keyPairGenerator.initialize(256);
+        KeyPair keyPair = keyPairGenerator.generateKeyPair();
+        ContentSigner signer = new JcaContentSignerBuilder("SHA256withECDSA").build(keyPair.getPrivate());
+        X500Name subject = new X500Name("CN=benchmark");
+
+        keyIds = new String[keyCount];
+        certHashes = new String[keyCount];
+
+        for (int i = 0; i < keyCount; i++) {
+            byte[] certBytes = new JcaX509v3CertificateBuilder(subject, BigInteger.valueOf(i + 1L),
+                    new Date(), new Date(System.currentTimeMillis() + VALIDITY_MILLIS), subject, keyPair.getPublic())
+                    .build(signer).getEncoded();
+
+            keyIds[i] = "key" + i;
+            certHashes[i] = calculateCertHexHash(certBytes);
+
+            TokenManager.addKey(tokenId, keyIds[i], null, SignMechanism.CKM_ECDSA);
+            TokenManager.addCert(keyIds[i], MEMBER, true, true, "registered", "cert" + i, certBytes);
+        }
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Object findTokenAndKey() {
+        return TokenManager.findTokenAndKey(keyIds[randomIndex()]);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Object getCertificateInfoForCertHash() {
+        return TokenManager.getCertificateInfoForCertHash(certHashes[randomIndex()]);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Object getKeyInfoForCertHash() {
+        return TokenManager.getKeyInfoForCertHash(certHashes[randomIndex()]);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public boolean isKeyAvailable() {
+        return TokenManager.isKeyAvailable(keyIds[randomIndex()]);
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(7)
+    public Object mixedLookup() {
+        return TokenManager.findTokenAndKey(keyIds[randomIndex()]);
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(1)
+    public void mixedUpdate() {
+        int index = randomIndex();
+        TokenManager.setKeyFriendlyName(keyIds[index], "key " + index);
+    }
+
+    private int randomIndex() {
+        return ThreadLocalRandom.current().nextInt(keyCount);
+    }
+}
@@ -98,6 +98,11 @@ public class SignerConfig {
         return new OcspClientWorker(globalConfProvider, ocspResponseManager, ocspClient);
     }
 
+    @Bean
+    SignerMetrics signerMetrics() {
+        return new SignerMetrics();
+    }
+
     @Bean
     CertChainFactory certChainFactory(GlobalConfProvider globalConfProvider) {
         return new CertChainFactory(globalConfProvider);
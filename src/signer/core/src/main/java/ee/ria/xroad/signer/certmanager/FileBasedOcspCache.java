@@ -29,41 +29,47 @@ import ee.ria.xroad.common.conf.globalconf.GlobalConfProvider;
 import ee.ria.xroad.common.ocsp.OcspCache;
 
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.io.IOUtils;
 import org.bouncycastle.cert.ocsp.OCSPResp;
 
-import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
 import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Date;
+import java.util.Set;
 
 import static ee.ria.xroad.common.ErrorCodes.translateException;
 import static ee.ria.xroad.common.SystemProperties.getOcspCachePath;
 
 /**
- * OCSP cache that holds the OCSP responses on disk.
+ * OCSP cache that holds the OCSP responses on disk, in a single {@link OcspResponseStore} file in the OCSP cache
+ * directory. Responses are parsed from the store when first requested and kept in memory afterwards.
  */
 @Slf4j
 public class FileBasedOcspCache extends OcspCache {
 
-    /** The OCSP response file extension. */
+    /** The file extension of OCSP responses stored by earlier versions, one file per certificate. */
     private static final String OCSP_FILE_EXTENSION = ".ocsp";
 
+    private final Path storeDirectory;
+
+    private OcspResponseStore store;
+
     public FileBasedOcspCache(GlobalConfProvider globalConfProvider) {
+        this(globalConfProvider, Paths.get(getOcspCachePath()));
+    }
+
+    FileBasedOcspCache(GlobalConfProvider globalConfProvider, Path storeDirectory) {
         super(globalConfProvider);
+
+        this.storeDirectory = storeDirectory;
     }
 
     /**
      * Returns the OCSP response for the given certificate or null, if the
      * response is not available.
-     * @param certHash for which to get the response
+     * @param key the certificate hash for which to get the response
      * @return the OCSP response object or null, if no response is available
      */
     @Override
@@ -76,11 +82,10 @@ public class FileBasedOcspCache extends OcspCache {
             }
         }
 
-        File file = getOcspResponseFile(getOcspCachePath(), key);
         try {
-            response = loadResponseFromFileIfNotExpired(file, atDate);
+            response = loadResponseIfNotExpired(key.toString(), atDate);
         } catch (Exception e) {
-            // Failed to load OCSP response from file
+            // Failed to load OCSP response from the store
             throw translateException(e);
         }
 
@@ -91,102 +96,139 @@ public class FileBasedOcspCache extends OcspCache {
     public OCSPResp put(String key, OCSPResp value) {
         OCSPResp response = super.put(key, value);
         try {
-            File file = getOcspResponseFile(getOcspCachePath(), key);
-            saveResponseToFile(file, value);
+            saveResponse(key, value);
         } catch (IOException e) {
-            // Failed to save OCSP response to file
+            // Failed to save OCSP response to the store
             throw translateException(e);
         }
 
         return response;
     }
 
+    /**
+     * Opens the response store, importing the responses saved by earlier versions one file per certificate.
+     * The responses are not parsed or verified here but when first requested.
+     * @throws Exception if the store cannot be opened
+     */
     void reloadFromDisk() throws Exception {
-        Path path = Paths.get(getOcspCachePath());
+        OcspResponseStore responseStore = getStore();
 
-        try (DirectoryStream<Path> stream =
-                     Files.newDirectoryStream(path, this::isOcspFile)) {
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(storeDirectory, this::isOcspFile)) {
             for (Path entry : stream) {
-                loadResponseFromFileIfNotExpired(entry.toFile(), new Date());
+                importResponseFile(responseStore, entry);
             }
         }
     }
 
+    /**
+     * Returns the stored response of the given certificate as is, without parsing it, checking its validity or
+     * caching it in memory.
+     * @param key the certificate hash
+     * @return the encoded response or null if there is no stored response
+     */
+    byte[] getStoredResponse(String key) {
+        try {
+            return getStore().get(key);
+        } catch (IOException e) {
+            throw translateException(e);
+        }
+    }
+
+    /**
+     * @return the certificate hashes of the responses in the store
+     */
+    Set<String> storedKeys() {
+        try {
+            return getStore().keys();
+        } catch (IOException e) {
+            throw translateException(e);
+        }
+    }
+
     boolean isOcspFile(Path p) {
         return Files.isRegularFile(p)
                 && p.toString().endsWith(OCSP_FILE_EXTENSION);
     }
 
-    void saveResponseToFile(File file, OCSPResp ocspResponse)
-            throws IOException {
-        createIntermediateDirectories(file);
-
-        try (OutputStream os = new FileOutputStream(file)) {
-            os.write(ocspResponse.getEncoded());
-        }
+    void saveResponse(String key, OCSPResp ocspResponse) throws IOException {
+        OcspResponseStore responseStore = getStore();
+        responseStore.put(key, ocspResponse.getEncoded());
 
-        log.trace("Saved OCSP response to file '{}'", file);
-    }
+        log.trace("Saved OCSP response for cert hash {}", key);
 
-    OCSPResp loadResponseFromFileIfNotExpired(File file, Date atDate)
-            throws Exception {
-        OCSPResp response = loadResponseFromFile(file);
-        if (response != null) {
-            String key = getFileNameWithoutExtension(file);
-            if (!isExpired(response, atDate)) {
-                log.trace("Loaded OCSP response for cert hash {}", key);
-
-                super.put(key, response); // store in memory
-            } else {
-                log.trace("Cached OCSP response for certificate '{}' "
-                        + "has expired, deleting the file '{}'", key, file);
-                delete(file);
-                return null;
-            }
+        if (responseStore.shouldCompact()) {
+            responseStore.compact(this::isStoredResponseValid);
         }
-
-        return response;
     }
 
-    OCSPResp loadResponseFromFile(File file) throws IOException {
-        if (!file.exists()) {
+    OCSPResp loadResponseIfNotExpired(String key, Date atDate) throws Exception {
+        OcspResponseStore responseStore = getStore();
+        byte[] encoded = responseStore.get(key);
+
+        if (encoded == null) {
             return null;
         }
 
-        if (file.length() == 0L) {
-            log.error("Cannot load OCSP response from file '{}': "
-                    + "file is empty", file);
-            delete(file);
-            return null;
+        OCSPResp response = new OCSPResp(encoded);
+        if (!isExpired(response, atDate)) {
+            log.trace("Loaded OCSP response for cert hash {}", key);
+
+            super.put(key, response); // store in memory
+
+            return response;
         }
 
-        log.trace("Retrieving OCSP response from file '{}'", file);
-        try (InputStream is = new FileInputStream(file)) {
-            return new OCSPResp(IOUtils.toByteArray(is));
+        log.trace("Cached OCSP response for certificate '{}' has expired, removing it from the store", key);
+        responseStore.remove(key);
+
+        return null;
+    }
+
+    private boolean isStoredResponseValid(String key, byte[] encoded) {
+        try {
+            return !isExpired(new OCSPResp(encoded), new Date());
+        } catch (Exception e) {
+            log.warn("Dropping unreadable OCSP response for cert hash {}: {}", key, e.getMessage());
+
+            return false;
         }
     }
 
-    private static void createIntermediateDirectories(File file)
-            throws IOException {
-        File path = file.getParentFile();
-        if (!path.exists() && !path.mkdirs()) {
-            throw new IOException("Could not create path " + path);
+    private void importResponseFile(OcspResponseStore responseStore, Path file) {
+        String key = getFileNameWithoutExtension(file);
+
+        try {
+            byte[] encoded = Files.readAllBytes(file);
+
+            if (encoded.length > 0 && !responseStore.contains(key)) {
+                responseStore.put(key, new OCSPResp(encoded).getEncoded());
+
+                log.trace("Imported OCSP response for cert hash {} from file '{}'", key, file);
+            }
+        } catch (Exception e) {
+            log.warn("Failed to import OCSP response from file '{}': {}", file, e.getMessage());
         }
+
+        delete(file);
     }
 
-    private static File getOcspResponseFile(String path, Object certHash) {
-        return new File(path, certHash + OCSP_FILE_EXTENSION);
+    private synchronized OcspResponseStore getStore() throws IOException {
+        if (store == null) {
+            store = OcspResponseStore.open(storeDirectory);
+        }
+
+        return store;
     }
 
-    private static void delete(File file) {
+    private static void delete(Path file) {
         try {
-            Files.delete(file.toPath());
+            Files.delete(file);
         } catch (Exception e) {
             log.warn("Failed to delete {}: {}", file, e);
         }
     }
 
-    private static String getFileNameWithoutExtension(File file) {
-        return file.getName().split("[.]")[0];
+    private static String getFileNameWithoutExtension(Path file) {
+        return file.getFileName().toString().split("[.]")[0];
     }
 }
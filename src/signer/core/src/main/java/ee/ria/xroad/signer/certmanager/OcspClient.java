@@ -25,6 +25,7 @@
  */
 package ee.ria.xroad.signer.certmanager;
 
+import ee.ria.xroad.common.SystemProperties;
 import ee.ria.xroad.common.conf.globalconf.GlobalConfProvider;
 import ee.ria.xroad.common.crypto.identifier.DigestAlgorithm;
 import ee.ria.xroad.common.crypto.identifier.SignAlgorithm;
@@ -67,10 +68,6 @@ import java.util.List;
 public final class OcspClient {
     private final GlobalConfProvider globalConfProvider;
 
-    // TODO make it configurable
-    private static final int CONNECT_TIMEOUT_MS = 20000;
-    private static final int READ_TIMEOUT_MS = 60000;
-
     // TODO make it configurable
     private static final DigestAlgorithm DIGEST_ALGORITHM_ID = DigestAlgorithm.SHA512;
     private static final SignMechanism SIGN_MECHANISM = SignMechanism.CKM_RSA_PKCS;
@@ -195,8 +192,8 @@ public final class OcspClient {
         connection.setRequestProperty(MimeUtils.HEADER_CONTENT_TYPE, MimeTypes.OCSP_REQUEST);
         connection.setRequestProperty("Accept", MimeTypes.OCSP_RESPONSE);
         connection.setDoOutput(true);
-        connection.setConnectTimeout(CONNECT_TIMEOUT_MS);
-        connection.setReadTimeout(READ_TIMEOUT_MS);
+        connection.setConnectTimeout(SystemProperties.getOcspResponderConnectTimeout());
+        connection.setReadTimeout(SystemProperties.getOcspResponderReadTimeout());
         connection.connect();
 
         return connection;
@@ -30,6 +30,7 @@ import ee.ria.xroad.common.CertificationServiceStatus;
 import ee.ria.xroad.common.CodedException;
 import ee.ria.xroad.common.DiagnosticsErrorCodes;
 import ee.ria.xroad.common.OcspResponderStatus;
+import ee.ria.xroad.common.SystemProperties;
 import ee.ria.xroad.common.cert.CertChain;
 import ee.ria.xroad.common.conf.globalconf.GlobalConfProvider;
 import ee.ria.xroad.common.crypto.identifier.SignAlgorithm;
@@ -42,11 +43,17 @@ import ee.ria.xroad.signer.job.OcspClientExecuteScheduler;
 import ee.ria.xroad.signer.protocol.dto.CertificateInfo;
 import ee.ria.xroad.signer.tokenmanager.TokenManager;
 
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.codahale.metrics.jmx.JmxReporter;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.bouncycastle.cert.ocsp.OCSPException;
 import org.bouncycastle.cert.ocsp.OCSPResp;
 import org.niis.xroad.signer.proto.SetOcspResponsesReq;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
 
 import java.io.IOException;
 import java.net.ConnectException;
@@ -63,6 +70,13 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 import static ee.ria.xroad.common.util.CryptoUtils.calculateCertSha1HexHash;
@@ -73,15 +87,22 @@ import static java.util.Collections.emptyList;
  * This class is responsible for retrieving the OCSP responses from the OCSP
  * server and providing the responses to the message signer.
  * <p>
- * The certificate status is queried from the server at a fixed interval.
+ * The certificate status is queried from the server at a fixed interval. The queries of a refresh cycle are
+ * executed in parallel, each on its own virtual thread. A query first waits for a permit of its responder and only
+ * then for one of the permits limiting the total number of concurrent requests, so queries waiting for a slow
+ * responder do not hold up the queries to other responders.
  */
 @Slf4j
 @RequiredArgsConstructor
-public class OcspClientWorker {
+public class OcspClientWorker implements InitializingBean, DisposableBean {
     private static final String OCSP_FRESHNESS_SECONDS = "ocspFreshnessSeconds";
     private static final String VERIFY_OCSP_NEXT_UPDATE = "verifyOcspNextUpdate";
     private static final String OCSP_FETCH_INTERVAL = "ocspFetchInterval";
 
+    static final String METRIC_CYCLE_DURATION = "ocspClient.cycleDuration";
+    static final String METRIC_CYCLE_CERTIFICATES = "ocspClient.cycleCertificates";
+    static final String METRIC_CYCLE_FAILURES = "ocspClient.cycleFailures";
+
     private final GlobalConfProvider globalConfProvider;
     private final OcspResponseManager ocspResponseManager;
     private final OcspClient ocspClient;
@@ -90,10 +111,49 @@ public class OcspClientWorker {
 
     private final CertificationServiceDiagnostics certServDiagnostics = new CertificationServiceDiagnostics();
 
+    private final ExecutorService fetchExecutor = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("ocsp-fetch-", 0).factory());
+
+    // permits of concurrent requests to all responders
+    private final Semaphore fetchPermits = new Semaphore(SystemProperties.getOcspFetchThreads(), true);
+
+    private final int maxRequestsPerResponder = SystemProperties.getOcspFetchMaxRequestsPerResponder();
+
+    // maps responder URI to the permits of concurrent requests to that responder
+    private final Map<String, Semaphore> responderPermits = new ConcurrentHashMap<>();
+
+    // maps certificate id to the certificate parsed during the previous refresh cycle
+    private volatile Map<String, ParsedCertificate> parsedCertificates = Map.of();
+
+    private final MetricRegistry metricRegistry = new MetricRegistry();
+    private final Timer cycleDuration = metricRegistry.timer(METRIC_CYCLE_DURATION);
+    private final Histogram cycleCertificates = metricRegistry.histogram(METRIC_CYCLE_CERTIFICATES);
+    private final Histogram cycleFailures = metricRegistry.histogram(METRIC_CYCLE_FAILURES);
+    private final JmxReporter reporter = JmxReporter.forRegistry(metricRegistry).build();
+
+    @Override
+    public void afterPropertiesSet() {
+        reporter.start();
+    }
+
+    @Override
+    public void destroy() {
+        fetchExecutor.shutdownNow();
+        reporter.stop();
+    }
+
     public CertificationServiceDiagnostics getDiagnostics() {
         return certServDiagnostics;
     }
 
+    /**
+     * @return the metric registry holding refresh cycle duration, certificate and failure counts, which are
+     * reported over JMX
+     */
+    public MetricRegistry getMetricRegistry() {
+        return metricRegistry;
+    }
+
     public void reload(OcspClientExecuteScheduler ocspClientExecuteScheduler) {
         log.trace("reload()");
         log.debug("Checking global configuration for validity and extension changes");
@@ -167,25 +227,57 @@ public class OcspClientWorker {
 
         log.info("Fetching OCSP responses for {} certificates", certs.size());
 
-        boolean failed = false;
-        Map<String, OCSPResp> statuses = new HashMap<>();
+        Timer.Context cycle = cycleDuration.time();
+        OcspVerifierOptions verifierOptions = new OcspVerifierOptions(
+                globalConfProvider.getGlobalConfExtensions().shouldVerifyOcspNextUpdate());
+
+        List<Future<OCSPResp>> queries = new ArrayList<>(certs.size());
 
         for (X509Certificate subject : certs) {
+            queries.add(fetchExecutor.submit(() -> queryCertStatus(subject, verifierOptions)));
+        }
+
+        int failures = 0;
+        Map<String, OCSPResp> statuses = new HashMap<>();
+
+        for (int i = 0; i < certs.size(); i++) {
+            X509Certificate subject = certs.get(i);
+
             try {
-                OCSPResp status = queryCertStatus(subject, new OcspVerifierOptions(
-                        globalConfProvider.getGlobalConfExtensions().shouldVerifyOcspNextUpdate()));
+                OCSPResp status = queries.get(i).get();
                 if (status != null) {
                     String subjectHash = calculateCertSha1HexHash(subject);
                     statuses.put(subjectHash, status);
                 } else {
-                    failed = true;
+                    failures++;
                 }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                queries.forEach(query -> query.cancel(true));
+                failures += certs.size() - i;
+
+                log.warn("OCSP-response refresh cycle interrupted");
+
+                break;
+            } catch (ExecutionException e) {
+                failures++;
+
+                log.error("Error when querying certificate '{}'", subject.getSerialNumber(), e.getCause());
             } catch (Exception e) {
-                failed = true;
+                failures++;
 
                 log.error("Error when querying certificate '{}'", subject.getSerialNumber(), e);
             }
         }
+
+        long elapsedNanos = cycle.stop();
+        cycleCertificates.update(certs.size());
+        cycleFailures.update(failures);
+
+        log.info("OCSP-response refresh cycle fetched {} of {} responses in {} ms", statuses.size(), certs.size(),
+                TimeUnit.NANOSECONDS.toMillis(elapsedNanos));
+
+        boolean failed = failures > 0;
         if (ocspClientExecuteScheduler != null) {
             if (failed) {
                 ocspClientExecuteScheduler.failure();
@@ -203,6 +295,7 @@ public class OcspClientWorker {
 
     List<X509Certificate> getCertsForOcsp() {
         Set<X509Certificate> certs = new HashSet<>();
+        Map<String, ParsedCertificate> parsed = new HashMap<>();
 
         for (CertificateInfo certInfo : TokenManager.getAllCerts()) {
             if (!certInfo.isActive()) {
@@ -223,7 +316,7 @@ public class OcspClientWorker {
             X509Certificate cert;
 
             try {
-                cert = CryptoUtils.readCertificate(certInfo.getCertificateBytes());
+                cert = parseCertificate(certInfo, parsed);
             } catch (Exception e) {
                 log.error("Failed to parse certificate " + certInfo.getId(), e);
 
@@ -239,9 +332,24 @@ public class OcspClientWorker {
             getCertChain(cert).stream().filter(this::isCertValid).forEach(certs::add);
         }
 
+        parsedCertificates = parsed;
+
         return new ArrayList<>(certs);
     }
 
+    private X509Certificate parseCertificate(CertificateInfo certInfo, Map<String, ParsedCertificate> parsed) {
+        ParsedCertificate certificate = parsedCertificates.get(certInfo.getId());
+
+        if (certificate == null || !Arrays.equals(certificate.encoded(), certInfo.getCertificateBytes())) {
+            certificate = new ParsedCertificate(certInfo.getCertificateBytes(),
+                    CryptoUtils.readCertificate(certInfo.getCertificateBytes()));
+        }
+
+        parsed.put(certInfo.getId(), certificate);
+
+        return certificate.certificate();
+    }
+
     OCSPResp queryCertStatus(X509Certificate subject, OcspVerifierOptions verifierOptions) throws Exception {
         X509Certificate issuer = globalConfProvider.getCaCert(globalConfProvider.getInstanceIdentifier(), subject);
 
@@ -267,8 +375,7 @@ public class OcspClientWorker {
 
             try {
                 log.debug("Fetching response from: {}", responderURI);
-                final OCSPResp response = ocspClient
-                        .fetchResponse(responderURI, subject, issuer, signerKey, signer, signAlgoId);
+                final OCSPResp response = fetchResponse(responderURI, subject, issuer, signerKey, signer, signAlgoId);
 
                 if (response != null) {
                     log.debug("Verifying response: {}", response);
@@ -289,6 +396,10 @@ public class OcspClientWorker {
             } catch (CodedException e) {
                 log.warn("Received OCSP response that failed verification", e);
                 errorCode = DiagnosticsErrorCodes.ERROR_CODE_OCSP_RESPONSE_UNVERIFIED;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+
+                throw e;
             } catch (Exception e) {
                 log.error("Unable to fetch response from responder at {}", responderURI, e);
                 errorCode = DiagnosticsErrorCodes.ERROR_CODE_OCSP_RESPONSE_INVALID;
@@ -300,9 +411,33 @@ public class OcspClientWorker {
         return null;
     }
 
+    private OCSPResp fetchResponse(String responderURI, X509Certificate subject, X509Certificate issuer,
+                                   PrivateKey signerKey, X509Certificate signer, SignAlgorithm signAlgoId) throws Exception {
+        Semaphore permits = responderPermits.computeIfAbsent(responderURI,
+                uri -> new Semaphore(maxRequestsPerResponder, true));
+
+        permits.acquire();
+        try {
+            fetchPermits.acquire();
+            try {
+                return ocspClient.fetchResponse(responderURI, subject, issuer, signerKey, signer, signAlgoId);
+            } finally {
+                fetchPermits.release();
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
     private void reportOcspDiagnostics(X509Certificate issuer, String responderURI, int statusCode,
                                        OffsetDateTime prevUpdate, OffsetDateTime nextUpdate) {
+        synchronized (certServDiagnostics) {
+            doReportOcspDiagnostics(issuer, responderURI, statusCode, prevUpdate, nextUpdate);
+        }
+    }
 
+    private void doReportOcspDiagnostics(X509Certificate issuer, String responderURI, int statusCode,
+                                         OffsetDateTime prevUpdate, OffsetDateTime nextUpdate) {
         OcspResponderStatus responderStatus = new OcspResponderStatus(statusCode, responderURI, prevUpdate, nextUpdate);
 
         String subjectName = issuer.getSubjectDN().toString();
@@ -384,7 +519,12 @@ public class OcspClientWorker {
     }
 
     private void initializeDiagnostics() {
+        synchronized (certServDiagnostics) {
+            doInitializeDiagnostics();
+        }
+    }
 
+    private void doInitializeDiagnostics() {
         final int fetchInterval = globalConfProvider.getGlobalConfExtensions().getOcspFetchInterval();
         final Map<String, CertificationServiceStatus> serviceStatusMap = certServDiagnostics
                 .getCertificationServiceStatusMap();
@@ -414,4 +554,6 @@ public class OcspClientWorker {
         }
     }
 
+    private record ParsedCertificate(byte[] encoded, X509Certificate certificate) {
+    }
 }
@@ -39,7 +39,8 @@ import org.niis.xroad.signer.proto.SetOcspResponsesReq;
 import java.io.IOException;
 import java.security.cert.CertificateEncodingException;
 import java.security.cert.X509Certificate;
-import java.util.Map.Entry;
+import java.util.HashMap;
+import java.util.Map;
 
 import static ee.ria.xroad.common.util.CryptoUtils.calculateCertSha1HexHash;
 import static ee.ria.xroad.common.util.EncoderUtils.decodeBase64;
@@ -53,8 +54,8 @@ import static ee.ria.xroad.common.util.EncoderUtils.encodeBase64;
  * the entire certificate.
  * <p>
  * When an OCSP response is added to the manager, it is first cached in memory
- * (overwriting any existing response) and then attempted to be written to disk
- * (overwriting any existing response file).
+ * (overwriting any existing response) and then appended to the response store
+ * on disk.
  * <p>
  * When an OCSP response is queried from the manager, first the cache is checked
  * for the response. If the response exists in the memory cache, it is returned.
@@ -107,13 +108,28 @@ public class OcspResponseManager {
 
     // ------------------------------------------------------------------------
 
+    /**
+     * Opens the response store and hands the stored responses of the certificates in {@link TokenManager} to it in
+     * one call. The responses of other certificates are loaded when first requested. Stored responses are not
+     * checked for expiry here, expired responses are removed from {@link TokenManager} by the next OCSP refresh.
+     */
     public void init() {
         try {
             responseCache.reloadFromDisk();
 
-            for (Entry<String, OCSPResp> e : responseCache.entrySet()) {
-                TokenManager.setOcspResponse(e.getKey(), e.getValue());
+            Map<String, OCSPResp> responses = new HashMap<>();
+            for (String certHash : responseCache.storedKeys()) {
+                if (TokenManager.getCertificateForCerHash(certHash) == null) {
+                    continue;
+                }
+
+                byte[] encoded = responseCache.getStoredResponse(certHash);
+                if (encoded != null) {
+                    responses.put(certHash, new OCSPResp(encoded));
+                }
             }
+
+            TokenManager.setOcspResponses(responses);
         } catch (Exception e) {
             log.error("Failed to load OCSP responses from disk", e);
         }
@@ -171,9 +187,17 @@ public class OcspResponseManager {
     public void handleSetOcspResponses(SetOcspResponsesReq message) throws Exception {
         log.trace("handleSetOcspResponses()");
 
-        for (int i = 0; i < message.getCertHashesCount(); i++) {
-            setResponse(message.getCertHashes(i), new OCSPResp(
-                    decodeBase64(message.getBase64EncodedResponses(i))));
+        Map<String, OCSPResp> responses = new HashMap<>(message.getCertHashesCount());
+        try {
+            for (int i = 0; i < message.getCertHashesCount(); i++) {
+                OCSPResp response = new OCSPResp(decodeBase64(message.getBase64EncodedResponses(i)));
+
+                log.debug("Setting a new response to cache for cert: {}", message.getCertHashes(i));
+                responses.put(message.getCertHashes(i), response);
+                responseCache.put(message.getCertHashes(i), response);
+            }
+        } finally {
+            TokenManager.setOcspResponses(responses);
         }
     }
 
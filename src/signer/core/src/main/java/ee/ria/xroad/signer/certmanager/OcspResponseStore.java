@@ -0,0 +1,380 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.signer.certmanager;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiPredicate;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only single file store of encoded OCSP responses keyed by certificate hash.
+ * <p>
+ * Every put appends a record (key length, data length, CRC32 of key and data, key, data) to the end of the file and
+ * points the in-memory index to it, a removal appends a record without data. Reads are served from a read-only
+ * memory mapping of the file. Records appended after the file was mapped are read from the file until the unmapped
+ * tail has grown by {@value #MAPPING_GROWTH} bytes, so the file is mapped again once per chunk and not after
+ * every put. On open the file is scanned once to rebuild the index; a torn or corrupt tail left by
+ * a crash is detected by the length and checksum checks and truncated. Superseded records are dropped by
+ * {@link #compact(BiPredicate)}, which rewrites the live records into a temporary file and atomically replaces the
+ * store with it.
+ * <p>
+ * Writes are not forced to disk one by one: a crash may lose the most recently stored responses, which are fetched
+ * again on the next OCSP refresh cycle, but never leaves the store unreadable.
+ */
+@Slf4j
+class OcspResponseStore implements Closeable {
+
+    static final String STORE_FILE_NAME = "ocsp-responses.store";
+
+    private static final int MAGIC = 0x4f435350; // "OCSP"
+    private static final int VERSION = 1;
+    private static final int FILE_HEADER_SIZE = 2 * Integer.BYTES;
+    private static final int RECORD_HEADER_SIZE = Short.BYTES + 2 * Integer.BYTES;
+
+    private static final long MIN_COMPACTION_SIZE = 1024 * 1024;
+    private static final long MAPPING_GROWTH = 1024 * 1024;
+
+    private final Path file;
+
+    // maps key to the position of the record data in the file
+    private final Map<String, Location> index = new HashMap<>();
+
+    private FileChannel channel;
+    private MappedByteBuffer mapped;
+    private long size;
+    private long liveBytes;
+
+    private OcspResponseStore(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Opens the store in the given directory, creating it if it does not exist.
+     * @param directory the directory of the store file
+     * @return the store
+     * @throws IOException if the store cannot be opened
+     */
+    static OcspResponseStore open(Path directory) throws IOException {
+        Files.createDirectories(directory);
+
+        OcspResponseStore store = new OcspResponseStore(directory.resolve(STORE_FILE_NAME));
+        store.recover();
+
+        return store;
+    }
+
+    /**
+     * @param key the key
+     * @return the stored data or null if there is no data for the key
+     * @throws IOException if the store cannot be read
+     */
+    synchronized byte[] get(String key) throws IOException {
+        Location location = index.get(key);
+
+        if (location == null) {
+            return null;
+        }
+
+        byte[] data = new byte[location.length()];
+        long end = location.offset() + location.length();
+
+        if (mapped != null && end > mapped.capacity() && size - mapped.capacity() < MAPPING_GROWTH) {
+            readFully(channel, ByteBuffer.wrap(data), location.offset());
+        } else {
+            ensureMapped(end);
+            mapped.get((int) location.offset(), data);
+        }
+
+        return data;
+    }
+
+    /**
+     * @param key the key
+     * @return true if there is data for the key
+     */
+    synchronized boolean contains(String key) {
+        return index.containsKey(key);
+    }
+
+    /**
+     * @return the keys of stored data
+     */
+    synchronized Set<String> keys() {
+        return Set.copyOf(index.keySet());
+    }
+
+    /**
+     * Stores data for the key, replacing the previous data.
+     * @param key the key
+     * @param data the data, must not be empty
+     * @throws IOException if the data cannot be written
+     */
+    synchronized void put(String key, byte[] data) throws IOException {
+        if (data.length == 0) {
+            throw new IllegalArgumentException("Cannot store empty OCSP response for " + key);
+        }
+
+        append(key, data);
+    }
+
+    /**
+     * Removes the data of the key.
+     * @param key the key
+     * @throws IOException if the removal cannot be written
+     */
+    synchronized void remove(String key) throws IOException {
+        if (index.containsKey(key)) {
+            append(key, new byte[0]);
+        }
+    }
+
+    /**
+     * @return true if superseded records take up more than half of a store larger than 1 MiB
+     */
+    synchronized boolean shouldCompact() {
+        return size > MIN_COMPACTION_SIZE && liveBytes < (size - FILE_HEADER_SIZE) / 2;
+    }
+
+    /**
+     * Rewrites the store keeping only the current data of the keys accepted by the filter.
+     * @param retain filter receiving the key and the data
+     * @throws IOException if the store cannot be rewritten
+     */
+    synchronized void compact(BiPredicate<String, byte[]> retain) throws IOException {
+        Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+        long before = size;
+
+        try (FileChannel out = FileChannel.open(tempFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeFully(out, fileHeader(), 0);
+            long position = FILE_HEADER_SIZE;
+
+            for (String key : index.keySet()) {
+                byte[] data = get(key);
+
+                if (retain.test(key, data)) {
+                    ByteBuffer record = record(key, data);
+                    int length = record.remaining();
+                    writeFully(out, record, position);
+                    position += length;
+                }
+            }
+
+            out.force(true);
+        }
+
+        close();
+        try {
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            recover();
+        }
+
+        log.debug("Compacted OCSP response store '{}' from {} to {} bytes", file, before, size);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        mapped = null;
+        index.clear();
+
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+
+    private void recover() throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        size = channel.size();
+        liveBytes = 0;
+        index.clear();
+        mapped = null;
+
+        if (size < FILE_HEADER_SIZE) {
+            channel.truncate(0);
+            writeFully(channel, fileHeader(), 0);
+            size = FILE_HEADER_SIZE;
+
+            return;
+        }
+
+        ensureMapped(size);
+
+        if (mapped.getInt(0) != MAGIC || mapped.getInt(Integer.BYTES) != VERSION) {
+            throw new IOException("Unsupported OCSP response store file " + file);
+        }
+
+        long position = FILE_HEADER_SIZE;
+
+        while (position < size) {
+            long next = readRecord(position);
+
+            if (next < 0) {
+                log.warn("Truncating corrupt OCSP response store '{}' at {} of {} bytes", file, position, size);
+
+                channel.truncate(position);
+                size = position;
+                mapped = null;
+
+                break;
+            }
+
+            position = next;
+        }
+
+        log.debug("Loaded {} OCSP response(s) from store '{}'", index.size(), file);
+    }
+
+    // returns the position of the next record or -1 if the record at the position is incomplete or corrupt
+    private long readRecord(long position) {
+        if (position + RECORD_HEADER_SIZE > size) {
+            return -1;
+        }
+
+        int offset = (int) position;
+        int keyLength = mapped.getShort(offset);
+        int dataLength = mapped.getInt(offset + Short.BYTES);
+        int checksum = mapped.getInt(offset + Short.BYTES + Integer.BYTES);
+        long end = position + RECORD_HEADER_SIZE + keyLength + dataLength;
+
+        if (keyLength <= 0 || dataLength < 0 || end > size) {
+            return -1;
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(mapped.slice(offset + RECORD_HEADER_SIZE, keyLength + dataLength));
+
+        if ((int) crc.getValue() != checksum) {
+            return -1;
+        }
+
+        byte[] keyBytes = new byte[keyLength];
+        mapped.get(offset + RECORD_HEADER_SIZE, keyBytes);
+
+        index(new String(keyBytes, StandardCharsets.UTF_8), end - dataLength, dataLength,
+                RECORD_HEADER_SIZE + keyLength);
+
+        return end;
+    }
+
+    private void append(String key, byte[] data) throws IOException {
+        ByteBuffer record = record(key, data);
+        int length = record.remaining();
+
+        writeFully(channel, record, size);
+
+        long dataOffset = size + length - data.length;
+        size += length;
+
+        index(key, dataOffset, data.length, length - data.length);
+    }
+
+    private void index(String key, long dataOffset, int dataLength, int overhead) {
+        Location previous = dataLength > 0
+                ? index.put(key, new Location(dataOffset, dataLength, overhead))
+                : index.remove(key);
+
+        if (previous != null) {
+            liveBytes -= previous.length() + previous.overhead();
+        }
+
+        if (dataLength > 0) {
+            liveBytes += dataLength + overhead;
+        }
+    }
+
+    private void ensureMapped(long end) throws IOException {
+        if (end > Integer.MAX_VALUE) {
+            throw new IOException("OCSP response store " + file + " exceeds maximum size");
+        }
+
+        if (mapped == null || mapped.capacity() < end) {
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+    }
+
+    private static ByteBuffer fileHeader() {
+        return ByteBuffer.allocate(FILE_HEADER_SIZE).putInt(MAGIC).putInt(VERSION).flip();
+    }
+
+    private static ByteBuffer record(String key, byte[] data) {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+
+        if (keyBytes.length == 0 || keyBytes.length > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid OCSP response store key: " + key);
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(keyBytes);
+        crc.update(data);
+
+        return ByteBuffer.allocate(RECORD_HEADER_SIZE + keyBytes.length + data.length)
+                .putShort((short) keyBytes.length)
+                .putInt(data.length)
+                .putInt((int) crc.getValue())
+                .put(keyBytes)
+                .put(data)
+                .flip();
+    }
+
+    private static void readFully(FileChannel in, ByteBuffer buffer, long position) throws IOException {
+        long current = position;
+
+        while (buffer.hasRemaining()) {
+            int read = in.read(buffer, current);
+            if (read < 0) {
+                throw new IOException("Unexpected end of OCSP response store at " + current);
+            }
+            current += read;
+        }
+    }
+
+    private static void writeFully(FileChannel out, ByteBuffer buffer, long position) throws IOException {
+        long current = position;
+
+        while (buffer.hasRemaining()) {
+            current += out.write(buffer, current);
+        }
+    }
+
+    private record Location(long offset, int length, int overhead) {
+    }
+}
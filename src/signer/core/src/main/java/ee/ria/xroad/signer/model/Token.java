@@ -145,6 +145,16 @@ public final class Token {
      * @return the value object
      */
     public TokenInfo toDTO() {
+        return toDTO(getKeysAsDTOs());
+    }
+
+    /**
+     * Converts this object to value object, using already converted keys.
+     *
+     * @param keyInfos the value objects of the keys of this token
+     * @return the value object
+     */
+    public TokenInfo toDTO(List<KeyInfoProto> keyInfos) {
         var messageBuilder = TokenInfoProto.newBuilder()
                 .setType(type)
                 .setId(id)
@@ -153,7 +163,7 @@ public final class Token {
                 .setActive(active)
                 .setSlotIndex(slotIndex)
                 .setStatus(status)
-                .addAllKeyInfo(Collections.unmodifiableList(getKeysAsDTOs()))
+                .addAllKeyInfo(Collections.unmodifiableList(keyInfos))
                 .putAllTokenInfo(unmodifiableMap(tokenInfo));
 
         ofNullable(friendlyName).ifPresent(messageBuilder::setFriendlyName);
@@ -39,6 +39,10 @@ import ee.ria.xroad.signer.protocol.dto.KeyUsageInfo;
 import ee.ria.xroad.signer.protocol.dto.TokenInfo;
 import ee.ria.xroad.signer.protocol.dto.TokenInfoAndKeyId;
 import ee.ria.xroad.signer.protocol.dto.TokenStatusInfo;
+import ee.ria.xroad.signer.tokenmanager.TokenRegistry.CertEntry;
+import ee.ria.xroad.signer.tokenmanager.TokenRegistry.CertRequestEntry;
+import ee.ria.xroad.signer.tokenmanager.TokenRegistry.KeyEntry;
+import ee.ria.xroad.signer.tokenmanager.TokenRegistry.TokenEntry;
 import ee.ria.xroad.signer.tokenmanager.merge.MergeOntoFileTokensStrategy;
 import ee.ria.xroad.signer.tokenmanager.merge.TokenMergeAddedCertificatesListener;
 import ee.ria.xroad.signer.tokenmanager.merge.TokenMergeStrategy;
@@ -54,10 +58,13 @@ import org.bouncycastle.cert.ocsp.OCSPResp;
 import java.security.cert.X509Certificate;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.function.BiFunction;
+import java.util.function.Consumer;
 import java.util.function.Function;
 
 import static ee.ria.xroad.common.ErrorCodes.X_WRONG_CERT_USAGE;
@@ -70,12 +77,18 @@ import static java.util.Collections.unmodifiableList;
 
 /**
  * Manages the current state of tokens, their keys and certificates.
+ * <p>
+ * Changes are made to the token model under the class lock, after which an immutable {@link TokenRegistry} snapshot
+ * of the model is published. All lookups are served from the latest snapshot without locking, so signing requests
+ * do not contend with each other or wait for changes in progress.
  */
 @Slf4j
 public final class TokenManager {
 
     private static volatile List<Token> currentTokens = new ArrayList<>();
 
+    private static volatile TokenRegistry registry = TokenRegistry.EMPTY;
+
     private static boolean initialized;
 
     // configure the implementation somewhere else if multiple implementations created
@@ -96,7 +109,10 @@ public final class TokenManager {
             log.error("Failed to load token conf", e);
         }
 
-        currentTokens = new ArrayList<>(TokenConf.getInstance().getTokens());
+        synchronized (TokenManager.class) {
+            currentTokens = new ArrayList<>(TokenConf.getInstance().getTokens());
+            registry = TokenRegistry.build(currentTokens, null, null);
+        }
 
         initialized = true;
     }
@@ -138,6 +154,7 @@ public final class TokenManager {
             synchronized (TokenManager.class) {
                 result = mergeStrategy.merge(fileTokens, currentTokens);
                 currentTokens = result.getResultTokens();
+                registry = TokenRegistry.build(currentTokens, null, null);
             }
             if (listener != null) {
                 listener.mergeDone(result.getAddedCertificates());
@@ -156,9 +173,9 @@ public final class TokenManager {
     /**
      * @return list of tokens
      */
-    public static synchronized List<TokenInfo> listTokens() {
-        return currentTokens.stream()
-                .map(Token::toDTO)
+    public static List<TokenInfo> listTokens() {
+        return registry.getTokens().stream()
+                .map(TokenEntry::tokenInfo)
                 .toList();
     }
 
@@ -188,6 +205,7 @@ public final class TokenManager {
         token.setAvailable(true);
 
         currentTokens.add(token);
+        publish(null);
 
         return token.toDTO();
     }
@@ -210,13 +228,11 @@ public final class TokenManager {
      * @param tokenId the token id
      * @return the token info DTO for the token id or null of not found
      */
-    public static synchronized TokenInfo getTokenInfo(String tokenId) {
+    public static TokenInfo getTokenInfo(String tokenId) {
         log.trace("getTokenInfo({})", tokenId);
 
-        return currentTokens.stream()
-                .filter(t -> t.getId().equals(tokenId))
-                .map(Token::toDTO)
-                .findFirst().orElse(null);
+        TokenEntry token = registry.getToken(tokenId);
+        return token != null ? token.tokenInfo() : null;
     }
 
     /**
@@ -224,80 +240,87 @@ public final class TokenManager {
      * @return the token info DTO for the token
      * @throws Exception if key was not found
      */
-    public static synchronized TokenInfo findTokenInfoForKeyId(String keyId) {
+    public static TokenInfo findTokenInfoForKeyId(String keyId) {
         log.trace("getTokenInfoForKeyId({})", keyId);
-        String tokenId = findTokenIdForKeyId(keyId);
-        return getTokenInfo(tokenId);
+
+        return findKeyEntry(registry, keyId).token().tokenInfo();
     }
 
     /**
      * @param keyId the key id
      * @return the token and key or throws exception if not found
      */
-    public static synchronized TokenAndKey findTokenAndKey(String keyId) {
+    public static TokenAndKey findTokenAndKey(String keyId) {
         log.trace("findTokenAndKey({})", keyId);
 
-        return forKey((t, k) -> k.getId().equals(keyId),
-                (t, k) -> new TokenAndKey(t.getId(), k.toDTO()))
-                .orElseThrow(() -> keyNotFound(keyId));
+        KeyEntry key = findKeyEntry(registry, keyId);
+        return new TokenAndKey(key.token().tokenInfo().getId(), key.keyInfo());
     }
 
     /**
      * @param certHash the certificate hash in HEX
      * @return the tokenInfo and key id, or throws exception if not found
      */
-    public static synchronized TokenInfoAndKeyId findTokenAndKeyIdForCertHash(String certHash) {
+    public static TokenInfoAndKeyId findTokenAndKeyIdForCertHash(String certHash) {
         log.trace("findTokenAndKeyIdForCertHash({})", certHash);
 
-        String keyId = forCert((k, c) -> certHash.equals(c.getSha256hash()), (k, c) -> k.getId())
-                .orElseThrow(() -> certWithHashNotFound(certHash));
+        TokenRegistry current = registry;
 
-        return forKey((t, k) -> k.getId().equals(keyId),
-                (t, k) -> new TokenInfoAndKeyId(t.toDTO(), keyId))
-                .orElseThrow(() -> keyNotFound(keyId));
+        CertEntry cert = current.getCertBySha256Hash(certHash);
+        if (cert == null) {
+            throw certWithHashNotFound(certHash);
+        }
+
+        String keyId = cert.keyInfo().getId();
+        return new TokenInfoAndKeyId(findKeyEntry(current, keyId).token().tokenInfo(), keyId);
     }
 
     /**
      * @param certRequestId the certificate request id
      * @return the tokenInfo and key id, or throws exception if not found
      */
-    public static synchronized TokenInfoAndKeyId findTokenAndKeyIdForCertRequestId(String certRequestId) {
+    public static TokenInfoAndKeyId findTokenAndKeyIdForCertRequestId(String certRequestId) {
         log.trace("findTokenAndKeyIdForCertRequestId({})", certRequestId);
 
-        String keyId = forCertRequest((k, c) -> certRequestId.equals(c.getId()),
-                (k, c) -> k.getId())
-                .orElseThrow(() -> csrWithIdNotFound(certRequestId));
+        TokenRegistry current = registry;
 
-        return forKey((t, k) -> k.getId().equals(keyId),
-                (t, k) -> new TokenInfoAndKeyId(t.toDTO(), keyId))
-                .orElseThrow(() -> keyNotFound(keyId));
+        CertRequestEntry certRequest = current.getCertRequest(certRequestId);
+        if (certRequest == null) {
+            throw csrWithIdNotFound(certRequestId);
+        }
+
+        String keyId = certRequest.keyInfo().getId();
+        return new TokenInfoAndKeyId(findKeyEntry(current, keyId).token().tokenInfo(), keyId);
     }
 
     /**
      * @param keyId the key id
      * @return the token id for the key id or throws exception if not found
      */
-    public static synchronized String findTokenIdForKeyId(String keyId) {
+    public static String findTokenIdForKeyId(String keyId) {
         log.trace("findTokenIdForKeyId({})", keyId);
 
-        return forKey((t, k) -> k.getId().equals(keyId),
-                (t, k) -> t.getId()).orElseThrow(() -> keyNotFound(keyId));
+        return findKeyEntry(registry, keyId).token().tokenInfo().getId();
     }
 
     /**
      * @return the software token id
      */
-    public static synchronized String getSoftwareTokenId() {
-        return forToken(t -> t.getType().equals(SoftwareModuleType.TYPE), Token::getId).orElse(null);
+    public static String getSoftwareTokenId() {
+        return registry.getTokens().stream()
+                .map(TokenEntry::tokenInfo)
+                .filter(t -> SoftwareModuleType.TYPE.equals(t.getType()))
+                .map(TokenInfo::getId)
+                .findFirst().orElse(null);
     }
 
     /**
      * @param tokenId the token id
      * @return the module id for the token id or null if not found
      */
-    public static synchronized String getModuleId(String tokenId) {
-        return forToken(t -> t.getId().equals(tokenId),
-                Token::getModuleId).orElse(null);
+    public static String getModuleId(String tokenId) {
+        TokenEntry token = registry.getToken(tokenId);
+        return token != null ? token.moduleId() : null;
     }
 
     /**
@@ -317,45 +340,43 @@ public final class TokenManager {
      * @param keyId the key id
      * @return the key info for the key id or null if not found
      */
-    public static synchronized KeyInfo getKeyInfo(String keyId) {
+    public static KeyInfo getKeyInfo(String keyId) {
         log.trace("getKeyInfo({})", keyId);
 
-        return forKey((t, k) -> k.getId().equals(keyId),
-                (t, k) -> k.toDTO()).orElse(null);
+        KeyEntry key = registry.getKey(keyId);
+        return key != null ? key.keyInfo() : null;
     }
 
     /**
      * @param clientId the client id
      * @return the list of keys for the given client id
      */
-    public static synchronized List<KeyInfo> getKeyInfo(ClientId clientId) {
+    public static List<KeyInfo> getKeyInfo(ClientId clientId) {
         log.trace("getKeyInfo({})", clientId);
 
         List<KeyInfo> keyInfo = new ArrayList<>();
 
-        for (Token token : currentTokens) {
-            if (token.isInActive()) {
+        for (KeyEntry key : registry.getKeys()) {
+            if (key.token().inactive()) {
                 // Ignore inactive (not usable) tokens
                 continue;
             }
 
-            for (Key key : token.getKeys()) {
-                if (!key.isValidForSigning()) {
-                    // Ignore authentication keys
+            if (!key.validForSigning()) {
+                // Ignore authentication keys
+                continue;
+            }
+
+            for (CertEntry cert : key.certs()) {
+                if (cert.invalid()) {
+                    // Ignore inactive and invalid certificates
                     continue;
                 }
 
-                for (Cert cert : key.getCerts()) {
-                    if (cert.isInvalid()) {
-                        // Ignore inactive and invalid certificates
-                        continue;
-                    }
-
-                    if (certBelongsToMember(cert.toDTO(), clientId)) {
-                        log.debug("Found key '{}' for client '{}'",
-                                key.getId(), cert.getMemberId());
-                        keyInfo.add(key.toDTO());
-                    }
+                if (memberBelongsTo(cert.memberId(), clientId)) {
+                    log.debug("Found key '{}' for client '{}'",
+                            key.keyInfo().getId(), cert.memberId());
+                    keyInfo.add(key.keyInfo());
                 }
             }
         }
@@ -381,42 +402,43 @@ public final class TokenManager {
      * @param certId the certificate id
      * @return the certificate info for the certificate id or null if not found
      */
-    public static synchronized CertificateInfo getCertificateInfo(String certId) {
+    public static CertificateInfo getCertificateInfo(String certId) {
         log.trace("getCertificateInfo({})", certId);
 
-        return forCert((k, c) -> c.getId().equals(certId), (k, c) -> c.toDTO()).orElse(null);
+        CertEntry cert = registry.getCert(certId);
+        return cert != null ? cert.certificateInfo() : null;
     }
 
     /**
      * @param certHash the certificate hash in HEX
      * @return the certificate info for the certificate hash or null
      */
-    public static synchronized CertificateInfo getCertificateInfoForCertHash(String certHash) {
+    public static CertificateInfo getCertificateInfoForCertHash(String certHash) {
         log.trace("getCertificateInfoForCertHash({})", certHash);
 
-        return forCert((k, c) -> certHash.equals(c.getSha256hash()), (k, c) -> c.toDTO()).orElse(null);
+        CertEntry cert = registry.getCertBySha256Hash(certHash);
+        return cert != null ? cert.certificateInfo() : null;
     }
 
     /**
      * @param certSha1Hash the certificate SHA-1 hash in HEX
      * @return the certificate for the certificate hash or null
      */
-    public static synchronized X509Certificate getCertificateForCerHash(String certSha1Hash) {
+    public static X509Certificate getCertificateForCerHash(String certSha1Hash) {
         log.trace("getCertificateForCertHash({})", certSha1Hash);
 
-        return forCert((k, c) -> certSha1Hash.equals(c.getSha1hash()), (k, c) -> c.getCertificate()).orElse(null);
+        CertEntry cert = registry.getCertBySha1Hash(certSha1Hash);
+        return cert != null ? cert.certificate() : null;
     }
 
     /**
      * @return all certificates
      */
-    public static synchronized List<CertificateInfo> getAllCerts() {
+    public static List<CertificateInfo> getAllCerts() {
         log.trace("getAllCerts()");
 
-        return currentTokens.stream()
-                .flatMap(t -> t.getKeys().stream())
-                .flatMap(k -> k.getCerts().stream())
-                .map(Cert::toDTO)
+        return registry.getCerts().stream()
+                .map(CertEntry::certificateInfo)
                 .toList();
     }
 
@@ -426,13 +448,38 @@ public final class TokenManager {
      * @param certSha1Hash the certificate SHA-1 hash in HEX
      * @param response the OCSP response
      */
-    public static synchronized void setOcspResponse(String certSha1Hash, OCSPResp response) {
-        log.trace("setOcspResponse({})", certSha1Hash);
+    public static void setOcspResponse(String certSha1Hash, OCSPResp response) {
+        setOcspResponses(Collections.singletonMap(certSha1Hash, response));
+    }
 
-        forCert((k, c) -> certSha1Hash.equals(c.getSha1hash()), (k, c) -> {
-            c.setOcspResponse(response);
-            return null;
+    /**
+     * Sets the OCSP responses for the certificates. A new snapshot is published once for all the responses and only
+     * if some response has changed.
+     *
+     * @param responses the OCSP responses by certificate SHA-1 hash in HEX, a null response removes the response
+     */
+    public static synchronized void setOcspResponses(Map<String, OCSPResp> responses) {
+        log.trace("setOcspResponses({})", responses.size());
+
+        List<Key> changedKeys = new ArrayList<>();
+
+        responses.forEach((certSha1Hash, response) -> {
+            Key key = registry.findKeyByCertSha1Hash(certSha1Hash);
+            if (key == null) {
+                return;
+            }
+
+            key.getCerts().stream()
+                    .filter(c -> certSha1Hash.equals(c.getSha1hash()))
+                    .findFirst()
+                    .filter(c -> !Objects.equals(c.getOcspResponse(), response))
+                    .ifPresent(c -> {
+                        c.setOcspResponse(response);
+                        changedKeys.add(key);
+                    });
         });
+
+        registry = TokenRegistry.update(registry, changedKeys);
     }
 
     /**
@@ -440,47 +487,47 @@ public final class TokenManager {
      * @param memberId the member id
      * @return the certificate request info or null if not found
      */
-    public static synchronized CertRequestInfo getCertRequestInfo(String keyId, ClientId memberId) {
+    public static CertRequestInfo getCertRequestInfo(String keyId, ClientId memberId) {
         log.trace("getCertRequestInfo({}, {})", keyId, memberId);
 
-        Key key = findKey(keyId);
-        return key.getCertRequests().stream()
-                .filter(c -> key.getUsage() == KeyUsageInfo.AUTHENTICATION
-                        || memberId.equals(c.getMemberId()))
-                .map(c -> c.toDTO()).findFirst().orElse(null);
+        KeyEntry key = findKeyEntry(registry, keyId);
+        return key.certRequests().stream()
+                .filter(c -> key.keyInfo().getUsage() == KeyUsageInfo.AUTHENTICATION
+                        || memberId.equals(c.memberId()))
+                .map(CertRequestEntry::certRequestInfo).findFirst().orElse(null);
     }
 
     /**
      * @param certReqId cert request id
      * @return the certificate request info or null if not found
      */
-    public static synchronized CertRequestInfo getCertRequestInfo(String certReqId) {
+    public static CertRequestInfo getCertRequestInfo(String certReqId) {
         log.trace("getCertRequestInfo({})", certReqId);
 
-        return forCertRequest((k, c) -> certReqId.equals(c.getId()),
-                (k, c) -> c.toDTO())
-                .orElse(null);
+        CertRequestEntry certRequest = registry.getCertRequest(certReqId);
+        return certRequest != null ? certRequest.certRequestInfo() : null;
     }
 
     /**
      * @param certHash the certificate hash in HEX
      * @return key info for the certificate hash
      */
-    public static synchronized KeyInfo getKeyInfoForCertHash(String certHash) {
+    public static KeyInfo getKeyInfoForCertHash(String certHash) {
         log.trace("getKeyInfoForCertHash({})", certHash);
 
-        return forCert((k, c) -> certHash.equals(c.getSha256hash()), (k, c) -> k.toDTO()).orElse(null);
+        CertEntry cert = registry.getCertBySha256Hash(certHash);
+        return cert != null ? cert.keyInfo() : null;
     }
 
     /**
      * @param certId the certificate id
      * @return key info for certificate id
      */
-    public static synchronized KeyInfo getKeyInfoForCertId(String certId) {
+    public static KeyInfo getKeyInfoForCertId(String certId) {
         log.trace("getKeyInfoForCertId({})", certId);
 
-        return forCert((k, c) -> c.getId().equals(certId),
-                (k, c) -> k.toDTO()).orElse(null);
+        CertEntry cert = registry.getCert(certId);
+        return cert != null ? cert.keyInfo() : null;
     }
 
     /**
@@ -490,28 +537,32 @@ public final class TokenManager {
      */
     public static boolean certBelongsToMember(CertificateInfo certInfo,
                                               ClientId member) {
-        return member.equals(certInfo.getMemberId())
-                || member.subsystemContainsMember(certInfo.getMemberId());
+        return memberBelongsTo(certInfo.getMemberId(), member);
+    }
+
+    private static boolean memberBelongsTo(ClientId certMemberId, ClientId member) {
+        return member.equals(certMemberId)
+                || member.subsystemContainsMember(certMemberId);
     }
 
     /**
      * @param tokenId the token id
      * @return true if token is available
      */
-    public static synchronized boolean isTokenAvailable(String tokenId) {
+    public static boolean isTokenAvailable(String tokenId) {
         log.trace("isTokenAvailable({})", tokenId);
 
-        return findToken(tokenId).isAvailable();
+        return findTokenEntry(tokenId).tokenInfo().isAvailable();
     }
 
     /**
      * @param tokenId the token id
      * @return true if token is active (logged in)
      */
-    public static synchronized boolean isTokenActive(String tokenId) {
+    public static boolean isTokenActive(String tokenId) {
         log.trace("isTokenActive({})", tokenId);
 
-        return findToken(tokenId).isActive();
+        return findTokenEntry(tokenId).tokenInfo().isActive();
     }
 
     /**
@@ -529,6 +580,7 @@ public final class TokenManager {
         Token token = findToken(tokenId);
         token.setAvailable(available);
         token.setModuleId(tokenType.getModuleType());
+        publish(null);
     }
 
     /**
@@ -541,6 +593,7 @@ public final class TokenManager {
         log.trace("setTokenAvailable({}, {})", tokenId, available);
 
         findToken(tokenId).setAvailable(available);
+        publish(null);
     }
 
     /**
@@ -554,6 +607,7 @@ public final class TokenManager {
         log.trace("setTokenActive({}, {})", tokenId, active);
 
         findToken(tokenId).setActive(active);
+        publish(null);
     }
 
     /**
@@ -567,16 +621,17 @@ public final class TokenManager {
         log.trace("setTokenFriendlyName({}, {})", tokenId, friendlyName);
 
         findToken(tokenId).setFriendlyName(friendlyName);
+        publish(null);
     }
 
     /**
      * @param tokenId the token if
      * @return the token status info
      */
-    public static synchronized TokenStatusInfo getTokenStatus(String tokenId) {
+    public static TokenStatusInfo getTokenStatus(String tokenId) {
         log.trace("getTokenStatus({})", tokenId);
 
-        return findToken(tokenId).getStatus();
+        return findTokenEntry(tokenId).tokenInfo().getStatus();
     }
 
     /**
@@ -590,6 +645,7 @@ public final class TokenManager {
         log.trace("setTokenStatus({}, {})", tokenId, status);
 
         findToken(tokenId).setStatus(status);
+        publish(null);
     }
 
     /**
@@ -602,17 +658,19 @@ public final class TokenManager {
                                                     boolean available) {
         log.trace("setKeyAvailable({}, {})", keyId, available);
 
-        findKey(keyId).setAvailable(available);
+        Key key = findKey(keyId);
+        key.setAvailable(available);
+        publish(key);
     }
 
     /**
      * @param keyId the key id
      * @return true if key is available
      */
-    public static synchronized boolean isKeyAvailable(String keyId) {
+    public static boolean isKeyAvailable(String keyId) {
         log.trace("isKeyAvailable()");
 
-        return findKey(keyId).isAvailable();
+        return findKeyEntry(registry, keyId).keyInfo().isAvailable();
     }
 
     /**
@@ -625,7 +683,9 @@ public final class TokenManager {
                                                        String friendlyName) {
         log.trace("setKeyFriendlyName({}, {})", keyId, friendlyName);
 
-        findKey(keyId).setFriendlyName(friendlyName);
+        Key key = findKey(keyId);
+        key.setFriendlyName(friendlyName);
+        publish(key);
     }
 
     /**
@@ -637,7 +697,9 @@ public final class TokenManager {
     public static synchronized void setKeyLabel(String keyId, String label) {
         log.trace("setKeyLabel({}, {})", keyId, label);
 
-        findKey(keyId).setLabel(label);
+        Key key = findKey(keyId);
+        key.setLabel(label);
+        publish(key);
     }
 
     /**
@@ -650,7 +712,9 @@ public final class TokenManager {
                                                 KeyUsageInfo keyUsage) {
         log.trace("setKeyUsage({}, {})", keyId, keyUsage);
 
-        findKey(keyId).setUsage(keyUsage);
+        Key key = findKey(keyId);
+        key.setUsage(keyUsage);
+        publish(key);
     }
 
     /**
@@ -670,6 +734,7 @@ public final class TokenManager {
         key.setPublicKey(publicKeyBase64);
 
         token.addKey(key);
+        publish(key);
 
         return key.toDTO();
     }
@@ -683,8 +748,13 @@ public final class TokenManager {
     public static synchronized boolean removeKey(String keyId) {
         log.trace("removeKey({})", keyId);
 
-        return forKey((t, k) -> k.getId().equals(keyId),
+        boolean removed = forKey((t, k) -> k.getId().equals(keyId),
                 (t, k) -> t.getKeys().remove(k)).orElse(false);
+        if (removed) {
+            publish(null);
+        }
+
+        return removed;
     }
 
     /**
@@ -697,7 +767,9 @@ public final class TokenManager {
                                                  String publicKeyBase64) {
         log.trace("setPublicKey({}, {})", keyId, publicKeyBase64);
 
-        findKey(keyId).setPublicKey(publicKeyBase64);
+        Key key = findKey(keyId);
+        key.setPublicKey(publicKeyBase64);
+        publish(key);
     }
 
     /**
@@ -715,6 +787,7 @@ public final class TokenManager {
         cert.setCertificate(certBytes);
 
         key.addCert(cert);
+        publish(key);
     }
 
     /**
@@ -734,6 +807,7 @@ public final class TokenManager {
         cert.setStatus(initialStatus);
 
         key.addCert(cert);
+        publish(key);
     }
 
     /**
@@ -746,7 +820,7 @@ public final class TokenManager {
                                                   boolean active) {
         log.trace("setCertActive({}, {})", certId, active);
 
-        findCert(certId).setActive(active);
+        updateCert(certId, c -> c.setActive(active));
     }
 
     /**
@@ -759,7 +833,7 @@ public final class TokenManager {
                                                   String status) {
         log.trace("setCertStatus({}, {})", certId, status);
 
-        findCert(certId).setStatus(status);
+        updateCert(certId, c -> c.setStatus(status));
     }
 
     /**
@@ -772,7 +846,7 @@ public final class TokenManager {
                                                        String hash) {
         log.trace("setRenewedCertHash({}, {})", certId, hash);
 
-        findCert(certId).setRenewedCertHash(hash);
+        updateCert(certId, c -> c.setRenewedCertHash(hash));
     }
 
     /**
@@ -785,7 +859,7 @@ public final class TokenManager {
                                                     String errorMessage) {
         log.trace("setRenewalError({}, {})", certId, errorMessage);
 
-        findCert(certId).setRenewalError(errorMessage);
+        updateCert(certId, c -> c.setRenewalError(errorMessage));
     }
 
     /**
@@ -798,7 +872,7 @@ public final class TokenManager {
                                                           Instant nextRenewalTime) {
         log.trace("setNextPlannedRenewal({}, {})", certId, nextRenewalTime);
 
-        findCert(certId).setNextAutomaticRenewalTime(nextRenewalTime);
+        updateCert(certId, c -> c.setNextAutomaticRenewalTime(nextRenewalTime));
     }
 
     /**
@@ -811,7 +885,14 @@ public final class TokenManager {
         log.trace("removeCert({})", certId);
 
         return forCert((k, c) -> c.getId().equals(certId),
-                (k, c) -> k.getCerts().remove(c)).orElse(false);
+                (k, c) -> {
+                    if (!k.getCerts().remove(c)) {
+                        return false;
+                    }
+
+                    publish(k);
+                    return true;
+                }).orElse(false);
     }
 
     /**
@@ -852,12 +933,14 @@ public final class TokenManager {
                 log.warn("Certificate request (memberId: {}, "
                                 + "subjectName: {}) already exists", memberId,
                         subjectName);
+                publish(key);
                 return certRequest.getId();
             }
         }
 
         String certId = SignerUtil.randomId();
         key.addCertRequest(new CertRequest(certId, memberId, subjectName, subjectAltName, certificateProfile));
+        publish(key);
 
         log.info("Added new certificate request (memberId: {}, "
                         + "subjectId: {}) under key {}",
@@ -881,6 +964,7 @@ public final class TokenManager {
                         return null;
                     }
 
+                    publish(k);
                     return k.getId();
                 }).orElse(null);
     }
@@ -893,16 +977,17 @@ public final class TokenManager {
      */
     public static synchronized void setTokenInfo(String tokenId, Map<String, String> info) {
         findToken(tokenId).setInfo(info);
+        publish(null);
     }
 
     /**
      * @param tokenId the token id
      * @return true if batch signing is enabled for a token
      */
-    public static synchronized boolean isBatchSigningEnabled(String tokenId) {
+    public static boolean isBatchSigningEnabled(String tokenId) {
         log.trace("isBatchSigningEnabled({})", tokenId);
 
-        return findToken(tokenId).isBatchSigningEnabled();
+        return findTokenEntry(tokenId).batchSigningEnabled();
     }
 
     // ------------------------------------------------------------------------
@@ -963,6 +1048,34 @@ public final class TokenManager {
         return Optional.empty();
     }
 
+    /**
+     * Publishes a new snapshot of the current tokens. Must be called while holding the class lock after every change
+     * to the token model.
+     *
+     * @param changedKey the key that was changed, or null if only tokens were changed or keys were added or removed
+     */
+    private static void publish(Key changedKey) {
+        registry = TokenRegistry.build(currentTokens, registry, changedKey);
+    }
+
+    private static TokenEntry findTokenEntry(String tokenId) {
+        TokenEntry token = registry.getToken(tokenId);
+        if (token == null) {
+            throw tokenNotFound(tokenId);
+        }
+
+        return token;
+    }
+
+    private static KeyEntry findKeyEntry(TokenRegistry current, String keyId) {
+        KeyEntry key = current.getKey(keyId);
+        if (key == null) {
+            throw keyNotFound(keyId);
+        }
+
+        return key;
+    }
+
     private static Token findToken(String tokenId) {
         log.trace("findToken({})", tokenId);
 
@@ -977,11 +1090,15 @@ public final class TokenManager {
                 .orElseThrow(() -> keyNotFound(keyId));
     }
 
-    private static Cert findCert(String certId) {
-        log.trace("findCert({})", certId);
+    private static void updateCert(String certId, Consumer<Cert> update) {
+        log.trace("updateCert({})", certId);
+
+        Key key = forCert((k, c) -> c.getId().equals(certId), (k, c) -> {
+            update.accept(c);
+            return k;
+        }).orElseThrow(() -> certWithIdNotFound(certId));
 
-        return forCert((k, c) -> c.getId().equals(certId), (k, c) -> c)
-                .orElseThrow(() -> certWithIdNotFound(certId));
+        publish(key);
     }
 
     private static String getDefaultFriendlyName(TokenType tokenType) {
@@ -0,0 +1,359 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.signer.tokenmanager;
+
+import ee.ria.xroad.common.identifier.ClientId;
+import ee.ria.xroad.signer.model.Cert;
+import ee.ria.xroad.signer.model.CertRequest;
+import ee.ria.xroad.signer.model.Key;
+import ee.ria.xroad.signer.model.Token;
+import ee.ria.xroad.signer.protocol.dto.CertRequestInfo;
+import ee.ria.xroad.signer.protocol.dto.CertificateInfo;
+import ee.ria.xroad.signer.protocol.dto.KeyInfo;
+import ee.ria.xroad.signer.protocol.dto.KeyInfoProto;
+import ee.ria.xroad.signer.protocol.dto.TokenInfo;
+
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable snapshot of the tokens, keys, certificates and certificate requests managed by {@link TokenManager}.
+ * Keys, certificates and certificate requests are indexed by their ids and certificates also by their hashes, so
+ * lookups do not walk the tokens and readers never need the lock that {@link TokenManager} holds while changing the
+ * tokens. When there are several entries with the same id or hash, the first one in token order is indexed, which
+ * is what the linear search used to return.
+ * <p>
+ * A new snapshot is built after every change. The value objects of keys that did not change are taken over from the
+ * previous snapshot, so a change costs a rebuild of one key plus the index maps. Changes that only modify the
+ * certificates of some keys, such as new OCSP responses, are applied with {@link #update(TokenRegistry, Collection)},
+ * which rebuilds only the entries of the affected tokens and replaces only their index entries.
+ */
+final class TokenRegistry {
+
+    static final TokenRegistry EMPTY = build(List.of(), null, null);
+
+    record TokenEntry(TokenInfo tokenInfo, String moduleId, boolean batchSigningEnabled, boolean inactive) {
+    }
+
+    record KeyEntry(TokenEntry token, KeyInfo keyInfo, boolean validForSigning, List<CertEntry> certs,
+                    List<CertRequestEntry> certRequests) {
+    }
+
+    record CertEntry(KeyInfo keyInfo, CertificateInfo certificateInfo, X509Certificate certificate,
+                     ClientId.Conf memberId, boolean invalid) {
+    }
+
+    record CertRequestEntry(KeyInfo keyInfo, CertRequestInfo certRequestInfo, ClientId.Conf memberId) {
+    }
+
+    private final List<TokenEntry> tokens;
+    private final List<KeyEntry> keys;
+    private final List<CertEntry> certs;
+
+    private final Map<String, TokenEntry> tokensById;
+    private final Map<String, KeyEntry> keysById;
+    private final Map<String, CertEntry> certsById;
+    private final Map<String, CertEntry> certsBySha256Hash;
+    private final Map<String, CertEntry> certsBySha1Hash;
+    private final Map<String, CertRequestEntry> certRequestsById;
+
+    // Model keys by the SHA-1 hashes of their certificates, for changing the certificates while holding the lock.
+    private final Map<String, Key> keysByCertSha1Hash;
+
+    // Entries of the keys in this snapshot, their value objects are reused by the next snapshot for the keys that
+    // did not change.
+    private final Map<Key, KeyEntry> keyEntries;
+
+    private TokenRegistry(int tokenCount) {
+        tokens = new ArrayList<>(tokenCount);
+        keys = new ArrayList<>();
+        certs = new ArrayList<>();
+        tokensById = new HashMap<>();
+        keysById = new HashMap<>();
+        certsById = new HashMap<>();
+        certsBySha256Hash = new HashMap<>();
+        certsBySha1Hash = new HashMap<>();
+        certRequestsById = new HashMap<>();
+        keysByCertSha1Hash = new HashMap<>();
+        keyEntries = new IdentityHashMap<>();
+    }
+
+    private TokenRegistry(TokenRegistry previous) {
+        tokens = new ArrayList<>(previous.tokens);
+        keys = new ArrayList<>(previous.keys);
+        certs = new ArrayList<>(previous.certs);
+        tokensById = new HashMap<>(previous.tokensById);
+        keysById = new HashMap<>(previous.keysById);
+        certsById = new HashMap<>(previous.certsById);
+        certsBySha256Hash = new HashMap<>(previous.certsBySha256Hash);
+        certsBySha1Hash = new HashMap<>(previous.certsBySha1Hash);
+        certRequestsById = new HashMap<>(previous.certRequestsById);
+        // the certificates do not change place in an update
+        keysByCertSha1Hash = previous.keysByCertSha1Hash;
+        keyEntries = new IdentityHashMap<>(previous.keyEntries);
+    }
+
+    /**
+     * Builds a snapshot of the given tokens.
+     *
+     * @param currentTokens the tokens
+     * @param previous the previous snapshot whose key value objects may be reused, or null
+     * @param changedKey the key that has changed since the previous snapshot, or null if no key has changed.
+     *                   Changes to tokens themselves do not need to be reported.
+     * @return the snapshot
+     */
+    static TokenRegistry build(List<Token> currentTokens, TokenRegistry previous, Key changedKey) {
+        TokenRegistry registry = new TokenRegistry(currentTokens.size());
+
+        for (Token token : currentTokens) {
+            List<KeyInfo> tokenKeyInfos = new ArrayList<>(token.getKeys().size());
+            List<KeyInfoProto> tokenKeyMessages = new ArrayList<>(token.getKeys().size());
+
+            for (Key key : token.getKeys()) {
+                KeyEntry previousKey = previous != null && key != changedKey ? previous.keyEntries.get(key) : null;
+                KeyInfo keyInfo = previousKey != null ? previousKey.keyInfo() : key.toDTO();
+
+                tokenKeyInfos.add(keyInfo);
+                tokenKeyMessages.add(keyInfo.asMessage());
+            }
+
+            TokenEntry tokenEntry = createTokenEntry(token, tokenKeyMessages);
+
+            registry.tokens.add(tokenEntry);
+            registry.tokensById.putIfAbsent(token.getId(), tokenEntry);
+
+            for (int i = 0; i < tokenKeyInfos.size(); i++) {
+                registry.addKey(createKeyEntry(tokenEntry, token.getKeys().get(i), tokenKeyInfos.get(i)),
+                        token.getKeys().get(i));
+            }
+        }
+
+        return registry;
+    }
+
+    /**
+     * Builds a snapshot from the previous snapshot after the certificates of the given keys have changed, for example
+     * when their OCSP responses have been set. Only the entries of the tokens that contain the changed keys are
+     * rebuilt and only their entries are replaced in the indexes. The tokens, keys, certificates and certificate
+     * requests must be the same as when the previous snapshot was built, use {@link #build} for other changes.
+     *
+     * @param previous the previous snapshot
+     * @param changedKeys the keys whose certificates have changed
+     * @return the snapshot
+     */
+    static TokenRegistry update(TokenRegistry previous, Collection<Key> changedKeys) {
+        if (changedKeys.isEmpty()) {
+            return previous;
+        }
+
+        TokenRegistry registry = new TokenRegistry(previous);
+        Map<Object, Object> replacements = new IdentityHashMap<>();
+
+        Set<Key> keys = Collections.newSetFromMap(new IdentityHashMap<>());
+        Set<Token> changedTokens = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Key key : changedKeys) {
+            keys.add(key);
+            changedTokens.add(key.getToken());
+        }
+
+        for (Token token : changedTokens) {
+            registry.updateToken(token, keys, replacements);
+        }
+
+        registry.tokens.replaceAll(entry -> replacement(replacements, entry));
+        registry.keys.replaceAll(entry -> replacement(replacements, entry));
+        registry.certs.replaceAll(entry -> replacement(replacements, entry));
+
+        return registry;
+    }
+
+    private void updateToken(Token token, Set<Key> changedKeys, Map<Object, Object> replacements) {
+        List<KeyInfo> tokenKeyInfos = new ArrayList<>(token.getKeys().size());
+        List<KeyInfoProto> tokenKeyMessages = new ArrayList<>(token.getKeys().size());
+
+        for (Key key : token.getKeys()) {
+            KeyInfo keyInfo = changedKeys.contains(key) ? key.toDTO() : keyEntries.get(key).keyInfo();
+
+            tokenKeyInfos.add(keyInfo);
+            tokenKeyMessages.add(keyInfo.asMessage());
+        }
+
+        TokenEntry tokenEntry = createTokenEntry(token, tokenKeyMessages);
+        replacements.put(keyEntries.get(token.getKeys().getFirst()).token(), tokenEntry);
+
+        for (int i = 0; i < tokenKeyInfos.size(); i++) {
+            Key key = token.getKeys().get(i);
+            KeyEntry previousKey = keyEntries.get(key);
+
+            KeyEntry keyEntry;
+            if (changedKeys.contains(key)) {
+                keyEntry = createKeyEntry(tokenEntry, key, tokenKeyInfos.get(i));
+
+                for (int j = 0; j < keyEntry.certs().size(); j++) {
+                    replacements.put(previousKey.certs().get(j), keyEntry.certs().get(j));
+                }
+                for (int j = 0; j < keyEntry.certRequests().size(); j++) {
+                    replacements.put(previousKey.certRequests().get(j), keyEntry.certRequests().get(j));
+                }
+
+                for (Cert cert : key.getCerts()) {
+                    certsById.computeIfPresent(cert.getId(), (id, entry) -> replacement(replacements, entry));
+                    if (cert.getSha256hash() != null) {
+                        certsBySha256Hash.computeIfPresent(cert.getSha256hash(),
+                                (hash, entry) -> replacement(replacements, entry));
+                    }
+                    if (cert.getSha1hash() != null) {
+                        certsBySha1Hash.computeIfPresent(cert.getSha1hash(),
+                                (hash, entry) -> replacement(replacements, entry));
+                    }
+                }
+                for (CertRequest certRequest : key.getCertRequests()) {
+                    certRequestsById.computeIfPresent(certRequest.getId(),
+                            (id, entry) -> replacement(replacements, entry));
+                }
+            } else {
+                // the certificate and certificate request entries refer only to the key value object, which is reused
+                keyEntry = new KeyEntry(tokenEntry, previousKey.keyInfo(), key.isValidForSigning(),
+                        previousKey.certs(), previousKey.certRequests());
+            }
+
+            replacements.put(previousKey, keyEntry);
+            keyEntries.put(key, keyEntry);
+            keysById.computeIfPresent(key.getId(), (id, entry) -> replacement(replacements, entry));
+        }
+
+        tokensById.computeIfPresent(token.getId(), (id, entry) -> replacement(replacements, entry));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T replacement(Map<Object, Object> replacements, T entry) {
+        return (T) replacements.getOrDefault(entry, entry);
+    }
+
+    private static TokenEntry createTokenEntry(Token token, List<KeyInfoProto> tokenKeyMessages) {
+        return new TokenEntry(token.toDTO(tokenKeyMessages), token.getModuleId(), token.isBatchSigningEnabled(),
+                token.isInActive());
+    }
+
+    private static KeyEntry createKeyEntry(TokenEntry tokenEntry, Key key, KeyInfo keyInfo) {
+        List<CertificateInfo> certificateInfos = keyInfo.getCerts();
+        List<CertEntry> keyCerts = new ArrayList<>(certificateInfos.size());
+
+        for (int i = 0; i < certificateInfos.size(); i++) {
+            Cert cert = key.getCerts().get(i);
+            keyCerts.add(new CertEntry(keyInfo, certificateInfos.get(i), cert.getCertificate(), cert.getMemberId(),
+                    cert.isInvalid()));
+        }
+
+        List<CertRequestInfo> certRequestInfos = keyInfo.getCertRequests();
+        List<CertRequestEntry> keyCertRequests = new ArrayList<>(certRequestInfos.size());
+
+        for (int i = 0; i < certRequestInfos.size(); i++) {
+            keyCertRequests.add(new CertRequestEntry(keyInfo, certRequestInfos.get(i),
+                    key.getCertRequests().get(i).getMemberId()));
+        }
+
+        return new KeyEntry(tokenEntry, keyInfo, key.isValidForSigning(),
+                Collections.unmodifiableList(keyCerts), Collections.unmodifiableList(keyCertRequests));
+    }
+
+    private void addKey(KeyEntry keyEntry, Key key) {
+        for (int i = 0; i < keyEntry.certs().size(); i++) {
+            Cert cert = key.getCerts().get(i);
+            CertEntry certEntry = keyEntry.certs().get(i);
+
+            certs.add(certEntry);
+            certsById.putIfAbsent(cert.getId(), certEntry);
+            if (cert.getSha256hash() != null) {
+                certsBySha256Hash.putIfAbsent(cert.getSha256hash(), certEntry);
+            }
+            if (cert.getSha1hash() != null) {
+                certsBySha1Hash.putIfAbsent(cert.getSha1hash(), certEntry);
+                keysByCertSha1Hash.putIfAbsent(cert.getSha1hash(), key);
+            }
+        }
+
+        for (int i = 0; i < keyEntry.certRequests().size(); i++) {
+            certRequestsById.putIfAbsent(key.getCertRequests().get(i).getId(), keyEntry.certRequests().get(i));
+        }
+
+        keys.add(keyEntry);
+        keysById.putIfAbsent(key.getId(), keyEntry);
+        keyEntries.put(key, keyEntry);
+    }
+
+    List<TokenEntry> getTokens() {
+        return Collections.unmodifiableList(tokens);
+    }
+
+    List<KeyEntry> getKeys() {
+        return Collections.unmodifiableList(keys);
+    }
+
+    List<CertEntry> getCerts() {
+        return Collections.unmodifiableList(certs);
+    }
+
+    TokenEntry getToken(String tokenId) {
+        return tokensById.get(tokenId);
+    }
+
+    KeyEntry getKey(String keyId) {
+        return keysById.get(keyId);
+    }
+
+    CertEntry getCert(String certId) {
+        return certsById.get(certId);
+    }
+
+    CertEntry getCertBySha256Hash(String certHash) {
+        return certsBySha256Hash.get(certHash);
+    }
+
+    CertEntry getCertBySha1Hash(String certSha1Hash) {
+        return certsBySha1Hash.get(certSha1Hash);
+    }
+
+    CertRequestEntry getCertRequest(String certRequestId) {
+        return certRequestsById.get(certRequestId);
+    }
+
+    /**
+     * @param certSha1Hash the certificate SHA-1 hash in HEX
+     * @return the model key of the first certificate with the hash, or null if not found. The model may only be used
+     * while holding the {@link TokenManager} lock.
+     */
+    Key findKeyByCertSha1Hash(String certSha1Hash) {
+        return keysByCertSha1Hash.get(certSha1Hash);
+    }
+}
@@ -78,6 +78,8 @@ public final class ModuleConf {
     private static final SignMechanism DEFAULT_RSA_SIGN_MECHANISM_NAME = SignMechanism.CKM_RSA_PKCS;
     private static final SignMechanism DEFAULT_EC_SIGN_MECHANISM_NAME = SignMechanism.CKM_ECDSA;
 
+    private static final int DEFAULT_SIGN_SESSION_POOL_SIZE = 1;
+
     // Module configuration fields.
     private static final String ENABLED_PARAM = "enabled";
     private static final String LIBRARY_PARAM = "library";
@@ -107,6 +109,7 @@ public final class ModuleConf {
     private static final String PRIV_KEY_ATTRIBUTE_WRAP_WITH_TRUSTED_PARAM = "priv_key_attribute_wrap_with_trusted";
     private static final String PRIV_KEY_ATTRIBUTE_ALLOWED_MECHANISMS_PARAM = "priv_key_attribute_allowed_mechanisms";
     private static final String SLOT_IDS_PARAM = "slot_ids";
+    private static final String SIGN_SESSION_POOL_SIZE_PARAM = "sign_session_pool_size";
 
     private static FileContentChangeChecker changeChecker = null;
 
@@ -241,6 +244,14 @@ public final class ModuleConf {
         boolean batchSigning = getBoolean(section, BATCH_SIGNING_ENABLED_PARAM, true);
         boolean readOnly = getBoolean(section, READ_ONLY_PARAM, false);
         String tokenIdFormat = section.getString(TOKEN_ID_FORMAT_PARAM);
+        int signSessionPoolSize = getInt(section, SIGN_SESSION_POOL_SIZE_PARAM, DEFAULT_SIGN_SESSION_POOL_SIZE);
+
+        if (signSessionPoolSize < 1) {
+            log.error("Invalid sign session pool size ({}) specified for module ({}), skipping...",
+                    signSessionPoolSize, uid);
+
+            return;
+        }
 
         if (StringUtils.isBlank(tokenIdFormat)) {
             tokenIdFormat = DEFAULT_TOKEN_ID_FORMAT;
@@ -279,9 +290,10 @@ public final class ModuleConf {
 
         log.debug("Read module configuration (UID = {}, library = {}, library_cant_create_os_threads = {}"
                         + ", os_locking_ok = {}, token_id_format = {}, pin_verification_per_signing = {}, batch_signing = {}"
-                        + ", rsa_sign_mechanism = {}, ec_sign_mechanism = {},pub_key_attributes = {}, priv_key_attributes = {})",
+                        + ", rsa_sign_mechanism = {}, ec_sign_mechanism = {},pub_key_attributes = {}, priv_key_attributes = {}"
+                        + ", sign_session_pool_size = {})",
                 uid, library, libraryCantCreateOsThreads, osLockingOk, tokenIdFormat, verifyPin, batchSigning,
-                rsaSignMechanismName, ecSignMechanismName, pubKeyAttributes, privKeyAttributes);
+                rsaSignMechanismName, ecSignMechanismName, pubKeyAttributes, privKeyAttributes, signSessionPoolSize);
 
         if (MODULES.containsKey(uid)) {
             log.warn("Module information already defined for {}, skipping...", uid);
@@ -297,7 +309,7 @@ public final class ModuleConf {
                 osLockingOk, tokenIdFormat, verifyPin,
                 batchSigning, readOnly, rsaSignMechanismName,
                 ecSignMechanismName, privKeyAttributes, pubKeyAttributes,
-                slotIds));
+                slotIds, signSessionPoolSize));
     }
 
     private static PubKeyAttributes loadPubKeyAttributes(SubnodeConfiguration section) {
@@ -361,6 +373,15 @@ public final class ModuleConf {
         }
     }
 
+    private static int getInt(SubnodeConfiguration section, String key, int defaultValue) {
+        try {
+            return section.getInt(key, defaultValue);
+        } catch (ConversionException e) {
+            throw new ConversionException(String.format("Invalid value of '%s' for module (%s), skipping...",
+                    key, section.getRootElementName()), e);
+        }
+    }
+
     private static String[] getStringArray(SubnodeConfiguration section, String key) {
         try {
             return section.getStringArray(key);
@@ -193,6 +193,16 @@ public abstract class AbstractTokenWorker implements TokenWorker, WorkerWithLife
      */
     public abstract void onActionHandled();
 
+    /**
+     * Returns the number of {@link #handleSign(SignReq)} calls that may run in parallel on this token. Workers
+     * returning a value greater than 1 must keep {@link #sign(String, SignAlgorithm, byte[])} and
+     * {@link #onActionHandled()} safe for concurrent use; all other operations are still executed exclusively.
+     * @return sign concurrency, 1 by default
+     */
+    protected int getSignConcurrency() {
+        return 1;
+    }
+
     // ------------------------------------------------------------------------
 
     protected abstract void activateToken(ActivateTokenReq message) throws Exception;
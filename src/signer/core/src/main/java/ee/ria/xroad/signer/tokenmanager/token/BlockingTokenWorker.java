@@ -27,22 +27,66 @@ package ee.ria.xroad.signer.tokenmanager.token;
 
 import ee.ria.xroad.signer.protocol.dto.KeyInfo;
 
-import lombok.RequiredArgsConstructor;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
 import lombok.extern.slf4j.Slf4j;
 import org.niis.xroad.signer.proto.ActivateTokenReq;
 import org.niis.xroad.signer.proto.GenerateKeyReq;
 import org.niis.xroad.signer.proto.SignCertificateReq;
 import org.niis.xroad.signer.proto.SignReq;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
 import static ee.ria.xroad.common.ErrorCodes.translateException;
 
 /**
- * A blocking (calls to token are synchronized) token worker.
+ * A blocking token worker. Key, certificate and token management calls are executed exclusively, while up to
+ * {@link AbstractTokenWorker#getSignConcurrency()} sign calls may share the token (one at a time by default).
  */
 @Slf4j
-@RequiredArgsConstructor
 public class BlockingTokenWorker implements TokenWorker, WorkerWithLifecycle {
+    static final String METRIC_SIGN_CONCURRENCY = "signConcurrency";
+    static final String METRIC_SIGNS_IN_FLIGHT = "signsInFlight";
+    static final String METRIC_SIGN_QUEUE_WAIT = "signQueueWait";
+
+    private static final MetricRegistry METRIC_REGISTRY = new MetricRegistry();
+
     private final AbstractTokenWorker tokenWorker;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock(true);
+    private final int signConcurrency;
+    private final Semaphore signPermits;
+    private final AtomicInteger signsInFlight = new AtomicInteger();
+    private final Timer signQueueWait;
+    private final List<Metric> metrics = new ArrayList<>();
+
+    /**
+     * Creates a blocking wrapper for the given token worker.
+     * @param tokenWorker the token worker
+     */
+    public BlockingTokenWorker(AbstractTokenWorker tokenWorker) {
+        this.tokenWorker = tokenWorker;
+        this.signConcurrency = Math.max(1, tokenWorker.getSignConcurrency());
+        this.signPermits = new Semaphore(signConcurrency, true);
+        this.signQueueWait = register(METRIC_SIGN_QUEUE_WAIT, new Timer());
+
+        register(METRIC_SIGN_CONCURRENCY, (Gauge<Integer>) () -> signConcurrency);
+        register(METRIC_SIGNS_IN_FLIGHT, (Gauge<Integer>) signsInFlight::get);
+    }
+
+    /**
+     * @return the metric registry holding per-token sign concurrency and queue wait metrics, for the signer process
+     * to report
+     */
+    public static MetricRegistry getMetricRegistry() {
+        return METRIC_REGISTRY;
+    }
 
     @Override
     public void handleActivateToken(ActivateTokenReq message) {
@@ -66,21 +110,21 @@ public class BlockingTokenWorker implements TokenWorker, WorkerWithLifecycle {
 
     @Override
     public byte[] handleSign(SignReq request) {
-        return synchronizedAction(() -> tokenWorker.handleSign(request));
+        return signAction(() -> tokenWorker.handleSign(request));
     }
 
     @Override
-    public synchronized byte[] handleSignCertificate(SignCertificateReq request) {
+    public byte[] handleSignCertificate(SignCertificateReq request) {
         return synchronizedAction(() -> tokenWorker.handleSignCertificate(request));
     }
 
     @Override
-    public synchronized void initializeToken(char[] pin) {
+    public void initializeToken(char[] pin) {
         synchronizedAction(() -> tokenWorker.initializeToken(pin));
     }
 
     @Override
-    public synchronized void handleUpdateTokenPin(char[] oldPin, char[] newPin) {
+    public void handleUpdateTokenPin(char[] oldPin, char[] newPin) {
         synchronizedAction(() -> tokenWorker.handleUpdateTokenPin(oldPin, newPin));
     }
 
@@ -96,7 +140,12 @@ public class BlockingTokenWorker implements TokenWorker, WorkerWithLifecycle {
 
     @Override
     public void destroy() {
-        synchronizedAction(tokenWorker::destroy);
+        try {
+            synchronizedAction(tokenWorker::destroy);
+        } finally {
+            // the metrics may already belong to a worker recreated for the same token
+            METRIC_REGISTRY.removeMatching((name, metric) -> metrics.contains(metric));
+        }
     }
 
     @Override
@@ -119,25 +168,60 @@ public class BlockingTokenWorker implements TokenWorker, WorkerWithLifecycle {
         void run() throws E;
     }
 
-
-    private synchronized <T> T synchronizedAction(ThrowingSupplier<T, Exception> action) {
+    private <T> T signAction(ThrowingSupplier<T, Exception> action) {
+        long waitStart = System.nanoTime();
+        signPermits.acquireUninterruptibly();
+        lock.readLock().lock();
+        signQueueWait.update(System.nanoTime() - waitStart, TimeUnit.NANOSECONDS);
+        signsInFlight.incrementAndGet();
         try {
             return action.get();
         } catch (Exception e) {
             throw translateException(e);
         } finally {
-            tokenWorker.onActionHandled();
+            try {
+                tokenWorker.onActionHandled();
+            } finally {
+                signsInFlight.decrementAndGet();
+                lock.readLock().unlock();
+                signPermits.release();
+            }
         }
     }
 
-
-    private synchronized void synchronizedAction(ThrowingRunnable<Exception> action) {
+    private <T> T synchronizedAction(ThrowingSupplier<T, Exception> action) {
+        lock.writeLock().lock();
         try {
-            action.run();
+            return action.get();
         } catch (Exception e) {
             throw translateException(e);
         } finally {
-            tokenWorker.onActionHandled();
+            try {
+                tokenWorker.onActionHandled();
+            } finally {
+                lock.writeLock().unlock();
+            }
         }
     }
+
+    private void synchronizedAction(ThrowingRunnable<Exception> action) {
+        synchronizedAction(() -> {
+            action.run();
+            return null;
+        });
+    }
+
+    private <T extends Metric> T register(String name, T metric) {
+        String metricName = metricName(name);
+
+        // a worker recreated for the same token replaces the metrics of its predecessor
+        METRIC_REGISTRY.remove(metricName);
+        METRIC_REGISTRY.register(metricName, metric);
+        metrics.add(metric);
+        return metric;
+    }
+
+    private String metricName(String name) {
+        return MetricRegistry.name("tokenWorker", tokenWorker.tokenId, name);
+    }
 }
@@ -71,10 +71,10 @@ import java.security.cert.Certificate;
 import java.security.cert.CertificateFactory;
 import java.security.cert.X509Certificate;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static ee.ria.xroad.common.ErrorCodes.X_INTERNAL_ERROR;
 import static ee.ria.xroad.common.ErrorCodes.X_TOKEN_PIN_POLICY_FAILURE;
@@ -131,10 +131,10 @@ public class SoftwareTokenWorker extends AbstractTokenWorker {
     );
     private static final String UNSUPPORTED_SIGN_ALGORITHM = "unsupported_sign_algorithm";
 
-    private final Map<String, PrivateKey> privateKeys = new HashMap<>();
+    private final Map<String, PrivateKey> privateKeys = new ConcurrentHashMap<>();
     private final TokenType tokenType;
 
-    private boolean isTokenLoginAllowed = true;
+    private volatile boolean isTokenLoginAllowed = true;
 
     /**
      * Creates new worker.
@@ -168,6 +168,11 @@ public class SoftwareTokenWorker extends AbstractTokenWorker {
         //No-OP
     }
 
+    @Override
+    protected int getSignConcurrency() {
+        return SystemProperties.getSoftTokenSignConcurrency();
+    }
+
     @Override
     protected void activateToken(ActivateTokenReq message) {
         if (message.getActivate()) {
@@ -367,9 +372,11 @@ public class SoftwareTokenWorker extends AbstractTokenWorker {
     private void initializePrivateKey(String keyId) throws Exception {
         PrivateKey pkey = loadPrivateKey(keyId);
 
-        log.debug("Found usable key '{}'", keyId);
+        if (pkey != null) {
+            log.debug("Found usable key '{}'", keyId);
 
-        privateKeys.put(keyId, pkey);
+            privateKeys.put(keyId, pkey);
+        }
     }
 
     @Override
@@ -34,19 +34,23 @@ import ee.ria.xroad.common.util.TimeUtils;
 import org.bouncycastle.cert.ocsp.CertificateStatus;
 import org.bouncycastle.cert.ocsp.OCSPResp;
 import org.junit.BeforeClass;
+import org.junit.Rule;
 import org.junit.Test;
-import org.mockito.Mockito;
+import org.junit.rules.TemporaryFolder;
 
-import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.security.PrivateKey;
 import java.security.cert.X509Certificate;
 import java.time.temporal.ChronoUnit;
 import java.util.Date;
+import java.util.Set;
 
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
-import static org.mockito.Mockito.mock;
-import static org.mockito.Mockito.when;
 
 /**
  * Tests the file based OCSP cache.
@@ -59,6 +63,9 @@ public class FileBasedOcspCacheTest {
     static X509Certificate signer;
     static PrivateKey signerKey;
 
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
     /**
      * Test.
      *
@@ -66,22 +73,13 @@ public class FileBasedOcspCacheTest {
      */
     @Test
     public void putGet() throws Exception {
-        Date thisUpdate = Date.from(TimeUtils.now().plus(1, ChronoUnit.DAYS));
-        OCSPResp ocsp = OcspTestUtils.createOCSPResponse(subject, issuer,
-                signer, signerKey, CertificateStatus.GOOD, thisUpdate, null);
-
-        FileBasedOcspCache cache = new FileBasedOcspCache(globalConfProvider);
-        FileBasedOcspCache spy = Mockito.spy(cache);
-
-        Mockito.doNothing().when(spy).saveResponseToFile(
-                Mockito.any(File.class), Mockito.any(OCSPResp.class));
-
-        spy.put("foo", ocsp);
+        OCSPResp ocsp = createResponse(Date.from(TimeUtils.now().plus(1, ChronoUnit.DAYS)));
 
-        Mockito.verify(spy).saveResponseToFile(Mockito.any(File.class),
-                Mockito.any(OCSPResp.class));
+        FileBasedOcspCache cache = createCache();
+        cache.put("foo", ocsp);
 
         assertNotNull(cache.get("foo"));
+        assertEquals(Set.of("foo"), cache.storedKeys());
     }
 
     /**
@@ -91,21 +89,13 @@ public class FileBasedOcspCacheTest {
      */
     @Test
     public void expiredResponse() throws Exception {
-        Date thisUpdate = Date.from(TimeUtils.now().minus(1, ChronoUnit.DAYS));
-        OCSPResp ocsp = OcspTestUtils.createOCSPResponse(subject, issuer,
-                signer, signerKey, CertificateStatus.GOOD, thisUpdate, null);
+        OCSPResp ocsp = createResponse(Date.from(TimeUtils.now().minus(1, ChronoUnit.DAYS)));
 
-        FileBasedOcspCache cache = new FileBasedOcspCache(globalConfProvider);
-        FileBasedOcspCache spy = Mockito.spy(cache);
+        FileBasedOcspCache cache = createCache();
 
-        Mockito.doNothing().when(spy).saveResponseToFile(
-                Mockito.any(File.class), Mockito.any(OCSPResp.class));
-
-        Mockito.doReturn(ocsp).when(spy).loadResponseFromFile(
-                Mockito.any(File.class));
-
-        assertNull(spy.put("foo", ocsp));
-        assertNull(spy.get("foo"));
+        assertNull(cache.put("foo", ocsp));
+        assertNull(cache.get("foo"));
+        assertEquals(Set.of(), cache.storedKeys());
     }
 
     /**
@@ -114,28 +104,16 @@ public class FileBasedOcspCacheTest {
      * @throws Exception if an error occurs
      */
     @Test
-    public void saveLoadOcspResponseToFile() throws Exception {
-        Date thisUpdate = Date.from(TimeUtils.now().plus(1, ChronoUnit.DAYS));
-        OCSPResp ocsp = OcspTestUtils.createOCSPResponse(subject, issuer,
-                signer, signerKey, CertificateStatus.GOOD, thisUpdate, null);
-
-        FileBasedOcspCache cache = new FileBasedOcspCache(globalConfProvider);
-        FileBasedOcspCache spy = Mockito.spy(cache);
-
-        Mockito.doNothing().when(spy).saveResponseToFile(
-                Mockito.any(File.class), Mockito.any(OCSPResp.class));
+    public void loadResponseFromStoreAfterRestart() throws Exception {
+        OCSPResp ocsp = createResponse(Date.from(TimeUtils.now().plus(1, ChronoUnit.DAYS)));
 
-        spy.put("foo", ocsp);
+        createCache().put("foo", ocsp);
 
-        Mockito.verify(spy).saveResponseToFile(Mockito.any(File.class),
-                Mockito.any(OCSPResp.class));
+        FileBasedOcspCache restarted = createCache();
+        restarted.reloadFromDisk();
 
-        spy.clear();
-
-        Mockito.doReturn(ocsp).when(spy).loadResponseFromFile(
-                Mockito.any(File.class));
-
-        assertNotNull(spy.get("foo"));
+        assertEquals(Set.of("foo"), restarted.storedKeys());
+        assertArrayEquals(ocsp.getEncoded(), restarted.get("foo").getEncoded());
     }
 
     /**
@@ -144,15 +122,27 @@ public class FileBasedOcspCacheTest {
      * @throws Exception if an error occurs
      */
     @Test
-    public void readOcspFromEmptyFile() throws Exception {
-        FileBasedOcspCache cache = new FileBasedOcspCache(globalConfProvider);
+    public void importResponseFilesOfEarlierVersions() throws Exception {
+        OCSPResp ocsp = createResponse(Date.from(TimeUtils.now().plus(1, ChronoUnit.DAYS)));
+        Path legacyFile = tempFolder.getRoot().toPath().resolve("foo.ocsp");
+        Files.write(legacyFile, ocsp.getEncoded());
+        Files.write(tempFolder.getRoot().toPath().resolve("empty.ocsp"), new byte[0]);
 
-        File f = mock(File.class);
-        when(f.exists()).thenReturn(true);
-        when(f.length()).thenReturn(0L);
-        when(f.delete()).thenReturn(true);
+        FileBasedOcspCache cache = createCache();
+        cache.reloadFromDisk();
+
+        assertFalse(Files.exists(legacyFile));
+        assertEquals(Set.of("foo"), cache.storedKeys());
+        assertNotNull(cache.get("foo"));
+    }
+
+    private FileBasedOcspCache createCache() {
+        return new FileBasedOcspCache(globalConfProvider, tempFolder.getRoot().toPath());
+    }
 
-        assertNull(cache.loadResponseFromFile(f));
+    private static OCSPResp createResponse(Date thisUpdate) throws Exception {
+        return OcspTestUtils.createOCSPResponse(subject, issuer, signer, signerKey, CertificateStatus.GOOD,
+                thisUpdate, null);
     }
 
     /**
@@ -69,8 +69,10 @@ import java.util.Map;
 
 import static ee.ria.xroad.common.SystemProperties.getConfigurationPath;
 import static ee.ria.xroad.common.util.CryptoUtils.calculateCertHexHash;
+import static ee.ria.xroad.common.util.CryptoUtils.calculateCertSha1HexHash;
 import static ee.ria.xroad.common.util.JettyUtils.setContentType;
 import static org.eclipse.jetty.io.Content.Sink.asOutputStream;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.Mockito.mock;
@@ -201,6 +203,37 @@ class OcspClientTest {
         verifier.verifyValidityAndStatus(ocsp, subject, globalConfProvider.getCaCert("EE", subject));
     }
 
+    /**
+     * Test.
+     *
+     * @throws Exception if an error occurs
+     */
+    @Test
+    void refreshCycleStoresFetchedResponses() throws Exception {
+        X509Certificate subject = getDefaultClientCert();
+
+        when(globalConfProvider.isValid()).thenReturn(true);
+
+        Date thisUpdate = Date.from(TimeUtils.now().plus(1, ChronoUnit.DAYS));
+
+        responseData = OcspTestUtils.createOCSPResponse(subject, globalConfProvider.getCaCert("EE", subject),
+                ocspResponderCert, getOcspSignerKey(), CertificateStatus.GOOD, thisUpdate, null).getEncoded();
+
+        OcspClientWorker worker = new TestOcspClient(globalConfProvider, null, ocspClient) {
+            @Override
+            List<X509Certificate> getCertsForOcsp() {
+                return List.of(subject);
+            }
+        };
+
+        worker.execute(null);
+
+        assertNotNull(OCSP_RESPONSES.get(calculateCertSha1HexHash(subject)));
+        assertEquals(1, worker.getMetricRegistry().timer(OcspClientWorker.METRIC_CYCLE_DURATION).getCount());
+        assertEquals(0, worker.getMetricRegistry().histogram(OcspClientWorker.METRIC_CYCLE_FAILURES)
+                .getSnapshot().getMax());
+    }
+
     /**
      * Test.
      *
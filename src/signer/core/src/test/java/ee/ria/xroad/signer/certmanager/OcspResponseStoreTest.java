@@ -0,0 +1,141 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.signer.certmanager;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Set;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the append-only OCSP response store.
+ */
+public class OcspResponseStoreTest {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    @Test
+    public void putGetRemoveSurviveReopen() throws Exception {
+        Path directory = tempFolder.getRoot().toPath();
+
+        try (OcspResponseStore store = OcspResponseStore.open(directory)) {
+            store.put("a", bytes("first"));
+            store.put("b", bytes("second"));
+            store.put("a", bytes("replaced"));
+            store.remove("b");
+
+            assertArrayEquals(bytes("replaced"), store.get("a"));
+            assertNull(store.get("b"));
+        }
+
+        try (OcspResponseStore store = OcspResponseStore.open(directory)) {
+            assertEquals(Set.of("a"), store.keys());
+            assertArrayEquals(bytes("replaced"), store.get("a"));
+        }
+    }
+
+    @Test
+    public void truncateTornRecordOnRecovery() throws Exception {
+        Path directory = tempFolder.getRoot().toPath();
+        Path file = directory.resolve(OcspResponseStore.STORE_FILE_NAME);
+
+        try (OcspResponseStore store = OcspResponseStore.open(directory)) {
+            store.put("a", bytes("first"));
+        }
+
+        long validSize = Files.size(file);
+        // record header of a record whose data was never written
+        Files.write(file, new byte[] {0, 1, 0, 0, 0, 100, 1, 2, 3, 4, 'b'}, StandardOpenOption.APPEND);
+
+        try (OcspResponseStore store = OcspResponseStore.open(directory)) {
+            assertEquals(Set.of("a"), store.keys());
+            assertEquals(validSize, Files.size(file));
+
+            store.put("b", bytes("second"));
+            assertArrayEquals(bytes("second"), store.get("b"));
+        }
+    }
+
+    @Test
+    public void readRecordsAppendedAfterMapping() throws Exception {
+        try (OcspResponseStore store = OcspResponseStore.open(tempFolder.getRoot().toPath())) {
+            store.put("a", bytes("first"));
+            assertArrayEquals(bytes("first"), store.get("a"));
+
+            // grows the unmapped tail of the file past the mapping growth chunk
+            for (int i = 0; i < 20; i++) {
+                byte[] data = new byte[64 * 1024];
+                Arrays.fill(data, (byte) i);
+
+                store.put("key" + i, data);
+                assertArrayEquals(data, store.get("key" + i));
+            }
+
+            assertArrayEquals(bytes("first"), store.get("a"));
+        }
+    }
+
+    @Test
+    public void compactionKeepsRetainedCurrentData() throws Exception {
+        Path directory = tempFolder.getRoot().toPath();
+        Path file = directory.resolve(OcspResponseStore.STORE_FILE_NAME);
+
+        try (OcspResponseStore store = OcspResponseStore.open(directory)) {
+            for (int i = 0; i < 100; i++) {
+                store.put("a", bytes("a" + i));
+                store.put("b", bytes("b" + i));
+            }
+
+            long sizeBefore = Files.size(file);
+
+            store.compact((key, data) -> "a".equals(key));
+
+            assertTrue(Files.size(file) < sizeBefore);
+            assertEquals(Set.of("a"), store.keys());
+            assertArrayEquals(bytes("a99"), store.get("a"));
+        }
+
+        try (OcspResponseStore store = OcspResponseStore.open(directory)) {
+            assertArrayEquals(bytes("a99"), store.get("a"));
+        }
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.signer.tokenmanager;
+
+import ee.ria.xroad.common.TestCertUtil;
+import ee.ria.xroad.common.crypto.identifier.SignMechanism;
+import ee.ria.xroad.common.identifier.ClientId;
+import ee.ria.xroad.signer.model.Cert;
+import ee.ria.xroad.signer.model.CertRequest;
+import ee.ria.xroad.signer.model.Key;
+import ee.ria.xroad.signer.model.Token;
+import ee.ria.xroad.signer.protocol.dto.KeyInfo;
+import ee.ria.xroad.signer.tokenmanager.TokenRegistry.CertEntry;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.security.cert.X509Certificate;
+import java.util.List;
+
+import static ee.ria.xroad.common.util.CryptoUtils.calculateCertHexHash;
+import static ee.ria.xroad.common.util.CryptoUtils.calculateCertSha1HexHash;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the indexes and incremental rebuilding of {@link TokenRegistry}.
+ */
+public class TokenRegistryTest {
+
+    private static final ClientId.Conf MEMBER = ClientId.Conf.create("EE", "GOV", "1234");
+
+    private Token token;
+    private Key signKey;
+    private Key authKey;
+    private X509Certificate producerCert;
+    private X509Certificate consumerCert;
+
+    @Before
+    public void setUp() {
+        producerCert = TestCertUtil.getProducer().certChain[0];
+        consumerCert = TestCertUtil.getConsumer().certChain[0];
+
+        token = new Token("softToken", "0");
+
+        signKey = new Key(token, "signKey", SignMechanism.CKM_RSA_PKCS);
+        signKey.addCert(cert("producerCert", producerCert));
+        signKey.addCertRequest(new CertRequest("csr", MEMBER, "CN=producer", null, null));
+
+        authKey = new Key(token, "authKey", SignMechanism.CKM_RSA_PKCS);
+        authKey.addCert(cert("consumerCert", consumerCert));
+
+        token.addKey(signKey);
+        token.addKey(authKey);
+    }
+
+    @Test
+    public void indexesKeysCertsAndCertRequests() throws Exception {
+        TokenRegistry registry = TokenRegistry.build(List.of(token), null, null);
+
+        assertEquals("0", registry.getKey("signKey").token().tokenInfo().getId());
+        assertEquals(2, registry.getToken("0").tokenInfo().getKeyInfo().size());
+
+        assertEquals("producerCert", registry.getCert("producerCert").certificateInfo().getId());
+        assertEquals("authKey", registry.getCertBySha256Hash(calculateCertHexHash(consumerCert)).keyInfo().getId());
+        assertSame(producerCert, registry.getCertBySha1Hash(calculateCertSha1HexHash(producerCert)).certificate());
+        assertEquals("signKey", registry.getCertRequest("csr").keyInfo().getId());
+        assertEquals(MEMBER, registry.getCertRequest("csr").memberId());
+
+        assertEquals(2, registry.getCerts().size());
+        assertNull(registry.getKey("unknown"));
+        assertNull(registry.getCertBySha256Hash("unknown"));
+    }
+
+    @Test
+    public void reusesValueObjectsOfUnchangedKeys() {
+        TokenRegistry previous = TokenRegistry.build(List.of(token), null, null);
+
+        signKey.setFriendlyName("renamed");
+        TokenRegistry registry = TokenRegistry.build(List.of(token), previous, signKey);
+
+        KeyInfo signKeyInfo = registry.getKey("signKey").keyInfo();
+        assertNotSame(previous.getKey("signKey").keyInfo(), signKeyInfo);
+        assertEquals("renamed", signKeyInfo.getFriendlyName());
+        assertEquals("renamed", registry.getToken("0").tokenInfo().getKeyInfo().get(0).getFriendlyName());
+
+        assertSame(previous.getKey("authKey").keyInfo(), registry.getKey("authKey").keyInfo());
+    }
+
+    @Test
+    public void reflectsTokenChangesWithoutChangedKey() {
+        TokenRegistry previous = TokenRegistry.build(List.of(token), null, null);
+
+        token.setActive(true);
+        token.setAvailable(true);
+        TokenRegistry registry = TokenRegistry.build(List.of(token), previous, null);
+
+        assertFalse(previous.getToken("0").tokenInfo().isActive());
+        assertTrue(registry.getToken("0").tokenInfo().isActive());
+        assertFalse(registry.getKey("signKey").token().inactive());
+    }
+
+    @Test
+    public void updatesOnlyTokensOfChangedKeys() throws Exception {
+        Token otherToken = new Token("softToken", "1");
+        otherToken.addKey(new Key(otherToken, "otherKey", SignMechanism.CKM_RSA_PKCS));
+        TokenRegistry previous = TokenRegistry.build(List.of(token, otherToken), null, null);
+
+        signKey.getCerts().getFirst().setStatus("changed");
+        TokenRegistry registry = TokenRegistry.update(previous, List.of(signKey));
+
+        String sha1Hash = calculateCertSha1HexHash(producerCert);
+        CertEntry producer = registry.getCert("producerCert");
+        assertEquals("changed", producer.certificateInfo().getStatus());
+        assertNotEquals("changed", previous.getCert("producerCert").certificateInfo().getStatus());
+        assertSame(producer, registry.getCertBySha1Hash(sha1Hash));
+        assertSame(producer, registry.getCertBySha256Hash(calculateCertHexHash(producerCert)));
+        assertSame(producer, registry.getKey("signKey").certs().getFirst());
+        assertSame(registry.getKey("signKey").keyInfo(), registry.getCertRequest("csr").keyInfo());
+        assertEquals("changed", registry.getToken("0").tokenInfo().getKeyInfo().get(0).getCerts().get(0).getStatus());
+        assertEquals(List.of(producer, registry.getCert("consumerCert")), registry.getCerts());
+        assertSame(signKey, registry.findKeyByCertSha1Hash(sha1Hash));
+
+        // unchanged keys of the changed token refer to the new token entry but keep their value objects
+        assertSame(registry.getToken("0"), registry.getKey("authKey").token());
+        assertSame(previous.getKey("authKey").keyInfo(), registry.getKey("authKey").keyInfo());
+        assertSame(previous.getCert("consumerCert"), registry.getCert("consumerCert"));
+
+        // other tokens are not touched
+        assertSame(previous.getToken("1"), registry.getToken("1"));
+        assertSame(previous.getKey("otherKey"), registry.getKey("otherKey"));
+        assertSame(previous, TokenRegistry.update(previous, List.of()));
+    }
+
+    private static Cert cert(String id, X509Certificate certificate) {
+        Cert cert = new Cert(id);
+        cert.setCertificate(certificate);
+        cert.setMemberId(MEMBER);
+        cert.setActive(true);
+        return cert;
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.signer.tokenmanager.token;
+
+import org.junit.Test;
+import org.niis.xroad.signer.proto.SignReq;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests {@link BlockingTokenWorker} sign concurrency and exclusivity of management operations.
+ */
+public class BlockingTokenWorkerTest {
+    private static final byte[] SIGNATURE = {1, 2, 3};
+    private static final long TIMEOUT_SECONDS = 5;
+    private static final List<String> METRIC_NAMES = Stream.of(BlockingTokenWorker.METRIC_SIGN_CONCURRENCY,
+                    BlockingTokenWorker.METRIC_SIGNS_IN_FLIGHT, BlockingTokenWorker.METRIC_SIGN_QUEUE_WAIT)
+            .map(name -> "tokenWorker." + name)
+            .toList();
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    /**
+     * Signing operations run in parallel up to the sign concurrency of the token.
+     */
+    @Test
+    public void signsRunInParallel() throws Exception {
+        AbstractTokenWorker worker = workerWithConcurrency(2);
+        CountDownLatch bothSigning = new CountDownLatch(2);
+        when(worker.handleSign(any())).thenAnswer(invocation -> {
+            bothSigning.countDown();
+            assertTrue(bothSigning.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+            return SIGNATURE;
+        });
+
+        BlockingTokenWorker blockingWorker = new BlockingTokenWorker(worker);
+        Future<byte[]> first = executor.submit(() -> blockingWorker.handleSign(SignReq.getDefaultInstance()));
+        Future<byte[]> second = executor.submit(() -> blockingWorker.handleSign(SignReq.getDefaultInstance()));
+
+        assertArrayEquals(SIGNATURE, first.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertArrayEquals(SIGNATURE, second.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertEquals(2, BlockingTokenWorker.getMetricRegistry().getGauges()
+                .get("tokenWorker." + BlockingTokenWorker.METRIC_SIGN_CONCURRENCY).getValue());
+    }
+
+    /**
+     * With the default sign concurrency signing operations never overlap.
+     */
+    @Test
+    public void signsAreSerializedByDefault() throws Exception {
+        AbstractTokenWorker worker = workerWithConcurrency(1);
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        when(worker.handleSign(any())).thenAnswer(invocation -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            Thread.sleep(10);
+            inFlight.decrementAndGet();
+            return SIGNATURE;
+        });
+
+        BlockingTokenWorker blockingWorker = new BlockingTokenWorker(worker);
+        Future<?>[] signs = new Future<?>[4];
+        for (int i = 0; i < signs.length; i++) {
+            signs[i] = executor.submit(() -> blockingWorker.handleSign(SignReq.getDefaultInstance()));
+        }
+        for (Future<?> sign : signs) {
+            sign.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        }
+
+        assertEquals(1, maxInFlight.get());
+    }
+
+    /**
+     * Key management waits until in-flight signing operations have finished.
+     */
+    @Test
+    public void managementWaitsForSigns() throws Exception {
+        AbstractTokenWorker worker = workerWithConcurrency(2);
+        CountDownLatch signing = new CountDownLatch(1);
+        CountDownLatch finishSign = new CountDownLatch(1);
+        when(worker.handleSign(any())).thenAnswer(invocation -> {
+            signing.countDown();
+            assertTrue(finishSign.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+            return SIGNATURE;
+        });
+
+        BlockingTokenWorker blockingWorker = new BlockingTokenWorker(worker);
+        Future<byte[]> sign = executor.submit(() -> blockingWorker.handleSign(SignReq.getDefaultInstance()));
+        assertTrue(signing.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+
+        executor.submit(() -> blockingWorker.handleDeleteKey("keyId"));
+        verify(worker, after(200).never()).handleDeleteKey("keyId");
+
+        finishSign.countDown();
+        assertArrayEquals(SIGNATURE, sign.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        verify(worker, timeout(TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS))).handleDeleteKey("keyId");
+    }
+
+    /**
+     * A destroyed worker removes its metrics, but not the metrics of a worker recreated for the same token.
+     */
+    @Test
+    public void destroyRemovesOwnMetrics() {
+        BlockingTokenWorker previous = new BlockingTokenWorker(workerWithConcurrency(1));
+        BlockingTokenWorker current = new BlockingTokenWorker(workerWithConcurrency(1));
+
+        previous.destroy();
+        assertTrue(BlockingTokenWorker.getMetricRegistry().getNames().containsAll(METRIC_NAMES));
+
+        current.destroy();
+        assertTrue(METRIC_NAMES.stream().noneMatch(BlockingTokenWorker.getMetricRegistry().getNames()::contains));
+    }
+
+    private static AbstractTokenWorker workerWithConcurrency(int signConcurrency) {
+        AbstractTokenWorker worker = mock(AbstractTokenWorker.class);
+        when(worker.getSignConcurrency()).thenReturn(signConcurrency);
+        return worker;
+    }
+}